@@ -0,0 +1,33 @@
+package com.fmigliaro.almundo;
+
+import com.fmigliaro.almundo.controller.DispatcherBenchmark;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Ejecuta las suites de benchmarks con distintas cantidades de threads concurrentes, de manera de detectar<br/>
+ * regresiones de contención además de regresiones de latencia con un único thread. Los benchmarks con virtual<br/>
+ * threads sólo se incluyen si la JVM los soporta.<br/>
+ * Recibe opcionalmente por parámetro la expresión regular de los benchmarks a ejecutar.
+ */
+public class BenchmarkRunner {
+
+    private static final int[] THREAD_COUNTS = {1, 4, 16};
+
+    public static void main(String[] args) throws RunnerException {
+
+        final String include = args.length > 0 ? args[0] : ".*Benchmark.*";
+
+        for (int threads : THREAD_COUNTS) {
+            final Options options = new OptionsBuilder()
+                    .include(include)
+                    .threads(threads)
+                    .param("executor", DispatcherBenchmark.supportedExecutors())
+                    .build();
+
+            new Runner(options).run();
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.fmigliaro.almundo.controller;
+
+import com.fmigliaro.almundo.controller.handler.CallHandler;
+import com.fmigliaro.almundo.controller.handler.HandlerChains;
+import com.fmigliaro.almundo.model.Call;
+import com.fmigliaro.almundo.utility.CallRegistrationAware;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark del throughput de despacho: cada invocación despacha un lote de llamadas con
+ * {@link Dispatcher#dispatchCalls()} y espera a que finalicen todas.<p/>
+ *
+ * Con <code>durationMs=0</code> se mide el costo de envío al executor y de asignación. Con <code>durationMs=1</code>
+ * las llamadas ocupan a su thread, por lo que se compara la concurrencia de un pool fijo de 10 threads
+ * (<code>fixed</code>) contra un virtual thread por llamada (<code>virtual</code>).<br/>
+ * <code>batched</code> utiliza el modo por lotes ({@link Dispatcher#setBatching}) sobre el mismo pool fijo: un único
+ * worker toma las llamadas de a {@value #BATCH_SIZE} y programa su finalización en un scheduler del mismo tamaño,
+ * por lo que las llamadas no ocupan threads mientras duran.<p/>
+ *
+ * <code>virtual</code> requiere JDK 21, por lo que no se incluye por defecto: se ejecuta con
+ * <code>-p executor=fixed,virtual,batched</code>, o con {@link com.fmigliaro.almundo.BenchmarkRunner}, que lo
+ * incluye si la JVM soporta virtual threads.<br/>
+ * Cada thread del benchmark despacha sus propias llamadas: una misma llamada nunca está en dos lotes a la vez.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dlog4j.configurationFile=log4j2-benchmark.xml")
+@State(Scope.Benchmark)
+public class DispatcherBenchmark {
+
+    private static final int CALLS_PER_BATCH = 1000;
+    private static final int FIXED_POOL_SIZE = 10;
+    private static final int BATCH_SIZE = 64;
+    private static final long DRAIN_TIMEOUT_MS = 60_000;
+    private static final CallRegistrationAware NO_REGISTRATION = employee -> { };
+
+    @Param({"fixed", "batched"})
+    private String executor;
+
+    @Param({"100", "1000"})
+    private int employees;
+
+    @Param({"0", "1"})
+    private int durationMs;
+
+    private ExecutorService executorService;
+    private ScheduledExecutorService scheduler;
+    private CallHandler chain;
+
+    @State(Scope.Thread)
+    public static class Batch {
+
+        private final List<Call> calls = new ArrayList<>(CALLS_PER_BATCH);
+
+        @Setup
+        public void setUp(DispatcherBenchmark benchmark) {
+            for (int i = 0; i < CALLS_PER_BATCH; i++) {
+                calls.add(new Call(benchmark.durationMs));
+            }
+        }
+    }
+
+    /**
+     * @return Los valores del parámetro <code>executor</code> que soporta la JVM actual.
+     */
+    public static String[] supportedExecutors() {
+        return Dispatcher.isVirtualThreadSupported()
+                ? new String[]{"fixed", "virtual", "batched"}
+                : new String[]{"fixed", "batched"};
+    }
+
+    @Setup
+    public void setUp() {
+
+        chain = HandlerChains.create(employees, employees, employees);
+        executorService = "virtual".equals(executor)
+                ? Dispatcher.withVirtualThreads(chain, null, NO_REGISTRATION).getExecutorService()
+                : new ThreadPoolExecutor(FIXED_POOL_SIZE, FIXED_POOL_SIZE, 0, TimeUnit.MILLISECONDS,
+                        new LinkedBlockingQueue<>());
+        scheduler = Executors.newScheduledThreadPool(FIXED_POOL_SIZE);
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException {
+        scheduler.shutdown();
+        executorService.shutdown();
+        executorService.awaitTermination(DRAIN_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CALLS_PER_BATCH)
+    public boolean dispatchBatch(Batch batch) throws InterruptedException {
+
+        final Dispatcher dispatcher = new Dispatcher(executorService, chain, batch.calls, NO_REGISTRATION);
+        if ("batched".equals(executor)) {
+            dispatcher.setBatching(scheduler, BATCH_SIZE, CALLS_PER_BATCH);
+        }
+        dispatcher.dispatchCalls();
+        return dispatcher.awaitIdle(DRAIN_TIMEOUT_MS);
+    }
+}
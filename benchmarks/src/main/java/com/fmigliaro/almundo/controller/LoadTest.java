@@ -0,0 +1,77 @@
+package com.fmigliaro.almundo.controller;
+
+import com.fmigliaro.almundo.controller.handler.OperatorHandler;
+import com.fmigliaro.almundo.model.CallFactory;
+import com.fmigliaro.almundo.model.Director;
+import com.fmigliaro.almundo.model.DurationDistribution;
+import com.fmigliaro.almundo.model.Operator;
+import com.fmigliaro.almundo.model.Supervisor;
+import com.fmigliaro.almundo.simulation.ArrivalSchedule;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Prueba de carga de lazo abierto del Dispatcher con el {@link LoadGenerator}, en tiempo real.<p/>
+ *
+ * Uso:<br/>
+ * <pre>
+ * java -cp target/benchmarks.jar com.fmigliaro.almundo.controller.LoadTest \
+ *      llamadasPorSegundo cantidadDeLlamadas duracionMediaMs operadores supervisores directores [traza]
+ * </pre>
+ * Las duraciones son exponenciales con la media indicada. Si se indica un archivo de traza (ver<br/>
+ * {@link ArrivalSchedule#readTrace}), los ingresos se toman de ella y se ignoran la tasa y la cantidad de llamadas.<br/>
+ * El informe, con los percentiles de latencia por nivel, se imprime en la salida estándar.
+ */
+public class LoadTest {
+
+    private static final long SEED = 42;
+    private static final int TIME_BEFORE_RETRY_MS = 3000;
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+
+        if (args.length < 6) {
+            System.err.println("Uso: LoadTest llamadasPorSegundo cantidadDeLlamadas duracionMediaMs operadores " +
+                    "supervisores directores [traza]");
+            System.exit(1);
+        }
+        final double callsPerSecond = Double.parseDouble(args[0]);
+        final int totalCalls = Integer.parseInt(args[1]);
+        final CallFactory callFactory = new CallFactory(DurationDistribution.exponential(Double.parseDouble(args[2])));
+
+        final List<Operator> ops = new ArrayList<>();
+        final List<Supervisor> sups = new ArrayList<>();
+        final List<Director> dirs = new ArrayList<>();
+        for (int i = 1; i <= Integer.parseInt(args[3]); i++) {
+            ops.add(new Operator("Op" + i));
+        }
+        for (int i = 1; i <= Integer.parseInt(args[4]); i++) {
+            sups.add(new Supervisor("Sup" + i));
+        }
+        for (int i = 1; i <= Integer.parseInt(args[5]); i++) {
+            dirs.add(new Director("Dir" + i));
+        }
+        final OperatorHandler chain = ShardedDispatcher.partition(ops, sups, dirs, 1, TIME_BEFORE_RETRY_MS).get(0);
+
+        final LoadGenerator generator = args.length > 6
+                ? LoadGenerator.fromTrace(ArrivalSchedule.readTrace(Paths.get(args[6])), callFactory, chain.getClock())
+                : LoadGenerator.poisson(callsPerSecond, totalCalls, callFactory, SEED, chain.getClock());
+
+        //Un thread por llamada en curso: la cantidad de threads no limita la carga generada.
+        final ExecutorService executorService = Executors.newCachedThreadPool();
+        final Dispatcher dispatcher = new Dispatcher(executorService, chain, null, generator.getCallRegistration());
+        dispatcher.setShedCallListener(generator.getShedCallListener());
+        chain.setShedCallListener(generator.getShedCallListener());
+
+        try {
+            System.out.println(generator.run(dispatcher, TimeUnit.MINUTES.toMillis(5)));
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+}
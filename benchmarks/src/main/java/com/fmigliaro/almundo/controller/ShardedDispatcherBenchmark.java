@@ -0,0 +1,100 @@
+package com.fmigliaro.almundo.controller;
+
+import com.fmigliaro.almundo.model.Call;
+import com.fmigliaro.almundo.model.Director;
+import com.fmigliaro.almundo.model.Operator;
+import com.fmigliaro.almundo.model.Supervisor;
+import com.fmigliaro.almundo.utility.CallRegistrationAware;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark del throughput de {@link ShardedDispatcher} según la cantidad de shards: cada invocación despacha un<br/>
+ * lote de llamadas de duración 0 y espera a que finalicen todas. Ejecutado con distintas cantidades de threads<br/>
+ * (ver {@link com.fmigliaro.almundo.BenchmarkRunner}), permite verificar que el throughput escala con la cantidad<br/>
+ * de cores cuando hay un shard por core, mientras que con un único shard todos los threads compiten por las mismas<br/>
+ * colas de empleados.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dlog4j.configurationFile=log4j2-benchmark.xml")
+@State(Scope.Benchmark)
+public class ShardedDispatcherBenchmark {
+
+    private static final int CALLS_PER_BATCH = 1000;
+    private static final int EMPLOYEES_PER_TIER = 1000;
+    private static final int RETRY_TIMEOUT_MS = 3000;
+    private static final long STEAL_INTERVAL_MS = 1;
+    private static final long DRAIN_TIMEOUT_MS = 60_000;
+    private static final CallRegistrationAware NO_REGISTRATION = employee -> { };
+
+    @Param({"1", "4", "16"})
+    private int shards;
+
+    private ScheduledExecutorService scheduler;
+    private ShardedDispatcher dispatcher;
+
+    @State(Scope.Thread)
+    public static class Batch {
+
+        private final List<Call> calls = new ArrayList<>(CALLS_PER_BATCH);
+
+        @Setup
+        public void setUp() {
+            for (int i = 0; i < CALLS_PER_BATCH; i++) {
+                calls.add(new Call(0));
+            }
+        }
+    }
+
+    @Setup
+    public void setUp() {
+
+        final List<Operator> operators = new ArrayList<>();
+        final List<Supervisor> supervisors = new ArrayList<>();
+        final List<Director> directors = new ArrayList<>();
+        for (int i = 1; i <= EMPLOYEES_PER_TIER; i++) {
+            operators.add(new Operator("Op" + i));
+            supervisors.add(new Supervisor("Sup" + i));
+            directors.add(new Director("Dir" + i));
+        }
+        scheduler = Executors.newScheduledThreadPool(Runtime.getRuntime().availableProcessors());
+        dispatcher = new ShardedDispatcher(
+                ShardedDispatcher.partition(operators, supervisors, directors, shards, RETRY_TIMEOUT_MS),
+                NO_REGISTRATION, scheduler, STEAL_INTERVAL_MS);
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException {
+        dispatcher.stop();
+        scheduler.shutdown();
+        scheduler.awaitTermination(DRAIN_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CALLS_PER_BATCH)
+    public boolean dispatchBatch(Batch batch) throws InterruptedException {
+
+        dispatcher.dispatchCalls(batch.calls);
+        return dispatcher.awaitIdle(DRAIN_TIMEOUT_MS);
+    }
+}
@@ -0,0 +1,63 @@
+package com.fmigliaro.almundo.controller.handler;
+
+import com.fmigliaro.almundo.model.Call;
+import com.fmigliaro.almundo.model.Operator;
+import com.fmigliaro.almundo.utility.CallRegistrationAware;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks de la obtención y liberación de empleados en la cadena de handlers.<br/>
+ * Las llamadas tienen duración 0, por lo que se mide únicamente el costo de la asignación: poll sobre la cola de<br/>
+ * empleados, registración y devolución del empleado.<p/>
+ *
+ * <ul>
+ *     <li><b>acquireAndRelease</b>: hay Operadores disponibles, la llamada se resuelve en el primer handler.</li>
+ *     <li><b>fallThroughToDirectors</b>: no hay Operadores ni Supervisores, cada llamada recorre la cadena
+ *     completa hasta llegar a un Director.</li>
+ * </ul>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Dlog4j.configurationFile=log4j2-benchmark.xml")
+@State(Scope.Benchmark)
+public class EmployeeHandlerBenchmark {
+
+    private static final CallRegistrationAware NO_REGISTRATION = employee -> { };
+
+    @Param({"10", "100", "1000"})
+    private int employees;
+
+    private final Call call = new Call(0);
+    private EmployeeHandler<Operator> chain;
+    private EmployeeHandler<Operator> chainWithDirectorsOnly;
+
+    @Setup
+    public void setUp() {
+        chain = HandlerChains.create(employees, employees, employees);
+        chainWithDirectorsOnly = HandlerChains.create(0, 0, employees);
+    }
+
+    @Benchmark
+    public void acquireAndRelease() {
+        chain.handleCall(call, NO_REGISTRATION);
+    }
+
+    @Benchmark
+    public void fallThroughToDirectors() {
+        chainWithDirectorsOnly.handleCall(call, NO_REGISTRATION);
+    }
+}
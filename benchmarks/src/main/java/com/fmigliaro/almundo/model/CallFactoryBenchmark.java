@@ -0,0 +1,56 @@
+package com.fmigliaro.almundo.model;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark de la generación concurrente de llamadas con cada distribución de duraciones. Ejecutado con varios<br/>
+ * threads (ver {@link com.fmigliaro.almundo.BenchmarkRunner}), permite verificar que la generación escala sin<br/>
+ * contención entre threads.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Dlog4j.configurationFile=log4j2-benchmark.xml")
+@State(Scope.Benchmark)
+public class CallFactoryBenchmark {
+
+    @Param({"uniform", "exponential", "logNormal"})
+    private String distribution;
+
+    private CallFactory factory;
+
+    @Setup
+    public void setUp() {
+        switch (distribution) {
+            case "uniform":
+                factory = new CallFactory(DurationDistribution.uniform(5000, 5000));
+                break;
+            case "exponential":
+                factory = new CallFactory(DurationDistribution.exponential(7500));
+                break;
+            case "logNormal":
+                factory = new CallFactory(DurationDistribution.logNormal(6000, 0.6));
+                break;
+            default:
+                throw new IllegalArgumentException("Distribución desconocida: " + distribution);
+        }
+    }
+
+    @Benchmark
+    public Call newCall() {
+        return factory.newCall();
+    }
+}
@@ -0,0 +1,77 @@
+package com.fmigliaro.almundo.utility;
+
+import com.fmigliaro.almundo.model.Employee;
+import com.fmigliaro.almundo.model.Operator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark de cada implementación de {@link CallRegistrationAware}.<br/>
+ * Para {@link CallRegistrationMap}, cada operación registra y consume un empleado, dado que la cola está acotada<br/>
+ * y se bloquearía al llenarse. Para {@link AsyncCallRegistration} se mide el costo de publicar en el buffer, con<br/>
+ * el logger como sink.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Dlog4j.configurationFile=log4j2-benchmark.xml")
+@State(Scope.Benchmark)
+public class CallRegistrationBenchmark {
+
+    private static final int REGISTRATION_MAP_SIZE = 1024;
+    private static final int ASYNC_BUFFER_SIZE = 64 * 1024;
+
+    @Param({"logger", "map", "async"})
+    private String implementation;
+
+    private final Employee employee = new Operator("Op1");
+    private CallRegistrationAware callReg;
+
+    @Setup
+    public void setUp() {
+        switch (implementation) {
+            case "logger":
+                callReg = new CallRegistrationLogger();
+                break;
+            case "map":
+                callReg = new CallRegistrationMap(REGISTRATION_MAP_SIZE);
+                break;
+            case "async":
+                callReg = new AsyncCallRegistration(CallRegistrationSink.of(new CallRegistrationLogger()),
+                        ASYNC_BUFFER_SIZE);
+                break;
+            default:
+                throw new IllegalArgumentException("Implementación desconocida: " + implementation);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (callReg instanceof AsyncCallRegistration) {
+            ((AsyncCallRegistration) callReg).close();
+        }
+    }
+
+    @Benchmark
+    public Object register() {
+
+        callReg.addEmployeeInCallProcessingOrder(employee);
+        if (callReg instanceof CallRegistrationMap) {
+            return ((CallRegistrationMap) callReg).getEmployeeTypeFromQueue();
+        }
+        return callReg;
+    }
+}
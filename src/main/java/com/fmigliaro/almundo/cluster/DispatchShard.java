@@ -0,0 +1,287 @@
+package com.fmigliaro.almundo.cluster;
+
+import com.fmigliaro.almundo.controller.handler.EmployeeHandler;
+import com.fmigliaro.almundo.model.Call;
+import com.fmigliaro.almundo.utility.CallRegistrationAware;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Shard de un despacho particionado: un subconjunto de los empleados (su propia cadena de handlers), que se<br/>
+ * comunica con los demás shards a través de un {@link ShardTransport}.<p/>
+ *
+ * Cada llamada recibida se asigna primero a un empleado del shard local. Si no hay ninguno disponible, la llamada<br/>
+ * espera en la cola del shard (y no en la cola de espera de la cadena), de donde puede tomarla otro shard: cuando<br/>
+ * un shard tiene empleados disponibles y ninguna llamada propia en espera, le roba la llamada más antigua al shard<br/>
+ * con más llamadas en espera. El robo se intenta al finalizar cada llamada y, periódicamente, mientras el shard<br/>
+ * esté inactivo. De esta manera, la capacidad total escala agregando shards, incluso en distintos procesos.<p/>
+ *
+ * Las llamadas se procesan en modo asincrónico (ver {@link EmployeeHandler#handleCallAsync}), por lo que ningún<br/>
+ * thread queda ocupado mientras las llamadas esperan o se atienden.
+ */
+public class DispatchShard implements ShardEndpoint {
+
+    private static final Logger log = LogManager.getLogger(DispatchShard.class);
+
+    private final String nodeId;
+    private final EmployeeHandler<?> chain;
+    private final CallRegistrationAware callReg;
+    private final ScheduledExecutorService scheduler;
+    private final ShardTransport transport;
+
+    private final Deque<Call> waitingCalls = new ArrayDeque<>();
+    private final Lock lock = new ReentrantLock();
+    private final LongAdder completedCalls = new LongAdder();
+    private final LongAdder stolenCalls = new LongAdder();
+    private final LongAdder givenUpCalls = new LongAdder();
+    private ScheduledFuture<?> stealTask;
+    private volatile boolean running;
+    private Runnable callFinishedListener = () -> { };
+
+    /**
+     * @param nodeId Id del shard, único entre los shards conectados al transporte.
+     * @param chain Cadena de handlers con los empleados del shard.
+     * @param callReg Objeto que permite registrar el orden en que los empleados atendieron las llamadas.
+     * @param scheduler Scheduler encargado de disparar la finalización de las llamadas y los intentos de robo.
+     * @param transport Medio de comunicación con los demás shards.
+     */
+    public DispatchShard(String nodeId, EmployeeHandler<?> chain, CallRegistrationAware callReg,
+                         ScheduledExecutorService scheduler, ShardTransport transport) {
+        this.nodeId = nodeId;
+        this.chain = chain;
+        this.callReg = callReg;
+        this.scheduler = scheduler;
+        this.transport = transport;
+    }
+
+    /**
+     * Conecta el shard al transporte y comienza a intentar robar llamadas periódicamente mientras esté inactivo.
+     */
+    public void start(long stealIntervalMs) {
+        running = true;
+        transport.join(nodeId, this);
+        stealTask = scheduler.scheduleWithFixedDelay(this::stealIfIdle, stealIntervalMs, stealIntervalMs,
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Desconecta el shard. Las llamadas en curso y en espera continúan procesándose localmente.
+     */
+    public void stop() {
+        running = false;
+        if (stealTask != null) {
+            stealTask.cancel(false);
+        }
+        transport.leave(nodeId);
+    }
+
+    /**
+     * Permite ser notificado al finalizar cada llamada atendida por este shard (incluidas las robadas).<br/>
+     * Debe invocarse antes de {@link #start}.
+     */
+    public void setCallFinishedListener(Runnable callFinishedListener) {
+        this.callFinishedListener = callFinishedListener;
+    }
+
+    /**
+     * Asigna la llamada a un empleado local sólo si hay uno disponible y ninguna llamada esperando en el shard.<br/>
+     * Permite a quien reparte las llamadas entre shards probar otro shard antes de dejarla en espera.
+     *
+     * @return true si la llamada fue asignada.
+     */
+    public boolean tryDispatch(Call call) {
+
+        if (chain.getIdleEmployeeCount() == 0) {
+            return false;
+        }
+        call.setReceivedNanos(chain.getClock().nanoTime());
+        lock.lock();
+        try {
+            return waitingCalls.isEmpty() && tryAssign(call);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Recibe una llamada, asignándola a un empleado local o dejándola en espera en el shard.
+     */
+    public void submit(Call call) {
+
+        call.setReceivedNanos(chain.getClock().nanoTime());
+        lock.lock();
+        try {
+            //Si hay llamadas esperando, la nueva llamada no puede adelantárseles.
+            if (waitingCalls.isEmpty() && tryAssign(call)) {
+                return;
+            }
+            waitingCalls.addLast(call);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int getWaitingCalls() {
+        lock.lock();
+        try {
+            return waitingCalls.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Call giveUpWaitingCall() {
+
+        lock.lock();
+        try {
+            final Call call = waitingCalls.pollFirst();
+            if (call != null) {
+                givenUpCalls.increment();
+            }
+            return call;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    public long getCompletedCalls() {
+        return completedCalls.sum();
+    }
+
+    /**
+     * @return Cantidad de llamadas que este shard tomó de otros shards.
+     */
+    public long getStolenCalls() {
+        return stolenCalls.sum();
+    }
+
+    /**
+     * @return Cantidad de llamadas que este shard cedió a otros shards.
+     */
+    public long getGivenUpCalls() {
+        return givenUpCalls.sum();
+    }
+
+    /**
+     * Intenta asignar la llamada a un empleado local, sin encolarla en la cadena de handlers.
+     */
+    private boolean tryAssign(Call call) {
+
+        final CompletableFuture<Void> processed = chain.tryHandleCallAsync(call, callReg, scheduler);
+        if (processed == null) {
+            return false;
+        }
+        processed.whenComplete((result, throwable) -> callFinished());
+        return true;
+    }
+
+    /**
+     * Al liberarse un empleado, se atienden las llamadas en espera del shard y, si no queda ninguna, se intenta<br/>
+     * robar llamadas a otros shards.
+     */
+    private void callFinished() {
+
+        completedCalls.increment();
+        callFinishedListener.run();
+        final boolean noWaitingCalls;
+
+        lock.lock();
+        try {
+            Call call;
+            while ((call = waitingCalls.peekFirst()) != null && tryAssign(call)) {
+                waitingCalls.pollFirst();
+            }
+            noWaitingCalls = waitingCalls.isEmpty();
+        } finally {
+            lock.unlock();
+        }
+        if (noWaitingCalls) {
+            stealIfIdle();
+        }
+    }
+
+    private void stealIfIdle() {
+
+        if (!running || chain.getIdleEmployeeCount() == 0 || getWaitingCalls() > 0) {
+            return;
+        }
+        final List<String> peers = transport.peersOf(nodeId);
+        final List<CompletableFuture<Integer>> loads = new ArrayList<>(peers.size());
+        for (String peer : peers) {
+            loads.add(transport.waitingCalls(peer));
+        }
+        CompletableFuture.allOf(loads.toArray(new CompletableFuture<?>[0]))
+                .thenCompose(ignored -> {
+                    final String victim = mostLoaded(peers, loads);
+                    return victim != null ? transport.steal(victim) : CompletableFuture.<Call>completedFuture(null);
+                })
+                .whenComplete((call, throwable) -> {
+                    if (throwable != null) {
+                        log.error("Exception mientras el shard {} intentaba robar una llamada: ", nodeId, throwable);
+                    } else if (call != null) {
+                        stolenCalls.increment();
+                        receiveStolen(call);
+                    }
+                });
+    }
+
+    /**
+     * La llamada robada se atiende localmente. Si mientras tanto se ocuparon los empleados locales, queda en espera<br/>
+     * en este shard; de lo contrario, se intenta robar la siguiente. Ese intento se programa en el scheduler: con<br/>
+     * un transporte sincrónico, este método se ejecuta dentro de {@link #stealIfIdle()}, por lo que invocarlo<br/>
+     * directamente anidaría un nivel de stack por cada empleado disponible.
+     */
+    private void receiveStolen(Call call) {
+
+        final boolean assigned;
+        lock.lock();
+        try {
+            assigned = waitingCalls.isEmpty() && tryAssign(call);
+            if (!assigned) {
+                waitingCalls.addLast(call);
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (assigned && running) {
+            try {
+                scheduler.execute(this::stealIfIdle);
+            } catch (RejectedExecutionException ree) {
+                log.debug("El shard {} no pudo programar el robo de la siguiente llamada.", nodeId);
+            }
+        }
+    }
+
+    private static String mostLoaded(List<String> peers, List<CompletableFuture<Integer>> loads) {
+
+        String victim = null;
+        int maxWaiting = 0;
+        for (int i = 0; i < peers.size(); i++) {
+            final int waiting = loads.get(i).join();
+            if (waiting > maxWaiting) {
+                maxWaiting = waiting;
+                victim = peers.get(i);
+            }
+        }
+        return victim;
+    }
+}
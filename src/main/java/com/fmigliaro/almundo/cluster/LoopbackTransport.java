@@ -0,0 +1,49 @@
+package com.fmigliaro.almundo.cluster;
+
+import com.fmigliaro.almundo.model.Call;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Implementación de {@link ShardTransport} que conecta shards de una misma JVM, invocándolos directamente.<br/>
+ * Se utiliza en tests y para particionar a los empleados de un único proceso.
+ */
+public class LoopbackTransport implements ShardTransport {
+
+    private final Map<String, ShardEndpoint> endpoints = new ConcurrentHashMap<>();
+
+    @Override
+    public void join(String nodeId, ShardEndpoint endpoint) {
+        if (endpoints.putIfAbsent(nodeId, endpoint) != null) {
+            throw new IllegalStateException("Ya existe un shard con id " + nodeId);
+        }
+    }
+
+    @Override
+    public void leave(String nodeId) {
+        endpoints.remove(nodeId);
+    }
+
+    @Override
+    public List<String> peersOf(String nodeId) {
+        final List<String> peers = new ArrayList<>(endpoints.keySet());
+        peers.remove(nodeId);
+        return peers;
+    }
+
+    @Override
+    public CompletableFuture<Integer> waitingCalls(String nodeId) {
+        final ShardEndpoint endpoint = endpoints.get(nodeId);
+        return CompletableFuture.completedFuture(endpoint != null ? endpoint.getWaitingCalls() : 0);
+    }
+
+    @Override
+    public CompletableFuture<Call> steal(String victimNodeId) {
+        final ShardEndpoint endpoint = endpoints.get(victimNodeId);
+        return CompletableFuture.completedFuture(endpoint != null ? endpoint.giveUpWaitingCall() : null);
+    }
+}
@@ -0,0 +1,21 @@
+package com.fmigliaro.almundo.cluster;
+
+import com.fmigliaro.almundo.model.Call;
+
+/**
+ * Operaciones que un shard expone al resto de los shards a través de un {@link ShardTransport}.
+ */
+public interface ShardEndpoint {
+
+    /**
+     * @return Cantidad de llamadas que esperan un empleado en este shard.
+     */
+    int getWaitingCalls();
+
+    /**
+     * Cede a otro shard la llamada que hace más tiempo espera en este shard.
+     *
+     * @return La llamada cedida, o null si no hay llamadas en espera.
+     */
+    Call giveUpWaitingCall();
+}
@@ -0,0 +1,40 @@
+package com.fmigliaro.almundo.cluster;
+
+import com.fmigliaro.almundo.model.Call;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Medio de comunicación entre los shards de un despacho particionado (ver {@link DispatchShard}).<p/>
+ *
+ * Las operaciones remotas devuelven futures para que una implementación de red no bloquee a los threads del<br/>
+ * shard. Una implementación de red debe serializar las llamadas cedidas (id, duración, prioridad y habilidades<br/>
+ * requeridas); {@link LoopbackTransport} conecta shards dentro de una misma JVM.
+ */
+public interface ShardTransport {
+
+    /**
+     * Incorpora un shard, que a partir de este momento puede recibir pedidos del resto.
+     */
+    void join(String nodeId, ShardEndpoint endpoint);
+
+    void leave(String nodeId);
+
+    /**
+     * @return Los ids de los demás shards conectados.
+     */
+    List<String> peersOf(String nodeId);
+
+    /**
+     * @return Un future con la cantidad de llamadas en espera del shard indicado (0 si ya no está conectado).
+     */
+    CompletableFuture<Integer> waitingCalls(String nodeId);
+
+    /**
+     * Pide al shard indicado que ceda una de sus llamadas en espera.
+     *
+     * @return Un future con la llamada cedida, o con null si el shard no tenía llamadas en espera.
+     */
+    CompletableFuture<Call> steal(String victimNodeId);
+}
@@ -0,0 +1,61 @@
+package com.fmigliaro.almundo.controller;
+
+import com.fmigliaro.almundo.model.Call;
+
+import java.util.Iterator;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fuente de llamadas consumida por el Dispatcher en modo streaming.<br/>
+ * El Dispatcher sólo pide una nueva llamada cuando tiene capacidad para procesarla (demanda), por lo que la fuente<br/>
+ * nunca necesita acumular llamadas en memoria por cuenta del Dispatcher.
+ */
+public interface CallSource {
+
+    /**
+     * @return La próxima llamada, o null si no llegó ninguna dentro del tiempo de espera.
+     */
+    Call poll(long timeout, TimeUnit unit) throws InterruptedException;
+
+    /**
+     * @return true si la fuente no entregará más llamadas.
+     */
+    boolean isExhausted();
+
+    /**
+     * Crea una fuente a partir de una blocking queue, por ejemplo una alimentada por el consumidor de una cola de<br/>
+     * mensajes. La fuente nunca se agota: el streaming sólo finaliza al invocar {@link Dispatcher#stopStreaming()}.
+     */
+    static CallSource fromQueue(BlockingQueue<Call> queue) {
+        return new CallSource() {
+            @Override
+            public Call poll(long timeout, TimeUnit unit) throws InterruptedException {
+                return queue.poll(timeout, unit);
+            }
+
+            @Override
+            public boolean isExhausted() {
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Crea una fuente a partir de un iterador, que puede generar las llamadas de manera lazy. La fuente se agota<br/>
+     * cuando el iterador no tiene más elementos.
+     */
+    static CallSource fromIterator(Iterator<Call> iterator) {
+        return new CallSource() {
+            @Override
+            public Call poll(long timeout, TimeUnit unit) {
+                return iterator.hasNext() ? iterator.next() : null;
+            }
+
+            @Override
+            public boolean isExhausted() {
+                return !iterator.hasNext();
+            }
+        };
+    }
+}
@@ -1,15 +1,40 @@
 package com.fmigliaro.almundo.controller;
 
-import com.fmigliaro.almundo.controller.handler.EmployeeHandler;
+import com.fmigliaro.almundo.controller.admission.CallIntake;
+import com.fmigliaro.almundo.controller.admission.ShedCallListener;
+import com.fmigliaro.almundo.controller.admission.ShedReason;
+import com.fmigliaro.almundo.controller.handler.CallHandler;
+import com.fmigliaro.almundo.journal.CallSpillFile;
 import com.fmigliaro.almundo.model.Call;
+import com.fmigliaro.almundo.model.Employee;
 import com.fmigliaro.almundo.utility.CallRegistrationAware;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * Esta clase se encarga de despachar las llamadas. Las mismas son inyectadas en el Dispatcher al momento de su<br/>
@@ -22,33 +47,333 @@ import java.util.concurrent.TimeUnit;
  * no pudieron ser inmediatamente atendidos. Cuando exista algún thread disponible, consumirá de la cola interna los<br/>
  * Runnables y estos serán procesado por el thread.<br/><br/>
  * En el caso de que llegue una llamada y no haya lugar ni el pool ni en la cola interna, se procederá a descartar dicha<br/>
- * llamada.<p/>
+ * llamada, informándolo al {@link ShedCallListener} configurado, y se continúa inmediatamente con la siguiente.<br/><br/>
+ * Opcionalmente, el Dispatcher puede construirse con una {@link CallIntake}: en ese caso las llamadas no se envían<br/>
+ * directamente al executor sino que pasan por la cola de ingreso acotada (y su política de admisión), de la cual<br/>
+ * las consume un número máximo de workers ejecutados en el executor.<br/><br/>
+ * Además del procesamiento por lotes de la lista de llamadas inyectada, el Dispatcher puede correr como servicio<br/>
+ * consumiendo llamadas de una {@link CallSource} (ver {@link #dispatchStream}).<br/><br/>
+ * Para tasas de llamadas altas, el modo por lotes ({@link #setBatching}) evita una tarea del executor por llamada:<br/>
+ * las llamadas se acumulan en una cola acotada y un único worker las toma de a lotes y las asigna en un único<br/>
+ * recorrido de la cadena (ver {@link CallHandler#handleCallsAsync}).<p/>
+ *
+ * Ciclo de vida: el Dispatcher comienza a aceptar llamadas con {@link #start()} (o implícitamente con la primera<br/>
+ * llamada despachada). {@link #stopAccepting()} deja de aceptar llamadas nuevas; {@link #drain(long)} además espera,<br/>
+ * con un tiempo máximo, a que finalicen las llamadas en curso, y {@link #forceStop(long)} interrumpe a las que aún<br/>
+ * esperan a un empleado. Ambos cierran el executor, que a partir de ese momento pertenece al Dispatcher. Si se<br/>
+ * configuró un {@link CallSpillFile}, las llamadas que no llegaron a ser atendidas se vuelcan en él y se retoman al<br/>
+ * iniciar el próximo Dispatcher, de manera que un reinicio no pierde llamadas.<p/>
  *
  * Created by Francisco Migliaro on 07/12/2017.
  */
 class Dispatcher {
 
     private static final Logger log = LogManager.getLogger(Dispatcher.class);
-    private static final int REJECTED_TASK_WAIT_SEC = 3;
+    private static final String VIRTUAL_THREAD_EXECUTOR_FACTORY = "newVirtualThreadPerTaskExecutor";
+    private static final long STREAM_POLL_TIMEOUT_MS = 100;
+    private static final Runnable NO_OP = () -> { };
 
     private final List<Call> calls;
     private final ExecutorService executorService;
-    private final EmployeeHandler employeeHandler;
+    private final CallHandler callHandler;
     private final CallRegistrationAware callReg;
+    private final CallIntake intake;
+    private final int maxWorkers;
+    private final AtomicInteger activeWorkers = new AtomicInteger();
+    private final AtomicInteger callsInProcess = new AtomicInteger();
+    private final Lock idleLock = new ReentrantLock();
+    private final Condition idle = idleLock.newCondition();
+    private final AtomicReference<State> state = new AtomicReference<>(State.NEW);
+    private final Set<Call> unserved = ConcurrentHashMap.newKeySet();
+    private final Queue<Call> deferred = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean batchWorkerActive = new AtomicBoolean();
+    private volatile boolean streaming;
+    private volatile boolean asynchronous;
+    private ShedCallListener shedListener = ShedCallListener.LOGGING;
+    private CallSpillFile spillFile;
+    private boolean spillResumed;
+    private BlockingQueue<Call> batchQueue;
+    private ScheduledExecutorService batchScheduler;
+    private int batchSize;
+
+    /**
+     * Estados del ciclo de vida del Dispatcher.
+     */
+    enum State {
+
+        /** Creado, sin llamadas despachadas. */
+        NEW,
+
+        /** Aceptando llamadas. */
+        RUNNING,
+
+        /** Sin aceptar llamadas nuevas, esperando a que finalicen las llamadas en curso. */
+        DRAINING,
+
+        /** Detenido: el executor fue cerrado y las llamadas no atendidas fueron volcadas. */
+        TERMINATED
+    }
 
-    Dispatcher(ExecutorService executorService, EmployeeHandler employeeHandler, List<Call> calls,
+    Dispatcher(ExecutorService executorService, CallHandler callHandler, List<Call> calls,
                CallRegistrationAware callReg) {
+        this(executorService, callHandler, calls, callReg, null, 0);
+    }
+
+    /**
+     * Crea un Dispatcher con control de admisión.
+     *
+     * @param intake Cola de ingreso acotada por la cual pasan todas las llamadas antes de ser procesadas.
+     * @param maxWorkers Cantidad máxima de workers que consumen la cola de ingreso concurrentemente. Normalmente<br/>
+     *                   coincide con la cantidad de threads del executor.
+     */
+    Dispatcher(ExecutorService executorService, CallHandler callHandler, List<Call> calls,
+               CallRegistrationAware callReg, CallIntake intake, int maxWorkers) {
         this.executorService = executorService;
-        this.employeeHandler = employeeHandler;
+        this.callHandler = callHandler;
         this.calls = calls;
-        this.callReg = callReg;
+        this.callReg = new ServedCallTracker(callReg);
+        this.intake = intake;
+        this.maxWorkers = maxWorkers;
+    }
+
+    /**
+     * Crea un Dispatcher que procesa cada llamada en su propio virtual thread (JDK 21 o superior).<br/>
+     * De esta manera, la cantidad de llamadas concurrentes queda limitada por la cantidad de empleados y no por el<br/>
+     * tamaño de un pool de threads de plataforma. Los handlers sólo utilizan {@link java.util.concurrent.locks.Lock}<br/>
+     * y blocking queues del JDK, por lo que un virtual thread que espera a un empleado o que atiende una llamada no<br/>
+     * retiene a su carrier thread. No ocurre lo mismo con el logueo: con la configuración por defecto<br/>
+     * (<code>log4j2.xml</code>), el appender de consola de log4j2 escribe dentro de un bloque<br/>
+     * <code>synchronized</code>, por lo que cada mensaje logueado (por ejemplo, por<br/>
+     * <code>CallRegistrationLogger</code>) retiene al carrier thread mientras se escribe. Con<br/>
+     * <code>log4j2-async.xml</code> la escritura ocurre en otro thread.<br/><br/>
+     * El executor se obtiene por reflection para que el proyecto siga compilando con JDK 1.8. Es responsabilidad de<br/>
+     * quien invoca este método cerrarlo mediante {@link #getExecutorService()}.
+     *
+     * @throws UnsupportedOperationException Si la JVM no soporta virtual threads.
+     */
+    static Dispatcher withVirtualThreads(CallHandler callHandler, List<Call> calls,
+                                         CallRegistrationAware callReg) {
+        return new Dispatcher(newVirtualThreadPerTaskExecutor(), callHandler, calls, callReg);
+    }
+
+    static boolean isVirtualThreadSupported() {
+        try {
+            Executors.class.getMethod(VIRTUAL_THREAD_EXECUTOR_FACTORY);
+            return true;
+        } catch (NoSuchMethodException nsme) {
+            return false;
+        }
+    }
+
+    private static ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod(VIRTUAL_THREAD_EXECUTOR_FACTORY).invoke(null);
+
+        } catch (ReflectiveOperationException roe) {
+            throw new UnsupportedOperationException("Los virtual threads requieren JDK 21 o superior. JVM actual: " +
+                    System.getProperty("java.version"), roe);
+        }
+    }
+
+    ExecutorService getExecutorService() {
+        return executorService;
+    }
+
+    /**
+     * Permite indicar a quién se informan las llamadas rechazadas por el executor cuando el Dispatcher no tiene<br/>
+     * {@link CallIntake} (con ella, los descartes se informan al listener de la cola de ingreso). Por defecto se<br/>
+     * loguean. Debe invocarse antes de despachar llamadas.
+     */
+    void setShedCallListener(ShedCallListener shedListener) {
+        this.shedListener = shedListener;
+    }
+
+    /**
+     * Activa el modo por lotes: en lugar de enviar una tarea al executor por cada llamada, las llamadas se encolan en<br/>
+     * una cola acotada y un único worker, iniciado en el executor sólo cuando no hay otro activo, las toma de a<br/>
+     * lotes (<code>drainTo</code>) y las entrega a {@link CallHandler#handleCallsAsync}. Las llamadas se atienden de<br/>
+     * manera asincrónica, por lo que el worker nunca queda bloqueado durante una llamada ni mientras espera a un<br/>
+     * empleado. Si la cola está llena, despachar una llamada bloquea hasta que el worker libere lugar.<br/>
+     * Como con la {@link CallIntake}, en modo streaming la llamada deja de ocupar lugar en el Dispatcher al ser<br/>
+     * encolada. No puede combinarse con una {@link CallIntake}. Debe invocarse antes de despachar llamadas.
+     *
+     * @param scheduler Scheduler encargado de disparar la finalización de las llamadas.
+     * @param batchSize Cantidad máxima de llamadas que el worker toma por vez.
+     * @param maxPending Capacidad de la cola de llamadas pendientes de ser tomadas por el worker.
+     */
+    void setBatching(ScheduledExecutorService scheduler, int batchSize, int maxPending) {
+
+        if (intake != null) {
+            throw new IllegalStateException("El modo por lotes no puede combinarse con una cola de ingreso.");
+        }
+        if (batchSize < 1 || maxPending < 1) {
+            throw new IllegalArgumentException("El tamaño de lote y la capacidad de la cola deben ser positivos.");
+        }
+        this.batchScheduler = scheduler;
+        this.batchSize = batchSize;
+        this.batchQueue = new ArrayBlockingQueue<>(maxPending);
+    }
+
+    /**
+     * Permite indicar el archivo en el que se vuelcan las llamadas no atendidas al detener el Dispatcher, y del cual<br/>
+     * se retoman al iniciarlo. Sin archivo, no se lleva la cuenta de las llamadas despachadas que aún no fueron<br/>
+     * atendidas: {@link #forceStop(long)} sólo devuelve las que no llegaron a despacharse, y las que llegan luego de<br/>
+     * dejar de aceptar llamadas se descartan. Debe invocarse antes de {@link #start()}.
+     */
+    void setSpillFile(CallSpillFile spillFile) {
+        this.spillFile = spillFile;
+    }
+
+    State getState() {
+        return state.get();
+    }
+
+    /**
+     * Comienza a aceptar llamadas, retomando primero las volcadas por el Dispatcher anterior en el archivo de<br/>
+     * volcado. El archivo se elimina recién luego de despachar las llamadas retomadas, por lo que ante una caída<br/>
+     * durante el inicio, una llamada puede retomarse dos veces pero nunca perderse.
+     *
+     * @return La cantidad de llamadas retomadas.
+     * @throws IllegalStateException Si el Dispatcher ya había comenzado a aceptar llamadas.
+     */
+    int start() throws IOException, InterruptedException {
+
+        if (!state.compareAndSet(State.NEW, State.RUNNING)) {
+            throw new IllegalStateException("El Dispatcher ya fue iniciado. Estado actual: " + state.get());
+        }
+        if (spillFile == null) {
+            return 0;
+        }
+        spillResumed = true;
+        final List<Call> resumed = spillFile.read();
+        for (Call call : resumed) {
+            dispatch(call, NO_OP);
+        }
+        spillFile.delete();
+        if (!resumed.isEmpty()) {
+            log.info("Se retomaron {} llamadas volcadas en {}", resumed.size(), spillFile.getFile());
+        }
+        return resumed.size();
+    }
+
+    /**
+     * Deja de aceptar llamadas nuevas, incluyendo las del modo streaming. Las llamadas en curso continúan. Las que<br/>
+     * lleguen a partir de este momento se reservan para el archivo de volcado o, sin archivo, se descartan.
+     */
+    void stopAccepting() {
+
+        State current;
+        while ((current = state.get()) == State.NEW || current == State.RUNNING) {
+            if (state.compareAndSet(current, State.DRAINING)) {
+                log.info("El Dispatcher dejó de aceptar llamadas.");
+                break;
+            }
+        }
+        streaming = false;
+    }
+
+    /**
+     * Deja de aceptar llamadas y espera a que finalicen las llamadas en curso. Si finalizan dentro del tiempo de<br/>
+     * espera, cierra el executor y vuelca las llamadas que llegaron durante el drenado.
+     *
+     * @return true si el Dispatcher quedó detenido; false si venció el tiempo de espera, en cuyo caso las llamadas<br/>
+     * continúan y puede invocarse nuevamente este método o {@link #forceStop(long)}.
+     */
+    boolean drain(long timeoutMs) throws InterruptedException, IOException {
+
+        stopAccepting();
+        if (!awaitIdle(timeoutMs)) {
+            log.warn("Las llamadas en curso no finalizaron dentro de los {}ms de drenado.", timeoutMs);
+            return false;
+        }
+        executorService.shutdown();
+        terminate(new ArrayList<>());
+        return true;
+    }
+
+    /**
+     * Detiene el Dispatcher sin esperar a que se atiendan las llamadas pendientes: deja de aceptar llamadas, retira<br/>
+     * las llamadas de la cola de ingreso e interrumpe a los threads del executor. Las llamadas que esperaban a un<br/>
+     * empleado se cancelan y las que aún no habían comenzado a ejecutarse no se ejecutan; todas ellas se vuelcan<br/>
+     * junto con las que llegaron luego de dejar de aceptar llamadas. Las llamadas que ya estaban siendo atendidas se<br/>
+     * interrumpen (en modo por lotes o asincrónico, continúan) y se consideran atendidas.<br/>
+     * Si el executor no finaliza dentro del tiempo de espera, las llamadas que todavía se están ejecutando también<br/>
+     * se vuelcan, por lo que podrían llegar a atenderse dos veces. Sin archivo de volcado, sólo se devuelven las<br/>
+     * llamadas que no llegaron a despacharse (ver {@link #setSpillFile}).
+     *
+     * @param timeoutMs Tiempo máximo de espera a que finalicen los threads del executor.
+     * @return Las llamadas no atendidas, aproximadamente en el orden en que fueron creadas.
+     */
+    List<Call> forceStop(long timeoutMs) throws InterruptedException, IOException {
+
+        stopAccepting();
+        final List<Call> pending = new ArrayList<>();
+        if (intake != null) {
+            Call call;
+            while ((call = intake.poll()) != null) {
+                pending.add(call);
+            }
+        }
+        if (batchQueue != null) {
+            final int drained = batchQueue.drainTo(pending);
+            for (int i = pending.size() - drained; i < pending.size(); i++) {
+                untrackUnserved(pending.get(i));
+            }
+            callsFinished(drained);
+        }
+        for (Runnable neverStarted : executorService.shutdownNow()) {
+            if (neverStarted instanceof CallTask) {
+                ((CallTask) neverStarted).abandon();
+            }
+        }
+        if (!executorService.awaitTermination(timeoutMs, TimeUnit.MILLISECONDS)) {
+            log.warn("El executor no finalizó dentro de los {}ms. Se vuelcan también las llamadas que todavía se " +
+                    "están ejecutando.", timeoutMs);
+        }
+        if (batchQueue == null && !asynchronous) {
+            pending.addAll(unserved);
+        } else {
+            //En modo por lotes o asincrónico, las llamadas en espera no ocupan threads: se quitan de la cola de espera
+            //de la cadena. Las que no estaban esperando ya tienen un empleado asignado.
+            for (Call call : unserved) {
+                if (callHandler.cancel(call)) {
+                    pending.add(call);
+                }
+            }
+        }
+        unserved.clear();
+        pending.sort(Comparator.comparingLong(Call::getId));
+        return terminate(pending);
+    }
+
+    /**
+     * Vuelca las llamadas pendientes junto con las reservadas al dejar de aceptar llamadas. Si el Dispatcher no<br/>
+     * retomó el volcado anterior (no se invocó {@link #start()}), sus llamadas se conservan en el nuevo volcado.
+     */
+    private List<Call> terminate(List<Call> pending) throws IOException {
+
+        state.set(State.TERMINATED);
+        Call call;
+        while ((call = deferred.poll()) != null) {
+            pending.add(call);
+        }
+        if (spillFile != null) {
+            if (!spillResumed) {
+                pending.addAll(0, spillFile.read());
+            }
+            spillFile.write(pending);
+        }
+        signalIdle();
+        log.info("Dispatcher detenido. Llamadas no atendidas: {}", pending.size());
+        return pending;
     }
 
     /**
      * Método encargado de despachar las llamadas, enviándolas de manera asincrónica para su ejecución por un pool de<br/>
      * threads. En caso de que una llamada sea rechazada por no haber threads disponibles y no haber espacio en la <br/>
-     * work queue interna del thread pool, la llamada es rechazada y se esperan unos segundos antes de procesar la
-     * siguiente llamada.<br/>
+     * work queue interna del thread pool, la llamada es descartada y se continúa con la siguiente.<br/>
+     * Si el Dispatcher tiene una {@link CallIntake}, las llamadas se admiten en ella y el tiempo máximo que este<br/>
+     * método puede esperar por cada llamada es el definido por su política de admisión.
      *
      */
     void dispatchCalls() throws InterruptedException {
@@ -59,17 +384,449 @@ class Dispatcher {
             return;
         }
         for (Call call : calls) {
+            dispatch(call, NO_OP);
+        }
+    }
+
+    /**
+     * Modo streaming: consume llamadas de la fuente de manera indefinida, hasta que la fuente se agote o se invoque<br/>
+     * {@link #stopStreaming()}. Luego deja de pedir llamadas y espera a que finalicen las llamadas en curso.<br/><br/>
+     * Las llamadas se piden a la fuente sólo cuando hay demanda: sin {@link CallIntake}, nunca hay más de<br/>
+     * <code>maxInFlight</code> llamadas despachadas y no finalizadas; con {@link CallIntake}, la demanda la determina<br/>
+     * su política de admisión. Por lo tanto, la memoria utilizada es constante sin importar cuántas llamadas pasen<br/>
+     * por el Dispatcher.
+     *
+     * @param source Fuente de llamadas.
+     * @param maxInFlight Cantidad máxima de llamadas despachadas y no finalizadas (sólo sin {@link CallIntake}).
+     * @param drainTimeoutMs Tiempo máximo de espera a que finalicen las llamadas en curso.
+     * @return true si todas las llamadas en curso finalizaron dentro del tiempo de espera.
+     */
+    boolean dispatchStream(CallSource source, int maxInFlight, long drainTimeoutMs) throws InterruptedException {
+
+        final Semaphore demand = new Semaphore(maxInFlight);
+        streaming = true;
+        try {
+            while (streaming && !source.isExhausted()) {
+                if (!demand.tryAcquire(STREAM_POLL_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                    continue;
+                }
+                final Call call = source.poll(STREAM_POLL_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+                if (call == null) {
+                    demand.release();
+                    continue;
+                }
+                dispatch(call, demand::release);
+            }
+        } finally {
+            streaming = false;
+        }
+        log.info("Streaming de llamadas finalizado. Esperando a que finalicen las llamadas en curso...");
+        return awaitIdle(drainTimeoutMs);
+    }
+
+    /**
+     * Indica al modo streaming que deje de pedir llamadas a la fuente. Las llamadas en curso continúan.
+     */
+    void stopStreaming() {
+        streaming = false;
+    }
+
+    /**
+     * Espera a que no haya llamadas en proceso ni llamadas pendientes en la cola de ingreso.
+     *
+     * @return true si el Dispatcher quedó inactivo dentro del tiempo de espera.
+     */
+    boolean awaitIdle(long timeoutMs) throws InterruptedException {
+
+        long remainingNanos = TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        idleLock.lock();
+        try {
+            while (!isIdle()) {
+                if (remainingNanos <= 0) {
+                    return false;
+                }
+                remainingNanos = idle.awaitNanos(remainingNanos);
+            }
+            return true;
+        } finally {
+            idleLock.unlock();
+        }
+    }
+
+    private boolean isIdle() {
+        return callsInProcess.get() == 0 && (intake == null || intake.isEmpty());
+    }
+
+    /**
+     * Despacha la llamada, ya sea a través de la cola de ingreso o directamente al executor.
+     *
+     * @param onDispatched Acción a ejecutar cuando la llamada deja de ocupar lugar en el Dispatcher: al ser admitida<br/>
+     *                     en la cola de ingreso (que está acotada), o al finalizar o ser descartada sin ella.
+     */
+    private void dispatch(Call call, Runnable onDispatched) throws InterruptedException {
+
+        if (!accept(call)) {
+            onDispatched.run();
+            return;
+        }
+        if (batchQueue != null) {
+            callsInProcess.incrementAndGet();
+            trackUnserved(call);
+            try {
+                batchQueue.put(call);
+            } catch (InterruptedException ie) {
+                untrackUnserved(call);
+                callFinished();
+                throw ie;
+            } finally {
+                onDispatched.run();
+            }
+            startBatchWorkerIfNeeded();
+            return;
+        }
+        if (intake != null) {
             try {
-                executorService.execute(() ->
-                        employeeHandler.handleCall(call, callReg)
-                );
+                if (intake.offer(call)) {
+                    startWorkerIfNeeded();
+                }
+            } finally {
+                onDispatched.run();
+            }
+            return;
+        }
+        callsInProcess.incrementAndGet();
+        trackUnserved(call);
+        try {
+            executorService.execute(new CallTask(call, onDispatched));
+
+        } catch (RejectedExecutionException ree) {
+            untrackUnserved(call);
+            callFinished();
+            onDispatched.run();
+            shedListener.onShed(call, ShedReason.EXECUTOR_REJECTED);
+        }
+    }
+
+    /**
+     * Inicia el Dispatcher si es la primera llamada. Si ya no se aceptan llamadas, la llamada se reserva para el<br/>
+     * archivo de volcado o, sin archivo o con el Dispatcher ya detenido, se descarta.
+     *
+     * @return true si la llamada debe despacharse.
+     */
+    private boolean accept(Call call) {
+
+        State current = state.get();
+        if (current == State.NEW) {
+            state.compareAndSet(State.NEW, State.RUNNING);
+            current = state.get();
+        }
+        if (current == State.RUNNING) {
+            return true;
+        }
+        if (current == State.DRAINING && spillFile != null) {
+            deferred.add(call);
+        } else if (intake != null) {
+            intake.shed(call, ShedReason.SHUTTING_DOWN);
+        } else {
+            shedListener.onShed(call, ShedReason.SHUTTING_DOWN);
+        }
+        return false;
+    }
+
+    private void callFinished() {
+        callsFinished(1);
+    }
+
+    /**
+     * Las llamadas despachadas sólo se siguen hasta ser atendidas si hay un archivo en el cual volcarlas.
+     */
+    private void trackUnserved(Call call) {
+        if (spillFile != null) {
+            unserved.add(call);
+        }
+    }
+
+    private void untrackUnserved(Call call) {
+        if (spillFile != null) {
+            unserved.remove(call);
+        }
+    }
+
+    /**
+     * Al retornar la cadena, la llamada fue atendida o descartada (abandonó la espera, se canceló o ningún empleado<br/>
+     * podía atenderla), salvo que el thread haya sido interrumpido por {@link #forceStop(long)}: en ese caso la<br/>
+     * llamada fue cancelada mientras esperaba y debe volcarse.
+     */
+    private void handled(Call call) {
+        if (!Thread.currentThread().isInterrupted()) {
+            untrackUnserved(call);
+        }
+    }
+
+    private void callsFinished(int count) {
+        if (callsInProcess.addAndGet(-count) == 0) {
+            signalIdle();
+        }
+    }
+
+    private void startBatchWorkerIfNeeded() {
+
+        if (!batchWorkerActive.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            executorService.execute(this::drainBatches);
+
+        } catch (RejectedExecutionException ree) {
+            batchWorkerActive.set(false);
+            final List<Call> rejected = new ArrayList<>();
+            batchQueue.drainTo(rejected);
+            for (Call call : rejected) {
+                untrackUnserved(call);
+                shedListener.onShed(call, ShedReason.EXECUTOR_REJECTED);
+            }
+            callsFinished(rejected.size());
+        }
+    }
+
+    /**
+     * El worker toma lotes de la cola hasta vaciarla. Antes de finalizar, vuelve a verificar la cola, dado que una<br/>
+     * llamada pudo haberse encolado luego del último lote sin que se iniciara un nuevo worker.
+     */
+    private void drainBatches() {
+
+        final List<Call> batch = new ArrayList<>(batchSize);
+        do {
+            while (batchQueue.drainTo(batch, batchSize) > 0) {
+                processBatch(batch);
+                batch.clear();
+            }
+            batchWorkerActive.set(false);
+
+        } while (!batchQueue.isEmpty() && batchWorkerActive.compareAndSet(false, true));
+    }
+
+    private void processBatch(List<Call> batch) {
+
+        final int size = batch.size();
+        //Al completarse el lote, cada llamada fue atendida o descartada (por ejemplo, al abandonar la espera).
+        final List<Call> tracked = spillFile == null ? Collections.emptyList() : new ArrayList<>(batch);
+        try {
+            callHandler.handleCallsAsync(batch, callReg, batchScheduler)
+                    .whenComplete((result, throwable) -> {
+                        tracked.forEach(unserved::remove);
+                        callsFinished(size);
+                    });
+
+        } catch (RuntimeException re) {
+            log.error("Exception mientras se procesaba un lote de {} llamadas: ", size, re);
+            callsFinished(size);
+        }
+    }
+
+    private void signalIdle() {
+        idleLock.lock();
+        try {
+            idle.signalAll();
+        } finally {
+            idleLock.unlock();
+        }
+    }
+
+    /**
+     * Inicia un nuevo worker en el executor, siempre que no se haya alcanzado la cantidad máxima de workers.
+     */
+    private void startWorkerIfNeeded() {
 
-            } catch (RejectedExecutionException ree) {
-                log.warn("La {} no pudo ser procesada: todos los threads están ocupados y la cola interna está llena. " +
-                        "Descartando la llamada y esperando unos segundos antes de procesar una nueva.", call);
+        int workers;
+        while ((workers = activeWorkers.get()) < maxWorkers) {
+            if (activeWorkers.compareAndSet(workers, workers + 1)) {
+                try {
+                    executorService.execute(this::drainIntake);
 
-                TimeUnit.SECONDS.sleep(REJECTED_TASK_WAIT_SEC);
+                } catch (RejectedExecutionException ree) {
+                    activeWorkers.decrementAndGet();
+                    log.warn("El executor rechazó un nuevo worker. La cola de ingreso será consumida por los {} " +
+                            "workers activos.", activeWorkers.get());
+                    if (activeWorkers.get() == 0) {
+                        shedPendingCalls();
+                    }
+                }
+                return;
             }
         }
     }
+
+    /**
+     * Cada worker procesa llamadas de la cola de ingreso hasta vaciarla. Antes de finalizar, vuelve a verificar la<br/>
+     * cola, dado que una llamada pudo haberse admitido luego del último poll sin que se iniciara un nuevo worker.
+     */
+    private void drainIntake() {
+
+        do {
+            Call call;
+            while ((call = pollIntake()) != null) {
+                try {
+                    callHandler.handleCall(call, callReg);
+                    handled(call);
+                } finally {
+                    callFinished();
+                }
+            }
+            activeWorkers.decrementAndGet();
+
+        } while (!intake.isEmpty() && tryRejoinWorkers());
+    }
+
+    /**
+     * La llamada se contabiliza en proceso antes de removerla de la cola, para que el Dispatcher nunca parezca<br/>
+     * inactivo mientras la llamada pasa de la cola al worker.
+     */
+    private Call pollIntake() {
+
+        callsInProcess.incrementAndGet();
+        final Call call = intake.poll();
+        if (call == null) {
+            callFinished();
+        } else {
+            trackUnserved(call);
+        }
+        return call;
+    }
+
+    private boolean tryRejoinWorkers() {
+
+        int workers;
+        while ((workers = activeWorkers.get()) < maxWorkers) {
+            if (activeWorkers.compareAndSet(workers, workers + 1)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Si el executor no acepta ningún worker, nadie consumirá la cola de ingreso: se descartan sus llamadas.
+     */
+    private void shedPendingCalls() {
+
+        Call call;
+        while ((call = intake.poll()) != null) {
+            intake.shed(call, ShedReason.EXECUTOR_REJECTED);
+        }
+        signalIdle();
+    }
+
+    /**
+     * Variante asincrónica de {@link #dispatchCalls()}: en lugar de ocupar un thread del pool por cada llamada<br/>
+     * durante toda su duración, la asignación del empleado se realiza en el thread que invoca este método (no es<br/>
+     * bloqueante) y la finalización de cada llamada es un evento programado en el scheduler. Esto permite que un<br/>
+     * scheduler con pocos threads atienda tantas llamadas concurrentes como empleados haya.<br/>
+     * Las llamadas que no encuentran un empleado disponible quedan en espera sin ocupar ningún thread.<br/>
+     * Al igual que el resto de los modos, las llamadas pasan por el ciclo de vida del Dispatcher: sólo se despachan<br/>
+     * mientras se aceptan llamadas, y cuentan como llamadas en curso (y, con archivo de volcado, como no atendidas)<br/>
+     * hasta que su future se completa, por lo que {@link #drain(long)}, {@link #awaitIdle(long)} y<br/>
+     * {@link #forceStop(long)} las tienen en cuenta.
+     *
+     * @param scheduler Scheduler encargado de disparar la finalización de las llamadas.
+     * @return Un future que se completa cuando todas las llamadas fueron procesadas.
+     */
+    CompletableFuture<Void> dispatchCallsAsync(ScheduledExecutorService scheduler) {
+
+        if (calls == null || calls.isEmpty()) {
+            log.error("No se pueden procesar las llamadas si la lista de llamadas es null o vacía. " +
+                    "Saliendo de la aplicación...");
+            return CompletableFuture.completedFuture(null);
+        }
+        asynchronous = true;
+        final CompletableFuture<?>[] processedCalls = new CompletableFuture<?>[calls.size()];
+        int i = 0;
+
+        for (Call call : calls) {
+            processedCalls[i++] = dispatchAsync(call, scheduler);
+        }
+        return CompletableFuture.allOf(processedCalls);
+    }
+
+    private CompletableFuture<Void> dispatchAsync(Call call, ScheduledExecutorService scheduler) {
+
+        if (!accept(call)) {
+            return CompletableFuture.completedFuture(null);
+        }
+        callsInProcess.incrementAndGet();
+        trackUnserved(call);
+        final CompletableFuture<Void> processed;
+        try {
+            processed = callHandler.handleCallAsync(call, callReg, scheduler);
+
+        } catch (RuntimeException re) {
+            untrackUnserved(call);
+            callFinished();
+            throw re;
+        }
+        //Al completarse, la llamada fue atendida o descartada (por ejemplo, al abandonar la espera). Si fue cancelada
+        //por forceStop, ya fue incluida en el volcado.
+        processed.whenComplete((result, throwable) -> {
+            untrackUnserved(call);
+            callFinished();
+        });
+        return processed;
+    }
+
+    /**
+     * Tarea que procesa una llamada en el executor.
+     */
+    private final class CallTask implements Runnable {
+
+        private final Call call;
+        private final Runnable onDispatched;
+
+        private CallTask(Call call, Runnable onDispatched) {
+            this.call = call;
+            this.onDispatched = onDispatched;
+        }
+
+        @Override
+        public void run() {
+            try {
+                callHandler.handleCall(call, callReg);
+                handled(call);
+            } finally {
+                callFinished();
+                onDispatched.run();
+            }
+        }
+
+        /**
+         * La tarea nunca llegará a ejecutarse: la llamada sigue sin atender.
+         */
+        private void abandon() {
+            callFinished();
+            onDispatched.run();
+        }
+    }
+
+    /**
+     * Registración que además lleva la cuenta de las llamadas despachadas que todavía no fueron atendidas: una<br/>
+     * llamada se considera atendida cuando su empleado la finaliza.
+     */
+    private final class ServedCallTracker implements CallRegistrationAware {
+
+        private final CallRegistrationAware delegate;
+
+        private ServedCallTracker(CallRegistrationAware delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void addEmployeeInCallProcessingOrder(Employee employee) {
+            delegate.addEmployeeInCallProcessingOrder(employee);
+        }
+
+        @Override
+        public void callCompleted(Call call, Employee employee, long assignedNanos, long endNanos) {
+            untrackUnserved(call);
+            delegate.callCompleted(call, employee, assignedNanos, endNanos);
+        }
+    }
 }
@@ -0,0 +1,209 @@
+package com.fmigliaro.almundo.controller;
+
+import com.fmigliaro.almundo.controller.admission.ShedCallListener;
+import com.fmigliaro.almundo.controller.admission.ShedReason;
+import com.fmigliaro.almundo.metrics.Histogram;
+import com.fmigliaro.almundo.model.Call;
+import com.fmigliaro.almundo.model.CallFactory;
+import com.fmigliaro.almundo.model.Employee;
+import com.fmigliaro.almundo.model.Tier;
+import com.fmigliaro.almundo.simulation.ArrivalSchedule;
+import com.fmigliaro.almundo.utility.CallRegistrationAware;
+import com.fmigliaro.almundo.utility.Clock;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Generador de carga de lazo abierto (open-loop) para el Dispatcher: las llamadas ingresan en los instantes que<br/>
+ * define un {@link ArrivalSchedule} (Poisson o una traza), sin importar si el Dispatcher logra atenderlas a tiempo.<p/>
+ *
+ * El generador es la {@link CallSource} del modo streaming. Cada llamada tiene un instante de ingreso previsto<br/>
+ * según el cronograma, y su latencia se mide desde ese instante hasta la asignación de un empleado, no desde que la<br/>
+ * llamada efectivamente ingresó a la cadena de handlers. Así, si el Dispatcher se demora en pedir llamadas (por<br/>
+ * falta de demanda o porque el thread que las pide se atrasa), esa demora se refleja en la latencia en lugar de<br/>
+ * desaparecer de la medición (coordinated omission). El informe incluye también la latencia medida desde el<br/>
+ * ingreso a la cadena, para comparar ambas.<p/>
+ *
+ * Uso: crear el Dispatcher con {@link #getCallRegistration()} como registración, opcionalmente informar los<br/>
+ * descartes a {@link #getShedCallListener()}, e invocar {@link #run}. El generador se usa para una única prueba y<br/>
+ * sus llamadas deben ser pedidas por un único thread, como lo hace el modo streaming.
+ */
+class LoadGenerator implements CallSource {
+
+    private static final Logger log = LogManager.getLogger(LoadGenerator.class);
+    private static final Tier[] TIERS = Tier.values();
+
+    private final ArrivalSchedule schedule;
+    private final CallFactory callFactory;
+    private final int totalCalls;
+    private final Clock clock;
+    private final Map<Call, Long> intendedStarts = new ConcurrentHashMap<>();
+    private final LatencyRecorder recorder = new LatencyRecorder();
+    private final Histogram emissionLag = new Histogram();
+    private boolean started;
+    private long startNanos;
+    private long nextArrivalMs;
+    private int generated;
+
+    /**
+     * @param schedule Instantes de ingreso, en milisegundos desde el primer pedido de llamadas.
+     * @param callFactory Genera las llamadas (y su duración).
+     * @param totalCalls Cantidad de llamadas de la prueba.
+     * @param clock Reloj de la cadena de handlers (ver {@link com.fmigliaro.almundo.controller.handler.EmployeeHandler#getClock()}).
+     */
+    LoadGenerator(ArrivalSchedule schedule, CallFactory callFactory, int totalCalls, Clock clock) {
+
+        if (totalCalls < 1) {
+            throw new IllegalArgumentException("La prueba debe tener al menos una llamada.");
+        }
+        this.schedule = schedule;
+        this.callFactory = callFactory;
+        this.totalCalls = totalCalls;
+        this.clock = clock;
+    }
+
+    /**
+     * Llamadas que ingresan según un proceso de Poisson con la tasa media indicada.
+     */
+    static LoadGenerator poisson(double callsPerSecond, int totalCalls, CallFactory callFactory, long seed,
+                                 Clock clock) {
+        return new LoadGenerator(ArrivalSchedule.poisson(callsPerSecond, seed), callFactory, totalCalls, clock);
+    }
+
+    /**
+     * Llamadas que ingresan en los instantes de una traza (ver {@link ArrivalSchedule#readTrace}).
+     */
+    static LoadGenerator fromTrace(long[] arrivalsMs, CallFactory callFactory, Clock clock) {
+        return new LoadGenerator(ArrivalSchedule.trace(arrivalsMs), callFactory, arrivalsMs.length, clock);
+    }
+
+    /**
+     * @return Registración a utilizar en el Dispatcher, que mide la latencia de cada llamada atendida.
+     */
+    CallRegistrationAware getCallRegistration() {
+        return recorder;
+    }
+
+    /**
+     * @return Listener que contabiliza las llamadas descartadas (por el Dispatcher, la cola de ingreso o la cadena).
+     */
+    ShedCallListener getShedCallListener() {
+        return recorder;
+    }
+
+    /**
+     * Ejecuta la prueba en lazo abierto: el Dispatcher pide las llamadas sin límite de llamadas en curso, por lo que<br/>
+     * el executor (o la cola de ingreso) debe poder absorber las ráfagas; las llamadas que rechace se informan como<br/>
+     * no atendidas.
+     *
+     * @param drainTimeoutMs Tiempo máximo de espera, luego de generar la última llamada, a que finalicen las llamadas.
+     */
+    LoadReport run(Dispatcher dispatcher, long drainTimeoutMs) throws InterruptedException {
+        return run(dispatcher, Integer.MAX_VALUE, drainTimeoutMs);
+    }
+
+    /**
+     * Ejecuta la prueba limitando la cantidad de llamadas en curso. Con un límite bajo, el Dispatcher deja de pedir<br/>
+     * llamadas cuando está saturado: la carga deja de ser de lazo abierto, pero la latencia se sigue midiendo desde<br/>
+     * el instante previsto de cada llamada.
+     *
+     * @param maxInFlight Cantidad máxima de llamadas despachadas y no finalizadas.
+     * @param drainTimeoutMs Tiempo máximo de espera, luego de generar la última llamada, a que finalicen las llamadas.
+     */
+    LoadReport run(Dispatcher dispatcher, int maxInFlight, long drainTimeoutMs) throws InterruptedException {
+
+        final boolean drained = dispatcher.dispatchStream(this, maxInFlight, drainTimeoutMs);
+        final long elapsedNanos = started ? clock.nanoTime() - startNanos : 0;
+        final LoadReport report = new LoadReport(generated, recorder.shed.sum(), drained, elapsedNanos,
+                recorder.fromIntended, recorder.fromReceived, emissionLag);
+        log.info("Prueba de carga finalizada: {}", report);
+        return report;
+    }
+
+    /**
+     * Entrega la próxima llamada cuando llega su instante previsto. Si el instante ya pasó, la entrega<br/>
+     * inmediatamente: el generador nunca omite ni posterga el cronograma.
+     */
+    @Override
+    public Call poll(long timeout, TimeUnit unit) throws InterruptedException {
+
+        if (isExhausted()) {
+            return null;
+        }
+        if (!started) {
+            started = true;
+            startNanos = clock.nanoTime();
+            nextArrivalMs = schedule.nextArrivalMs(0);
+        }
+        final long intendedNanos = startNanos + TimeUnit.MILLISECONDS.toNanos(nextArrivalMs);
+        final long aheadNanos = intendedNanos - clock.nanoTime();
+
+        if (aheadNanos > 0) {
+            if (aheadNanos > unit.toNanos(timeout)) {
+                clock.sleep(unit.toMillis(timeout));
+                return null;
+            }
+            //Se redondea hacia arriba para nunca entregar la llamada antes de su instante previsto.
+            clock.sleep(TimeUnit.NANOSECONDS.toMillis(aheadNanos + TimeUnit.MILLISECONDS.toNanos(1) - 1));
+        }
+        final Call call = callFactory.newCall();
+        intendedStarts.put(call, intendedNanos);
+        emissionLag.record(Math.max(0, clock.nanoTime() - intendedNanos));
+
+        if (++generated < totalCalls) {
+            nextArrivalMs = schedule.nextArrivalMs(nextArrivalMs);
+        }
+        return call;
+    }
+
+    @Override
+    public boolean isExhausted() {
+        return generated == totalCalls;
+    }
+
+    /**
+     * Registra, por nivel, la latencia de las llamadas generadas que fueron atendidas.
+     */
+    private final class LatencyRecorder implements CallRegistrationAware, ShedCallListener {
+
+        private final Histogram[] fromIntended = newHistograms();
+        private final Histogram[] fromReceived = newHistograms();
+        private final LongAdder shed = new LongAdder();
+
+        @Override
+        public void addEmployeeInCallProcessingOrder(Employee employee) {
+        }
+
+        @Override
+        public void callCompleted(Call call, Employee employee, long assignedNanos, long endNanos) {
+
+            final Long intendedNanos = intendedStarts.remove(call);
+            if (intendedNanos == null) {
+                return;
+            }
+            final int tier = employee.getTier().ordinal();
+            fromIntended[tier].record(Math.max(0, assignedNanos - intendedNanos));
+            fromReceived[tier].record(Math.max(0, assignedNanos - call.getReceivedNanos()));
+        }
+
+        @Override
+        public void onShed(Call call, ShedReason reason) {
+            if (intendedStarts.remove(call) != null) {
+                shed.increment();
+            }
+        }
+
+        private Histogram[] newHistograms() {
+            final Histogram[] histograms = new Histogram[TIERS.length];
+            for (int i = 0; i < histograms.length; i++) {
+                histograms[i] = new Histogram();
+            }
+            return histograms;
+        }
+    }
+}
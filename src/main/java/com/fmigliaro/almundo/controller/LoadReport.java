@@ -0,0 +1,136 @@
+package com.fmigliaro.almundo.controller;
+
+import com.fmigliaro.almundo.metrics.Histogram;
+import com.fmigliaro.almundo.model.Tier;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Resultado de una prueba de carga del {@link LoadGenerator}: llamadas generadas, atendidas y descartadas, y<br/>
+ * percentiles de latencia por nivel de empleados.<p/>
+ *
+ * La latencia de cada llamada se mide desde su instante de ingreso previsto hasta la asignación de un empleado, y se<br/>
+ * contabiliza en el nivel del empleado que la atendió. Todos los histogramas están en nanosegundos.
+ */
+class LoadReport {
+
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+
+    private final int generatedCount;
+    private final long shedCount;
+    private final boolean drained;
+    private final long elapsedNanos;
+    private final Histogram[] fromIntended;
+    private final Histogram[] fromReceived;
+    private final Histogram emissionLag;
+
+    LoadReport(int generatedCount, long shedCount, boolean drained, long elapsedNanos, Histogram[] fromIntended,
+               Histogram[] fromReceived, Histogram emissionLag) {
+        this.generatedCount = generatedCount;
+        this.shedCount = shedCount;
+        this.drained = drained;
+        this.elapsedNanos = elapsedNanos;
+        this.fromIntended = fromIntended;
+        this.fromReceived = fromReceived;
+        this.emissionLag = emissionLag;
+    }
+
+    int getGeneratedCount() {
+        return generatedCount;
+    }
+
+    long getServedCount() {
+        long served = 0;
+        for (Histogram histogram : fromIntended) {
+            served += histogram.getCount();
+        }
+        return served;
+    }
+
+    long getServedCount(Tier tier) {
+        return fromIntended[tier.ordinal()].getCount();
+    }
+
+    /**
+     * @return Llamadas descartadas por el Dispatcher, la cola de ingreso o la cadena (abandonos y cancelaciones).
+     */
+    long getShedCount() {
+        return shedCount;
+    }
+
+    /**
+     * @return Llamadas generadas que no fueron atendidas ni descartadas al finalizar la prueba.
+     */
+    long getUnfinishedCount() {
+        return generatedCount - getServedCount() - shedCount;
+    }
+
+    /**
+     * @return true si todas las llamadas en curso finalizaron dentro del tiempo de espera de la prueba.
+     */
+    boolean isDrained() {
+        return drained;
+    }
+
+    long getElapsedMs() {
+        return TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+    }
+
+    /**
+     * @return Tasa de llamadas atendidas por segundo, según el reloj de la cadena.
+     */
+    double getServedCallsPerSecond() {
+        return elapsedNanos == 0 ? 0 : getServedCount() * 1e9 / elapsedNanos;
+    }
+
+    /**
+     * @return Latencia desde el instante de ingreso previsto hasta la asignación de un empleado del nivel.
+     */
+    Histogram getTimeToAssign(Tier tier) {
+        return fromIntended[tier.ordinal()];
+    }
+
+    /**
+     * @return Latencia desde que la llamada ingresó a la cadena hasta la asignación de un empleado del nivel. No<br/>
+     * incluye la demora del Dispatcher en tomar la llamada, por lo que subestima la latencia bajo saturación.
+     */
+    Histogram getTimeToAssignFromReceived(Tier tier) {
+        return fromReceived[tier.ordinal()];
+    }
+
+    /**
+     * @return Atraso, respecto de su instante previsto, con el que el Dispatcher tomó cada llamada.
+     */
+    Histogram getEmissionLag() {
+        return emissionLag;
+    }
+
+    @Override
+    public String toString() {
+
+        final StringBuilder sb = new StringBuilder("LoadReport{calls=").append(generatedCount)
+                .append(", served=").append(getServedCount())
+                .append(", shed=").append(shedCount)
+                .append(", unfinished=").append(getUnfinishedCount())
+                .append(", elapsedMs=").append(getElapsedMs())
+                .append(String.format(", servedPerSecond=%.1f", getServedCallsPerSecond()))
+                .append(", maxEmissionLagMs=").append(toMs(emissionLag.getMax()));
+
+        for (Tier tier : Tier.values()) {
+            final Histogram latency = fromIntended[tier.ordinal()];
+            sb.append(", ").append(tier).append("={served=").append(latency.getCount());
+            for (double percentile : PERCENTILES) {
+                sb.append(", p").append(percentile == (long) percentile ? String.valueOf((long) percentile)
+                        : String.valueOf(percentile)).append("Ms=").append(toMs(latency.getValueAtPercentile(percentile)));
+            }
+            sb.append(", maxMs=").append(toMs(latency.getMax()))
+                    .append(", p99FromReceivedMs=")
+                    .append(toMs(fromReceived[tier.ordinal()].getValueAtPercentile(99))).append('}');
+        }
+        return sb.append('}').toString();
+    }
+
+    private static String toMs(long nanos) {
+        return String.format("%.1f", nanos / 1e6);
+    }
+}
@@ -0,0 +1,186 @@
+package com.fmigliaro.almundo.controller;
+
+import com.fmigliaro.almundo.cluster.DispatchShard;
+import com.fmigliaro.almundo.cluster.LoopbackTransport;
+import com.fmigliaro.almundo.controller.handler.DirectorHandler;
+import com.fmigliaro.almundo.controller.handler.EmployeeHandler;
+import com.fmigliaro.almundo.controller.handler.OperatorHandler;
+import com.fmigliaro.almundo.controller.handler.SupervisorHandler;
+import com.fmigliaro.almundo.model.Call;
+import com.fmigliaro.almundo.model.Director;
+import com.fmigliaro.almundo.model.Operator;
+import com.fmigliaro.almundo.model.Supervisor;
+import com.fmigliaro.almundo.utility.CallRegistrationAware;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Dispatcher particionado dentro de una misma JVM: los empleados se reparten en varios shards (normalmente uno por<br/>
+ * core), cada uno con su propia cadena de handlers y su propia cola de llamadas en espera (ver {@link DispatchShard}).<p/>
+ *
+ * Con un único {@link Dispatcher}, todos los threads compiten por las mismas colas de empleados disponibles de cada<br/>
+ * handler, por lo que las líneas de cache de sus índices viajan constantemente entre cores. Aquí cada thread que<br/>
+ * despacha llamadas tiene un shard propio, asignado en su primer despacho: sus llamadas se asignan a los empleados<br/>
+ * de ese shard y sólo si no queda ninguno disponible se prueba con los shards vecinos. Si ningún shard tiene<br/>
+ * empleados disponibles, la llamada espera en el shard propio, de donde puede robarla un shard que se libere.<p/>
+ *
+ * Las llamadas se procesan en modo asincrónico: su finalización es un evento programado en el scheduler.
+ */
+class ShardedDispatcher {
+
+    private final DispatchShard[] shards;
+    private final AtomicInteger nextHomeShard = new AtomicInteger();
+    private final ThreadLocal<Integer> homeShard =
+            ThreadLocal.withInitial(() -> Math.floorMod(nextHomeShard.getAndIncrement(), getShardCount()));
+    private final AtomicInteger callsInProcess = new AtomicInteger();
+    private final Lock idleLock = new ReentrantLock();
+    private final Condition idle = idleLock.newCondition();
+
+    /**
+     * @param shardChains Cadena de handlers de cada shard (ver {@link #partition}).
+     * @param callReg Objeto que permite registrar el orden en que los empleados atendieron las llamadas.
+     * @param scheduler Scheduler encargado de disparar la finalización de las llamadas y los intentos de robo.
+     * @param stealIntervalMs Intervalo con el que un shard inactivo intenta robar llamadas en espera a sus vecinos.
+     */
+    ShardedDispatcher(List<? extends EmployeeHandler<?>> shardChains, CallRegistrationAware callReg,
+                      ScheduledExecutorService scheduler, long stealIntervalMs) {
+
+        final LoopbackTransport transport = new LoopbackTransport();
+        shards = new DispatchShard[shardChains.size()];
+
+        for (int i = 0; i < shards.length; i++) {
+            shards[i] = new DispatchShard("shard-" + i, shardChains.get(i), callReg, scheduler, transport);
+            shards[i].setCallFinishedListener(this::callFinished);
+            shards[i].start(stealIntervalMs);
+        }
+    }
+
+    /**
+     * Reparte los empleados de manera equitativa entre la cantidad de shards indicada.
+     *
+     * @return El handler de Operadores (primer eslabón) de la cadena de cada shard.
+     */
+    static List<OperatorHandler> partition(Collection<Operator> operators, Collection<Supervisor> supervisors,
+                                           Collection<Director> directors, int shardCount, int timeBeforeRetryMs) {
+
+        final List<BlockingQueue<Operator>> ops = distribute(operators, shardCount);
+        final List<BlockingQueue<Supervisor>> sups = distribute(supervisors, shardCount);
+        final List<BlockingQueue<Director>> dirs = distribute(directors, shardCount);
+        final List<OperatorHandler> chains = new ArrayList<>(shardCount);
+
+        for (int i = 0; i < shardCount; i++) {
+            final DirectorHandler dirHandler = new DirectorHandler(dirs.get(i), timeBeforeRetryMs);
+            final SupervisorHandler supHandler = new SupervisorHandler(sups.get(i), dirHandler);
+            final OperatorHandler opHandler = new OperatorHandler(ops.get(i), supHandler);
+            dirHandler.setSuccessorHandler(opHandler);
+            chains.add(opHandler);
+        }
+        return chains;
+    }
+
+    private static <T> List<BlockingQueue<T>> distribute(Collection<T> employees, int shardCount) {
+
+        final List<BlockingQueue<T>> queues = new ArrayList<>(shardCount);
+        for (int i = 0; i < shardCount; i++) {
+            queues.add(new LinkedBlockingQueue<>());
+        }
+        final Iterator<T> it = employees.iterator();
+        for (int i = 0; it.hasNext(); i++) {
+            queues.get(i % shardCount).add(it.next());
+        }
+        return queues;
+    }
+
+    int getShardCount() {
+        return shards.length;
+    }
+
+    /**
+     * Despacha la llamada sin bloquear: al shard del thread que invoca este método, a un shard vecino con empleados<br/>
+     * disponibles, o bien la deja en espera en el shard propio.
+     */
+    void dispatch(Call call) {
+
+        callsInProcess.incrementAndGet();
+        final int home = homeShard.get();
+
+        for (int i = 0; i < shards.length; i++) {
+            if (shards[(home + i) % shards.length].tryDispatch(call)) {
+                return;
+            }
+        }
+        shards[home].submit(call);
+    }
+
+    void dispatchCalls(List<Call> calls) {
+        for (Call call : calls) {
+            dispatch(call);
+        }
+    }
+
+    /**
+     * Espera a que finalicen todas las llamadas despachadas.
+     *
+     * @return true si el Dispatcher quedó inactivo dentro del tiempo de espera.
+     */
+    boolean awaitIdle(long timeoutMs) throws InterruptedException {
+
+        long remainingNanos = TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        idleLock.lock();
+        try {
+            while (callsInProcess.get() != 0) {
+                if (remainingNanos <= 0) {
+                    return false;
+                }
+                remainingNanos = idle.awaitNanos(remainingNanos);
+            }
+            return true;
+        } finally {
+            idleLock.unlock();
+        }
+    }
+
+    /**
+     * Detiene el robo periódico de llamadas. Las llamadas en curso y en espera continúan procesándose.
+     */
+    void stop() {
+        for (DispatchShard shard : shards) {
+            shard.stop();
+        }
+    }
+
+    /**
+     * @return Cantidad total de llamadas que algún shard robó a otro.
+     */
+    long getStolenCalls() {
+
+        long stolen = 0;
+        for (DispatchShard shard : shards) {
+            stolen += shard.getStolenCalls();
+        }
+        return stolen;
+    }
+
+    private void callFinished() {
+
+        if (callsInProcess.decrementAndGet() == 0) {
+            idleLock.lock();
+            try {
+                idle.signalAll();
+            } finally {
+                idleLock.unlock();
+            }
+        }
+    }
+}
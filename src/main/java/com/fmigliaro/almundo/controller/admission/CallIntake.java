@@ -0,0 +1,186 @@
+package com.fmigliaro.almundo.controller.admission;
+
+import com.fmigliaro.almundo.model.Call;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Cola de ingreso acotada de llamadas, que actúa como capa de admisión entre quien recibe las llamadas y los threads<br/>
+ * que las procesan.<p/>
+ *
+ * Cuando la cola está llena, se aplica la {@link OverflowPolicy} configurada. Opcionalmente, las llamadas pasan<br/>
+ * primero por un {@link TokenBucket} que limita la tasa de admisión. Cada llamada descartada se informa al<br/>
+ * {@link ShedCallListener} configurado y se contabiliza. En ningún caso se detiene la recepción de llamadas más allá<br/>
+ * del tiempo de espera de la política {@link OverflowPolicy#BLOCK}.
+ */
+public class CallIntake {
+
+    private final int capacity;
+    private final OverflowPolicy overflowPolicy;
+    private final long blockTimeoutNanos;
+    private final TokenBucket rateLimiter;
+    private final ShedCallListener shedListener;
+
+    private final Deque<Call> calls = new ArrayDeque<>();
+    private final Lock lock = new ReentrantLock();
+    private final Condition notFull = lock.newCondition();
+    private final LongAdder shedCount = new LongAdder();
+
+    /**
+     * Crea una cola de ingreso sin límite de tasa, que loguea las llamadas descartadas.
+     *
+     * @param capacity Cantidad máxima de llamadas que pueden esperar en la cola.
+     * @param overflowPolicy Política a aplicar cuando la cola está llena.
+     * @param blockTimeoutMs Tiempo máximo de espera por lugar en la cola, sólo aplica a {@link OverflowPolicy#BLOCK}.
+     */
+    public CallIntake(int capacity, OverflowPolicy overflowPolicy, long blockTimeoutMs) {
+        this(capacity, overflowPolicy, blockTimeoutMs, null, ShedCallListener.LOGGING);
+    }
+
+    /**
+     * @param capacity Cantidad máxima de llamadas que pueden esperar en la cola.
+     * @param overflowPolicy Política a aplicar cuando la cola está llena.
+     * @param blockTimeoutMs Tiempo máximo de espera por lugar en la cola, sólo aplica a {@link OverflowPolicy#BLOCK}.
+     * @param rateLimiter Limitador de tasa de admisión, o null si no se desea limitar la tasa.
+     * @param shedListener Objeto al que se le informa cada llamada descartada.
+     */
+    public CallIntake(int capacity, OverflowPolicy overflowPolicy, long blockTimeoutMs, TokenBucket rateLimiter,
+                      ShedCallListener shedListener) {
+
+        if (capacity < 1) {
+            throw new IllegalArgumentException("La capacidad de la cola de ingreso debe ser mayor o igual a 1.");
+        }
+        this.capacity = capacity;
+        this.overflowPolicy = overflowPolicy;
+        this.blockTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(blockTimeoutMs);
+        this.rateLimiter = rateLimiter;
+        this.shedListener = shedListener;
+    }
+
+    /**
+     * Intenta admitir la llamada en la cola de ingreso.
+     *
+     * @param call La llamada recibida.
+     * @return true si la llamada fue admitida, false si fue descartada.
+     */
+    public boolean offer(Call call) throws InterruptedException {
+
+        if (rateLimiter != null && !rateLimiter.tryAcquire()) {
+            shed(call, ShedReason.RATE_LIMITED);
+            return false;
+        }
+        Call evicted = null;
+        ShedReason reason = null;
+
+        lock.lockInterruptibly();
+        try {
+            if (calls.size() == capacity) {
+                switch (overflowPolicy) {
+                    case BLOCK:
+                        long remainingNanos = blockTimeoutNanos;
+                        while (calls.size() == capacity && remainingNanos > 0) {
+                            remainingNanos = notFull.awaitNanos(remainingNanos);
+                        }
+                        if (calls.size() == capacity) {
+                            evicted = call;
+                            reason = ShedReason.INTAKE_FULL;
+                        }
+                        break;
+
+                    case SHED_OLDEST:
+                        evicted = calls.pollFirst();
+                        reason = ShedReason.EVICTED_OLDEST;
+                        break;
+
+                    case SHED_LOWEST_PRIORITY:
+                        evicted = removeLowestPriorityBelow(call);
+                        reason = evicted != null ? ShedReason.EVICTED_LOWER_PRIORITY : ShedReason.INTAKE_FULL;
+                        if (evicted == null) {
+                            evicted = call;
+                        }
+                        break;
+                }
+            }
+            if (evicted != call) {
+                calls.offerLast(call);
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        if (evicted != null) {
+            shed(evicted, reason);
+        }
+        return evicted != call;
+    }
+
+    /**
+     * @return La próxima llamada a procesar, o null si la cola está vacía.
+     */
+    public Call poll() {
+
+        lock.lock();
+        try {
+            final Call call = calls.pollFirst();
+            if (call != null) {
+                notFull.signal();
+            }
+            return call;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Informa un descarte ocurrido fuera de la cola de ingreso (por ejemplo, un rechazo del executor), de manera que<br/>
+     * todos los descartes se reporten y contabilicen en un único lugar.
+     */
+    public void shed(Call call, ShedReason reason) {
+        shedCount.increment();
+        shedListener.onShed(call, reason);
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return calls.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getShedCount() {
+        return shedCount.sum();
+    }
+
+    /**
+     * Busca, recorriendo la cola desde la llamada más reciente, la de menor prioridad. Sólo se la remueve si su<br/>
+     * prioridad es menor a la de la llamada entrante. Recorre a lo sumo <code>capacity</code> llamadas.
+     */
+    private Call removeLowestPriorityBelow(Call incoming) {
+
+        Call lowest = null;
+        for (Iterator<Call> it = calls.descendingIterator(); it.hasNext(); ) {
+            final Call queued = it.next();
+            if (lowest == null || queued.getPriority().compareTo(lowest.getPriority()) < 0) {
+                lowest = queued;
+            }
+        }
+        if (lowest != null && lowest.getPriority().compareTo(incoming.getPriority()) < 0) {
+            calls.removeLastOccurrence(lowest);
+            return lowest;
+        }
+        return null;
+    }
+}
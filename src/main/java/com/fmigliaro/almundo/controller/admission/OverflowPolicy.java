@@ -0,0 +1,23 @@
+package com.fmigliaro.almundo.controller.admission;
+
+/**
+ * Política que aplica {@link CallIntake} cuando llega una llamada y la cola de ingreso está llena.
+ */
+public enum OverflowPolicy {
+
+    /**
+     * Se espera a que se libere lugar en la cola hasta el tiempo máximo configurado. Si no se libera, se descarta<br/>
+     * la llamada entrante.
+     */
+    BLOCK,
+
+    /** Se descarta la llamada más antigua de la cola para dar lugar a la entrante. */
+    SHED_OLDEST,
+
+    /**
+     * Se descarta la llamada de menor prioridad de la cola (la más reciente entre las de igual prioridad), siempre<br/>
+     * que su prioridad sea menor a la de la llamada entrante. En caso contrario, se descarta la llamada entrante.
+     */
+    SHED_LOWEST_PRIORITY
+
+}
@@ -0,0 +1,31 @@
+package com.fmigliaro.almundo.controller.admission;
+
+import com.fmigliaro.almundo.model.Call;
+import org.apache.logging.log4j.LogManager;
+
+/**
+ * Interfaz que permite ser notificado de cada llamada descartada por el control de admisión, que abandonó o fue<br/>
+ * cancelada mientras esperaba a un empleado, o que ningún empleado podía atender.<br/>
+ * Las notificaciones se realizan fuera de cualquier lock, en el thread que provocó el descarte.
+ */
+public interface ShedCallListener {
+
+    /**
+     * Implementación por defecto, que loguea cada llamada descartada.
+     */
+    ShedCallListener LOGGING = (call, reason) -> LogManager.getLogger(ShedCallListener.class)
+            .warn("La {} fue descartada. Motivo: {}", call, reason);
+
+    void onShed(Call call, ShedReason reason);
+
+    /**
+     * Permite notificar cada descarte a más de un listener, por ejemplo para loguearlo y además contabilizarlo.
+     */
+    default ShedCallListener andThen(ShedCallListener next) {
+        return (call, reason) -> {
+            onShed(call, reason);
+            next.onShed(call, reason);
+        };
+    }
+
+}
@@ -0,0 +1,35 @@
+package com.fmigliaro.almundo.controller.admission;
+
+/**
+ * Motivo por el cual una llamada fue descartada antes de ser procesada.
+ */
+public enum ShedReason {
+
+    /** La cola de ingreso estaba llena y no se liberó lugar dentro del tiempo de espera configurado. */
+    INTAKE_FULL,
+
+    /** La llamada era la más antigua de la cola de ingreso y fue desplazada por una nueva. */
+    EVICTED_OLDEST,
+
+    /** La llamada era la de menor prioridad de la cola de ingreso y fue desplazada por una de mayor prioridad. */
+    EVICTED_LOWER_PRIORITY,
+
+    /** Se superó la tasa máxima de llamadas admitidas. */
+    RATE_LIMITED,
+
+    /** El executor rechazó la tarea encargada de procesar la llamada. */
+    EXECUTOR_REJECTED,
+
+    /** La llamada superó su tiempo máximo de espera sin que se le asignara un empleado. */
+    ABANDONED,
+
+    /** La llamada fue cancelada (o su thread interrumpido) mientras esperaba a un empleado. */
+    CANCELLED,
+
+    /** Ningún empleado tiene todas las habilidades que requiere la llamada, por lo que nunca podría ser atendida. */
+    NO_ELIGIBLE_EMPLOYEE,
+
+    /** La llamada llegó cuando el Dispatcher ya había dejado de aceptar llamadas y no tenía dónde volcarlas. */
+    SHUTTING_DOWN
+
+}
@@ -0,0 +1,66 @@
+package com.fmigliaro.almundo.controller.admission;
+
+import com.fmigliaro.almundo.utility.Clock;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Limitador de tasa del tipo token bucket, implementado sin locks.<p/>
+ *
+ * En lugar de mantener un contador de tokens que se recarga periódicamente, se mantiene el instante teórico en el<br/>
+ * que el bucket vuelve a estar vacío (algoritmo GCRA). Cada llamada admitida lo desplaza un intervalo de emisión,<br/>
+ * y una llamada se rechaza si dicho instante supera al actual en más de la ráfaga permitida. Esto permite resolver<br/>
+ * cada admisión con un único compare-and-set.
+ */
+public class TokenBucket {
+
+    private final Clock clock;
+    private final long emissionIntervalNanos;
+    private final long burstToleranceNanos;
+    private final AtomicLong theoreticalArrivalNanos;
+
+    /**
+     * @param callsPerSecond Tasa sostenida de llamadas admitidas por segundo.
+     * @param burstSize Cantidad de llamadas que pueden admitirse en ráfaga cuando el bucket está lleno.
+     */
+    public TokenBucket(double callsPerSecond, int burstSize) {
+        this(callsPerSecond, burstSize, Clock.SYSTEM);
+    }
+
+    /**
+     * @param callsPerSecond Tasa sostenida de llamadas admitidas por segundo.
+     * @param burstSize Cantidad de llamadas que pueden admitirse en ráfaga cuando el bucket está lleno.
+     * @param clock Reloj con el que se mide la tasa.
+     */
+    public TokenBucket(double callsPerSecond, int burstSize, Clock clock) {
+
+        if (callsPerSecond <= 0 || burstSize < 1) {
+            throw new IllegalArgumentException("La tasa debe ser positiva y la ráfaga mayor o igual a 1.");
+        }
+        this.clock = clock;
+        this.emissionIntervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / callsPerSecond);
+        this.burstToleranceNanos = emissionIntervalNanos * (burstSize - 1);
+        this.theoreticalArrivalNanos = new AtomicLong(clock.nanoTime());
+    }
+
+    /**
+     * @return true si hay un token disponible (y se lo consume), false en caso contrario.
+     */
+    public boolean tryAcquire() {
+
+        final long now = clock.nanoTime();
+
+        while (true) {
+            final long tat = theoreticalArrivalNanos.get();
+            final long start = tat - now > 0 ? tat : now;
+
+            if (start - now > burstToleranceNanos) {
+                return false;
+            }
+            if (theoreticalArrivalNanos.compareAndSet(tat, start + emissionIntervalNanos)) {
+                return true;
+            }
+        }
+    }
+}
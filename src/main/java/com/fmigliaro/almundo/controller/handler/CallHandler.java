@@ -0,0 +1,64 @@
+package com.fmigliaro.almundo.controller.handler;
+
+import com.fmigliaro.almundo.model.Call;
+import com.fmigliaro.almundo.utility.CallRegistrationAware;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+
+/**
+ * Interfaz que define cómo se asigna y procesa una llamada. Es la única dependencia del Dispatcher sobre la lógica<br/>
+ * de asignación de empleados, lo cual permite reemplazar la cadena de {@link EmployeeHandler} por otro mecanismo de<br/>
+ * ruteo.
+ */
+public interface CallHandler {
+
+    /**
+     * Asigna la llamada a un empleado y la procesa, bloqueando al thread actual durante toda la llamada.
+     *
+     * @param call La llamada que se pretende procesar.
+     * @param callReg Objeto que permite registrar el orden en que los empleados atendieron las llamadas.
+     */
+    void handleCall(Call call, CallRegistrationAware callReg);
+
+    /**
+     * Asigna la llamada a un empleado y la procesa sin bloquear al thread actual.
+     *
+     * @param call La llamada que se pretende procesar.
+     * @param callReg Objeto que permite registrar el orden en que los empleados atendieron las llamadas.
+     * @param scheduler Scheduler encargado de disparar la finalización de las llamadas.
+     * @return Un future que se completa cuando la llamada finalizó y su empleado fue liberado.
+     */
+    CompletableFuture<Void> handleCallAsync(Call call, CallRegistrationAware callReg,
+                                            ScheduledExecutorService scheduler);
+
+    /**
+     * Asigna y procesa un lote de llamadas sin bloquear al thread actual. Las implementaciones pueden aprovechar el<br/>
+     * lote para asignar todas las llamadas en un único recorrido; por defecto, se procesa cada llamada por separado.
+     *
+     * @param calls Las llamadas del lote, en orden de llegada. La lista no se conserva luego de la invocación.
+     * @param callReg Objeto que permite registrar el orden en que los empleados atendieron las llamadas.
+     * @param scheduler Scheduler encargado de disparar la finalización de las llamadas.
+     * @return Un future que se completa cuando todas las llamadas del lote finalizaron.
+     */
+    default CompletableFuture<Void> handleCallsAsync(List<Call> calls, CallRegistrationAware callReg,
+                                                     ScheduledExecutorService scheduler) {
+
+        final CompletableFuture<?>[] processed = new CompletableFuture<?>[calls.size()];
+        for (int i = 0; i < processed.length; i++) {
+            processed[i] = handleCallAsync(calls.get(i), callReg, scheduler);
+        }
+        return CompletableFuture.allOf(processed);
+    }
+
+    /**
+     * Cancela la llamada si aún está esperando a ser asignada. Por defecto, las llamadas no pueden cancelarse.
+     *
+     * @return true si la llamada estaba esperando y fue cancelada.
+     */
+    default boolean cancel(Call call) {
+        return false;
+    }
+
+}
@@ -0,0 +1,789 @@
+package com.fmigliaro.almundo.controller.handler;
+
+import com.fmigliaro.almundo.controller.admission.ShedCallListener;
+import com.fmigliaro.almundo.controller.admission.ShedReason;
+import com.fmigliaro.almundo.controller.admission.TokenBucket;
+import com.fmigliaro.almundo.metrics.CallMetricsRecorder;
+import com.fmigliaro.almundo.model.Call;
+import com.fmigliaro.almundo.model.Employee;
+import com.fmigliaro.almundo.utility.CallRegistrationAware;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.util.Unbox;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Cola de llamadas en espera, compartida por todos los handlers de una misma cadena.<br/>
+ * Cuando ningún empleado de ningún nivel está disponible, la llamada se encola aquí y el thread que la procesa queda<br/>
+ * bloqueado. Cada vez que un handler libera a un empleado, en lugar de devolverlo a su cola, se lo entrega<br/>
+ * directamente a la próxima llamada en espera, despertando únicamente al thread de dicha llamada (o, en modo<br/>
+ * asincrónico, completando su future).<br/>
+ * De esta manera no hay reintentos periódicos ni recursión mientras se espera a que se libere un empleado.<p/>
+ *
+ * Por defecto la próxima llamada es la más antigua, pero puede configurarse otro {@link WaitingOrder}. Al encolar<br/>
+ * una llamada se estima su espera repartiendo la duración de las llamadas que tiene por delante entre los<br/>
+ * empleados, a partir del instante en que se espera que se libere cada uno, y se informa al<br/>
+ * {@link QueuePositionListener}. Bajo el lock sólo se registran la posición y la duración de las llamadas por<br/>
+ * delante, que la cola mantiene en O(log n) para cualquier orden; la estimación se calcula luego de liberarlo, a<br/>
+ * partir de los instantes de finalización de los empleados, que se relevan a lo sumo una vez cada<br/>
+ * {@value #FREE_AT_REFRESH_MS} ms.<p/>
+ *
+ * El encolado de llamadas y la entrega de empleados liberados a las llamadas en espera se realizan bajo el mismo<br/>
+ * lock, lo cual garantiza que un empleado liberado nunca quede en su cola mientras haya una llamada esperando.<br/>
+ * Cuando no hay llamadas en espera, el empleado liberado vuelve a su cola sin tomar el lock (ver {@link #release}).<p/>
+ *
+ * Una llamada deja de esperar si supera su tiempo máximo de espera (ver {@link Call#setMaxWaitMs}) o si se cancela<br/>
+ * (ver {@link EmployeeHandler#cancel}). En ambos casos se la quita de la cola en O(log n), se libera de inmediato al<br/>
+ * thread (o a la continuación asincrónica) que la esperaba y se informa al {@link ShedCallListener} configurado.<p/>
+ *
+ * Los avisos de que una llamada continúa esperando se limitan a {@value #STILL_WAITING_LOGS_PER_SECOND} por segundo<br/>
+ * (ver {@link #logStillWaiting}), para que bajo sobrecarga el logueo no crezca con la cantidad de llamadas en espera.
+ */
+class CallWaitQueue {
+
+    private static final Logger log = LogManager.getLogger(CallWaitQueue.class);
+    private static final int STILL_WAITING_LOGS_PER_SECOND = 1;
+    private static final int STILL_WAITING_LOGS_BURST = 10;
+    private static final int FREE_AT_REFRESH_MS = 1;
+
+    final Lock lock = new ReentrantLock();
+    /**
+     * Acciones a ejecutar cuando un empleado que se retiró mientras atendía una llamada finaliza dicha llamada.
+     */
+    final Map<Employee, Runnable> departures = new HashMap<>();
+    private final WaitingTree waitingCalls = new WaitingTree();
+    private final Map<Call, WaitingCall> waitingByCall = new IdentityHashMap<>();
+    /**
+     * Cantidad de llamadas en espera, más una mientras se están encolando llamadas. Sólo se modifica bajo el lock.
+     */
+    private volatile int waitingCount;
+    private WaitingOrder order = WaitingOrder.FIFO;
+    private long nextSequence;
+    CallMetricsRecorder metrics = CallMetricsRecorder.NO_OP;
+    QueuePositionListener positionListener = QueuePositionListener.LOGGING;
+    ShedCallListener shedListener = ShedCallListener.LOGGING;
+    private volatile FreeAtSnapshot freeAtSnapshot;
+    private final TokenBucket stillWaitingLogs = new TokenBucket(STILL_WAITING_LOGS_PER_SECOND,
+            STILL_WAITING_LOGS_BURST);
+    private final LongAdder suppressedStillWaitingLogs = new LongAdder();
+
+    /**
+     * Cambia el orden de atención de las llamadas en espera, reordenando las llamadas que ya están esperando.
+     */
+    void setOrder(WaitingOrder order) {
+
+        lock.lock();
+        try {
+            this.order = order;
+            for (WaitingCall waitingCall : waitingCalls) {
+                waitingCall.rank = order.rank(waitingCall.call);
+            }
+            waitingCalls.reorder();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Devuelve al empleado a la próxima llamada en espera o, si no hay llamadas esperando, a la cola de empleados de<br/>
+     * su handler. Si el empleado se retiró mientras atendía la llamada, no vuelve a quedar disponible y se ejecuta<br/>
+     * la acción registrada para su salida, si la hubiera (ver {@link StaffingManager#reassign}).<p/>
+     *
+     * Si no hay llamadas en espera, el empleado se devuelve a su cola sin tomar el lock. Quien encola llamadas<br/>
+     * incrementa {@link #waitingCount} antes de buscar empleados disponibles, y quien libera sin lock lo lee luego<br/>
+     * de devolver al empleado: si una llamada comenzó a encolarse en ese intervalo, alguno de los dos ve al otro, y<br/>
+     * en el segundo caso se toma el lock para entregarle el empleado (ver {@link #handOffIdleEmployees}).
+     *
+     * @param owner El handler al que pertenece el empleado.
+     * @param slot El slot, dentro de su handler, del empleado que acaba de finalizar una llamada.
+     */
+    <T extends Employee> void release(EmployeeHandler<T> owner, int slot) {
+
+        final IdleEmployeePool<T> pool = owner.employees;
+        if (waitingCount == 0 && pool.offerIfOnDuty(slot)) {
+            //El pool pudo haber sido reemplazado por uno mayor (ver EmployeeHandler#join) luego de transferir sus
+            //empleados disponibles: en ese caso también se completa la transferencia bajo el lock.
+            if (waitingCount != 0 || owner.employees != pool) {
+                handOffIdleEmployees(owner, pool);
+            }
+            return;
+        }
+        final WaitingCall waitingCall;
+        final EmployeeHandler.Assignment<T> assignment;
+        final Runnable departure;
+
+        lock.lock();
+        try {
+            if (!owner.employees.endCall(slot)) {
+                //El empleado se retiró mientras atendía la llamada: no vuelve a quedar disponible.
+                departure = departures.remove(owner.employees.get(slot));
+                waitingCall = null;
+                assignment = null;
+            } else {
+                departure = null;
+                waitingCall = waitingCalls.poll();
+
+                if (waitingCall != null) {
+                    waitingByCall.remove(waitingCall.call);
+                    waitingCount = waitingCalls.size();
+                }
+                if (waitingCall == null) {
+                    owner.employees.offer(slot);
+                    assignment = null;
+                } else {
+                    metrics.callWaitEnded();
+                    //Se publica bajo el lock para respetar el orden, pero se entrega luego de liberarlo.
+                    owner.registrationSequencer.publish(owner.registrationSequencer.nextTicket(),
+                            owner.employees.get(slot), waitingCall.callReg);
+                    assignment = new EmployeeHandler.Assignment<>(owner, slot, waitingCall.callReg);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (assignment != null) {
+            owner.registrationSequencer.deliver();
+        }
+        if (departure != null) {
+            departure.run();
+        }
+        //Se completa fuera del lock: en modo asincrónico, la llamada comienza a procesarse en este mismo thread.
+        if (waitingCall != null) {
+            waitingCall.assignment.complete(assignment);
+        }
+    }
+
+    /**
+     * Entrega los empleados disponibles de la cadena a las llamadas en espera, luego de que un empleado haya sido<br/>
+     * devuelto a su cola sin lock mientras se encolaba una llamada que pudo no haberlo visto.
+     *
+     * @param offeredTo El pool al cual se devolvió el empleado, que pudo haber sido reemplazado por uno mayor.
+     */
+    private <T extends Employee> void handOffIdleEmployees(EmployeeHandler<T> owner, IdleEmployeePool<T> offeredTo) {
+
+        final List<WaitingCall> handedOff = new ArrayList<>(1);
+        final List<EmployeeHandler.Assignment<?>> assignments = new ArrayList<>(1);
+
+        lock.lock();
+        try {
+            if (owner.employees != offeredTo) {
+                offeredTo.transferIdleTo(owner.employees);
+            }
+            WaitingCall waitingCall;
+            while ((waitingCall = waitingCalls.peek()) != null) {
+                final EmployeeHandler.Assignment<?> assignment = acquire(waitingCall.callReg, owner);
+                if (assignment == null) {
+                    break;
+                }
+                waitingCalls.poll();
+                waitingByCall.remove(waitingCall.call);
+                metrics.callWaitEnded();
+                handedOff.add(waitingCall);
+                assignments.add(assignment);
+            }
+            waitingCount = waitingCalls.size();
+        } finally {
+            lock.unlock();
+        }
+        owner.registrationSequencer.deliver();
+        for (int i = 0; i < handedOff.size(); i++) {
+            handedOff.get(i).assignment.complete(assignments.get(i));
+        }
+    }
+
+    /**
+     * Espera hasta que algún empleado de la cadena esté disponible para atender la llamada, bloqueando al thread<br/>
+     * actual, o hasta que la llamada supere su tiempo máximo de espera o se cancele.
+     *
+     * @param call La llamada que espera ser atendida.
+     * @param callReg Objeto que permite registrar el orden en que los empleados atendieron las llamadas.
+     * @param first Primer handler de la cadena a recorrer.
+     * @param warnAfterMs Tiempo en milisegundos tras el cual se loguea que la llamada continúa en espera.
+     * @return El empleado asignado a la llamada, junto con el handler al que pertenece, o null si la llamada<br/>
+     * abandonó o fue cancelada.
+     * @throws InterruptedException Si el thread fue interrumpido mientras esperaba. La llamada se considera cancelada.
+     */
+    EmployeeHandler.Assignment<?> await(Call call, CallRegistrationAware callReg, EmployeeHandler<?> first,
+                                        long warnAfterMs) throws InterruptedException {
+
+        final WaitingCall waitingCall = enqueue(call, callReg, first);
+
+        final long warnAfterNanos = TimeUnit.MILLISECONDS.toNanos(warnAfterMs);
+        while (true) {
+            long waitNanos = warnAfterNanos;
+            if (call.getMaxWaitMs() != Call.NO_MAX_WAIT) {
+                final long remainingNanos = deadlineNanos(call) - first.clock.nanoTime();
+                if (remainingNanos <= 0) {
+                    withdraw(waitingCall, ShedReason.ABANDONED);
+                    //Si el empleado fue asignado justo antes de vencer la espera, se atiende la llamada.
+                    return waitingCall.assignment.join();
+                }
+                //El vencimiento se mide con el reloj de la cadena, el aviso de espera en tiempo real.
+                waitNanos = Math.min(waitNanos, first.clock.toSystemNanos(remainingNanos) + 1);
+            }
+            try {
+                return waitingCall.assignment.get(waitNanos, TimeUnit.NANOSECONDS);
+
+            } catch (TimeoutException te) {
+                if (waitNanos == warnAfterNanos) {
+                    metrics.waitRetried();
+                    logStillWaiting(call);
+                }
+            } catch (ExecutionException ee) {
+                throw new IllegalStateException(ee.getCause());
+
+            } catch (InterruptedException ie) {
+                if (withdraw(waitingCall, ShedReason.CANCELLED)) {
+                    throw ie;
+                }
+                //El empleado ya fue asignado: se atiende la llamada y se preserva el estado de interrupción.
+                Thread.currentThread().interrupt();
+                return waitingCall.assignment.join();
+            }
+        }
+    }
+
+    /**
+     * Loguea que la llamada continúa esperando, salvo que ya se haya superado la tasa de avisos: en ese caso sólo<br/>
+     * se contabiliza el aviso, y el próximo aviso logueado informa cuántos se omitieron.
+     */
+    private void logStillWaiting(Call call) {
+
+        if (!stillWaitingLogs.tryAcquire()) {
+            suppressedStillWaitingLogs.increment();
+            return;
+        }
+        final long suppressed = suppressedStillWaitingLogs.sumThenReset();
+        if (suppressed == 0) {
+            log.info("La {} continúa esperando a un empleado disponible.", call);
+        } else {
+            log.info("La {} continúa esperando a un empleado disponible. Se omitieron {} avisos similares.", call,
+                    Unbox.box(suppressed));
+        }
+    }
+
+    /**
+     * Versión no bloqueante de {@link #await}: la llamada queda en espera sin ocupar ningún thread. Si la llamada<br/>
+     * tiene un tiempo máximo de espera, su vencimiento se programa en el scheduler.
+     *
+     * @return Un future que se completa en el momento en que se le asigna un empleado a la llamada, o con null si la<br/>
+     * llamada abandonó o fue cancelada.
+     */
+    CompletableFuture<EmployeeHandler.Assignment<?>> awaitAsync(Call call, CallRegistrationAware callReg,
+                                                                  EmployeeHandler<?> first,
+                                                                  ScheduledExecutorService scheduler) {
+
+        final WaitingCall waitingCall = enqueue(call, callReg, first);
+        scheduleExpiration(waitingCall, first, scheduler);
+        return waitingCall.assignment;
+    }
+
+    /**
+     * Versión de {@link #awaitAsync} para un lote de llamadas: todas se encolan tomando el lock una única vez.
+     *
+     * @param calls Llamadas del lote, en el orden en que deben encolarse. La lista no se conserva.
+     * @return Un future por llamada, en el mismo orden, con la misma semántica que los de {@link #awaitAsync}.
+     */
+    List<CompletableFuture<EmployeeHandler.Assignment<?>>> awaitAllAsync(List<Call> calls,
+                                                                          CallRegistrationAware callReg,
+                                                                          EmployeeHandler<?> first,
+                                                                          ScheduledExecutorService scheduler) {
+
+        final List<CompletableFuture<EmployeeHandler.Assignment<?>>> assignments = new ArrayList<>(calls.size());
+        for (WaitingCall waitingCall : enqueueAll(calls, callReg, first)) {
+            scheduleExpiration(waitingCall, first, scheduler);
+            assignments.add(waitingCall.assignment);
+        }
+        return assignments;
+    }
+
+    private void scheduleExpiration(WaitingCall waitingCall, EmployeeHandler<?> first,
+                                    ScheduledExecutorService scheduler) {
+
+        final Call call = waitingCall.call;
+        if (call.getMaxWaitMs() == Call.NO_MAX_WAIT || waitingCall.assignment.isDone()) {
+            return;
+        }
+        try {
+            final ScheduledFuture<?> expiration = first.clock.schedule(scheduler,
+                    () -> withdraw(waitingCall, ShedReason.ABANDONED),
+                    deadlineNanos(call) - first.clock.nanoTime(), TimeUnit.NANOSECONDS);
+            waitingCall.assignment.whenComplete((assignment, throwable) -> expiration.cancel(false));
+
+        } catch (RejectedExecutionException ree) {
+            log.error("No se pudo programar el vencimiento de la espera de la {}.", call);
+        }
+    }
+
+    /**
+     * Quita a la llamada de la cola de espera, si aún está esperando.
+     *
+     * @return true si la llamada estaba esperando y fue cancelada.
+     */
+    boolean cancel(Call call) {
+
+        final WaitingCall waitingCall;
+        lock.lock();
+        try {
+            waitingCall = waitingByCall.get(call);
+        } finally {
+            lock.unlock();
+        }
+        return waitingCall != null && withdraw(waitingCall, ShedReason.CANCELLED);
+    }
+
+    /**
+     * Antes de encolar la llamada, se vuelve a recorrer la cadena completa comenzando por <code>first</code> bajo el<br/>
+     * lock, dado que algún empleado pudo haberse liberado luego de la búsqueda inicial. En ese caso la llamada no se<br/>
+     * encola y se devuelve ya asignada.
+     */
+    private WaitingCall enqueue(Call call, CallRegistrationAware callReg, EmployeeHandler<?> first) {
+        return enqueueAll(Collections.singletonList(call), callReg, first)[0];
+    }
+
+    /**
+     * Encola las llamadas en orden bajo una única toma del lock, recorriendo antes la cadena como en<br/>
+     * {@link #enqueue}. Los empleados sólo vuelven a quedar disponibles bajo este lock, por lo que una vez que el<br/>
+     * recorrido no encuentra ningún empleado, las llamadas restantes del lote se encolan sin volver a recorrerla.
+     */
+    private WaitingCall[] enqueueAll(List<Call> calls, CallRegistrationAware callReg, EmployeeHandler<?> first) {
+
+        final WaitingCall[] batch = new WaitingCall[calls.size()];
+        int queued = 0;
+
+        lock.lock();
+        try {
+            //Antes de buscar empleados disponibles, para que quien libere un empleado sin lock sepa que debe
+            //tomarlo (ver release).
+            waitingCount = waitingCalls.size() + 1;
+            boolean employeesLeft = true;
+            for (int i = 0; i < batch.length; i++) {
+                final Call call = calls.get(i);
+                final WaitingCall waitingCall = new WaitingCall(call, callReg);
+                batch[i] = waitingCall;
+
+                final EmployeeHandler.Assignment<?> assignment = employeesLeft ? acquire(callReg, first) : null;
+                if (assignment != null) {
+                    waitingCall.assignment.complete(assignment);
+                    continue;
+                }
+                employeesLeft = false;
+                waitingCall.rank = order.rank(call);
+                waitingCall.sequence = nextSequence++;
+                waitingCalls.add(waitingCall);
+                waitingByCall.put(call, waitingCall);
+                metrics.callWaiting();
+                queued++;
+            }
+            //Una vez encolado todo el lote, dado que una llamada posterior del lote puede quedar por delante.
+            for (int i = batch.length - queued; i < batch.length; i++) {
+                waitingCalls.countCallsAhead(batch[i]);
+            }
+        } finally {
+            waitingCount = waitingCalls.size();
+            lock.unlock();
+        }
+        first.registrationSequencer.deliver();
+        if (queued > 0) {
+            announcePositions(batch, batch.length - queued, first);
+        }
+        return batch;
+    }
+
+    /**
+     * Informa la posición y la espera estimada de las llamadas encoladas, fuera del lock.
+     */
+    private void announcePositions(WaitingCall[] batch, int firstQueued, EmployeeHandler<?> first) {
+
+        final long[] freeAt = freeAt(first, first.clock.nanoTime());
+
+        for (int i = firstQueued; i < batch.length; i++) {
+            final WaitingCall waitingCall = batch[i];
+            final long predictedWaitMs = freeAt.length == 0 ? QueuePositionListener.UNKNOWN_WAIT :
+                    TimeUnit.NANOSECONDS.toMillis(predictWaitNanos(freeAt,
+                            TimeUnit.MILLISECONDS.toNanos(waitingCall.aheadDurationMs)));
+            positionListener.onCallQueued(waitingCall.call, waitingCall.position, predictedWaitMs);
+        }
+    }
+
+    /**
+     * Recorre la cadena bajo el lock. Las registraciones sólo se publican: quien lo invoca las entrega luego de<br/>
+     * liberar el lock.
+     */
+    private static EmployeeHandler.Assignment<?> acquire(CallRegistrationAware callReg, EmployeeHandler<?> first) {
+
+        EmployeeHandler<?> handler = first;
+        do {
+            final EmployeeHandler.Assignment<?> assignment = handler.tryAcquireDeferred(callReg);
+            if (assignment != null) {
+                return assignment;
+            }
+            handler = handler.successorHandler;
+        } while (handler != null && handler != first);
+
+        return null;
+    }
+
+    /**
+     * Los nanosegundos hasta que se espera que se libere cada empleado en servicio, ordenados de menor a mayor. Los<br/>
+     * instantes de finalización se relevan a lo sumo una vez cada {@value #FREE_AT_REFRESH_MS} ms y se reutilizan<br/>
+     * entre encolados, por lo que bajo una ráfaga de llamadas en espera no se recorre ni se ordena a todo el<br/>
+     * personal por cada una. La estimación puede quedar levemente desactualizada, lo cual es aceptable.
+     */
+    private long[] freeAt(EmployeeHandler<?> first, long now) {
+
+        FreeAtSnapshot snapshot = freeAtSnapshot;
+        if (snapshot == null || now - snapshot.takenNanos >= TimeUnit.MILLISECONDS.toNanos(FREE_AT_REFRESH_MS)) {
+            snapshot = new FreeAtSnapshot(now, collectExpectedFreeNanos(first));
+            freeAtSnapshot = snapshot;
+        }
+        //Restar el instante actual preserva el orden de los instantes relevados.
+        final long[] expectedFreeNanos = snapshot.expectedFreeNanos;
+        final long[] freeAt = new long[expectedFreeNanos.length];
+        for (int i = 0; i < freeAt.length; i++) {
+            freeAt[i] = Math.max(0, expectedFreeNanos[i] - now);
+        }
+        return freeAt;
+    }
+
+    /**
+     * Recorre sin lock los empleados en servicio de la cadena: el instante esperado de finalización de cada uno es<br/>
+     * volatile, y una estimación levemente desactualizada es aceptable.
+     *
+     * @return El instante en que se espera que se libere cada empleado en servicio, ordenados de menor a mayor.
+     */
+    private static long[] collectExpectedFreeNanos(EmployeeHandler<?> first) {
+
+        long[] expectedFree = new long[16];
+        int onDuty = 0;
+        EmployeeHandler<?> handler = first;
+        do {
+            final IdleEmployeePool<?> pool = handler.employees;
+            final int staffCount = pool.staffCount();
+            for (int slot = 0; slot < staffCount; slot++) {
+                if (pool.isOnDuty(slot)) {
+                    if (onDuty == expectedFree.length) {
+                        expectedFree = Arrays.copyOf(expectedFree, expectedFree.length * 2);
+                    }
+                    expectedFree[onDuty++] = pool.getExpectedFreeNanos(slot);
+                }
+            }
+            handler = handler.successorHandler;
+        } while (handler != null && handler != first);
+
+        final long[] onDutyExpectedFree = Arrays.copyOf(expectedFree, onDuty);
+        Arrays.sort(onDutyExpectedFree);
+        return onDutyExpectedFree;
+    }
+
+    /**
+     * Los empleados en servicio se reparten la duración de las llamadas por delante a medida que se liberan: se<br/>
+     * busca el nivel hasta el cual la duración total "llena" los tiempos de los empleados que se liberan antes, y<br/>
+     * ese nivel es la espera estimada. Con un único empleado, o sin llamadas por delante, coincide con simular la<br/>
+     * atención de cada llamada; con varios empleados es una aproximación que no requiere conocer el orden de las<br/>
+     * llamadas por delante, y se calcula en O(k) sobre los k empleados ya ordenados.
+     *
+     * @param freeAt Nanosegundos hasta que se libera cada empleado en servicio (al menos uno), de menor a mayor.
+     * @param aheadNanos Duración total de las llamadas por delante.
+     */
+    static long predictWaitNanos(long[] freeAt, long aheadNanos) {
+
+        final int onDuty = freeAt.length;
+        long sum = aheadNanos;
+        for (int i = 0; i < onDuty - 1; i++) {
+            sum += freeAt[i];
+            final long level = sum / (i + 1);
+            if (level <= freeAt[i + 1]) {
+                return level;
+            }
+        }
+        return (sum + freeAt[onDuty - 1]) / onDuty;
+    }
+
+    private static long deadlineNanos(Call call) {
+        return call.getReceivedNanos() + TimeUnit.MILLISECONDS.toNanos(call.getMaxWaitMs());
+    }
+
+    /**
+     * Quita a la llamada de la cola y libera a quien la espera, informando el motivo.
+     *
+     * @return true si la llamada aún estaba esperando, false si ya se le había asignado un empleado o ya se la había<br/>
+     * quitado.
+     */
+    private boolean withdraw(WaitingCall waitingCall, ShedReason reason) {
+
+        lock.lock();
+        try {
+            if (!waitingCalls.remove(waitingCall)) {
+                return false;
+            }
+            waitingByCall.remove(waitingCall.call);
+            waitingCount = waitingCalls.size();
+            metrics.callWaitEnded();
+        } finally {
+            lock.unlock();
+        }
+        //Se informa antes de completar la asignación para que quien espera la llamada ya vea el descarte registrado.
+        shedListener.onShed(waitingCall.call, reason);
+        waitingCall.assignment.complete(null);
+        return true;
+    }
+
+    /**
+     * Llamada encolada a la espera de un empleado.
+     */
+    private static final class WaitingCall {
+
+        private static final Comparator<WaitingCall> ORDER = Comparator.<WaitingCall>comparingLong(w -> w.rank)
+                .thenComparingLong(w -> w.sequence);
+
+        private final Call call;
+        private final CallRegistrationAware callReg;
+        private final CompletableFuture<EmployeeHandler.Assignment<?>> assignment = new CompletableFuture<>();
+        private long rank;
+        private long sequence;
+        private int position;
+        private long aheadDurationMs;
+        //Nodo del árbol de llamadas en espera (ver WaitingTree).
+        private final long priority = ThreadLocalRandom.current().nextLong();
+        private boolean queued;
+        private WaitingCall left;
+        private WaitingCall right;
+        private int subtreeSize;
+        private long subtreeDurationMs;
+
+        private WaitingCall(Call call, CallRegistrationAware callReg) {
+            this.call = call;
+            this.callReg = callReg;
+        }
+    }
+
+    /**
+     * Instantes esperados de finalización de los empleados en servicio, ordenados, relevados en {@code takenNanos}.
+     */
+    private static final class FreeAtSnapshot {
+
+        private final long takenNanos;
+        private final long[] expectedFreeNanos;
+
+        private FreeAtSnapshot(long takenNanos, long[] expectedFreeNanos) {
+            this.takenNanos = takenNanos;
+            this.expectedFreeNanos = expectedFreeNanos;
+        }
+    }
+
+    /**
+     * Árbol binario de búsqueda aleatorizado (treap) de las llamadas en espera, ordenado por rango y orden de<br/>
+     * llegada. Cada llamada es un nodo del árbol y conoce la cantidad de llamadas y la duración total de su<br/>
+     * subárbol, por lo que obtener la próxima llamada, quitar cualquier llamada cuando abandona o se cancela, y<br/>
+     * calcular cuántas llamadas y cuánta duración tiene por delante una llamada cuestan O(log n) esperado, para<br/>
+     * cualquier {@link WaitingOrder}.
+     */
+    private static final class WaitingTree implements Iterable<WaitingCall> {
+
+        private WaitingCall root;
+
+        void add(WaitingCall waitingCall) {
+
+            waitingCall.left = null;
+            waitingCall.right = null;
+            waitingCall.queued = true;
+            update(waitingCall);
+            root = insert(root, waitingCall);
+        }
+
+        WaitingCall peek() {
+
+            WaitingCall first = root;
+            if (first != null) {
+                while (first.left != null) {
+                    first = first.left;
+                }
+            }
+            return first;
+        }
+
+        int size() {
+            return sizeOf(root);
+        }
+
+        WaitingCall poll() {
+
+            final WaitingCall first = peek();
+            if (first != null) {
+                remove(first);
+            }
+            return first;
+        }
+
+        boolean remove(WaitingCall waitingCall) {
+
+            if (!waitingCall.queued) {
+                return false;
+            }
+            root = remove(root, waitingCall);
+            waitingCall.queued = false;
+            waitingCall.left = null;
+            waitingCall.right = null;
+            return true;
+        }
+
+        /**
+         * Calcula la posición de la llamada, que debe estar en el árbol, y la duración de las llamadas que serán<br/>
+         * atendidas antes que ella. Sus rangos sólo cambian con el orden de atención, en cuyo caso la estimación<br/>
+         * puede quedar desactualizada como ante cualquier otra llamada que ingrese luego.
+         */
+        void countCallsAhead(WaitingCall waitingCall) {
+
+            int ahead = 0;
+            long aheadDurationMs = 0;
+            WaitingCall node = root;
+            while (node != null) {
+                if (WaitingCall.ORDER.compare(node, waitingCall) < 0) {
+                    ahead += sizeOf(node.left) + 1;
+                    aheadDurationMs += durationOf(node.left) + node.call.getDurationMs();
+                    node = node.right;
+                } else {
+                    node = node.left;
+                }
+            }
+            waitingCall.position = ahead + 1;
+            waitingCall.aheadDurationMs = aheadDurationMs;
+        }
+
+        /**
+         * Restablece el orden del árbol luego de modificar los rangos de las llamadas.
+         */
+        void reorder() {
+
+            final List<WaitingCall> waitingCalls = new ArrayList<>(size());
+            collect(root, waitingCalls);
+            root = null;
+            for (WaitingCall waitingCall : waitingCalls) {
+                add(waitingCall);
+            }
+        }
+
+        @Override
+        public Iterator<WaitingCall> iterator() {
+
+            final List<WaitingCall> waitingCalls = new ArrayList<>(size());
+            collect(root, waitingCalls);
+            return waitingCalls.iterator();
+        }
+
+        private static WaitingCall insert(WaitingCall node, WaitingCall waitingCall) {
+
+            if (node == null) {
+                return waitingCall;
+            }
+            if (WaitingCall.ORDER.compare(waitingCall, node) < 0) {
+                node.left = insert(node.left, waitingCall);
+                if (node.left.priority > node.priority) {
+                    return rotateRight(node);
+                }
+            } else {
+                node.right = insert(node.right, waitingCall);
+                if (node.right.priority > node.priority) {
+                    return rotateLeft(node);
+                }
+            }
+            update(node);
+            return node;
+        }
+
+        private static WaitingCall remove(WaitingCall node, WaitingCall waitingCall) {
+
+            if (node == waitingCall) {
+                return merge(node.left, node.right);
+            }
+            if (WaitingCall.ORDER.compare(waitingCall, node) < 0) {
+                node.left = remove(node.left, waitingCall);
+            } else {
+                node.right = remove(node.right, waitingCall);
+            }
+            update(node);
+            return node;
+        }
+
+        private static WaitingCall merge(WaitingCall left, WaitingCall right) {
+
+            if (left == null) {
+                return right;
+            }
+            if (right == null) {
+                return left;
+            }
+            if (left.priority > right.priority) {
+                left.right = merge(left.right, right);
+                update(left);
+                return left;
+            }
+            right.left = merge(left, right.left);
+            update(right);
+            return right;
+        }
+
+        private static WaitingCall rotateRight(WaitingCall node) {
+
+            final WaitingCall left = node.left;
+            node.left = left.right;
+            left.right = node;
+            update(node);
+            update(left);
+            return left;
+        }
+
+        private static WaitingCall rotateLeft(WaitingCall node) {
+
+            final WaitingCall right = node.right;
+            node.right = right.left;
+            right.left = node;
+            update(node);
+            update(right);
+            return right;
+        }
+
+        private static void update(WaitingCall node) {
+            node.subtreeSize = sizeOf(node.left) + 1 + sizeOf(node.right);
+            node.subtreeDurationMs = durationOf(node.left) + node.call.getDurationMs() + durationOf(node.right);
+        }
+
+        private static int sizeOf(WaitingCall node) {
+            return node == null ? 0 : node.subtreeSize;
+        }
+
+        private static long durationOf(WaitingCall node) {
+            return node == null ? 0 : node.subtreeDurationMs;
+        }
+
+        private static void collect(WaitingCall node, List<WaitingCall> waitingCalls) {
+
+            if (node != null) {
+                collect(node.left, waitingCalls);
+                waitingCalls.add(node);
+                collect(node.right, waitingCalls);
+            }
+        }
+    }
+}
@@ -2,13 +2,14 @@ package com.fmigliaro.almundo.controller.handler;
 
 import com.fmigliaro.almundo.model.Call;
 import com.fmigliaro.almundo.model.Director;
+import com.fmigliaro.almundo.model.Tier;
 import com.fmigliaro.almundo.model.Employee;
 import com.fmigliaro.almundo.utility.CallRegistrationAware;
+import com.fmigliaro.almundo.utility.Clock;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.TimeUnit;
 
 /**
  * Handler encargado de manejar a los empleados Directores.<p/>
@@ -27,39 +28,63 @@ public class DirectorHandler extends EmployeeHandler<Director> {
      * La forma de resolverlo es inyectar la dependencia mediante un setter luego de la creación del <code>OperatorHandler</code>.
      *
      * @param employees Una blocking queue de Directores.
-     * @param timeBeforeRetryMs Tiempo en milisegundos que se espera antes de reiniciar la búsqueda de un empleado
-     *                          disponible.
+     * @param timeBeforeRetryMs Tiempo en milisegundos tras el cual se loguea que una llamada continúa esperando a un
+     *                          empleado disponible.
      */
     public DirectorHandler(BlockingQueue<Director> employees, int timeBeforeRetryMs) {
-        this.employees = employees;
+        this(employees, timeBeforeRetryMs, Clock.SYSTEM);
+    }
+
+    /**
+     * Permite indicar el reloj con el que los empleados de toda la cadena miden la duración de las llamadas.<br/>
+     * Los handlers creados a partir de este handler comparten el mismo reloj.
+     *
+     * @param employees Una blocking queue de Directores.
+     * @param timeBeforeRetryMs Tiempo en milisegundos tras el cual se loguea que una llamada continúa esperando a un
+     *                          empleado disponible.
+     * @param clock Reloj utilizado por la cadena.
+     */
+    public DirectorHandler(BlockingQueue<Director> employees, int timeBeforeRetryMs, Clock clock) {
+        super(employees);
         this.timeBeforeRetryMs = timeBeforeRetryMs;
+        this.waitQueue = new CallWaitQueue();
+        this.registrationSequencer = new RegistrationSequencer();
+        this.clock = clock;
     }
 
     /**
      * Este handler tiene un compartamiento ligeramente diferente al de los dos handlers restantes, en lo referido<br/>
      * a qué hacer luego de que ningún empleado esté disponible. El resto de los handlers, simplemente delega la tarea<br/>
-     * al handler sucesor. En cambio, {@link DirectorHandler} debe esperar unos segundos, antes de delegar al handler<br/>
-     * sucesor ({@link OperatorHandler}), y recomenzar el proceso de intento nuevamente.
+     * al handler sucesor. En cambio, {@link DirectorHandler} encola la llamada en la cola de espera compartida por la<br/>
+     * cadena, y el thread queda bloqueado hasta que algún handler libere a un empleado, el cual es asignado a la<br/>
+     * próxima llamada en espera (ver {@link WaitingOrder}). No se realizan reintentos periódicos sobre la cadena.<br/>
+     * La espera finaliza sin procesar la llamada si ésta supera su tiempo máximo de espera o se cancela.
      *
-     * @param call La llamada que este handler debe procesar. Se utiliza para propósito de logging.
+     * @param call La llamada que este handler debe procesar.
      * @param callReg Objeto que permite registrar el orden en que los empleados atendieron las llamadas.
      */
     @Override
     void postProcess(Call call, CallRegistrationAware callReg) {
 
         try {
-            log.info("No hay empleados disponibles para procesar la {}. Esperando {} ms para reintentar...",
-                    call, timeBeforeRetryMs);
-
-            TimeUnit.MILLISECONDS.sleep(timeBeforeRetryMs);
-            successorHandler.handleCall(call, callReg);
-
+            final Assignment<?> assignment = waitQueue.await(call, callReg, successorHandler, timeBeforeRetryMs);
+            //Sin empleado asignado, la llamada abandonó o fue cancelada, lo cual ya fue informado.
+            if (assignment != null) {
+                assignment.process(call);
+            }
         } catch (InterruptedException ie) {
-            log.error("Exception mientras se esperaba antes de reintentar encontrar a un empleado disponible: ", ie);
+            log.warn("El thread fue interrumpido mientras la {} esperaba a un empleado. La llamada fue cancelada.",
+                    call);
+            Thread.currentThread().interrupt();
         }
     }
 
     public void setSuccessorHandler(EmployeeHandler<? extends Employee> successorHandler) {
         this.successorHandler = successorHandler;
     }
+
+    @Override
+    Tier getTier() {
+        return Tier.DIRECTOR;
+    }
 }
@@ -1,15 +1,21 @@
 package com.fmigliaro.almundo.controller.handler;
 
+import com.fmigliaro.almundo.controller.admission.ShedCallListener;
+import com.fmigliaro.almundo.metrics.CallMetricsRecorder;
 import com.fmigliaro.almundo.model.Call;
 import com.fmigliaro.almundo.model.Employee;
+import com.fmigliaro.almundo.model.Tier;
 import com.fmigliaro.almundo.utility.CallRegistrationAware;
+import com.fmigliaro.almundo.utility.Clock;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
-import java.util.concurrent.BlockingQueue;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * Clase abstracta que contiene la lógica en común de los handlers de empleados: {@link OperatorHandler},<br/>
@@ -20,51 +26,399 @@ import java.util.concurrent.locks.ReentrantLock;
  * Created by Francisco Migliaro on 10/12/2017.
  *
  */
-public abstract class EmployeeHandler<T extends Employee> {
+public abstract class EmployeeHandler<T extends Employee> implements CallHandler {
 
     private static final Logger log = LogManager.getLogger(EmployeeHandler.class);
-    BlockingQueue<T> employees;
+    /**
+     * Volatile, dado que al incorporarse empleados por encima de su capacidad el pool se reemplaza por uno mayor.
+     */
+    volatile IdleEmployeePool<T> employees;
     EmployeeHandler<? extends Employee> successorHandler;
-    private Lock pollingLock = new ReentrantLock();
+    CallWaitQueue waitQueue;
+    RegistrationSequencer registrationSequencer;
+    Clock clock;
+    CallMetricsRecorder metrics = CallMetricsRecorder.NO_OP;
+
+    /**
+     * Inicializa la cola de empleados disponibles del handler. Los empleados se copian a un pool lock-free propio<br/>
+     * del handler, del cual se obtienen y al cual se devuelven luego de cada llamada, identificados por su slot.
+     */
+    EmployeeHandler(Collection<T> employees) {
+        this.employees = new IdleEmployeePool<>(employees);
+    }
+
+    /**
+     * @return El nivel de los empleados de este handler.
+     */
+    abstract Tier getTier();
 
     /**
      * Se encarga del manejo de la llamada pasada por parámetro. Para ello, intenta obtener algún empleado disponible<br/>
      * para procesar dicha llamada (cada clase hija se encargará de buscar los empleados que le correspondan). En caso<br/>
      * de no encontrar empleados disponibles, delega la búsqueda al handler que tiene definido como sucesor, el cual<br/>
-     * repetirá el proceso con sus propios empleados. Este proceso se repite <b>de manera indefinida</b> hasta que se<br/>
-     * libere algún empleado y pueda procesarse la llamada.
+     * repetirá el proceso con sus propios empleados. Si ningún handler tiene empleados disponibles, la llamada queda<br/>
+     * en espera hasta que se libere algún empleado (ver {@link DirectorHandler}).
      *
      * @param call La llamada que se pretende procesar.
      * @param callReg Objeto que permite registrar el orden en que los empleados atendieron las llamadas.
      */
+    @Override
     public void handleCall(Call call, CallRegistrationAware callReg) {
+        call.setReceivedNanos(clock.nanoTime());
+        handle(call, callReg);
+    }
+
+    /**
+     * Recorrido de la cadena a partir de este handler, sin reiniciar el instante de ingreso de la llamada.
+     */
+    void handle(Call call, CallRegistrationAware callReg) {
+
+        final Assignment<T> assignment = tryAcquire(callReg);
+
+        if (assignment != null) {
+            assignment.process(call);
+        } else {
+            postProcess(call, callReg);
+        }
+    }
+
+    void postProcess(Call call, CallRegistrationAware callReg) {
+        successorHandler.handle(call, callReg);
+    }
+
+    /**
+     * Versión asincrónica de {@link #handleCall}: ningún thread queda ocupado mientras el empleado atiende la llamada<br/>
+     * ni mientras la llamada espera a un empleado disponible.<br/>
+     * La cadena se recorre comenzando por este handler. Si se obtiene un empleado, la finalización de la llamada se<br/>
+     * programa en el scheduler para dentro de {@link Call#getDurationMs()} milisegundos, momento en el cual el<br/>
+     * empleado se libera. Si no hay empleados disponibles, la llamada se encola en la cola de espera de la cadena y<br/>
+     * comienza a procesarse cuando se le asigne un empleado. Cancelar el future devuelto quita a la llamada de la<br/>
+     * cola de espera si aún no se le asignó un empleado (ver {@link #cancel}).<br/>
+     * De esta manera, la cantidad de llamadas concurrentes está limitada por la cantidad de empleados y no por la<br/>
+     * cantidad de threads.
+     *
+     * @param call La llamada que se pretende procesar.
+     * @param callReg Objeto que permite registrar el orden en que los empleados atendieron las llamadas.
+     * @param scheduler Scheduler encargado de disparar la finalización de las llamadas.
+     * @return Un future que se completa cuando la llamada finalizó y su empleado fue liberado.
+     */
+    @Override
+    public CompletableFuture<Void> handleCallAsync(Call call, CallRegistrationAware callReg,
+                                                   ScheduledExecutorService scheduler) {
+        call.setReceivedNanos(clock.nanoTime());
+
+        final CompletableFuture<Void> processed = tryHandleCallAsync(call, callReg, scheduler);
+        if (processed != null) {
+            return processed;
+        }
+        return processWhenAssigned(call, waitQueue.awaitAsync(call, callReg, this, scheduler), scheduler);
+    }
+
+    /**
+     * Versión por lotes de {@link #handleCallAsync}: la cadena se recorre una única vez para todo el lote. Cada<br/>
+     * handler asigna sus empleados disponibles a las llamadas del lote, en orden, hasta quedarse sin empleados, y<br/>
+     * recién entonces se pasa al handler sucesor. Las llamadas que quedan sin empleado se encolan en la cola de<br/>
+     * espera tomando su lock una única vez. El resultado es el mismo que procesar las llamadas de a una, en orden.
+     */
+    @Override
+    public CompletableFuture<Void> handleCallsAsync(List<Call> calls, CallRegistrationAware callReg,
+                                                    ScheduledExecutorService scheduler) {
+
+        final long receivedNanos = clock.nanoTime();
+        for (Call call : calls) {
+            call.setReceivedNanos(receivedNanos);
+        }
+        final CompletableFuture<?>[] processed = new CompletableFuture<?>[calls.size()];
+        int next = 0;
+        EmployeeHandler<?> handler = this;
+        do {
+            Assignment<?> assignment;
+            while (next < processed.length && (assignment = handler.tryAcquire(callReg)) != null) {
+                processed[next] = assignment.processAsync(calls.get(next), scheduler);
+                next++;
+            }
+            handler = handler.successorHandler;
+        } while (next < processed.length && handler != null && handler != this);
+
+        if (next < processed.length) {
+            final List<Call> unassigned = calls.subList(next, processed.length);
+            final List<CompletableFuture<Assignment<?>>> assignments = waitQueue.awaitAllAsync(unassigned, callReg,
+                    this, scheduler);
+            for (int i = 0; i < assignments.size(); i++) {
+                processed[next + i] = processWhenAssigned(unassigned.get(i), assignments.get(i), scheduler);
+            }
+        }
+        return CompletableFuture.allOf(processed);
+    }
+
+    /**
+     * Procesa la llamada en cuanto la cola de espera le asigne un empleado. Si el future devuelto se cancela, la<br/>
+     * llamada se quita de la cola de espera.
+     */
+    private CompletableFuture<Void> processWhenAssigned(Call call, CompletableFuture<Assignment<?>> assigned,
+                                                        ScheduledExecutorService scheduler) {
+
+        final CompletableFuture<Void> waited = assigned.thenCompose(assignment -> assignment != null
+                ? assignment.processAsync(call, scheduler)
+                : CompletableFuture.<Void>completedFuture(null));
+        waited.whenComplete((result, throwable) -> {
+            if (waited.isCancelled()) {
+                waitQueue.cancel(call);
+            }
+        });
+        return waited;
+    }
+
+    /**
+     * Cancela la llamada si aún está esperando a un empleado (por ejemplo, porque quien llama cortó): se la quita de<br/>
+     * la cola de espera, se libera al thread o a la continuación que la esperaba y se informa el descarte al<br/>
+     * listener configurado (ver {@link #setShedCallListener}). Una llamada que ya está siendo atendida no se cancela.
+     *
+     * @return true si la llamada estaba esperando y fue cancelada.
+     */
+    @Override
+    public boolean cancel(Call call) {
+        return waitQueue.cancel(call);
+    }
+
+    /**
+     * Permite indicar a quién se informan las llamadas que abandonan o se cancelan mientras esperan. Por defecto se<br/>
+     * loguean. Debe invocarse antes de procesar llamadas.
+     */
+    public void setShedCallListener(ShedCallListener shedListener) {
+        waitQueue.shedListener = shedListener;
+    }
+
+    /**
+     * Igual que {@link #handleCallAsync}, pero si ningún handler de la cadena tiene empleados disponibles, la llamada<br/>
+     * no se encola: se devuelve null y queda a cargo de quien invoca este método decidir qué hacer con ella (por<br/>
+     * ejemplo, mantenerla en una cola propia de la cual otros nodos puedan tomarla).<br/>
+     * No modifica el instante de ingreso de la llamada, que debe fijar quien la recibe.
+     *
+     * @return Un future que se completa cuando la llamada finalizó, o null si no había empleados disponibles.
+     */
+    public CompletableFuture<Void> tryHandleCallAsync(Call call, CallRegistrationAware callReg,
+                                                      ScheduledExecutorService scheduler) {
+        EmployeeHandler<?> handler = this;
+        do {
+            final Assignment<?> assignment = handler.tryAcquire(callReg);
+            if (assignment != null) {
+                return assignment.processAsync(call, scheduler);
+            }
+            handler = handler.successorHandler;
+        } while (handler != null && handler != this);
+
+        return null;
+    }
+
+    /**
+     * @return Cantidad aproximada de empleados disponibles en toda la cadena a la que pertenece este handler.
+     */
+    public int getIdleEmployeeCount() {
+
+        int idle = 0;
+        EmployeeHandler<?> handler = this;
+        do {
+            idle += handler.employees.idleCount();
+            handler = handler.successorHandler;
+        } while (handler != null && handler != this);
 
-        pollingLock.lock();
-        final T employee;
+        return idle;
+    }
+
+    public Clock getClock() {
+        return clock;
+    }
+
+    /**
+     * Intenta obtener un empleado disponible de este handler, registrándolo en caso de obtenerlo.<br/>
+     * No se utiliza ningún lock: la cola de empleados es lock-free y el orden de registración lo garantiza el<br/>
+     * {@link RegistrationSequencer} de la cadena, tomando el ticket <b>antes</b> de hacer el poll. La registración<br/>
+     * puede ser entregada por otro thread, pero siempre en el orden en que los empleados fueron obtenidos.
+     *
+     * @param callReg Objeto que permite registrar el orden en que los empleados atendieron las llamadas.
+     * @return El empleado obtenido junto con este handler, o null si no hay empleados disponibles.
+     */
+    Assignment<T> tryAcquire(CallRegistrationAware callReg) {
+
+        final Assignment<T> assignment = tryAcquireDeferred(callReg);
+        registrationSequencer.deliver();
+        return assignment;
+    }
+
+    /**
+     * Igual que {@link #tryAcquire}, pero la registración sólo se publica y no se entrega: quien lo invoca bajo un<br/>
+     * lock debe llamar a {@link RegistrationSequencer#deliver()} luego de liberarlo.
+     */
+    Assignment<T> tryAcquireDeferred(CallRegistrationAware callReg) {
+
+        final IdleEmployeePool<T> pool = employees;
+        final long ticket = registrationSequencer.nextTicket();
+        final int slot = pool.poll();
+        final T employee = slot != IdleEmployeePool.NONE ? pool.get(slot) : null;
+        registrationSequencer.publish(ticket, employee, callReg);
+
+        return employee != null ? new Assignment<>(this, slot, callReg) : null;
+    }
+
+    /**
+     * Conecta las métricas a todos los handlers de la cadena a la que pertenece este handler, informando la<br/>
+     * cantidad de empleados de cada handler. Debe invocarse una única vez, una vez armada la cadena y antes de<br/>
+     * procesar llamadas.
+     *
+     * @param metrics Objeto al que se informan los eventos de las llamadas procesadas por la cadena.
+     */
+    public void setMetricsRecorder(CallMetricsRecorder metrics) {
+
+        EmployeeHandler<?> handler = this;
+        do {
+            handler.metrics = metrics;
+            final IdleEmployeePool<?> pool = handler.employees;
+            for (int slot = 0; slot < pool.staffCount(); slot++) {
+                if (pool.isOnDuty(slot)) {
+                    metrics.staffChanged(handler.getTier(), 1);
+                }
+            }
+            handler = handler.successorHandler;
+        } while (handler != null && handler != this);
+
+        waitQueue.metrics = metrics;
+    }
+
+    /**
+     * Define el orden en que las llamadas en espera de toda la cadena reciben a los empleados que se liberan.<br/>
+     * Por defecto, {@link WaitingOrder#FIFO}.
+     */
+    public void setWaitingOrder(WaitingOrder order) {
+        waitQueue.setOrder(order);
+    }
+
+    /**
+     * Permite indicar a quién se informa la posición y la espera estimada de cada llamada que queda en espera. Por<br/>
+     * defecto se loguean. Debe invocarse antes de procesar llamadas.
+     */
+    public void setQueuePositionListener(QueuePositionListener positionListener) {
+        waitQueue.positionListener = positionListener;
+    }
+
+    /**
+     * El empleado atiende la llamada durante toda su duración y luego se libera.
+     */
+    void processCall(Call call, int slot, CallRegistrationAware callReg) {
+
+        final IdleEmployeePool<T> pool = employees;
+        final T employee = pool.get(slot);
+
+        final long assignedNanos = clock.nanoTime();
+        pool.setExpectedFreeNanos(slot, assignedNanos + TimeUnit.MILLISECONDS.toNanos(call.getDurationMs()));
+        metrics.employeeAssigned(employee.getTier(), assignedNanos - call.getReceivedNanos());
         try {
-            employee = employees.poll();
-            callReg.addEmployeeInCallProcessingOrder(employee);
+            clock.sleep(call.getDurationMs());
+
+        } catch (InterruptedException ie) {
+            log.error("Ocurrió una Exception mientras se procesaba la llamada: ", ie);
         } finally {
-            pollingLock.unlock();
+            final long endNanos = clock.nanoTime();
+            metrics.employeeReleased(employee.getTier(), endNanos - assignedNanos);
+            completed(callReg, call, employee, assignedNanos, endNanos);
+            //Dado que el empleado finalizó el procesamiento de la llamada, se lo entrega a la próxima llamada en
+            //espera o, de no haber ninguna, se lo vuelve a insertar en su respectiva cola.
+            waitQueue.release(this, slot);
         }
+    }
 
-        if (employee != null) {
-            try {
-                TimeUnit.MILLISECONDS.sleep(call.getDurationMs());
-
-            } catch (InterruptedException ie) {
-                log.error("Ocurrió una Exception mientras se procesaba la llamada: ", ie);
-            } finally {
-                //Dado que el empleado finalizó el procesamiento de la llamada, se lo vuelve a insertar en su
-                //respectiva cola con el objeto de estar disponible para procesar una nueva llamada.
-                employees.offer(employee);
+    /**
+     * Incorpora al empleado o lo reincorpora si se había retirado, ampliando el pool si no tiene capacidad.<br/>
+     * Debe invocarse bajo el lock de la cola de espera de la cadena.
+     *
+     * @return El slot del empleado si quien lo incorpora debe liberarlo para que comience a atender llamadas, o<br/>
+     * {@link IdleEmployeePool#NONE} si el empleado ya se encontraba en servicio.
+     */
+    @SuppressWarnings("unchecked")
+    int join(Employee employee) {
+
+        final T member = (T) employee;
+        int slot = employees.slotOf(member);
+        if (slot != IdleEmployeePool.NONE) {
+            if (employees.isOnDuty(slot)) {
+                return IdleEmployeePool.NONE;
             }
-        } else {
-            postProcess(call, callReg);
+            metrics.staffChanged(getTier(), 1);
+            return employees.rejoin(slot) ? slot : IdleEmployeePool.NONE;
         }
+        slot = employees.add(member);
+        if (slot == IdleEmployeePool.NONE) {
+            //El nuevo pool se publica antes de transferirle los empleados disponibles: quien devuelva un empleado
+            //sin lock al pool anterior y no vea el reemplazo tiene la garantía de que la transferencia lo incluye.
+            final IdleEmployeePool<T> previous = employees;
+            employees = previous.grow();
+            previous.transferIdleTo(employees);
+            slot = employees.add(member);
+        }
+        metrics.staffChanged(getTier(), 1);
+        return slot;
     }
 
-    void postProcess(Call call, CallRegistrationAware callReg) {
-        successorHandler.handleCall(call, callReg);
+    static void completed(CallRegistrationAware callReg, Call call, Employee employee, long assignedNanos,
+                          long endNanos) {
+        try {
+            callReg.callCompleted(call, employee, assignedNanos, endNanos);
+
+        } catch (RuntimeException re) {
+            log.error("Exception mientras se registraba la finalización de la {}: ", call, re);
+        }
+    }
+
+    /**
+     * Asociación entre un empleado y el handler al que pertenece, que permite liberarlo en la cola correcta, junto<br/>
+     * con el objeto de registración de la llamada a la que fue asignado.
+     */
+    static final class Assignment<T extends Employee> {
+
+        private final EmployeeHandler<T> handler;
+        private final int slot;
+        private final CallRegistrationAware callReg;
+
+        Assignment(EmployeeHandler<T> handler, int slot, CallRegistrationAware callReg) {
+            this.handler = handler;
+            this.slot = slot;
+            this.callReg = callReg;
+        }
+
+        void process(Call call) {
+            handler.processCall(call, slot, callReg);
+        }
+
+        /**
+         * Programa la finalización de la llamada en lugar de bloquear al thread actual durante su duración.
+         */
+        CompletableFuture<Void> processAsync(Call call, ScheduledExecutorService scheduler) {
+
+            final CompletableFuture<Void> done = new CompletableFuture<>();
+            final IdleEmployeePool<T> pool = handler.employees;
+            final T employee = pool.get(slot);
+            final long assignedNanos = handler.clock.nanoTime();
+            pool.setExpectedFreeNanos(slot, assignedNanos + TimeUnit.MILLISECONDS.toNanos(call.getDurationMs()));
+            handler.metrics.employeeAssigned(employee.getTier(), assignedNanos - call.getReceivedNanos());
+            try {
+                handler.clock.schedule(scheduler, () -> {
+                    try {
+                        final long endNanos = handler.clock.nanoTime();
+                        handler.metrics.employeeReleased(employee.getTier(), endNanos - assignedNanos);
+                        completed(callReg, call, employee, assignedNanos, endNanos);
+                        handler.waitQueue.release(handler, slot);
+                    } finally {
+                        done.complete(null);
+                    }
+                }, call.getDurationMs(), TimeUnit.MILLISECONDS);
+
+            } catch (RejectedExecutionException ree) {
+                log.error("No se pudo programar la finalización de la {}. Liberando al empleado {}", call, employee);
+                handler.metrics.employeeReleased(employee.getTier(), 0);
+                handler.waitQueue.release(handler, slot);
+                done.completeExceptionally(ree);
+            }
+            return done;
+        }
     }
 }
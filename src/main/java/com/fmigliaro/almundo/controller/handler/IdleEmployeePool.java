@@ -0,0 +1,467 @@
+package com.fmigliaro.almundo.controller.handler;
+
+import com.fmigliaro.almundo.model.Employee;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Empleados de un handler, direccionados por un id entero (su <b>slot</b>), junto con la cola de slots de los<br/>
+ * empleados disponibles.<p/>
+ *
+ * La cola es un buffer circular acotado, multi-productor y multi-consumidor, sin locks (algoritmo de D. Vyukov):<br/>
+ * cada posición tiene un número de secuencia que indica si está lista para escribirse o para leerse, y cada<br/>
+ * operación se resuelve con un único compare-and-set. A diferencia de una {@link java.util.concurrent.ConcurrentLinkedQueue},<br/>
+ * obtener y devolver empleados no crea ningún objeto, dado que la cola sólo contiene enteros. Como cada empleado se<br/>
+ * encuentra a lo sumo una vez en la cola, su capacidad nunca se excede.<p/>
+ *
+ * Cada slot tiene además un estado (disponible, ocupado, retirándose o fuera de servicio), que permite incorporar y<br/>
+ * retirar empleados mientras se procesan llamadas (ver {@link StaffingManager}). Un empleado que se retira mientras<br/>
+ * está disponible permanece en la cola hasta que un poll lo descarta; uno que se retira mientras atiende una<br/>
+ * llamada no vuelve a la cola al finalizarla. Una vez fuera de servicio, su slot se reutiliza para el próximo<br/>
+ * empleado que se incorpore, por lo que la cantidad de slots no crece con los cambios de dotación. Las altas y<br/>
+ * bajas se realizan bajo el lock de la cola de espera de la cadena; {@link #poll()} y {@link #offerIfOnDuty} se<br/>
+ * ejecutan sin lock.<p/>
+ *
+ * El estado también detecta que un empleado se libere más de una vez: sólo puede liberarse un empleado ocupado,<br/>
+ * por lo que la segunda liberación encuentra al slot disponible o fuera de servicio y falla con una<br/>
+ * {@link IllegalStateException}, antes de que el slot ingrese dos veces en la cola.
+ */
+final class IdleEmployeePool<T extends Employee> {
+
+    static final int NONE = -1;
+
+    private static final int IDLE = 0;
+    private static final int BUSY = 1;
+    private static final int IDLE_LEAVING = 2;
+    private static final int BUSY_LEAVING = 3;
+    private static final int OFF = 4;
+
+    private final Slot<T>[] staff;
+    private final int[] slots;
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+    /**
+     * Cantidad de empleados que se retiraron mientras estaban disponibles y aún permanecen en la cola. Es compartida<br/>
+     * con el pool que reemplaza a éste (ver {@link #grow()}), dado que dichos empleados se le transfieren.
+     */
+    private final AtomicInteger idleLeaving;
+    private volatile int staffCount;
+    /**
+     * Slot de cada empleado, y slots de empleados retirados que pueden reutilizarse una vez fuera de servicio.<br/>
+     * Sólo se acceden bajo el lock de la cola de espera de la cadena.
+     */
+    private final Map<T, Integer> slotsByEmployee = new IdentityHashMap<>();
+    private int[] retired = new int[4];
+    private int retiredCount;
+
+    IdleEmployeePool(Collection<T> employees) {
+
+        this(capacityFor(employees.size()), new AtomicInteger());
+        for (T employee : employees) {
+            offer(add(employee));
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private IdleEmployeePool(int capacity, AtomicInteger idleLeaving) {
+
+        this.staff = (Slot<T>[]) new Slot<?>[capacity];
+        this.slots = new int[capacity];
+        this.sequences = new AtomicLongArray(capacity);
+        this.mask = capacity - 1;
+        this.idleLeaving = idleLeaving;
+
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    private static int capacityFor(int staffCount) {
+        return Integer.highestOneBit(Math.max(2, staffCount) * 2 - 1);
+    }
+
+    /**
+     * @return El slot de un empleado disponible, que pasa a estar ocupado, o {@link #NONE} si no hay ninguno.
+     */
+    int poll() {
+
+        int slot;
+        while ((slot = pollSlot()) != NONE) {
+            final AtomicInteger state = staff[slot].state;
+            int current;
+            //Si el empleado se retiró mientras estaba disponible, se lo descarta (salvo que se haya reincorporado).
+            while ((current = state.get()) == IDLE || current == IDLE_LEAVING) {
+                if (current == IDLE && state.compareAndSet(IDLE, BUSY)) {
+                    return slot;
+                }
+                if (current == IDLE_LEAVING && state.compareAndSet(IDLE_LEAVING, OFF)) {
+                    idleLeaving.decrementAndGet();
+                    break;
+                }
+            }
+        }
+        return NONE;
+    }
+
+    /**
+     * Devuelve el empleado, que debe estar ocupado, a la cola de disponibles.
+     *
+     * @throws IllegalStateException Si el empleado no estaba ocupado (fue liberado más de una vez).
+     */
+    void offer(int slot) {
+
+        if (!staff[slot].state.compareAndSet(BUSY, IDLE)) {
+            throw releasedTwice(slot);
+        }
+        offerSlot(slot);
+    }
+
+    /**
+     * Devuelve el empleado a la cola de disponibles al finalizar su llamada, salvo que se haya retirado mientras la<br/>
+     * atendía. No requiere el lock de la cola de espera (ver {@link CallWaitQueue#release}).
+     *
+     * @return true si el empleado quedó disponible, false si se había retirado (ver {@link #endCall}).
+     * @throws IllegalStateException Si el empleado no estaba atendiendo una llamada (fue liberado más de una vez).
+     */
+    boolean offerIfOnDuty(int slot) {
+
+        final AtomicInteger state = staff[slot].state;
+        while (true) {
+            final int current = state.get();
+            if (current == BUSY && state.compareAndSet(BUSY, IDLE)) {
+                offerSlot(slot);
+                return true;
+            }
+            if (current == BUSY_LEAVING) {
+                return false;
+            }
+            if (current != BUSY) {
+                throw releasedTwice(slot);
+            }
+        }
+    }
+
+    /**
+     * Indica que el empleado finalizó su llamada.
+     *
+     * @return true si el empleado continúa en servicio, false si se había retirado (y ahora queda fuera de servicio).
+     * @throws IllegalStateException Si el empleado no estaba atendiendo una llamada (fue liberado más de una vez).
+     */
+    boolean endCall(int slot) {
+
+        final AtomicInteger state = staff[slot].state;
+        while (true) {
+            final int current = state.get();
+            if (current == BUSY) {
+                return true;
+            }
+            if (current == BUSY_LEAVING && state.compareAndSet(BUSY_LEAVING, OFF)) {
+                return false;
+            }
+            if (current != BUSY_LEAVING) {
+                throw releasedTwice(slot);
+            }
+        }
+    }
+
+    private IllegalStateException releasedTwice(int slot) {
+        return new IllegalStateException("El empleado " + staff[slot].employee + " fue liberado más de una vez.");
+    }
+
+    /**
+     * Incorpora un nuevo empleado, en estado ocupado, para que quien lo incorpora lo libere como a cualquier otro.<br/>
+     * Se reutiliza, si lo hay, el slot de un empleado retirado que ya está fuera de servicio: dicho slot no está en<br/>
+     * la cola ni asignado a ninguna llamada, y el empleado que lo ocupaba deja de pertenecer al pool.
+     *
+     * @return El slot del empleado, o {@link #NONE} si no hay capacidad (ver {@link #grow()}).
+     */
+    int add(T employee) {
+
+        int slot = reclaimSlot();
+        if (slot == NONE && idleLeaving.get() > 0) {
+            purgeLeaving();
+            slot = reclaimSlot();
+        }
+        if (slot != NONE) {
+            slotsByEmployee.remove(staff[slot].employee);
+            //Los lectores sin lock obtienen el slot recién cuando el empleado se libera, con una escritura volatile.
+            staff[slot] = new Slot<>(employee, BUSY);
+        } else {
+            slot = staffCount;
+            if (slot == staff.length) {
+                return NONE;
+            }
+            staff[slot] = new Slot<>(employee, BUSY);
+            staffCount = slot + 1;
+        }
+        slotsByEmployee.put(employee, slot);
+        return slot;
+    }
+
+    /**
+     * Recorre los slots de empleados retirados, descartando los de quienes se reincorporaron.
+     *
+     * @return Un slot fuera de servicio, que deja de estar entre los retirados, o {@link #NONE} si no hay ninguno.
+     */
+    private int reclaimSlot() {
+
+        int i = 0;
+        while (i < retiredCount) {
+            final int slot = retired[i];
+            //Sólo rejoin, bajo el mismo lock, saca a un slot de OFF.
+            final int state = staff[slot].state.get();
+            if (state == IDLE_LEAVING || state == BUSY_LEAVING) {
+                i++;
+                continue;
+            }
+            retired[i] = retired[--retiredCount];
+            staff[slot].retired = false;
+            if (state == OFF) {
+                return slot;
+            }
+        }
+        return NONE;
+    }
+
+    /**
+     * Retira al empleado.
+     *
+     * @return true si el empleado estaba atendiendo una llamada, false si estaba disponible o ya retirado.
+     */
+    boolean retire(int slot) {
+
+        final AtomicInteger state = staff[slot].state;
+        while (true) {
+            final int current = state.get();
+            if (current == IDLE && state.compareAndSet(IDLE, IDLE_LEAVING)) {
+                idleLeaving.incrementAndGet();
+                markRetired(slot);
+                return false;
+            }
+            if (current == BUSY && state.compareAndSet(BUSY, BUSY_LEAVING)) {
+                markRetired(slot);
+                return true;
+            }
+            if (current == IDLE_LEAVING || current == BUSY_LEAVING || current == OFF) {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Descarta de la cola a los empleados que se retiraron mientras estaban disponibles, que de otro modo permanecen<br/>
+     * en ella (ocupando su slot) hasta que un poll los encuentre, lo cual en un nivel que rara vez se consulta puede<br/>
+     * no ocurrir nunca. Los empleados disponibles se devuelven a la cola en el mismo orden. Se invoca bajo el lock<br/>
+     * de la cola de espera, por lo que una llamada que no los encuentre mientras tanto los verá al encolarse.
+     */
+    private void purgeLeaving() {
+
+        final int[] idle = new int[slots.length];
+        int count = 0;
+        int slot;
+        while ((slot = poll()) != NONE) {
+            idle[count++] = slot;
+        }
+        for (int i = 0; i < count; i++) {
+            offer(idle[i]);
+        }
+    }
+
+    private void markRetired(int slot) {
+
+        if (staff[slot].retired) {
+            return;
+        }
+        if (retiredCount == retired.length) {
+            retired = Arrays.copyOf(retired, retiredCount * 2);
+        }
+        retired[retiredCount++] = slot;
+        staff[slot].retired = true;
+    }
+
+    /**
+     * Reincorpora a un empleado retirado.
+     *
+     * @return true si el empleado estaba fuera de servicio y quedó ocupado, por lo que quien lo reincorpora debe<br/>
+     * liberarlo; false si aún se encontraba en la cola o atendiendo una llamada y simplemente continúa en servicio.
+     */
+    boolean rejoin(int slot) {
+
+        final AtomicInteger state = staff[slot].state;
+        while (true) {
+            if (state.compareAndSet(IDLE_LEAVING, IDLE)) {
+                idleLeaving.decrementAndGet();
+                return false;
+            }
+            if (state.compareAndSet(BUSY_LEAVING, BUSY)) {
+                return false;
+            }
+            if (state.compareAndSet(OFF, BUSY)) {
+                return true;
+            }
+            final int current = state.get();
+            if (current == IDLE || current == BUSY) {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Crea un pool con el doble de capacidad y los mismos slots, aún sin empleados disponibles. Los estados de los<br/>
+     * slots son compartidos entre ambos pools, por lo que un poll concurrente sobre este pool sigue siendo válido.<br/>
+     * Una vez publicado el nuevo pool, deben transferírsele los empleados disponibles (ver {@link #transferIdleTo}).
+     */
+    IdleEmployeePool<T> grow() {
+
+        final IdleEmployeePool<T> grown = new IdleEmployeePool<>(staff.length * 2, idleLeaving);
+        final int count = staffCount;
+        System.arraycopy(staff, 0, grown.staff, 0, count);
+        grown.staffCount = count;
+        grown.slotsByEmployee.putAll(slotsByEmployee);
+        grown.retired = Arrays.copyOf(retired, retired.length);
+        grown.retiredCount = retiredCount;
+        return grown;
+    }
+
+    /**
+     * Transfiere los empleados disponibles de este pool, ya reemplazado, al pool que lo reemplazó. Un empleado<br/>
+     * devuelto a este pool luego de la transferencia queda en él hasta una nueva transferencia.
+     */
+    void transferIdleTo(IdleEmployeePool<T> grown) {
+
+        int slot;
+        while ((slot = pollSlot()) != NONE) {
+            grown.offerSlot(slot);
+        }
+    }
+
+    /**
+     * Debe invocarse bajo el lock de la cola de espera de la cadena.
+     *
+     * @return El slot del empleado, o {@link #NONE} si no pertenece a este pool (o su slot ya fue reutilizado).
+     */
+    int slotOf(Employee employee) {
+        final Integer slot = slotsByEmployee.get(employee);
+        return slot == null ? NONE : slot;
+    }
+
+    /**
+     * @return true si el empleado está en servicio (disponible u ocupado), false si se retiró.
+     */
+    boolean isOnDuty(int slot) {
+        final int state = staff[slot].state.get();
+        return state == IDLE || state == BUSY;
+    }
+
+    /**
+     * @return Cantidad aproximada de empleados disponibles, sin contar a los retirados que aún están en la cola<br/>
+     * (puede estar desactualizada ante operaciones concurrentes).
+     */
+    int idleCount() {
+        return (int) Math.max(0, tail.get() - head.get() - idleLeaving.get());
+    }
+
+    T get(int slot) {
+        return staff[slot].employee;
+    }
+
+    long getExpectedFreeNanos(int slot) {
+        return staff[slot].expectedFreeNanos;
+    }
+
+    void setExpectedFreeNanos(int slot, long expectedFreeNanos) {
+        staff[slot].expectedFreeNanos = expectedFreeNanos;
+    }
+
+    /**
+     * @return Cantidad de slots, incluidos los de empleados retirados aún no reutilizados.
+     */
+    int staffCount() {
+        return staffCount;
+    }
+
+    @Override
+    public String toString() {
+        return "IdleEmployeePool" + Arrays.toString(Arrays.copyOf(staff, staffCount));
+    }
+
+    private int pollSlot() {
+
+        long position = head.get();
+        while (true) {
+            final int index = (int) position & mask;
+            final long difference = sequences.get(index) - (position + 1);
+
+            if (difference == 0) {
+                if (head.compareAndSet(position, position + 1)) {
+                    final int slot = slots[index];
+                    sequences.lazySet(index, position + mask + 1);
+                    return slot;
+                }
+                position = head.get();
+            } else if (difference < 0) {
+                return NONE;
+            } else {
+                position = head.get();
+            }
+        }
+    }
+
+    private void offerSlot(int slot) {
+
+        long position = tail.get();
+        while (true) {
+            final int index = (int) position & mask;
+            final long difference = sequences.get(index) - position;
+
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    slots[index] = slot;
+                    //Escritura volatile (y no lazySet): quien libera al empleado sin lock lee a continuación si hay
+                    //llamadas en espera, y esa lectura no debe adelantarse a la publicación del slot.
+                    sequences.set(index, position + 1);
+                    return;
+                }
+                position = tail.get();
+            } else if (difference < 0) {
+                //La posición está ocupada momentáneamente por un poll que ya avanzó head pero aún no la liberó: la
+                //cola nunca está llena, dado que el estado de cada slot impide que ingrese dos veces.
+                position = tail.get();
+            } else {
+                position = tail.get();
+            }
+        }
+    }
+
+    /**
+     * Empleado de un slot, junto con su estado y el instante en que se espera que finalice su llamada actual.
+     */
+    private static final class Slot<T> {
+
+        private final T employee;
+        private final AtomicInteger state;
+        private volatile long expectedFreeNanos;
+        /**
+         * true si el slot está entre los de empleados retirados. Sólo se accede bajo el lock de la cola de espera.
+         */
+        private boolean retired;
+
+        private Slot(T employee, int state) {
+            this.employee = employee;
+            this.state = new AtomicInteger(state);
+        }
+
+        @Override
+        public String toString() {
+            return String.valueOf(employee);
+        }
+    }
+}
@@ -2,6 +2,7 @@ package com.fmigliaro.almundo.controller.handler;
 
 import com.fmigliaro.almundo.model.Employee;
 import com.fmigliaro.almundo.model.Operator;
+import com.fmigliaro.almundo.model.Tier;
 
 import java.util.concurrent.BlockingQueue;
 
@@ -20,7 +21,15 @@ public class OperatorHandler extends EmployeeHandler<Operator> {
      *                         atender la llamada.
      */
     public OperatorHandler(BlockingQueue<Operator> employees, EmployeeHandler<? extends Employee> successorHandler) {
-        this.employees = employees;
+        super(employees);
         this.successorHandler = successorHandler;
+        this.waitQueue = successorHandler.waitQueue;
+        this.registrationSequencer = successorHandler.registrationSequencer;
+        this.clock = successorHandler.clock;
+    }
+
+    @Override
+    Tier getTier() {
+        return Tier.OPERATOR;
     }
 }
@@ -0,0 +1,33 @@
+package com.fmigliaro.almundo.controller.handler;
+
+import com.fmigliaro.almundo.model.Call;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.util.Unbox;
+
+/**
+ * Interfaz que permite ser notificado (por ejemplo, para anunciárselo a quien llama) de la posición y la espera<br/>
+ * estimada de cada llamada que queda en espera por no haber empleados disponibles.<br/>
+ * Las notificaciones se realizan fuera de cualquier lock, en el thread que encoló la llamada.
+ */
+public interface QueuePositionListener {
+
+    /**
+     * Valor de la espera estimada cuando no puede estimarse, por ejemplo si la cadena no tiene empleados.
+     */
+    long UNKNOWN_WAIT = -1;
+
+    /**
+     * Implementación por defecto, que loguea la posición y la espera estimada sin crear objetos.
+     */
+    QueuePositionListener LOGGING = (call, position, predictedWaitMs) -> LogManager
+            .getLogger(QueuePositionListener.class)
+            .info("No hay empleados disponibles para procesar la {}. Posición en la cola de espera: {}. " +
+                    "Espera estimada: {} ms", call, Unbox.box(position), Unbox.box(predictedWaitMs));
+
+    /**
+     * @param call La llamada encolada.
+     * @param position Posición de la llamada en la cola de espera, comenzando en 1.
+     * @param predictedWaitMs Espera estimada en milisegundos, o {@link #UNKNOWN_WAIT}.
+     */
+    void onCallQueued(Call call, int position, long predictedWaitMs);
+}
@@ -0,0 +1,133 @@
+package com.fmigliaro.almundo.controller.handler;
+
+import com.fmigliaro.almundo.model.Employee;
+import com.fmigliaro.almundo.utility.CallRegistrationAware;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Ordena las registraciones de los empleados sin necesidad de un lock global durante la obtención de empleados.<p/>
+ *
+ * Cada intento de obtener un empleado de un handler toma un <b>ticket</b> antes de hacer el poll sobre la cola de<br/>
+ * empleados, y luego publica el resultado (el empleado obtenido o nada) en el slot correspondiente a su ticket.<br/>
+ * Las registraciones se entregan al {@link CallRegistrationAware} estrictamente en el orden de los tickets, por lo<br/>
+ * que si un thread obtuvo a un Operador antes de que otro thread encontrara la cola de Operadores vacía y pasara a<br/>
+ * buscar un Supervisor, el Operador siempre se registra primero.<p/>
+ *
+ * Publicar y entregar son pasos separados: publicar sólo copia el resultado en el slot, por lo que puede hacerse<br/>
+ * bajo un lock (el de la cola de espera de la cadena o el de un<br/>
+ * {@link com.fmigliaro.almundo.controller.routing.SkillRouter}), mientras que {@link #deliver()} invoca al<br/>
+ * {@link CallRegistrationAware} y debe llamarse luego de liberarlo. Todo thread que publica debe luego llamar a<br/>
+ * {@link #deliver()}. Los threads nunca se esperan entre sí para entregar: el primero que encuentra listo el<br/>
+ * próximo ticket a entregar se encarga de entregar todos los tickets consecutivos disponibles, mientras el resto<br/>
+ * simplemente continúa.
+ */
+public class RegistrationSequencer {
+
+    private static final Logger log = LogManager.getLogger(RegistrationSequencer.class);
+    private static final int CAPACITY = 1024;
+    private static final int MASK = CAPACITY - 1;
+    private static final long MAX_BACKOFF_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final AtomicLong ticketSeq = new AtomicLong();
+    private final Employee[] employees = new Employee[CAPACITY];
+    private final CallRegistrationAware[] callRegs = new CallRegistrationAware[CAPACITY];
+    //Ticket + 1 del último resultado publicado en cada slot. Su escritura publica el empleado y el callReg del slot.
+    private final AtomicLongArray published = new AtomicLongArray(CAPACITY);
+    private final AtomicBoolean delivering = new AtomicBoolean();
+    private volatile long nextToDeliver;
+
+    /**
+     * Obtiene el próximo ticket. Sólo en el caso extremo en que haya {@link #CAPACITY} tickets pendientes de entrega<br/>
+     * (un {@link CallRegistrationAware} que se bloquea), se espera a que se libere el slot correspondiente: se<br/>
+     * intenta entregar los tickets pendientes y, si otro thread los está entregando, se duerme con un backoff<br/>
+     * acotado en lugar de consumir CPU.
+     */
+    public long nextTicket() {
+
+        final long ticket = ticketSeq.getAndIncrement();
+
+        long backoffNanos = 1;
+        while (ticket - nextToDeliver >= CAPACITY) {
+            //Incluye los tickets que el propio thread publicó bajo el lock sin entregar todavía.
+            deliver();
+            if (ticket - nextToDeliver < CAPACITY) {
+                break;
+            }
+            LockSupport.parkNanos(this, backoffNanos);
+            backoffNanos = Math.min(backoffNanos * 2, MAX_BACKOFF_NANOS);
+        }
+        return ticket;
+    }
+
+    /**
+     * Publica el resultado del intento asociado al ticket, sin entregarlo. Todo ticket obtenido debe publicarse,<br/>
+     * aún cuando no se haya obtenido ningún empleado, y luego debe llamarse a {@link #deliver()}.
+     *
+     * @param ticket El ticket obtenido mediante {@link #nextTicket()}.
+     * @param employee El empleado obtenido, o null si no había empleados disponibles.
+     * @param callReg Objeto que permite registrar el orden en que los empleados atendieron las llamadas.
+     */
+    public void publish(long ticket, Employee employee, CallRegistrationAware callReg) {
+
+        final int index = index(ticket);
+        employees[index] = employee;
+        callRegs[index] = callReg;
+        published.set(index, ticket + 1);
+    }
+
+    /**
+     * Entrega, en orden, todos los tickets consecutivos ya publicados, salvo que otro thread ya los esté entregando.<br/>
+     * No debe invocarse bajo un lock, dado que invoca al {@link CallRegistrationAware}.
+     */
+    public void deliver() {
+
+        while (delivering.compareAndSet(false, true)) {
+            try {
+                long next = nextToDeliver;
+
+                while (isPublished(next)) {
+                    final int index = index(next);
+                    final Employee employee = employees[index];
+                    final CallRegistrationAware callReg = callRegs[index];
+                    employees[index] = null;
+                    callRegs[index] = null;
+                    nextToDeliver = ++next;
+
+                    if (employee != null) {
+                        register(employee, callReg);
+                    }
+                }
+            } finally {
+                delivering.set(false);
+            }
+            //Un ticket pudo publicarse mientras se liberaba el flag: en ese caso se vuelve a intentar la entrega.
+            if (!isPublished(nextToDeliver)) {
+                return;
+            }
+        }
+    }
+
+    private boolean isPublished(long ticket) {
+        return published.get(index(ticket)) == ticket + 1;
+    }
+
+    private static void register(Employee employee, CallRegistrationAware callReg) {
+        try {
+            callReg.addEmployeeInCallProcessingOrder(employee);
+
+        } catch (RuntimeException re) {
+            log.error("Exception mientras se registraba al empleado {}: ", employee, re);
+        }
+    }
+
+    private static int index(long ticket) {
+        return (int) ticket & MASK;
+    }
+}
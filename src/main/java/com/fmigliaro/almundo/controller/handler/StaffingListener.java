@@ -0,0 +1,48 @@
+package com.fmigliaro.almundo.controller.handler;
+
+import com.fmigliaro.almundo.utility.AsyncCallRegistration;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * Interfaz que permite ser notificado de cada cambio en la dotación de una cadena de handlers, de manera de ajustar<br/>
+ * las estructuras cuyo tamaño depende de la cantidad de empleados (ver {@link StaffingManager}).<br/>
+ * Las notificaciones se realizan fuera de cualquier lock, en el thread que realizó el cambio.
+ */
+public interface StaffingListener {
+
+    /**
+     * @param staff Cantidad de empleados en servicio en toda la cadena.
+     */
+    void onStaffChanged(int staff);
+
+    /**
+     * Ajusta el pool de threads del Dispatcher, en el cual cada llamada ocupa un thread durante toda su duración,<br/>
+     * incluida su espera en la cola de llamadas en espera: un thread por empleado en servicio, más los threads de<br/>
+     * las llamadas que se admite que esperen a la vez (al menos uno en total). Las llamadas que excedan ese margen<br/>
+     * aguardan en la work queue del pool, sin ocupar un thread.
+     *
+     * @param waitingThreads Cantidad de threads que se reservan para llamadas en espera de un empleado.
+     */
+    static StaffingListener resizing(ThreadPoolExecutor executor, int waitingThreads) {
+
+        return staff -> {
+            final int threads = Math.max(1, staff + waitingThreads);
+            //El tamaño mínimo nunca puede superar al máximo, por lo que el orden depende de si se amplía o se reduce.
+            if (threads > executor.getMaximumPoolSize()) {
+                executor.setMaximumPoolSize(threads);
+                executor.setCorePoolSize(threads);
+            } else {
+                executor.setCorePoolSize(threads);
+                executor.setMaximumPoolSize(threads);
+            }
+        };
+    }
+
+    /**
+     * Ajusta la capacidad del buffer de registraciones a la cantidad indicada de registraciones por empleado.
+     */
+    static StaffingListener resizing(AsyncCallRegistration registrations, int registrationsPerEmployee) {
+        return staff -> registrations.setCapacity(staff * registrationsPerEmployee);
+    }
+}
@@ -0,0 +1,199 @@
+package com.fmigliaro.almundo.controller.handler;
+
+import com.fmigliaro.almundo.model.Employee;
+import com.fmigliaro.almundo.model.Tier;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Permite modificar la dotación de una cadena de handlers mientras se procesan llamadas: incorporar empleados<br/>
+ * (ingreso al turno), retirarlos (fin de turno o descanso) y reasignarlos a otro nivel.<p/>
+ *
+ * Los cambios se realizan bajo el lock de la cola de espera de la cadena, el mismo con el cual se liberan los<br/>
+ * empleados, por lo que un empleado incorporado es asignado de inmediato a la próxima llamada en espera y nunca<br/>
+ * queda disponible mientras haya llamadas esperando. Un empleado retirado mientras atiende una llamada la finaliza<br/>
+ * normalmente y luego no vuelve a quedar disponible. Las llamadas se siguen asignando sin locks.<p/>
+ *
+ * Dado que el nivel de un empleado está dado por su clase, reasignarlo consiste en retirarlo de su nivel e<br/>
+ * incorporar a quien lo representa en el nuevo nivel. Si el empleado está atendiendo una llamada, su reemplazo se<br/>
+ * incorpora recién al finalizarla, de manera que la misma persona nunca atienda dos llamadas a la vez.
+ */
+public class StaffingManager {
+
+    private static final Logger log = LogManager.getLogger(StaffingManager.class);
+
+    private final EmployeeHandler<?> chain;
+    private final List<StaffingListener> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * @param chain Cualquier handler de la cadena cuya dotación se administra.
+     */
+    public StaffingManager(EmployeeHandler<?> chain) {
+        this.chain = chain;
+    }
+
+    /**
+     * Agrega un listener, notificándolo de inmediato con la dotación actual.
+     */
+    public void addListener(StaffingListener listener) {
+        listeners.add(listener);
+        listener.onStaffChanged(getStaffCount());
+    }
+
+    /**
+     * Incorpora al empleado en el handler de su nivel. Si el empleado se había retirado, se lo reincorpora.
+     *
+     * @throws IllegalArgumentException Si la cadena no tiene un handler para el nivel del empleado.
+     */
+    public void add(Employee employee) {
+
+        final EmployeeHandler<?> handler = handlerFor(employee.getTier());
+        final int slot;
+
+        chain.waitQueue.lock.lock();
+        try {
+            //Si el empleado se reincorpora antes de finalizar la llamada que atendía, ya no debe ser reemplazado.
+            chain.waitQueue.departures.remove(employee);
+            slot = handler.join(employee);
+        } finally {
+            chain.waitQueue.lock.unlock();
+        }
+        if (slot != IdleEmployeePool.NONE) {
+            //El empleado se libera como si acabara de finalizar una llamada: atiende a la próxima llamada en espera.
+            chain.waitQueue.release(handler, slot);
+        }
+        log.info("El empleado {} ingresó al turno.", employee);
+        staffChanged();
+    }
+
+    /**
+     * Retira al empleado. Si está atendiendo una llamada, la finaliza normalmente.
+     *
+     * @return true si el empleado estaba en servicio.
+     */
+    public boolean remove(Employee employee) {
+
+        chain.waitQueue.lock.lock();
+        try {
+            if (retire(employee) == null) {
+                return false;
+            }
+        } finally {
+            chain.waitQueue.lock.unlock();
+        }
+        log.info("El empleado {} se retiró del turno.", employee);
+        staffChanged();
+        return true;
+    }
+
+    /**
+     * Reasigna a un empleado a otro nivel.
+     *
+     * @param current El empleado en su nivel actual.
+     * @param replacement El mismo empleado, representado en su nuevo nivel.
+     * @throws IllegalArgumentException Si el empleado no está en servicio, o si la cadena no tiene un handler para<br/>
+     *                                  el nuevo nivel.
+     */
+    public void reassign(Employee current, Employee replacement) {
+
+        final EmployeeHandler<?> target = handlerFor(replacement.getTier());
+        final int slot;
+
+        chain.waitQueue.lock.lock();
+        try {
+            final Boolean busy = retire(current);
+            if (busy == null) {
+                throw new IllegalArgumentException("El empleado " + current + " no está en servicio.");
+            }
+            if (busy) {
+                chain.waitQueue.departures.put(current, () -> add(replacement));
+                slot = IdleEmployeePool.NONE;
+            } else {
+                slot = target.join(replacement);
+            }
+        } finally {
+            chain.waitQueue.lock.unlock();
+        }
+        if (slot != IdleEmployeePool.NONE) {
+            chain.waitQueue.release(target, slot);
+        }
+        log.info("El empleado {} fue reasignado como {}.", current, replacement);
+        staffChanged();
+    }
+
+    /**
+     * @return Cantidad de empleados en servicio en toda la cadena.
+     */
+    public int getStaffCount() {
+
+        int staff = 0;
+        for (Tier tier : Tier.values()) {
+            staff += getStaffCount(tier);
+        }
+        return staff;
+    }
+
+    /**
+     * @return Cantidad de empleados en servicio del nivel indicado.
+     */
+    public int getStaffCount(Tier tier) {
+
+        int staff = 0;
+        EmployeeHandler<?> handler = chain;
+        do {
+            if (handler.getTier() == tier) {
+                final IdleEmployeePool<?> pool = handler.employees;
+                for (int slot = 0; slot < pool.staffCount(); slot++) {
+                    if (pool.isOnDuty(slot)) {
+                        staff++;
+                    }
+                }
+            }
+            handler = handler.successorHandler;
+        } while (handler != null && handler != chain);
+
+        return staff;
+    }
+
+    /**
+     * Debe invocarse bajo el lock de la cola de espera.
+     *
+     * @return null si el empleado no estaba en servicio; si lo estaba, si se encontraba atendiendo una llamada.
+     */
+    private Boolean retire(Employee employee) {
+
+        final EmployeeHandler<?> handler = handlerFor(employee.getTier());
+        final IdleEmployeePool<?> pool = handler.employees;
+        final int slot = pool.slotOf(employee);
+
+        if (slot == IdleEmployeePool.NONE || !pool.isOnDuty(slot)) {
+            return null;
+        }
+        handler.metrics.staffChanged(handler.getTier(), -1);
+        return pool.retire(slot);
+    }
+
+    private EmployeeHandler<?> handlerFor(Tier tier) {
+
+        EmployeeHandler<?> handler = chain;
+        do {
+            if (handler.getTier() == tier) {
+                return handler;
+            }
+            handler = handler.successorHandler;
+        } while (handler != null && handler != chain);
+
+        throw new IllegalArgumentException("La cadena no tiene un handler para el nivel " + tier);
+    }
+
+    private void staffChanged() {
+
+        final int staff = getStaffCount();
+        for (StaffingListener listener : listeners) {
+            listener.onStaffChanged(staff);
+        }
+    }
+}
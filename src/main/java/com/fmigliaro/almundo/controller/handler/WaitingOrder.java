@@ -0,0 +1,66 @@
+package com.fmigliaro.almundo.controller.handler;
+
+import com.fmigliaro.almundo.model.Call;
+import com.fmigliaro.almundo.model.Priority;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Orden en que las llamadas en espera reciben a los empleados que se liberan (ver {@link CallWaitQueue}).<br/>
+ * Cada política asigna a la llamada un rango al momento de encolarla: se atiende primero la llamada de menor rango<br/>
+ * y, ante un empate, la que ingresó primero a la cola.
+ */
+public enum WaitingOrder {
+
+    /**
+     * Las llamadas se atienden en orden de llegada.
+     */
+    FIFO {
+        @Override
+        public long rank(int durationMs, Priority priority, long receivedNanos) {
+            return 0;
+        }
+    },
+
+    /**
+     * Se atiende primero la llamada de menor duración esperada, lo cual minimiza la espera promedio. Las llamadas<br/>
+     * largas pueden esperar indefinidamente mientras sigan ingresando llamadas más cortas.
+     */
+    SHORTEST_EXPECTED_FIRST {
+        @Override
+        public long rank(int durationMs, Priority priority, long receivedNanos) {
+            return durationMs;
+        }
+    },
+
+    /**
+     * Se atiende primero la llamada con el vencimiento más próximo, siendo el vencimiento el instante de ingreso<br/>
+     * más el tiempo de atención objetivo de su prioridad (ver {@link #targetAnswerMs}).
+     */
+    DEADLINE {
+        @Override
+        public long rank(int durationMs, Priority priority, long receivedNanos) {
+            return receivedNanos + TimeUnit.MILLISECONDS.toNanos(targetAnswerMs(priority));
+        }
+    };
+
+    private static final long[] TARGET_ANSWER_MS = {60_000, 20_000, 10_000, 0};
+
+    /**
+     * @return El rango de una llamada con los datos indicados: las llamadas de menor rango se atienden primero.
+     */
+    public abstract long rank(int durationMs, Priority priority, long receivedNanos);
+
+    long rank(Call call) {
+        return rank(call.getDurationMs(), call.getPriority(), call.getReceivedNanos());
+    }
+
+    /**
+     * @return Tiempo máximo en milisegundos en que se pretende atender a una llamada de la prioridad indicada:<br/>
+     * 60 segundos para {@link Priority#LOW}, 20 para {@link Priority#NORMAL}, 10 para {@link Priority#HIGH} e<br/>
+     * inmediatamente para {@link Priority#URGENT}.
+     */
+    public static long targetAnswerMs(Priority priority) {
+        return TARGET_ANSWER_MS[priority.ordinal()];
+    }
+}
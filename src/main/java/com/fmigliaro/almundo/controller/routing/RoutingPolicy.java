@@ -0,0 +1,34 @@
+package com.fmigliaro.almundo.controller.routing;
+
+import com.fmigliaro.almundo.model.Call;
+import com.fmigliaro.almundo.model.Tier;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Define en qué orden se recorren los niveles de empleados al buscar a alguien disponible para una llamada.
+ */
+public interface RoutingPolicy {
+
+    /**
+     * Política por defecto, equivalente a la cadena de handlers: Operadores, luego Supervisores y luego Directores.
+     */
+    RoutingPolicy TIER_ORDER = new RoutingPolicy() {
+
+        private final List<Tier> tiers = Collections.unmodifiableList(Arrays.asList(Tier.values()));
+
+        @Override
+        public List<Tier> tierOrder(Call call) {
+            return tiers;
+        }
+    };
+
+    /**
+     * @return Los niveles a recorrer para la llamada, en orden de preferencia. Los niveles que no figuren no se<br/>
+     * consideran para la llamada.
+     */
+    List<Tier> tierOrder(Call call);
+
+}
@@ -0,0 +1,593 @@
+package com.fmigliaro.almundo.controller.routing;
+
+import com.fmigliaro.almundo.controller.admission.ShedCallListener;
+import com.fmigliaro.almundo.controller.admission.ShedReason;
+import com.fmigliaro.almundo.controller.handler.CallHandler;
+import com.fmigliaro.almundo.controller.handler.RegistrationSequencer;
+import com.fmigliaro.almundo.model.Call;
+import com.fmigliaro.almundo.model.Employee;
+import com.fmigliaro.almundo.model.Priority;
+import com.fmigliaro.almundo.model.Tier;
+import com.fmigliaro.almundo.utility.CallRegistrationAware;
+import com.fmigliaro.almundo.utility.Clock;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Motor de ruteo de llamadas por prioridad y habilidades, alternativo a la cadena de handlers.<p/>
+ *
+ * Cada empleado pertenece a un {@link Tier} y tiene un conjunto de habilidades; cada llamada tiene una<br/>
+ * {@link Priority} y un conjunto de habilidades requeridas. Un empleado es elegible para una llamada si tiene todas<br/>
+ * las habilidades que ésta requiere.<br/><br/>
+ *
+ * <b>Empleados disponibles</b>: las habilidades se representan como bits de una máscara, y los empleados disponibles<br/>
+ * se indexan por nivel y por <i>perfil</i> (conjunto distinto de habilidades). Para cada nivel se mantiene una<br/>
+ * máscara de los perfiles con empleados disponibles, por lo que descartar un nivel sin empleados elegibles cuesta<br/>
+ * una operación de bits, y encontrar al mejor empleado elegible no depende de la cantidad de empleados sino de la<br/>
+ * cantidad de perfiles. Entre los perfiles elegibles se prefiere al menos calificado, reservando a los empleados<br/>
+ * con más habilidades para las llamadas que las requieran.<br/><br/>
+ *
+ * <b>Llamadas en espera</b>: se indexan por prioridad y por habilidades requeridas, en orden de llegada. Cuando se<br/>
+ * libera un empleado, se le asigna la llamada más antigua de mayor prioridad para la cual es elegible. Cada llamada<br/>
+ * conoce su lugar en la lista de espera, por lo que quitarla al cancelarse no depende de la cantidad de llamadas en<br/>
+ * espera, y las listas que se vacían se descartan.<br/><br/>
+ *
+ * Una llamada que requiere habilidades que ningún empleado de los niveles considerados tiene nunca podría ser<br/>
+ * atendida: en lugar de quedar en espera, se descarta de inmediato con {@link ShedReason#NO_ELIGIBLE_EMPLOYEE}.<br/>
+ * Al igual que en la cadena de handlers, una llamada deja de esperar si supera su tiempo máximo de espera (ver<br/>
+ * {@link Call#setMaxWaitMs}) o si se cancela (ver {@link #cancel}), y se informa con {@link ShedReason#ABANDONED}<br/>
+ * o {@link ShedReason#CANCELLED} respectivamente.<br/><br/>
+ *
+ * Todo el estado se protege con un único lock, pero las registraciones de los empleados asignados y los logs se<br/>
+ * realizan luego de liberarlo: bajo el lock sólo se toma su turno en un {@link RegistrationSequencer}, que las<br/>
+ * entrega en el mismo orden en que los empleados fueron asignados.<br/><br/>
+ *
+ * El orden de los niveles lo define la {@link RoutingPolicy}; por defecto es el mismo que el de la cadena de<br/>
+ * handlers. Se soportan hasta 64 habilidades y 64 perfiles distintos.
+ */
+public class SkillRouter implements CallHandler {
+
+    private static final Logger log = LogManager.getLogger(SkillRouter.class);
+    private static final int MAX_BITS = Long.SIZE;
+    private static final Priority[] PRIORITIES = Priority.values();
+
+    private final RoutingPolicy routingPolicy;
+    private final Clock clock;
+    private final Lock lock = new ReentrantLock();
+    private final RegistrationSequencer registrations = new RegistrationSequencer();
+
+    private final Map<String, Integer> skillBits = new HashMap<>();
+    private final List<Long> profileMasks = new ArrayList<>();
+    private final Map<Long, Integer> profileByMask = new HashMap<>();
+    private final Map<Employee, Integer> profileByEmployee = new IdentityHashMap<>();
+    private final Map<Long, int[]> eligibleProfilesByRequirement = new HashMap<>();
+
+    private final Deque<Employee>[][] idleEmployees;
+    private final long[] idleProfilesByTier = new long[Tier.values().length];
+    private final long[] staffedProfilesByTier = new long[Tier.values().length];
+
+    private final List<Map<Long, WaitingList>> waitingCallsByPriority = new ArrayList<>();
+    private final Map<Call, WaitingCall> waitingByCall = new IdentityHashMap<>();
+    private long waitingSeq;
+    private ShedCallListener shedListener = ShedCallListener.LOGGING;
+
+    public SkillRouter(Collection<? extends Employee> employees) {
+        this(employees, RoutingPolicy.TIER_ORDER);
+    }
+
+    public SkillRouter(Collection<? extends Employee> employees, RoutingPolicy routingPolicy) {
+        this(employees, routingPolicy, Clock.SYSTEM);
+    }
+
+    @SuppressWarnings("unchecked")
+    public SkillRouter(Collection<? extends Employee> employees, RoutingPolicy routingPolicy, Clock clock) {
+
+        this.routingPolicy = routingPolicy;
+        this.clock = clock;
+        this.idleEmployees = (Deque<Employee>[][]) new Deque<?>[Tier.values().length][MAX_BITS];
+
+        for (int i = 0; i < PRIORITIES.length; i++) {
+            waitingCallsByPriority.add(new HashMap<>());
+        }
+        for (Employee employee : employees) {
+            addEmployee(employee);
+        }
+    }
+
+    /**
+     * Agrega un empleado disponible. Si hay llamadas en espera para las cuales es elegible, se le asigna<br/>
+     * inmediatamente la de mayor prioridad.
+     */
+    public void addEmployee(Employee employee) {
+
+        lock.lock();
+        try {
+            final int profile = profileOf(employee.getSkills());
+            profileByEmployee.put(employee, profile);
+            staffedProfilesByTier[employee.getTier().ordinal()] |= 1L << profile;
+        } finally {
+            lock.unlock();
+        }
+        release(employee);
+    }
+
+    /**
+     * Permite indicar a quién se informan las llamadas descartadas por requerir habilidades que ningún empleado<br/>
+     * tiene, las que abandonan la espera y las canceladas. Por defecto se loguean. Debe invocarse antes de procesar<br/>
+     * llamadas.
+     */
+    public void setShedCallListener(ShedCallListener shedListener) {
+        this.shedListener = shedListener;
+    }
+
+    @Override
+    public void handleCall(Call call, CallRegistrationAware callReg) {
+
+        call.setReceivedNanos(clock.nanoTime());
+        final WaitingCall waitingCall = acquireOrWait(call, callReg);
+        if (waitingCall == null) {
+            shedListener.onShed(call, ShedReason.NO_ELIGIBLE_EMPLOYEE);
+            return;
+        }
+        final Employee employee = await(waitingCall);
+        if (employee != null) {
+            processCall(call, employee, callReg);
+        }
+    }
+
+    /**
+     * Espera a que se asigne un empleado a la llamada, o a que la llamada supere su tiempo máximo de espera o se<br/>
+     * cancele.
+     *
+     * @return El empleado asignado, o null si la llamada abandonó o fue cancelada.
+     */
+    private Employee await(WaitingCall waitingCall) {
+
+        final Call call = waitingCall.call;
+        try {
+            while (call.getMaxWaitMs() != Call.NO_MAX_WAIT) {
+                final long remainingNanos = deadlineNanos(call) - clock.nanoTime();
+                if (remainingNanos <= 0) {
+                    withdraw(waitingCall, ShedReason.ABANDONED);
+                    //Si el empleado fue asignado justo antes de vencer la espera, se atiende la llamada.
+                    return waitingCall.assignment.join();
+                }
+                try {
+                    return waitingCall.assignment.get(clock.toSystemNanos(remainingNanos) + 1, TimeUnit.NANOSECONDS);
+                } catch (TimeoutException te) {
+                    //Se vuelve a verificar el vencimiento con el reloj del router.
+                }
+            }
+            return waitingCall.assignment.get();
+
+        } catch (InterruptedException ie) {
+            if (withdraw(waitingCall, ShedReason.CANCELLED)) {
+                log.error("Se interrumpió la espera de un empleado para la {}: ", call, ie);
+                Thread.currentThread().interrupt();
+                return null;
+            }
+            //El empleado ya fue asignado: se atiende la llamada y se preserva el estado de interrupción.
+            Thread.currentThread().interrupt();
+            return waitingCall.assignment.join();
+
+        } catch (ExecutionException ee) {
+            throw new IllegalStateException(ee.getCause());
+        }
+    }
+
+    @Override
+    public CompletableFuture<Void> handleCallAsync(Call call, CallRegistrationAware callReg,
+                                                   ScheduledExecutorService scheduler) {
+
+        call.setReceivedNanos(clock.nanoTime());
+        final WaitingCall waitingCall = acquireOrWait(call, callReg);
+        if (waitingCall == null) {
+            shedListener.onShed(call, ShedReason.NO_ELIGIBLE_EMPLOYEE);
+            return CompletableFuture.completedFuture(null);
+        }
+        scheduleExpiration(waitingCall, scheduler);
+        return waitingCall.assignment.thenCompose(employee -> {
+            if (employee == null) {
+                return CompletableFuture.completedFuture(null);
+            }
+            final CompletableFuture<Void> done = new CompletableFuture<>();
+            final long assignedNanos = clock.nanoTime();
+            try {
+                clock.schedule(scheduler, () -> {
+                    try {
+                        completed(callReg, call, employee, assignedNanos, clock.nanoTime());
+                        release(employee);
+                    } finally {
+                        done.complete(null);
+                    }
+                }, call.getDurationMs(), TimeUnit.MILLISECONDS);
+
+            } catch (RejectedExecutionException ree) {
+                release(employee);
+                done.completeExceptionally(ree);
+            }
+            return done;
+        });
+    }
+
+    private void scheduleExpiration(WaitingCall waitingCall, ScheduledExecutorService scheduler) {
+
+        final Call call = waitingCall.call;
+        if (call.getMaxWaitMs() == Call.NO_MAX_WAIT || waitingCall.assignment.isDone()) {
+            return;
+        }
+        try {
+            final ScheduledFuture<?> expiration = clock.schedule(scheduler,
+                    () -> withdraw(waitingCall, ShedReason.ABANDONED),
+                    deadlineNanos(call) - clock.nanoTime(), TimeUnit.NANOSECONDS);
+            waitingCall.assignment.whenComplete((employee, throwable) -> expiration.cancel(false));
+
+        } catch (RejectedExecutionException ree) {
+            log.error("No se pudo programar el vencimiento de la espera de la {}.", call);
+        }
+    }
+
+    private static long deadlineNanos(Call call) {
+        return call.getReceivedNanos() + TimeUnit.MILLISECONDS.toNanos(call.getMaxWaitMs());
+    }
+
+    /**
+     * Quita a la llamada de la lista de espera, si aún está esperando.
+     *
+     * @return true si la llamada estaba esperando y fue cancelada.
+     */
+    @Override
+    public boolean cancel(Call call) {
+
+        final WaitingCall waitingCall;
+        lock.lock();
+        try {
+            waitingCall = waitingByCall.get(call);
+        } finally {
+            lock.unlock();
+        }
+        return waitingCall != null && withdraw(waitingCall, ShedReason.CANCELLED);
+    }
+
+    private void processCall(Call call, Employee employee, CallRegistrationAware callReg) {
+
+        final long assignedNanos = clock.nanoTime();
+        try {
+            clock.sleep(call.getDurationMs());
+
+        } catch (InterruptedException ie) {
+            log.error("Ocurrió una Exception mientras se procesaba la llamada: ", ie);
+        } finally {
+            completed(callReg, call, employee, assignedNanos, clock.nanoTime());
+            release(employee);
+        }
+    }
+
+    private static void completed(CallRegistrationAware callReg, Call call, Employee employee, long assignedNanos,
+                                  long endNanos) {
+        try {
+            callReg.callCompleted(call, employee, assignedNanos, endNanos);
+
+        } catch (RuntimeException re) {
+            log.error("Exception mientras se registraba la finalización de la {}: ", call, re);
+        }
+    }
+
+    /**
+     * Busca al mejor empleado disponible y elegible recorriendo los niveles en el orden de la política de ruteo.<br/>
+     * Si no hay ninguno, encola la llamada según su prioridad y habilidades requeridas.
+     *
+     * @return La llamada en espera, cuyo future se completa con el empleado asignado (de inmediato, si había uno<br/>
+     * disponible) o con null si la llamada abandona o se cancela; o null si ningún empleado tiene las habilidades<br/>
+     * requeridas.
+     */
+    private WaitingCall acquireOrWait(Call call, CallRegistrationAware callReg) {
+
+        final WaitingCall waitingCall;
+        lock.lock();
+        try {
+            waitingCall = assignOrEnqueue(call, callReg);
+        } finally {
+            lock.unlock();
+        }
+        registrations.deliver();
+
+        if (waitingCall != null && waitingCall.list != null) {
+            log.info("No hay empleados elegibles disponibles para procesar la {}. Esperando a que se libere alguno...",
+                    call);
+        }
+        return waitingCall;
+    }
+
+    /**
+     * Cuerpo de {@link #acquireOrWait}. Debe invocarse bajo el lock: la registración del empleado asignado sólo se<br/>
+     * publica, y se entrega luego de liberarlo.
+     */
+    private WaitingCall assignOrEnqueue(Call call, CallRegistrationAware callReg) {
+        //Una habilidad desconocida no se registra: ningún empleado la tiene, por lo que la llamada se descarta.
+        if (!skillBits.keySet().containsAll(call.getRequiredSkills())) {
+            return null;
+        }
+        final long required = maskOf(call.getRequiredSkills());
+        final int[] eligibleProfiles = eligibleProfiles(required);
+
+        for (Tier tier : routingPolicy.tierOrder(call)) {
+            final long idleProfiles = idleProfilesByTier[tier.ordinal()];
+            if (idleProfiles == 0) {
+                continue;
+            }
+            for (int profile : eligibleProfiles) {
+                if ((idleProfiles & (1L << profile)) != 0) {
+                    final Employee employee = pollIdle(tier, profile);
+                    registrations.publish(registrations.nextTicket(), employee, callReg);
+                    final WaitingCall assigned = new WaitingCall(-1, call, callReg, null);
+                    assigned.assignment.complete(employee);
+                    return assigned;
+                }
+            }
+        }
+
+        if (!isStaffed(call, eligibleProfiles)) {
+            return null;
+        }
+        final Map<Long, WaitingList> byRequirement = waitingCallsByPriority.get(call.getPriority().ordinal());
+        final WaitingList waitingCalls = byRequirement.computeIfAbsent(required, r -> new WaitingList(r,
+                byRequirement));
+        final WaitingCall waitingCall = new WaitingCall(waitingSeq++, call, callReg, waitingCalls);
+        waitingCalls.add(waitingCall);
+        waitingByCall.put(call, waitingCall);
+        return waitingCall;
+    }
+
+    /**
+     * Asigna al empleado la llamada en espera más antigua de mayor prioridad para la cual es elegible o, si no hay<br/>
+     * ninguna, lo vuelve a indexar como disponible.
+     */
+    private void release(Employee employee) {
+
+        final WaitingCall waitingCall;
+
+        lock.lock();
+        try {
+            final int profile = profileByEmployee.get(employee);
+            waitingCall = pollWaitingFor(profileMasks.get(profile));
+
+            if (waitingCall == null) {
+                final int tier = employee.getTier().ordinal();
+                Deque<Employee> idle = idleEmployees[tier][profile];
+                if (idle == null) {
+                    idle = idleEmployees[tier][profile] = new ArrayDeque<>();
+                }
+                idle.offerLast(employee);
+                idleProfilesByTier[tier] |= 1L << profile;
+                return;
+            }
+            registrations.publish(registrations.nextTicket(), employee, waitingCall.callReg);
+        } finally {
+            lock.unlock();
+        }
+        registrations.deliver();
+        waitingCall.assignment.complete(employee);
+    }
+
+    private WaitingCall pollWaitingFor(long employeeSkills) {
+
+        for (int priority = PRIORITIES.length - 1; priority >= 0; priority--) {
+            WaitingCall oldest = null;
+
+            for (WaitingList waitingCalls : waitingCallsByPriority.get(priority).values()) {
+                if ((waitingCalls.required & ~employeeSkills) != 0) {
+                    continue;
+                }
+                final WaitingCall head = waitingCalls.first;
+                if (oldest == null || head.seq < oldest.seq) {
+                    oldest = head;
+                }
+            }
+            if (oldest != null) {
+                unlink(oldest);
+                return oldest;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Quita a la llamada de la lista de espera y libera a quien la espera, informando el motivo.
+     *
+     * @return true si la llamada aún estaba esperando, false si ya se le había asignado un empleado o ya se la había<br/>
+     * quitado.
+     */
+    private boolean withdraw(WaitingCall waitingCall, ShedReason reason) {
+
+        lock.lock();
+        try {
+            if (waitingByCall.get(waitingCall.call) != waitingCall) {
+                return false;
+            }
+            unlink(waitingCall);
+        } finally {
+            lock.unlock();
+        }
+        //Se informa antes de completar la asignación para que quien espera la llamada ya vea el descarte registrado.
+        shedListener.onShed(waitingCall.call, reason);
+        waitingCall.assignment.complete(null);
+        return true;
+    }
+
+    /**
+     * Quita a la llamada de su lista de espera, descartando la lista si queda vacía. Debe invocarse bajo el lock.
+     */
+    private void unlink(WaitingCall waitingCall) {
+
+        final WaitingList waitingCalls = waitingCall.list;
+        waitingCalls.remove(waitingCall);
+        if (waitingCalls.first == null) {
+            waitingCalls.index.remove(waitingCalls.required);
+        }
+        waitingByCall.remove(waitingCall.call);
+    }
+
+    /**
+     * @return true si algún empleado de los niveles que la política de ruteo considera para la llamada (disponible<br/>
+     * u ocupado) tiene las habilidades requeridas.
+     */
+    private boolean isStaffed(Call call, int[] eligibleProfiles) {
+
+        for (Tier tier : routingPolicy.tierOrder(call)) {
+            for (int profile : eligibleProfiles) {
+                if ((staffedProfilesByTier[tier.ordinal()] & (1L << profile)) != 0) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private Employee pollIdle(Tier tier, int profile) {
+
+        final Deque<Employee> idle = idleEmployees[tier.ordinal()][profile];
+        final Employee employee = idle.pollFirst();
+
+        if (idle.isEmpty()) {
+            idleProfilesByTier[tier.ordinal()] &= ~(1L << profile);
+        }
+        return employee;
+    }
+
+    /**
+     * Perfiles cuyos empleados tienen todas las habilidades requeridas, ordenados de menor a mayor cantidad de<br/>
+     * habilidades. El resultado se cachea por cada combinación de habilidades requeridas.
+     */
+    private int[] eligibleProfiles(long required) {
+
+        return eligibleProfilesByRequirement.computeIfAbsent(required, r -> {
+            final List<Integer> eligible = new ArrayList<>();
+            for (int profile = 0; profile < profileMasks.size(); profile++) {
+                if ((r & ~profileMasks.get(profile)) == 0) {
+                    eligible.add(profile);
+                }
+            }
+            eligible.sort((p1, p2) -> Long.bitCount(profileMasks.get(p1)) - Long.bitCount(profileMasks.get(p2)));
+            return eligible.stream().mapToInt(Integer::intValue).toArray();
+        });
+    }
+
+    private int profileOf(Set<String> skills) {
+
+        final long mask = maskOf(skills);
+        Integer profile = profileByMask.get(mask);
+
+        if (profile == null) {
+            if (profileMasks.size() == MAX_BITS) {
+                throw new IllegalArgumentException("No se soportan más de " + MAX_BITS + " perfiles de habilidades.");
+            }
+            profile = profileMasks.size();
+            profileMasks.add(mask);
+            profileByMask.put(mask, profile);
+            eligibleProfilesByRequirement.clear();
+        }
+        return profile;
+    }
+
+    private long maskOf(Set<String> skills) {
+
+        long mask = 0;
+        for (String skill : skills) {
+            Integer bit = skillBits.get(skill);
+            if (bit == null) {
+                if (skillBits.size() == MAX_BITS) {
+                    throw new IllegalArgumentException("No se soportan más de " + MAX_BITS + " habilidades.");
+                }
+                bit = skillBits.size();
+                skillBits.put(skill, bit);
+            }
+            mask |= 1L << bit;
+        }
+        return mask;
+    }
+
+    /**
+     * Llamada a la espera de un empleado elegible. Salvo su future, sólo se accede bajo el lock del router.
+     */
+    private static final class WaitingCall {
+
+        private final long seq;
+        private final Call call;
+        private final CallRegistrationAware callReg;
+        private final WaitingList list;
+        private final CompletableFuture<Employee> assignment = new CompletableFuture<>();
+        private WaitingCall previous;
+        private WaitingCall next;
+
+        private WaitingCall(long seq, Call call, CallRegistrationAware callReg, WaitingList list) {
+            this.seq = seq;
+            this.call = call;
+            this.callReg = callReg;
+            this.list = list;
+        }
+    }
+
+    /**
+     * Llamadas en espera de una misma prioridad y habilidades requeridas, en orden de llegada. Es una lista<br/>
+     * doblemente enlazada a través de las propias llamadas, lo cual permite quitar cualquiera de ellas en O(1).
+     */
+    private static final class WaitingList {
+
+        private final long required;
+        private final Map<Long, WaitingList> index;
+        private WaitingCall first;
+        private WaitingCall last;
+
+        private WaitingList(long required, Map<Long, WaitingList> index) {
+            this.required = required;
+            this.index = index;
+        }
+
+        private void add(WaitingCall waitingCall) {
+
+            waitingCall.previous = last;
+            if (last == null) {
+                first = waitingCall;
+            } else {
+                last.next = waitingCall;
+            }
+            last = waitingCall;
+        }
+
+        private void remove(WaitingCall waitingCall) {
+
+            if (waitingCall.previous == null) {
+                first = waitingCall.next;
+            } else {
+                waitingCall.previous.next = waitingCall.next;
+            }
+            if (waitingCall.next == null) {
+                last = waitingCall.previous;
+            } else {
+                waitingCall.next.previous = waitingCall.previous;
+            }
+            waitingCall.previous = null;
+            waitingCall.next = null;
+        }
+    }
+}
@@ -0,0 +1,316 @@
+package com.fmigliaro.almundo.journal;
+
+import com.fmigliaro.almundo.model.Call;
+import com.fmigliaro.almundo.model.Employee;
+import com.fmigliaro.almundo.utility.CallRegistrationAware;
+import com.fmigliaro.almundo.utility.Clock;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Implementación de {@link CallRegistrationAware} que persiste el historial de llamadas en un journal binario de<br/>
+ * sólo escritura al final (append-only), formado por segmentos mapeados en memoria (ver {@link JournalFormat}).<p/>
+ *
+ * Se escribe un registro de ancho fijo por cada llamada finalizada, con la llamada, el empleado que la atendió, su<br/>
+ * nivel, y los instantes de ingreso, asignación y finalización. La primera vez que un empleado aparece en un<br/>
+ * segmento se escribe además su nombre, que a diferencia de su id lo identifica luego de un reinicio. Escribir un<br/>
+ * registro es una copia a memoria sin llamadas al sistema operativo, bajo un lock que sólo protege dicha copia.<br/>
+ * El segmento siguiente se crea y se mapea por adelantado en un thread de fondo, por lo que cuando un segmento se<br/>
+ * llena, la rotación sólo reemplaza un segmento por otro. La persistencia en disco del segmento lleno, la<br/>
+ * liberación de su mapeo y, si se configuró una cantidad máxima de segmentos, la eliminación de los más antiguos<br/>
+ * también se realizan en dicho thread, fuera del lock.<br/>
+ * El historial sobrevive a reinicios: al abrir el journal sobre un directorio existente, se continúa en un segmento<br/>
+ * nuevo. Para leerlo, ver {@link CallJournalReader}.<p/>
+ *
+ * Los instantes del reloj de la cadena de handlers se convierten a tiempo desde la época tomando como referencia el<br/>
+ * momento de apertura del journal, por lo que el reloj de la cadena debe avanzar a la par del reloj del sistema.
+ */
+public class CallJournal implements CallRegistrationAware, Closeable {
+
+    private static final Logger log = LogManager.getLogger(CallJournal.class);
+
+    private final Path directory;
+    private final int recordsPerSegment;
+    private final int maxSegments;
+    private final long baseEpochNanos;
+    private final long baseClockNanos;
+    private final Lock lock = new ReentrantLock();
+    private final Set<Employee> segmentEmployees = Collections.newSetFromMap(new IdentityHashMap<>());
+    private final ExecutorService background = Executors.newSingleThreadExecutor(runnable -> {
+        final Thread thread = new Thread(runnable, "call-journal");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private MappedByteBuffer segment;
+    private Future<MappedByteBuffer> nextSegment;
+    private long segmentIndex;
+    private int segmentRecords;
+    private long writtenRecords;
+    private boolean closed;
+
+    /**
+     * @param directory Directorio de los segmentos. Se crea si no existe.
+     * @param recordsPerSegment Cantidad de registros de cada segmento.
+     * @param maxSegments Cantidad máxima de segmentos a conservar, o 0 para conservarlos todos.
+     */
+    public CallJournal(Path directory, int recordsPerSegment, int maxSegments) throws IOException {
+        this(directory, recordsPerSegment, maxSegments, Clock.SYSTEM);
+    }
+
+    /**
+     * @param directory Directorio de los segmentos. Se crea si no existe.
+     * @param recordsPerSegment Cantidad de registros de cada segmento, incluidos los registros de empleados.
+     * @param maxSegments Cantidad máxima de segmentos a conservar, o 0 para conservarlos todos.
+     * @param clock Reloj de la cadena de handlers que informa las llamadas finalizadas.
+     */
+    public CallJournal(Path directory, int recordsPerSegment, int maxSegments, Clock clock) throws IOException {
+
+        if (recordsPerSegment <= JournalFormat.MAX_EMPLOYEE_RECORDS || maxSegments < 0) {
+            throw new IllegalArgumentException("Los segmentos deben tener más de " +
+                    JournalFormat.MAX_EMPLOYEE_RECORDS + " registros y la cantidad máxima de segmentos no puede ser " +
+                    "negativa.");
+        }
+        if ((long) recordsPerSegment * JournalFormat.RECORD_SIZE + JournalFormat.HEADER_SIZE > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Un segmento no puede superar los 2GB.");
+        }
+        this.directory = Files.createDirectories(directory);
+        this.recordsPerSegment = recordsPerSegment;
+        this.maxSegments = maxSegments;
+        this.baseEpochNanos = TimeUnit.MILLISECONDS.toNanos(System.currentTimeMillis());
+        this.baseClockNanos = clock.nanoTime();
+
+        final List<Path> segments = JournalFormat.listSegments(this.directory);
+        this.segmentIndex = segments.isEmpty() ? 0 : JournalFormat.segmentIndex(segments.get(segments.size() - 1)) + 1;
+        startSegment(createSegment(segmentIndex));
+        prepareNextSegment();
+    }
+
+    /**
+     * Los registros se escriben al finalizar cada llamada (ver {@link #callCompleted}).
+     */
+    @Override
+    public void addEmployeeInCallProcessingOrder(Employee employee) {
+    }
+
+    @Override
+    public void callCompleted(Call call, Employee employee, long assignedNanos, long endNanos) {
+
+        lock.lock();
+        try {
+            if (closed) {
+                log.warn("El journal está cerrado. No se registra la {}", call);
+                return;
+            }
+            byte[] name = segmentEmployees.contains(employee) ? null : JournalFormat.encodeName(employee.getName());
+            if (segmentRecords + 1 + (name == null ? 0 : JournalFormat.recordsForName(name.length)) >
+                    recordsPerSegment) {
+                rotate();
+                if (name == null) {
+                    name = JournalFormat.encodeName(employee.getName());
+                }
+            }
+            if (name != null) {
+                writeEmployee(employee, name);
+            }
+            final int offset = JournalFormat.HEADER_SIZE + segmentRecords * JournalFormat.RECORD_SIZE;
+            segment.putLong(offset + JournalFormat.CALL_ID_OFFSET, call.getId());
+            segment.putInt(offset + JournalFormat.EMPLOYEE_ID_OFFSET, employee.getId());
+            segment.putInt(offset + JournalFormat.TIER_OFFSET, employee.getTier().ordinal());
+            segment.putInt(offset + JournalFormat.DURATION_OFFSET, call.getDurationMs());
+            segment.putInt(offset + JournalFormat.TYPE_OFFSET, JournalFormat.TYPE_CALL);
+            segment.putLong(offset + JournalFormat.RECEIVED_OFFSET, toEpochNanos(call.getReceivedNanos()));
+            segment.putLong(offset + JournalFormat.ASSIGNED_OFFSET, toEpochNanos(assignedNanos));
+            segment.putLong(offset + JournalFormat.END_OFFSET, toEpochNanos(endNanos));
+            segment.putInt(JournalFormat.RECORD_COUNT_OFFSET, ++segmentRecords);
+            writtenRecords++;
+
+        } catch (IOException ioe) {
+            log.error("No se pudo crear un nuevo segmento del journal. No se registra la {}: ", call, ioe);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return Cantidad de llamadas registradas, sin contar los registros de empleados.
+     */
+    public long getWrittenRecords() {
+        lock.lock();
+        try {
+            return writtenRecords;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Persiste el segmento actual en disco, libera su mapeo y deja de aceptar registros. Espera a que finalicen las<br/>
+     * tareas de fondo pendientes y elimina el segmento creado por adelantado, que no llegó a utilizarse.
+     */
+    @Override
+    public void close() {
+
+        final Future<MappedByteBuffer> unused;
+        final long unusedIndex;
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            segment.force();
+            JournalFormat.unmap(segment);
+            segment = null;
+            unused = nextSegment;
+            unusedIndex = segmentIndex + 1;
+        } finally {
+            lock.unlock();
+        }
+        background.shutdown();
+        try {
+            background.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+            JournalFormat.unmap(unused.get());
+            Files.deleteIfExists(JournalFormat.segmentPath(directory, unusedIndex));
+
+        } catch (InterruptedException ie) {
+            log.warn("Se interrumpió el cierre del journal antes de finalizar sus tareas de fondo.");
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException ee) {
+            log.error("No se pudo crear por adelantado el segmento {}: ", unusedIndex, ee.getCause());
+        } catch (IOException ioe) {
+            log.error("No se pudo eliminar el segmento {} creado por adelantado: ", unusedIndex, ioe);
+        }
+    }
+
+    private long toEpochNanos(long clockNanos) {
+        return baseEpochNanos + (clockNanos - baseClockNanos);
+    }
+
+    /**
+     * Escribe el registro de empleado con la correspondencia entre su id y su nombre. El header se actualiza recién<br/>
+     * con el registro de llamada que lo sigue.
+     */
+    private void writeEmployee(Employee employee, byte[] name) {
+
+        final int offset = JournalFormat.HEADER_SIZE + segmentRecords * JournalFormat.RECORD_SIZE;
+        segment.putInt(offset + JournalFormat.EMPLOYEE_ID_OFFSET, employee.getId());
+        segment.putInt(offset + JournalFormat.TIER_OFFSET, employee.getTier().ordinal());
+        segment.putInt(offset + JournalFormat.NAME_LENGTH_OFFSET, name.length);
+        segment.putInt(offset + JournalFormat.TYPE_OFFSET, JournalFormat.TYPE_EMPLOYEE);
+        for (int i = 0; i < name.length; i++) {
+            segment.put(offset + JournalFormat.NAME_OFFSET + i, name[i]);
+        }
+        segmentRecords += JournalFormat.recordsForName(name.length);
+        segmentEmployees.add(employee);
+    }
+
+    /**
+     * Continúa en el segmento creado por adelantado y delega en el thread de fondo la persistencia y liberación del<br/>
+     * segmento lleno, la eliminación de los segmentos más antiguos y la creación del próximo segmento. Sólo si el<br/>
+     * thread de fondo aún no terminó de crear el segmento siguiente, se lo espera.
+     */
+    private void rotate() throws IOException {
+
+        final MappedByteBuffer previous = segment;
+        segmentIndex++;
+        startSegment(awaitNextSegment());
+        prepareNextSegment();
+
+        final long firstRetained = segmentIndex - maxSegments + 1;
+        background.execute(() -> retire(previous, firstRetained));
+    }
+
+    private MappedByteBuffer awaitNextSegment() throws IOException {
+
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    return nextSegment.get();
+
+                } catch (InterruptedException ie) {
+                    //La rotación no puede abandonarse a mitad de camino: se espera y se preserva la interrupción.
+                    interrupted = true;
+                } catch (ExecutionException ee) {
+                    log.warn("No se pudo crear por adelantado el segmento {}. Se reintenta: ", segmentIndex,
+                            ee.getCause());
+                    return createSegment(segmentIndex);
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void prepareNextSegment() {
+        final long index = segmentIndex + 1;
+        nextSegment = background.submit(() -> createSegment(index));
+    }
+
+    /**
+     * Persiste en disco el segmento lleno, libera su mapeo y elimina los segmentos anteriores a<br/>
+     * <code>firstRetained</code> si se configuró una cantidad máxima de segmentos. Se ejecuta en el thread de fondo.
+     */
+    private void retire(MappedByteBuffer previous, long firstRetained) {
+        try {
+            previous.force();
+            JournalFormat.unmap(previous);
+
+            if (maxSegments > 0) {
+                for (Path path : JournalFormat.listSegments(directory)) {
+                    if (JournalFormat.segmentIndex(path) < firstRetained) {
+                        Files.deleteIfExists(path);
+                    }
+                }
+            }
+        } catch (IOException ioe) {
+            log.error("No se pudieron eliminar los segmentos más antiguos del journal: ", ioe);
+        }
+    }
+
+    private MappedByteBuffer createSegment(long index) throws IOException {
+
+        final Path path = JournalFormat.segmentPath(directory, index);
+        final long size = JournalFormat.HEADER_SIZE + (long) recordsPerSegment * JournalFormat.RECORD_SIZE;
+        final MappedByteBuffer created;
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            //El mapeo continúa siendo válido luego de cerrar el canal.
+            created = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+        created.putInt(JournalFormat.MAGIC_OFFSET, JournalFormat.MAGIC);
+        created.putInt(JournalFormat.VERSION_OFFSET, JournalFormat.VERSION);
+        created.putInt(JournalFormat.RECORD_SIZE_OFFSET, JournalFormat.RECORD_SIZE);
+        created.putInt(JournalFormat.RECORD_COUNT_OFFSET, 0);
+        return created;
+    }
+
+    private void startSegment(MappedByteBuffer created) {
+        segment = created;
+        segmentRecords = 0;
+        segmentEmployees.clear();
+    }
+}
@@ -0,0 +1,103 @@
+package com.fmigliaro.almundo.journal;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Lector del journal de llamadas escrito por {@link CallJournal}.<p/>
+ *
+ * Los segmentos se mapean en memoria en modo sólo lectura y se recorren en el orden en que fueron escritos. Los<br/>
+ * registros no se copian ni se deserializan: se entregan a través de una única vista ({@link JournalRecord}) que se<br/>
+ * reposiciona sobre cada registro, por lo que recorrer el journal no crea objetos por registro. Esto permite<br/>
+ * auditar o reprocesar millones de registros por segundo. Puede leerse un journal que está siendo escrito: se<br/>
+ * entregan los registros completos al momento de leer cada segmento. Cada segmento se libera al terminar de<br/>
+ * recorrerlo, por lo que la memoria mapeada no crece con la cantidad de segmentos.
+ */
+public class CallJournalReader {
+
+    private final Path directory;
+
+    public CallJournalReader(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Recorre todos los registros de llamadas del journal, del más antiguo al más reciente.
+     *
+     * @param visitor Recibe cada registro. La vista es válida sólo durante la invocación.
+     * @return La cantidad de registros recorridos.
+     */
+    public long forEach(Consumer<JournalRecord> visitor) throws IOException {
+
+        final JournalRecord record = new JournalRecord();
+        final Map<Integer, String> employeeNames = new HashMap<>();
+        long visited = 0;
+
+        for (Path path : JournalFormat.listSegments(directory)) {
+            final MappedByteBuffer segment;
+            try {
+                segment = map(path);
+            } catch (NoSuchFileException nsfe) {
+                //El segmento fue eliminado por la rotación mientras se leía el directorio.
+                continue;
+            }
+            try {
+                visited += visitSegment(path, segment, record, employeeNames, visitor);
+            } finally {
+                //La vista se desliga del segmento antes de liberarlo, para que no pueda accederse luego.
+                record.moveTo(null, 0, null);
+                JournalFormat.unmap(segment);
+            }
+        }
+        return visited;
+    }
+
+    private static long visitSegment(Path path, MappedByteBuffer segment, JournalRecord record,
+                                     Map<Integer, String> employeeNames, Consumer<JournalRecord> visitor)
+            throws IOException {
+
+        if (segment.getInt(JournalFormat.MAGIC_OFFSET) != JournalFormat.MAGIC
+                || segment.getInt(JournalFormat.VERSION_OFFSET) != JournalFormat.VERSION) {
+            throw new IOException("El archivo " + path + " no es un segmento válido del journal.");
+        }
+        final int recordSize = segment.getInt(JournalFormat.RECORD_SIZE_OFFSET);
+        final int records = segment.getInt(JournalFormat.RECORD_COUNT_OFFSET);
+        //Los ids de empleados sólo son válidos dentro del segmento que los define.
+        employeeNames.clear();
+        long visited = 0;
+
+        int i = 0;
+        while (i < records) {
+            final int offset = JournalFormat.HEADER_SIZE + i * recordSize;
+            if (segment.getInt(offset + JournalFormat.TYPE_OFFSET) == JournalFormat.TYPE_EMPLOYEE) {
+                final byte[] name = new byte[segment.getInt(offset + JournalFormat.NAME_LENGTH_OFFSET)];
+                for (int b = 0; b < name.length; b++) {
+                    name[b] = segment.get(offset + JournalFormat.NAME_OFFSET + b);
+                }
+                employeeNames.put(segment.getInt(offset + JournalFormat.EMPLOYEE_ID_OFFSET),
+                        new String(name, StandardCharsets.UTF_8));
+                i += JournalFormat.recordsForName(name.length);
+            } else {
+                record.moveTo(segment, offset, employeeNames);
+                visitor.accept(record);
+                visited++;
+                i++;
+            }
+        }
+        return visited;
+    }
+
+    private static MappedByteBuffer map(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package com.fmigliaro.almundo.journal;
+
+import com.fmigliaro.almundo.model.Call;
+import com.fmigliaro.almundo.model.Priority;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Archivo en el que se vuelcan las llamadas que no llegaron a ser atendidas al detener un Dispatcher, para<br/>
+ * retomarlas al reiniciarlo.<p/>
+ *
+ * Cada volcado reemplaza por completo al anterior: se escribe un archivo temporal en el mismo directorio, se fuerza<br/>
+ * a disco y se renombra atómicamente sobre el archivo definitivo. Por lo tanto, ante una caída durante el volcado<br/>
+ * se conserva el volcado anterior completo, y nunca se lee un archivo a medio escribir.<br/>
+ * <pre>
+ * Header:  magic (int) | versión (int) | cantidad de llamadas (int)
+ * Llamada: duración en ms (int) | prioridad (int) | espera máxima en ms (long) | cantidad de habilidades (int) |
+ *          habilidades (UTF modificado)
+ * </pre>
+ * Las llamadas retomadas son llamadas nuevas: reciben un nuevo id y su tiempo de espera se cuenta desde que vuelven<br/>
+ * a ingresar a la cadena de handlers.
+ */
+public class CallSpillFile {
+
+    private static final Logger log = LogManager.getLogger(CallSpillFile.class);
+    private static final int MAGIC = 0x5350494C;
+    private static final int VERSION = 1;
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final Priority[] PRIORITIES = Priority.values();
+
+    private final Path file;
+
+    public CallSpillFile(Path file) {
+        this.file = file;
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * Reemplaza el contenido del archivo por las llamadas indicadas. Si no hay llamadas, el archivo se elimina.
+     */
+    public void write(Collection<Call> calls) throws IOException {
+
+        if (calls.isEmpty()) {
+            delete();
+            return;
+        }
+        final Path directory = file.toAbsolutePath().getParent();
+        if (directory != null) {
+            Files.createDirectories(directory);
+        }
+        final Path temp = file.resolveSibling(file.getFileName() + TEMP_SUFFIX);
+
+        try (FileOutputStream fileOut = new FileOutputStream(temp.toFile());
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fileOut))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(calls.size());
+            for (Call call : calls) {
+                out.writeInt(call.getDurationMs());
+                out.writeInt(call.getPriority().ordinal());
+                out.writeLong(call.getMaxWaitMs());
+                out.writeInt(call.getRequiredSkills().size());
+                for (String skill : call.getRequiredSkills()) {
+                    out.writeUTF(skill);
+                }
+            }
+            out.flush();
+            fileOut.getFD().sync();
+        }
+        try {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException amnse) {
+            log.warn("El sistema de archivos no soporta renombrar {} atómicamente.", file);
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+        log.info("Se volcaron {} llamadas pendientes en {}", calls.size(), file);
+    }
+
+    /**
+     * @return Las llamadas volcadas, en el orden en que fueron escritas, o una lista vacía si no hay archivo.
+     */
+    public List<Call> read() throws IOException {
+
+        final List<Call> calls = new ArrayList<>();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("El archivo " + file + " no es un volcado válido de llamadas.");
+            }
+            final int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                final int durationMs = in.readInt();
+                final Priority priority = PRIORITIES[in.readInt()];
+                final long maxWaitMs = in.readLong();
+                final int skillCount = in.readInt();
+                final Set<String> skills = new HashSet<>(skillCount);
+                for (int s = 0; s < skillCount; s++) {
+                    skills.add(in.readUTF());
+                }
+                final Call call = new Call(durationMs, priority, skills);
+                call.setMaxWaitMs(maxWaitMs);
+                calls.add(call);
+            }
+        } catch (NoSuchFileException nsfe) {
+            return calls;
+        }
+        return calls;
+    }
+
+    public void delete() throws IOException {
+        Files.deleteIfExists(file);
+    }
+}
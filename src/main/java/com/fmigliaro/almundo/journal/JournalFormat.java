@@ -0,0 +1,174 @@
+package com.fmigliaro.almundo.journal;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Formato binario de los segmentos del journal de llamadas.<p/>
+ *
+ * Cada segmento es un archivo de tamaño fijo, con un header seguido de registros de ancho fijo:<br/>
+ * <pre>
+ * Header (64 bytes):   magic (int) | versión (int) | tamaño de registro (int) | cantidad de registros (int) | ...
+ * Registro (48 bytes): id de llamada (long) | id de empleado (int) | nivel (int) | duración en ms (int) |
+ *                      tipo (int) | ingreso (long) | asignación (long) | finalización (long)
+ * Empleado:            reservado (long) | id de empleado (int) | nivel (int) | largo del nombre (int) |
+ *                      tipo (int) | nombre (UTF-8, continúa en los registros siguientes si no entra en uno)
+ * </pre>
+ * El id de empleado es propio de la JVM que escribió el segmento, por lo que no identifica al empleado luego de un<br/>
+ * reinicio. Por eso, antes del primer registro de llamada de cada empleado en un segmento, se escribe un registro de<br/>
+ * empleado con su nombre: cada segmento contiene la correspondencia id-nombre de los empleados que referencia.<br/>
+ * Los instantes son nanosegundos desde la época (1970-01-01T00:00Z). Todos los valores son big-endian.<br/>
+ * La cantidad de registros del header se actualiza luego de escribir cada registro, por lo que un lector nunca ve<br/>
+ * registros incompletos.
+ */
+final class JournalFormat {
+
+    private static final Logger log = LogManager.getLogger(JournalFormat.class);
+
+    static final int MAGIC = 0x43414C4C;
+    static final int VERSION = 3;
+    static final int HEADER_SIZE = 64;
+    static final int RECORD_SIZE = 48;
+
+    static final int MAGIC_OFFSET = 0;
+    static final int VERSION_OFFSET = 4;
+    static final int RECORD_SIZE_OFFSET = 8;
+    static final int RECORD_COUNT_OFFSET = 12;
+
+    static final int CALL_ID_OFFSET = 0;
+    static final int EMPLOYEE_ID_OFFSET = 8;
+    static final int TIER_OFFSET = 12;
+    static final int DURATION_OFFSET = 16;
+    static final int TYPE_OFFSET = 20;
+    static final int RECEIVED_OFFSET = 24;
+    static final int ASSIGNED_OFFSET = 32;
+    static final int END_OFFSET = 40;
+
+    static final int NAME_LENGTH_OFFSET = 16;
+    static final int NAME_OFFSET = 24;
+    /**
+     * Cantidad máxima de caracteres del nombre que se persisten: a lo sumo 3 bytes UTF-8 por caracter.
+     */
+    static final int MAX_NAME_CHARS = 40;
+    static final int MAX_EMPLOYEE_RECORDS = recordsForName(MAX_NAME_CHARS * 3);
+
+    static final int TYPE_CALL = 0;
+    static final int TYPE_EMPLOYEE = 1;
+
+    private static final String SEGMENT_PREFIX = "calls-";
+    private static final String SEGMENT_SUFFIX = ".journal";
+
+    /**
+     * Libera el mapeo de un buffer a través del cleaner del JDK, o no hace nada si el JDK no lo permite.
+     */
+    private static final Consumer<MappedByteBuffer> UNMAPPER = unmapper();
+
+    private JournalFormat() {
+    }
+
+    /**
+     * @return El nombre del empleado codificado en UTF-8, con a lo sumo {@link #MAX_NAME_CHARS} caracteres.
+     */
+    static byte[] encodeName(String name) {
+        final String persisted = name.length() > MAX_NAME_CHARS ? name.substring(0, MAX_NAME_CHARS) : name;
+        return persisted.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return La cantidad de registros que ocupa un registro de empleado cuyo nombre tiene la longitud indicada.
+     */
+    static int recordsForName(int nameBytes) {
+        return (NAME_OFFSET + nameBytes + RECORD_SIZE - 1) / RECORD_SIZE;
+    }
+
+    /**
+     * Libera el mapeo en memoria de un segmento sin esperar al garbage collector, que de otro modo lo mantiene<br/>
+     * (junto con su espacio de direcciones y, en algunos sistemas, el bloqueo del archivo) hasta recolectar el<br/>
+     * buffer. Luego de invocarlo, el buffer no debe volver a accederse.
+     */
+    static void unmap(MappedByteBuffer buffer) {
+        UNMAPPER.accept(buffer);
+    }
+
+    private static Consumer<MappedByteBuffer> unmapper() {
+
+        try {
+            //JDK 9 o superior.
+            final Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            final Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+            final Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            final Object unsafe = theUnsafe.get(null);
+            return buffer -> invoke(invokeCleaner, unsafe, buffer);
+
+        } catch (ReflectiveOperationException | RuntimeException jdk9e) {
+            try {
+                //JDK 8.
+                final Method cleaner = Class.forName("java.nio.DirectByteBuffer").getMethod("cleaner");
+                cleaner.setAccessible(true);
+                final Method clean = Class.forName("sun.misc.Cleaner").getMethod("clean");
+                clean.setAccessible(true);
+                return buffer -> {
+                    final Object bufferCleaner = invoke(cleaner, buffer);
+                    if (bufferCleaner != null) {
+                        invoke(clean, bufferCleaner);
+                    }
+                };
+
+            } catch (ReflectiveOperationException | RuntimeException jdk8e) {
+                log.debug("No es posible liberar los segmentos mapeados. Se liberan al recolectarlos: ", jdk8e);
+                return buffer -> { };
+            }
+        }
+    }
+
+    private static Object invoke(Method method, Object target, Object... args) {
+        try {
+            return method.invoke(target, args);
+
+        } catch (ReflectiveOperationException roe) {
+            log.debug("No se pudo liberar un segmento mapeado. Se libera al recolectarlo: ", roe);
+            return null;
+        }
+    }
+
+    static Path segmentPath(Path directory, long index) {
+        return directory.resolve(String.format("%s%016d%s", SEGMENT_PREFIX, index, SEGMENT_SUFFIX));
+    }
+
+    /**
+     * @return Los segmentos del directorio, ordenados del más antiguo al más reciente.
+     */
+    static List<Path> listSegments(Path directory) throws IOException {
+
+        final List<Path> segments = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory,
+                SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path segment : stream) {
+                segments.add(segment);
+            }
+        }
+        //El índice tiene ancho fijo, por lo que el orden alfabético coincide con el orden de creación.
+        Collections.sort(segments);
+        return segments;
+    }
+
+    static long segmentIndex(Path segment) {
+        final String fileName = segment.getFileName().toString();
+        return Long.parseLong(fileName.substring(SEGMENT_PREFIX.length(), fileName.length() - SEGMENT_SUFFIX.length()));
+    }
+}
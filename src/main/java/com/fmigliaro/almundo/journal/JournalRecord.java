@@ -0,0 +1,82 @@
+package com.fmigliaro.almundo.journal;
+
+import com.fmigliaro.almundo.model.Tier;
+
+import java.nio.ByteBuffer;
+import java.util.Map;
+
+/**
+ * Vista de un registro del journal, que lee cada campo directamente del segmento mapeado en memoria.<br/>
+ * {@link CallJournalReader} reutiliza la misma instancia para todos los registros, por lo que no debe conservarse<br/>
+ * luego de que el lector la entregue.
+ */
+public final class JournalRecord {
+
+    private static final Tier[] TIERS = Tier.values();
+
+    private ByteBuffer segment;
+    private int offset;
+    private Map<Integer, String> employeeNames;
+
+    JournalRecord() {
+    }
+
+    void moveTo(ByteBuffer segment, int offset, Map<Integer, String> employeeNames) {
+        this.segment = segment;
+        this.offset = offset;
+        this.employeeNames = employeeNames;
+    }
+
+    public long getCallId() {
+        return segment.getLong(offset + JournalFormat.CALL_ID_OFFSET);
+    }
+
+    /**
+     * @return Id del empleado en la JVM que escribió el segmento. No identifica al empleado entre reinicios: para<br/>
+     * ello, ver {@link #getEmployeeName()}.
+     */
+    public int getEmployeeId() {
+        return segment.getInt(offset + JournalFormat.EMPLOYEE_ID_OFFSET);
+    }
+
+    /**
+     * @return Nombre del empleado (a lo sumo 40 caracteres), o null si el segmento no lo contiene.
+     */
+    public String getEmployeeName() {
+        return employeeNames.get(getEmployeeId());
+    }
+
+    public Tier getTier() {
+        return TIERS[segment.getInt(offset + JournalFormat.TIER_OFFSET)];
+    }
+
+    public int getDurationMs() {
+        return segment.getInt(offset + JournalFormat.DURATION_OFFSET);
+    }
+
+    public long getReceivedEpochNanos() {
+        return segment.getLong(offset + JournalFormat.RECEIVED_OFFSET);
+    }
+
+    public long getAssignedEpochNanos() {
+        return segment.getLong(offset + JournalFormat.ASSIGNED_OFFSET);
+    }
+
+    public long getEndEpochNanos() {
+        return segment.getLong(offset + JournalFormat.END_OFFSET);
+    }
+
+    public long getWaitNanos() {
+        return getAssignedEpochNanos() - getReceivedEpochNanos();
+    }
+
+    public long getHandleNanos() {
+        return getEndEpochNanos() - getAssignedEpochNanos();
+    }
+
+    @Override
+    public String toString() {
+        return "JournalRecord[llamada=" + getCallId() + "][empleado=" + getEmployeeName() + "][nivel=" + getTier() +
+                "][esperaNs=" + getWaitNanos() + "][atencionNs=" + getHandleNanos() + "]";
+    }
+}
@@ -0,0 +1,218 @@
+package com.fmigliaro.almundo.metrics;
+
+import com.fmigliaro.almundo.controller.admission.ShedCallListener;
+import com.fmigliaro.almundo.controller.admission.ShedReason;
+import com.fmigliaro.almundo.model.Call;
+import com.fmigliaro.almundo.model.Tier;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Métricas del call center: empleados libres por nivel, llamadas en espera, histogramas del tiempo hasta la<br/>
+ * asignación de un empleado y del tiempo de atención por nivel, descartes por motivo y reintentos.<p/>
+ *
+ * Se registran mediante contadores {@link LongAdder} e {@link Histogram}, por lo que el registro no utiliza locks ni<br/>
+ * crea objetos. Los valores son acumulativos desde la creación del objeto.<br/>
+ * Para conectarlas a la cadena de handlers, ver<br/>
+ * {@link com.fmigliaro.almundo.controller.handler.EmployeeHandler#setMetricsRecorder}; para contabilizar los<br/>
+ * descartes, utilizar este objeto como {@link ShedCallListener}. Las métricas pueden exportarse por JMX<br/>
+ * ({@link #registerMBean}) o mediante un {@link MetricsReporter} ({@link #startReporting}).
+ */
+public class CallMetrics implements CallMetricsRecorder, ShedCallListener, CallMetricsMXBean {
+
+    private static final Logger log = LogManager.getLogger(CallMetrics.class);
+    private static final Tier[] TIERS = Tier.values();
+    private static final ShedReason[] SHED_REASONS = ShedReason.values();
+
+    private final LongAdder[] employees = newAdders(TIERS.length);
+    private final LongAdder[] busyEmployees = newAdders(TIERS.length);
+    private final Histogram[] timeToAssign = newHistograms(TIERS.length);
+    private final Histogram[] handleTime = newHistograms(TIERS.length);
+    private final LongAdder[] rejected = newAdders(SHED_REASONS.length);
+    private final LongAdder waitingCalls = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+
+    @Override
+    public void staffChanged(Tier tier, int delta) {
+        employees[tier.ordinal()].add(delta);
+    }
+
+    @Override
+    public void employeeAssigned(Tier tier, long timeToAssignNanos) {
+        busyEmployees[tier.ordinal()].increment();
+        timeToAssign[tier.ordinal()].record(timeToAssignNanos);
+    }
+
+    @Override
+    public void employeeReleased(Tier tier, long handleTimeNanos) {
+        busyEmployees[tier.ordinal()].decrement();
+        handleTime[tier.ordinal()].record(handleTimeNanos);
+    }
+
+    @Override
+    public void callWaiting() {
+        waitingCalls.increment();
+    }
+
+    @Override
+    public void callWaitEnded() {
+        waitingCalls.decrement();
+    }
+
+    @Override
+    public void waitRetried() {
+        retries.increment();
+    }
+
+    @Override
+    public void onShed(Call call, ShedReason reason) {
+        rejected[reason.ordinal()].increment();
+    }
+
+    public long getIdleEmployees(Tier tier) {
+        return employees[tier.ordinal()].sum() - busyEmployees[tier.ordinal()].sum();
+    }
+
+    /**
+     * @return Histograma, en nanosegundos, del tiempo transcurrido desde que cada llamada ingresó a la cadena hasta<br/>
+     * que se le asignó un empleado del nivel indicado.
+     */
+    public Histogram getTimeToAssign(Tier tier) {
+        return timeToAssign[tier.ordinal()];
+    }
+
+    /**
+     * @return Histograma, en nanosegundos, del tiempo durante el cual los empleados del nivel atendieron cada llamada.
+     */
+    public Histogram getHandleTime(Tier tier) {
+        return handleTime[tier.ordinal()];
+    }
+
+    public long getRejectedCount(ShedReason reason) {
+        return rejected[reason.ordinal()].sum();
+    }
+
+    @Override
+    public long getWaitingCalls() {
+        return waitingCalls.sum();
+    }
+
+    @Override
+    public long getRetryCount() {
+        return retries.sum();
+    }
+
+    @Override
+    public Map<String, Long> getIdleEmployees() {
+        final Map<String, Long> idle = new LinkedHashMap<>();
+        for (Tier tier : TIERS) {
+            idle.put(tier.name(), getIdleEmployees(tier));
+        }
+        return idle;
+    }
+
+    @Override
+    public Map<String, Long> getAssignedCalls() {
+        final Map<String, Long> assigned = new LinkedHashMap<>();
+        for (Tier tier : TIERS) {
+            assigned.put(tier.name(), timeToAssign[tier.ordinal()].getCount());
+        }
+        return assigned;
+    }
+
+    @Override
+    public Map<String, Double> getMeanTimeToAssignMillis() {
+        return millisByTier(timeToAssign, Histogram::getMean);
+    }
+
+    @Override
+    public Map<String, Double> getP99TimeToAssignMillis() {
+        return millisByTier(timeToAssign, histogram -> histogram.getValueAtPercentile(99));
+    }
+
+    @Override
+    public Map<String, Double> getMeanHandleTimeMillis() {
+        return millisByTier(handleTime, Histogram::getMean);
+    }
+
+    @Override
+    public Map<String, Double> getP99HandleTimeMillis() {
+        return millisByTier(handleTime, histogram -> histogram.getValueAtPercentile(99));
+    }
+
+    @Override
+    public Map<String, Long> getRejectedCalls() {
+        final Map<String, Long> rejectedCalls = new LinkedHashMap<>();
+        for (ShedReason reason : SHED_REASONS) {
+            rejectedCalls.put(reason.name(), getRejectedCount(reason));
+        }
+        return rejectedCalls;
+    }
+
+    /**
+     * Registra las métricas en el MBeanServer de la plataforma.
+     *
+     * @param name Nombre que distingue a este objeto de otras métricas registradas.
+     * @return El nombre con el que se registró el MBean, necesario para quitarlo del MBeanServer.
+     */
+    public ObjectName registerMBean(String name) throws JMException {
+
+        final ObjectName objectName = new ObjectName("com.fmigliaro.almundo:type=CallMetrics,name=" +
+                ObjectName.quote(name));
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+        return objectName;
+    }
+
+    /**
+     * Envía periódicamente las métricas al reporter en el scheduler indicado. Una Exception del reporter no<br/>
+     * interrumpe los reportes siguientes.
+     *
+     * @return Un future que permite detener los reportes.
+     */
+    public ScheduledFuture<?> startReporting(ScheduledExecutorService scheduler, MetricsReporter reporter,
+                                             long period, TimeUnit unit) {
+        return scheduler.scheduleAtFixedRate(() -> {
+            try {
+                reporter.report(this);
+            } catch (RuntimeException re) {
+                log.error("Exception mientras se reportaban las métricas: ", re);
+            }
+        }, period, period, unit);
+    }
+
+    private static Map<String, Double> millisByTier(Histogram[] histograms, ToDoubleFunction<Histogram> nanos) {
+
+        final Map<String, Double> millis = new LinkedHashMap<>();
+        for (Tier tier : TIERS) {
+            millis.put(tier.name(), nanos.applyAsDouble(histograms[tier.ordinal()]) / TimeUnit.MILLISECONDS.toNanos(1));
+        }
+        return millis;
+    }
+
+    private static LongAdder[] newAdders(int size) {
+        final LongAdder[] adders = new LongAdder[size];
+        for (int i = 0; i < size; i++) {
+            adders[i] = new LongAdder();
+        }
+        return adders;
+    }
+
+    private static Histogram[] newHistograms(int size) {
+        final Histogram[] histograms = new Histogram[size];
+        for (int i = 0; i < size; i++) {
+            histograms[i] = new Histogram();
+        }
+        return histograms;
+    }
+}
@@ -0,0 +1,28 @@
+package com.fmigliaro.almundo.metrics;
+
+import java.util.Map;
+
+/**
+ * Vista JMX de {@link CallMetrics}. Los valores por nivel o por motivo se exponen como mapas cuya clave es el<br/>
+ * nombre de la constante correspondiente. Los tiempos se expresan en milisegundos.
+ */
+public interface CallMetricsMXBean {
+
+    long getWaitingCalls();
+
+    long getRetryCount();
+
+    Map<String, Long> getIdleEmployees();
+
+    Map<String, Long> getAssignedCalls();
+
+    Map<String, Double> getMeanTimeToAssignMillis();
+
+    Map<String, Double> getP99TimeToAssignMillis();
+
+    Map<String, Double> getMeanHandleTimeMillis();
+
+    Map<String, Double> getP99HandleTimeMillis();
+
+    Map<String, Long> getRejectedCalls();
+}
@@ -0,0 +1,120 @@
+package com.fmigliaro.almundo.metrics;
+
+import com.fmigliaro.almundo.model.Tier;
+
+/**
+ * Interfaz mediante la cual la cadena de handlers informa los eventos de cada llamada para su medición.<br/>
+ * Los métodos se invocan en el camino crítico de la asignación de empleados, por lo que las implementaciones no<br/>
+ * deben bloquear ni crear objetos.
+ */
+public interface CallMetricsRecorder {
+
+    /**
+     * Implementación por defecto, que no registra nada.
+     */
+    CallMetricsRecorder NO_OP = new CallMetricsRecorder() {
+        @Override
+        public void staffChanged(Tier tier, int delta) {
+        }
+
+        @Override
+        public void employeeAssigned(Tier tier, long timeToAssignNanos) {
+        }
+
+        @Override
+        public void employeeReleased(Tier tier, long handleTimeNanos) {
+        }
+
+        @Override
+        public void callWaiting() {
+        }
+
+        @Override
+        public void callWaitEnded() {
+        }
+
+        @Override
+        public void waitRetried() {
+        }
+    };
+
+    /**
+     * Se agregaron (o, con <code>delta</code> negativo, se quitaron) empleados del nivel indicado.
+     */
+    void staffChanged(Tier tier, int delta);
+
+    /**
+     * Se asignó un empleado a una llamada.
+     *
+     * @param timeToAssignNanos Tiempo transcurrido desde que la llamada ingresó a la cadena.
+     */
+    void employeeAssigned(Tier tier, long timeToAssignNanos);
+
+    /**
+     * Un empleado finalizó una llamada y quedó libre.
+     *
+     * @param handleTimeNanos Tiempo durante el cual el empleado atendió la llamada.
+     */
+    void employeeReleased(Tier tier, long handleTimeNanos);
+
+    /**
+     * Una llamada quedó en espera por no haber empleados disponibles.
+     */
+    void callWaiting();
+
+    /**
+     * Una llamada en espera dejó de esperar, ya sea porque se le asignó un empleado o porque se canceló su espera.
+     */
+    void callWaitEnded();
+
+    /**
+     * Una llamada en espera superó el tiempo tras el cual se informa que continúa esperando.
+     */
+    void waitRetried();
+
+    /**
+     * Permite informar cada evento a más de un recorder, por ejemplo a {@link CallMetrics} y a<br/>
+     * {@link SlidingWindowMetrics}.
+     */
+    default CallMetricsRecorder andThen(CallMetricsRecorder next) {
+
+        final CallMetricsRecorder first = this;
+        return new CallMetricsRecorder() {
+            @Override
+            public void staffChanged(Tier tier, int delta) {
+                first.staffChanged(tier, delta);
+                next.staffChanged(tier, delta);
+            }
+
+            @Override
+            public void employeeAssigned(Tier tier, long timeToAssignNanos) {
+                first.employeeAssigned(tier, timeToAssignNanos);
+                next.employeeAssigned(tier, timeToAssignNanos);
+            }
+
+            @Override
+            public void employeeReleased(Tier tier, long handleTimeNanos) {
+                first.employeeReleased(tier, handleTimeNanos);
+                next.employeeReleased(tier, handleTimeNanos);
+            }
+
+            @Override
+            public void callWaiting() {
+                first.callWaiting();
+                next.callWaiting();
+            }
+
+            @Override
+            public void callWaitEnded() {
+                first.callWaitEnded();
+                next.callWaitEnded();
+            }
+
+            @Override
+            public void waitRetried() {
+                first.waitRetried();
+                next.waitRetried();
+            }
+        };
+    }
+}
@@ -0,0 +1,131 @@
+package com.fmigliaro.almundo.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histograma de valores no negativos con buckets log-lineales (en el estilo de HdrHistogram).<p/>
+ *
+ * Los valores menores a 128 se registran exactamente; a partir de ahí, cada potencia de 2 se divide en 64 buckets,<br/>
+ * por lo que el error relativo de cualquier percentil es menor al 1,6%. El rango cubre todos los valores<br/>
+ * <code>long</code> con menos de 4.000 buckets.<br/>
+ * El registro de valores es thread-safe, no utiliza locks y no genera objetos.
+ */
+public class Histogram {
+
+    private static final int LINEAR_BITS = 7;
+    private static final int LINEAR_BUCKETS = 1 << LINEAR_BITS;
+    private static final int SUB_BUCKETS = LINEAR_BUCKETS / 2;
+    private static final int BUCKETS = LINEAR_BUCKETS + (Long.SIZE - LINEAR_BITS) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder totalCount = new LongAdder();
+    private final LongAdder totalSum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    public void record(long value) {
+
+        final long v = value < 0 ? 0 : value;
+        counts.incrementAndGet(bucketOf(v));
+        totalCount.increment();
+        totalSum.add(v);
+
+        long currentMax;
+        while (v > (currentMax = max.get()) && !max.compareAndSet(currentMax, v)) {
+            //Otro thread actualizó el máximo: se reintenta.
+        }
+    }
+
+    public long getCount() {
+        return totalCount.sum();
+    }
+
+    public double getMean() {
+        final long count = getCount();
+        return count == 0 ? 0 : (double) totalSum.sum() / count;
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * @param percentile Percentil entre 0 y 100.
+     * @return El límite inferior del bucket que contiene al percentil, o 0 si el histograma está vacío.
+     */
+    public long getValueAtPercentile(double percentile) {
+
+        final long count = getCount();
+        if (count == 0) {
+            return 0;
+        }
+        final long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+        long seen = 0;
+
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            seen += counts.get(bucket);
+            if (seen >= rank) {
+                return Math.min(lowestValueOf(bucket), getMax());
+            }
+        }
+        return getMax();
+    }
+
+    /**
+     * Suma los valores registrados en otro histograma a este histograma.
+     */
+    public void add(Histogram other) {
+
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            final long bucketCount = other.counts.get(bucket);
+            if (bucketCount != 0) {
+                counts.addAndGet(bucket, bucketCount);
+            }
+        }
+        totalCount.add(other.totalCount.sum());
+        totalSum.add(other.totalSum.sum());
+
+        long currentMax;
+        final long otherMax = other.getMax();
+        while (otherMax > (currentMax = max.get()) && !max.compareAndSet(currentMax, otherMax)) {
+            //Otro thread actualizó el máximo: se reintenta.
+        }
+    }
+
+    static int bucketOf(long value) {
+        return bucketOf(value, LINEAR_BITS);
+    }
+
+    static long lowestValueOf(int bucket) {
+        return lowestValueOf(bucket, LINEAR_BITS);
+    }
+
+    /**
+     * Bucket log-lineal de un valor no negativo: los valores menores a <code>2^linearBits</code> tienen un bucket<br/>
+     * propio y, a partir de ahí, cada potencia de 2 se divide en <code>2^(linearBits - 1)</code> buckets.<br/>
+     * Permite que otros histogramas de la aplicación utilicen el mismo esquema con menor precisión (ver<br/>
+     * {@link SlidingWindowMetrics}).
+     */
+    static int bucketOf(long value, int linearBits) {
+
+        if (value < 1L << linearBits) {
+            return (int) value;
+        }
+        final int shift = Long.SIZE - Long.numberOfLeadingZeros(value) - linearBits;
+        return (shift << linearBits - 1) + (int) (value >>> shift);
+    }
+
+    /**
+     * @return El menor valor que {@link #bucketOf(long, int)} asigna al bucket indicado.
+     */
+    static long lowestValueOf(int bucket, int linearBits) {
+
+        if (bucket < 1 << linearBits) {
+            return bucket;
+        }
+        final int subBuckets = 1 << linearBits - 1;
+        final int shift = bucket / subBuckets - 1;
+        return (long) (bucket % subBuckets + subBuckets) << shift;
+    }
+}
@@ -0,0 +1,41 @@
+package com.fmigliaro.almundo.metrics;
+
+import com.fmigliaro.almundo.model.Tier;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Interfaz que permite exportar periódicamente las métricas a cualquier destino (logs, un sistema de monitoreo, etc.).<br/>
+ * Ver {@link CallMetrics#startReporting}.
+ */
+public interface MetricsReporter {
+
+    /**
+     * Implementación por defecto, que loguea un resumen por nivel de empleados.
+     */
+    MetricsReporter LOGGING = new MetricsReporter() {
+
+        private final Logger log = LogManager.getLogger(MetricsReporter.class);
+
+        @Override
+        public void report(CallMetrics metrics) {
+
+            log.info("Llamadas en espera: {}. Reintentos: {}. Descartes: {}", metrics.getWaitingCalls(),
+                    metrics.getRetryCount(), metrics.getRejectedCalls());
+
+            for (Tier tier : Tier.values()) {
+                final Histogram timeToAssign = metrics.getTimeToAssign(tier);
+                log.info("{}: libres={} asignadas={} espera media={}ms p99={}ms atención p99={}ms", tier,
+                        metrics.getIdleEmployees(tier), timeToAssign.getCount(),
+                        TimeUnit.NANOSECONDS.toMillis((long) timeToAssign.getMean()),
+                        TimeUnit.NANOSECONDS.toMillis(timeToAssign.getValueAtPercentile(99)),
+                        TimeUnit.NANOSECONDS.toMillis(metrics.getHandleTime(tier).getValueAtPercentile(99)));
+            }
+        }
+    };
+
+    void report(CallMetrics metrics);
+
+}
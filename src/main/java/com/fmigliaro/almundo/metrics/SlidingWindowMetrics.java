@@ -0,0 +1,268 @@
+package com.fmigliaro.almundo.metrics;
+
+import com.fmigliaro.almundo.model.Tier;
+import com.fmigliaro.almundo.utility.Clock;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Métricas de los últimos 1, 5 y 15 minutos por nivel de empleados: llamadas asignadas, espera media y percentil 95<br/>
+ * de la espera, y ocupación de los empleados. A diferencia de {@link CallMetrics}, cuyos valores son acumulativos,<br/>
+ * los eventos antiguos dejan de contabilizarse a medida que el tiempo avanza.<p/>
+ *
+ * Los eventos se agregan en buckets de {@value #BUCKET_SECONDS} segundos, dispuestos en un anillo que cubre la<br/>
+ * ventana más larga. Cada bucket contiene, por nivel, contadores y un histograma de esperas con buckets<br/>
+ * log-lineales (error relativo menor al 12,5%). Al comenzar un bucket nuevo, el primer evento lo crea y lo instala<br/>
+ * con un compareAndSet sobre el bucket de 15 minutos atrás, por lo que el registro no utiliza locks y sólo crea<br/>
+ * objetos una vez por bucket. Una consulta lee a lo sumo los buckets de la ventana, sin importar cuántas llamadas<br/>
+ * se procesaron, por lo que puede invocarse continuamente sin competir con la cadena de handlers.<p/>
+ *
+ * La ocupación es el tiempo ocupado de los empleados dividido su tiempo de presencia en la ventana. Ambos se<br/>
+ * obtienen de los cambios en la cantidad de empleados ocupados y presentes que registra cada bucket, por lo que<br/>
+ * incluyen a las llamadas en curso y a las altas y bajas de empleados.<br/>
+ * Por la granularidad de los buckets, la ventana de N minutos cubre entre N minutos menos un bucket y N minutos.<p/>
+ *
+ * Para conectarlas a la cadena de handlers, ver<br/>
+ * {@link com.fmigliaro.almundo.controller.handler.EmployeeHandler#setMetricsRecorder} y<br/>
+ * {@link CallMetricsRecorder#andThen}. Deben conectarse antes de procesar llamadas.
+ */
+public class SlidingWindowMetrics implements CallMetricsRecorder {
+
+    private static final Tier[] TIERS = Tier.values();
+    private static final int BUCKET_SECONDS = 10;
+    private static final long BUCKET_NANOS = TimeUnit.SECONDS.toNanos(BUCKET_SECONDS);
+    //Un bucket más que la ventana más larga, para que el bucket que se reemplaza nunca forme parte de una consulta.
+    private static final int RING_SIZE = Window.FIFTEEN_MINUTES.buckets + 1;
+
+    //Histograma de esperas en microsegundos, con los buckets de Histogram pero menor precisión: los valores menores
+    //a 16 son exactos y cada potencia de 2 se divide en 8 buckets. Las esperas de más de 71 minutos se registran en
+    //el último bucket.
+    static final int WAIT_LINEAR_BITS = 4;
+    private static final long MAX_WAIT_MICROS = (1L << 32) - 1;
+    private static final int WAIT_BUCKETS = Histogram.bucketOf(MAX_WAIT_MICROS, WAIT_LINEAR_BITS) + 1;
+
+    //Campos de cada nivel dentro de un bucket.
+    private static final int ASSIGNED = 0;
+    private static final int WAIT_SUM_MICROS = 1;
+    private static final int BUSY_DELTA = 2;
+    private static final int BUSY_DELTA_OFFSET = 3;
+    private static final int STAFF_DELTA = 4;
+    private static final int STAFF_DELTA_OFFSET = 5;
+    private static final int WAIT_HISTOGRAM = 6;
+    private static final int TIER_FIELDS = WAIT_HISTOGRAM + WAIT_BUCKETS;
+
+    private final Clock clock;
+    private final long originNanos;
+    private final AtomicReferenceArray<Bucket> ring = new AtomicReferenceArray<>(RING_SIZE);
+    private final LongAdder[] busyEmployees = newAdders();
+    private final LongAdder[] employees = newAdders();
+
+    /**
+     * Ventanas de tiempo que pueden consultarse.
+     */
+    public enum Window {
+        ONE_MINUTE(1), FIVE_MINUTES(5), FIFTEEN_MINUTES(15);
+
+        private final int buckets;
+
+        Window(int minutes) {
+            this.buckets = (int) (TimeUnit.MINUTES.toSeconds(minutes) / BUCKET_SECONDS);
+        }
+    }
+
+    public SlidingWindowMetrics() {
+        this(Clock.SYSTEM);
+    }
+
+    /**
+     * @param clock Reloj de la cadena de handlers (ver<br/>
+     * {@link com.fmigliaro.almundo.controller.handler.EmployeeHandler#getClock()}).
+     */
+    public SlidingWindowMetrics(Clock clock) {
+        this.clock = clock;
+        this.originNanos = clock.nanoTime();
+    }
+
+    @Override
+    public void staffChanged(Tier tier, int delta) {
+        employees[tier.ordinal()].add(delta);
+        recordGaugeChange(tier, STAFF_DELTA, delta);
+    }
+
+    @Override
+    public void employeeAssigned(Tier tier, long timeToAssignNanos) {
+
+        busyEmployees[tier.ordinal()].increment();
+        final long elapsedNanos = elapsedNanos();
+        final Bucket bucket = bucketAt(elapsedNanos);
+        if (bucket == null) {
+            return;
+        }
+        final long waitMicros = Math.min(MAX_WAIT_MICROS,
+                TimeUnit.NANOSECONDS.toMicros(Math.max(0, timeToAssignNanos)));
+        final int base = tier.ordinal() * TIER_FIELDS;
+        bucket.values.incrementAndGet(base + ASSIGNED);
+        bucket.values.addAndGet(base + WAIT_SUM_MICROS, waitMicros);
+        bucket.values.incrementAndGet(base + WAIT_HISTOGRAM + Histogram.bucketOf(waitMicros, WAIT_LINEAR_BITS));
+        bucket.values.addAndGet(base + BUSY_DELTA, 1);
+        bucket.values.addAndGet(base + BUSY_DELTA_OFFSET, elapsedNanos - bucket.startNanos());
+    }
+
+    @Override
+    public void employeeReleased(Tier tier, long handleTimeNanos) {
+        busyEmployees[tier.ordinal()].decrement();
+        recordGaugeChange(tier, BUSY_DELTA, -1);
+    }
+
+    @Override
+    public void callWaiting() {
+    }
+
+    @Override
+    public void callWaitEnded() {
+    }
+
+    @Override
+    public void waitRetried() {
+    }
+
+    /**
+     * @return Las estadísticas del nivel en la ventana indicada, hasta el instante actual.
+     */
+    public WindowStats getStats(Tier tier, Window window) {
+
+        final long elapsedNanos = elapsedNanos();
+        final long current = elapsedNanos / BUCKET_NANOS;
+        final int base = tier.ordinal() * TIER_FIELDS;
+        final long[] waits = new long[WAIT_BUCKETS];
+
+        //Los buckets se recorren del más reciente al más antiguo: la cantidad de empleados ocupados (y presentes) al
+        //final de cada bucket es la actual menos los cambios registrados en los buckets posteriores.
+        long busyAtEnd = Math.max(0, busyEmployees[tier.ordinal()].sum());
+        long staffAtEnd = Math.max(0, employees[tier.ordinal()].sum());
+        long coveredNanos = 0;
+        long busyNanos = 0;
+        long staffNanos = 0;
+        long assigned = 0;
+        long waitSumMicros = 0;
+
+        for (long index = current; index > current - window.buckets && index >= 0; index--) {
+            final long lengthNanos = index == current ? elapsedNanos - index * BUCKET_NANOS : BUCKET_NANOS;
+            final Bucket bucket = ring.get(slotOf(index));
+            coveredNanos += lengthNanos;
+
+            if (bucket == null || bucket.index != index) {
+                //Sin eventos en el bucket: los empleados no cambiaron de estado durante todo el intervalo.
+                busyNanos += busyAtEnd * lengthNanos;
+                staffNanos += staffAtEnd * lengthNanos;
+                continue;
+            }
+            //Cada empleado que pasó a estar ocupado en el instante t del bucket suma (longitud - t) a lo sumado por
+            //los ocupados al final del bucket, en lugar de la longitud completa; uno que se liberó, lo contrario.
+            busyNanos += busyAtEnd * lengthNanos - bucket.values.get(base + BUSY_DELTA_OFFSET);
+            staffNanos += staffAtEnd * lengthNanos - bucket.values.get(base + STAFF_DELTA_OFFSET);
+            busyAtEnd = Math.max(0, busyAtEnd - bucket.values.get(base + BUSY_DELTA));
+            staffAtEnd = Math.max(0, staffAtEnd - bucket.values.get(base + STAFF_DELTA));
+
+            assigned += bucket.values.get(base + ASSIGNED);
+            waitSumMicros += bucket.values.get(base + WAIT_SUM_MICROS);
+            for (int i = 0; i < WAIT_BUCKETS; i++) {
+                waits[i] += bucket.values.get(base + WAIT_HISTOGRAM + i);
+            }
+        }
+        final double occupancy = staffNanos <= 0 ? 0 : Math.min(1, Math.max(0, (double) busyNanos / staffNanos));
+        final double meanWaitMillis = assigned == 0 ? 0 : waitSumMicros / 1000.0 / assigned;
+
+        return new WindowStats(tier, window, TimeUnit.NANOSECONDS.toMillis(coveredNanos), assigned, meanWaitMillis,
+                valueAtPercentile(waits, 95) / 1000.0, occupancy);
+    }
+
+    private void recordGaugeChange(Tier tier, int field, int delta) {
+
+        final long elapsedNanos = elapsedNanos();
+        final Bucket bucket = bucketAt(elapsedNanos);
+        if (bucket != null) {
+            final int base = tier.ordinal() * TIER_FIELDS;
+            bucket.values.addAndGet(base + field, delta);
+            bucket.values.addAndGet(base + field + 1, delta * (elapsedNanos - bucket.startNanos()));
+        }
+    }
+
+    private long elapsedNanos() {
+        return Math.max(0, clock.nanoTime() - originNanos);
+    }
+
+    /**
+     * @return El bucket del instante indicado, creándolo si todavía no existe, o null si el anillo ya avanzó más<br/>
+     * allá de él (un evento demorado más de 15 minutos, que no se contabiliza).
+     */
+    private Bucket bucketAt(long elapsedNanos) {
+
+        final long index = elapsedNanos / BUCKET_NANOS;
+        final int slot = slotOf(index);
+        Bucket bucket = ring.get(slot);
+
+        while (bucket == null || bucket.index < index) {
+            final Bucket fresh = new Bucket(index);
+            if (ring.compareAndSet(slot, bucket, fresh)) {
+                return fresh;
+            }
+            //Otro thread instaló el bucket: se utiliza ése.
+            bucket = ring.get(slot);
+        }
+        return bucket.index == index ? bucket : null;
+    }
+
+    private static int slotOf(long index) {
+        return (int) (index % RING_SIZE);
+    }
+
+    private static long valueAtPercentile(long[] counts, double percentile) {
+
+        long count = 0;
+        for (long bucketCount : counts) {
+            count += bucketCount;
+        }
+        if (count == 0) {
+            return 0;
+        }
+        final long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+        long seen = 0;
+        for (int bucket = 0; bucket < counts.length; bucket++) {
+            seen += counts[bucket];
+            if (seen >= rank) {
+                return Histogram.lowestValueOf(bucket, WAIT_LINEAR_BITS);
+            }
+        }
+        return MAX_WAIT_MICROS;
+    }
+
+    private static LongAdder[] newAdders() {
+        final LongAdder[] adders = new LongAdder[TIERS.length];
+        for (int i = 0; i < adders.length; i++) {
+            adders[i] = new LongAdder();
+        }
+        return adders;
+    }
+
+    /**
+     * Eventos de un intervalo de {@value #BUCKET_SECONDS} segundos. Los instantes se registran como desplazamiento<br/>
+     * desde el comienzo del bucket.
+     */
+    private static final class Bucket {
+
+        private final long index;
+        private final AtomicLongArray values = new AtomicLongArray(TIERS.length * TIER_FIELDS);
+
+        private Bucket(long index) {
+            this.index = index;
+        }
+
+        private long startNanos() {
+            return index * BUCKET_NANOS;
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.fmigliaro.almundo.metrics;
+
+import com.fmigliaro.almundo.model.Tier;
+
+/**
+ * Estadísticas de un nivel de empleados en una ventana de tiempo reciente, obtenidas de<br/>
+ * {@link SlidingWindowMetrics#getStats}. Es inmutable.
+ */
+public final class WindowStats {
+
+    private final Tier tier;
+    private final SlidingWindowMetrics.Window window;
+    private final long coveredMillis;
+    private final long assignedCalls;
+    private final double meanWaitMillis;
+    private final double p95WaitMillis;
+    private final double occupancy;
+
+    WindowStats(Tier tier, SlidingWindowMetrics.Window window, long coveredMillis, long assignedCalls,
+                double meanWaitMillis, double p95WaitMillis, double occupancy) {
+        this.tier = tier;
+        this.window = window;
+        this.coveredMillis = coveredMillis;
+        this.assignedCalls = assignedCalls;
+        this.meanWaitMillis = meanWaitMillis;
+        this.p95WaitMillis = p95WaitMillis;
+        this.occupancy = occupancy;
+    }
+
+    public Tier getTier() {
+        return tier;
+    }
+
+    public SlidingWindowMetrics.Window getWindow() {
+        return window;
+    }
+
+    /**
+     * @return Tiempo efectivamente cubierto por las estadísticas. Es menor a la ventana si las métricas se crearon<br/>
+     * hace menos tiempo, y puede ser hasta un bucket menor por la granularidad de la ventana.
+     */
+    public long getCoveredMillis() {
+        return coveredMillis;
+    }
+
+    /**
+     * @return Llamadas a las que se les asignó un empleado del nivel dentro de la ventana.
+     */
+    public long getAssignedCalls() {
+        return assignedCalls;
+    }
+
+    /**
+     * @return Espera media, desde el ingreso a la cadena hasta la asignación, de las llamadas asignadas en la ventana.
+     */
+    public double getMeanWaitMillis() {
+        return meanWaitMillis;
+    }
+
+    /**
+     * @return Percentil 95 de la espera de las llamadas asignadas en la ventana.
+     */
+    public double getP95WaitMillis() {
+        return p95WaitMillis;
+    }
+
+    /**
+     * @return Fracción, entre 0 y 1, del tiempo de los empleados del nivel que estuvo ocupada en llamadas.
+     */
+    public double getOccupancy() {
+        return occupancy;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("WindowStats{tier=%s, window=%s, coveredMs=%d, assignedCalls=%d, meanWaitMs=%.1f, " +
+                        "p95WaitMs=%.1f, occupancy=%.3f}", tier, window, coveredMillis, assignedCalls, meanWaitMillis,
+                p95WaitMillis, occupancy);
+    }
+}
@@ -1,20 +1,41 @@
 package com.fmigliaro.almundo.model;
 
-import java.util.Random;
+import org.apache.logging.log4j.util.StringBuilderFormattable;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * POJO que representa a una llamada con su id y duración.<br/>
- * De acuerdo a la forma de instanciar a esta clase, la duración puede ser inyectada o calculada aleatoriamente.<p/>
+ * De acuerdo a la forma de instanciar a esta clase, la duración puede ser inyectada o calculada aleatoriamente.<br/>
+ * Para generar llamadas a partir de una distribución de duraciones, ver {@link CallFactory}.<p/>
+ *
+ * Los ids son de 64 bits y únicos aún cuando las llamadas se crean desde varios threads. Para no competir por un<br/>
+ * único contador, cada thread reserva bloques de {@link #ID_BLOCK_SIZE} ids y los asigna localmente, por lo que<br/>
+ * los ids son crecientes dentro de cada thread pero no entre threads distintos.<p/>
  *
  * Created by Francisco Migliaro on 07/12/2017.
  */
-public class Call {
+public class Call implements StringBuilderFormattable {
+
+    /**
+     * Tiempo máximo de espera que indica que la llamada espera a un empleado indefinidamente.
+     */
+    public static final long NO_MAX_WAIT = Long.MAX_VALUE;
 
-    private static final Random rndDurationMs = new Random();
-    private static int idSeq = 1;
+    private static final int ID_BLOCK_SIZE = 1024;
+    private static final AtomicLong nextIdBlock = new AtomicLong(1);
+    private static final ThreadLocal<long[]> idBlock = ThreadLocal.withInitial(() -> new long[2]);
 
-    private int id;
+    private long id;
     private int durationMs;
+    private Priority priority = Priority.NORMAL;
+    private Set<String> requiredSkills = Collections.emptySet();
+    private long receivedNanos;
+    private volatile long maxWaitMs = NO_MAX_WAIT;
 
     /**
      * Este constructor, dado una duración mínima y duración máxima, determina la duración de la llamada generando<br/>
@@ -24,8 +45,8 @@ public class Call {
      * @param durationRangeSizeMs Límite superior del rango dentro del cual se genera la duración aleatoria.
      */
     public Call(int durationStartOffsetMs, int durationRangeSizeMs) {
-        this.id = idSeq++;
-        this.durationMs =  durationStartOffsetMs + rndDurationMs.nextInt(durationRangeSizeMs + 1);
+        this.id = nextId();
+        this.durationMs =  durationStartOffsetMs + ThreadLocalRandom.current().nextInt(durationRangeSizeMs + 1);
     }
 
     /**
@@ -35,16 +56,99 @@ public class Call {
      * @param durationMs La duración de llamada en milisegundos.
      */
     public Call(int durationMs) {
-        this.id = idSeq++;
+        this.id = nextId();
         this.durationMs = durationMs;
     }
 
+    /**
+     * Permite crear una llamada con una prioridad distinta a {@link Priority#NORMAL}.
+     *
+     * @param durationMs La duración de llamada en milisegundos.
+     * @param priority La prioridad de la llamada.
+     */
+    public Call(int durationMs, Priority priority) {
+        this(durationMs);
+        this.priority = priority;
+    }
+
+    /**
+     * Permite crear una llamada que sólo puede ser atendida por empleados que tengan todas las habilidades indicadas.
+     *
+     * @param durationMs La duración de llamada en milisegundos.
+     * @param priority La prioridad de la llamada.
+     * @param requiredSkills Las habilidades que debe tener el empleado que atienda la llamada.
+     */
+    public Call(int durationMs, Priority priority, Set<String> requiredSkills) {
+        this(durationMs, priority);
+        this.requiredSkills = Collections.unmodifiableSet(new HashSet<>(requiredSkills));
+    }
+
+    public long getId() {
+        return id;
+    }
+
     public int getDurationMs() {
         return durationMs;
     }
 
+    public Priority getPriority() {
+        return priority;
+    }
+
+    public Set<String> getRequiredSkills() {
+        return requiredSkills;
+    }
+
+    /**
+     * @return Instante, según el reloj de la cadena de handlers, en que la llamada ingresó a la cadena.
+     */
+    public long getReceivedNanos() {
+        return receivedNanos;
+    }
+
+    public void setReceivedNanos(long receivedNanos) {
+        this.receivedNanos = receivedNanos;
+    }
+
+    public long getMaxWaitMs() {
+        return maxWaitMs;
+    }
+
+    /**
+     * Define el tiempo máximo que la llamada espera a un empleado disponible, contado desde su ingreso a la cadena<br/>
+     * de handlers. Superado dicho tiempo, quien llama abandona y la llamada deja de esperar. Por defecto,<br/>
+     * {@link #NO_MAX_WAIT}.
+     */
+    public void setMaxWaitMs(long maxWaitMs) {
+        this.maxWaitMs = maxWaitMs;
+    }
+
+    /**
+     * Obtiene el próximo id del bloque reservado por el thread actual, reservando un nuevo bloque si se agotó.
+     */
+    private static long nextId() {
+
+        final long[] block = idBlock.get();
+        if (block[0] == block[1]) {
+            block[0] = nextIdBlock.getAndAdd(ID_BLOCK_SIZE);
+            block[1] = block[0] + ID_BLOCK_SIZE;
+        }
+        return block[0]++;
+    }
+
     @Override
     public String toString() {
-        return "Llamada[id=" + id + "][duracion="+ durationMs + "ms]";
+        final StringBuilder sb = new StringBuilder();
+        formatTo(sb);
+        return sb.toString();
+    }
+
+    /**
+     * Escribe la llamada en el buffer con el mismo formato que {@link #toString()}. Log4j lo utiliza al recibir la<br/>
+     * llamada como parámetro de un mensaje, por lo que loguearla no crea Strings.
+     */
+    @Override
+    public void formatTo(StringBuilder buffer) {
+        buffer.append("Llamada[id=").append(id).append("][duracion=").append(durationMs).append("ms]");
     }
 }
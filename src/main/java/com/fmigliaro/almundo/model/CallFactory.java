@@ -0,0 +1,51 @@
+package com.fmigliaro.almundo.model;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Generador de llamadas cuyas duraciones siguen una {@link DurationDistribution}.<p/>
+ *
+ * {@link #newCall()} puede invocarse concurrentemente desde cualquier cantidad de threads sin que compitan entre sí:<br/>
+ * las duraciones se obtienen de {@link ThreadLocalRandom} y los ids se asignan por bloques por thread (ver<br/>
+ * {@link Call}). Para generar secuencias reproducibles, se puede pasar un {@link SplittableRandom} con una semilla<br/>
+ * fija, uno por thread (ver {@link SplittableRandom#split()}).
+ */
+public class CallFactory {
+
+    private final DurationDistribution durations;
+    private final Priority priority;
+
+    public CallFactory(DurationDistribution durations) {
+        this(durations, Priority.NORMAL);
+    }
+
+    public CallFactory(DurationDistribution durations, Priority priority) {
+        this.durations = durations;
+        this.priority = priority;
+    }
+
+    public Call newCall() {
+        return new Call(durations.quantileMs(ThreadLocalRandom.current().nextDouble()), priority);
+    }
+
+    /**
+     * @param random Fuente de números aleatorios. No es thread-safe: cada thread debe utilizar la suya.
+     */
+    public Call newCall(SplittableRandom random) {
+        return new Call(durations.quantileMs(random.nextDouble()), priority);
+    }
+
+    /**
+     * Agrega llamadas a un {@link CallStore} sin crear ningún objeto por llamada.
+     *
+     * @param store Store al que se agregan las llamadas.
+     * @param count Cantidad de llamadas a agregar.
+     * @param random Fuente de números aleatorios.
+     */
+    public void fill(CallStore store, int count, SplittableRandom random) {
+        for (int i = 0; i < count; i++) {
+            store.add(durations.quantileMs(random.nextDouble()), priority);
+        }
+    }
+}
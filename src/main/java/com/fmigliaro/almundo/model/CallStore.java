@@ -0,0 +1,97 @@
+package com.fmigliaro.almundo.model;
+
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+/**
+ * Almacenamiento compacto de llamadas en arreglos de primitivos (struct-of-arrays), direccionadas por un id entero<br/>
+ * igual a su posición en el store.<p/>
+ *
+ * Permite representar millones de llamadas sin crear un objeto {@link Call} por cada una: un millón de llamadas<br/>
+ * ocupa alrededor de 5MB, en lugar de los más de 40MB de los objetos equivalentes, y el garbage collector no<br/>
+ * necesita recorrerlas. Cuando se necesita un objeto, {@link #toCall(int)} lo crea a partir del store.<br/>
+ * Esta clase no es thread-safe: las llamadas deben agregarse desde un único thread antes de compartir el store.
+ */
+public class CallStore {
+
+    private static final Priority[] PRIORITIES = Priority.values();
+
+    private final int[] durationsMs;
+    private final byte[] priorities;
+    private int size;
+
+    public CallStore(int capacity) {
+        this.durationsMs = new int[capacity];
+        this.priorities = new byte[capacity];
+    }
+
+    /**
+     * @return El id de la llamada agregada.
+     */
+    public int add(int durationMs) {
+        return add(durationMs, Priority.NORMAL);
+    }
+
+    /**
+     * @return El id de la llamada agregada.
+     */
+    public int add(int durationMs, Priority priority) {
+
+        if (size == durationsMs.length) {
+            throw new IllegalStateException("El store de llamadas está lleno (capacidad: " + durationsMs.length + ").");
+        }
+        durationsMs[size] = durationMs;
+        priorities[size] = (byte) priority.ordinal();
+        return size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getDurationMs(int id) {
+        checkId(id);
+        return durationsMs[id];
+    }
+
+    public Priority getPriority(int id) {
+        checkId(id);
+        return PRIORITIES[priorities[id]];
+    }
+
+    /**
+     * Crea un objeto {@link Call} con los datos de la llamada, para utilizarlo con las APIs basadas en objetos.
+     */
+    public Call toCall(int id) {
+        return new Call(getDurationMs(id), getPriority(id));
+    }
+
+    /**
+     * @return Las duraciones de las llamadas en orden de id, sin crear objetos por llamada.
+     */
+    public PrimitiveIterator.OfInt durations() {
+
+        return new PrimitiveIterator.OfInt() {
+            private int next;
+
+            @Override
+            public boolean hasNext() {
+                return next < size;
+            }
+
+            @Override
+            public int nextInt() {
+                if (next >= size) {
+                    throw new NoSuchElementException();
+                }
+                return durationsMs[next++];
+            }
+        };
+    }
+
+    private void checkId(int id) {
+        if (id < 0 || id >= size) {
+            throw new IndexOutOfBoundsException("Id de llamada inexistente: " + id);
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package com.fmigliaro.almundo.model;
 
+import java.util.Set;
+
 /**
  * POJO que Representa a un empleado Director.<p/>
  *
@@ -11,8 +13,17 @@ public class Director extends Employee {
         super(name);
     }
 
+    public Director(String name, Set<String> skills) {
+        super(name, skills);
+    }
+
+    @Override
+    public Tier getTier() {
+        return Tier.DIRECTOR;
+    }
+
     @Override
-    public String toString() {
-        return "Director[nombre=" + getName() + "]";
+    String getTypeName() {
+        return "Director";
     }
 }
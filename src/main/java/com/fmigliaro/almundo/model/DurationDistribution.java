@@ -0,0 +1,75 @@
+package com.fmigliaro.almundo.model;
+
+import com.fmigliaro.almundo.metrics.Histogram;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Distribución de la duración de las llamadas, definida por su función cuantil (la inversa de la función de<br/>
+ * distribución acumulada). Para obtener una duración aleatoria basta con evaluarla en un número uniforme en [0, 1),<br/>
+ * por lo que la distribución no depende de ninguna fuente de números aleatorios en particular y puede usarse tanto<br/>
+ * con {@link java.util.concurrent.ThreadLocalRandom} como con {@link java.util.SplittableRandom} (ver {@link CallFactory}).
+ */
+public interface DurationDistribution {
+
+    /**
+     * @param p Probabilidad en el intervalo [0, 1).
+     * @return La duración, en milisegundos, tal que una fracción <code>p</code> de las llamadas dura menos que ella.
+     */
+    int quantileMs(double p);
+
+    /**
+     * Todas las llamadas duran lo mismo.
+     */
+    static DurationDistribution fixed(int durationMs) {
+        return p -> durationMs;
+    }
+
+    /**
+     * Duraciones enteras uniformemente distribuidas en el rango [minMs, maxMs].
+     */
+    static DurationDistribution uniform(int minMs, int maxMs) {
+
+        if (minMs > maxMs) {
+            throw new IllegalArgumentException("La duración mínima no puede superar a la máxima.");
+        }
+        return p -> minMs + (int) (p * ((long) maxMs - minMs + 1));
+    }
+
+    /**
+     * Duraciones exponenciales: la mayoría de las llamadas son cortas y unas pocas muy largas.
+     */
+    static DurationDistribution exponential(double meanMs) {
+
+        if (meanMs <= 0) {
+            throw new IllegalArgumentException("La duración media debe ser positiva.");
+        }
+        return p -> DurationDistributions.toMs(-meanMs * Math.log(1 - p));
+    }
+
+    /**
+     * Duraciones log-normales, habituales en la duración de llamadas de un call center.
+     *
+     * @param medianMs Mediana de la duración.
+     * @param sigma Desvío estándar del logaritmo de la duración; cuanto mayor, más larga la cola de la distribución.
+     */
+    static DurationDistribution logNormal(double medianMs, double sigma) {
+
+        if (medianMs <= 0 || sigma < 0) {
+            throw new IllegalArgumentException("La mediana debe ser positiva y sigma no negativo.");
+        }
+        return p -> DurationDistributions.toMs(medianMs * Math.exp(sigma * DurationDistributions.inverseNormal(p)));
+    }
+
+    /**
+     * Distribución empírica, obtenida de duraciones registradas en un {@link Histogram} (por ejemplo, el tiempo de<br/>
+     * atención de {@link com.fmigliaro.almundo.metrics.CallMetrics}). Los cuantiles se precalculan, por lo que<br/>
+     * evaluar la distribución no recorre el histograma.
+     *
+     * @param histogram Histograma de duraciones, con al menos un valor.
+     * @param unit Unidad de los valores del histograma.
+     */
+    static DurationDistribution empirical(Histogram histogram, TimeUnit unit) {
+        return new DurationDistributions.Empirical(histogram, unit);
+    }
+}
@@ -0,0 +1,84 @@
+package com.fmigliaro.almundo.model;
+
+import com.fmigliaro.almundo.metrics.Histogram;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Implementaciones de soporte de {@link DurationDistribution}.
+ */
+final class DurationDistributions {
+
+    private static final double[] A = {-3.969683028665376e+01, 2.209460984245205e+02, -2.759285104469687e+02,
+            1.383577518672690e+02, -3.066479806614716e+01, 2.506628277459239e+00};
+    private static final double[] B = {-5.447609879822406e+01, 1.615858368580409e+02, -1.556989798598866e+02,
+            6.680131188771972e+01, -1.328068155288572e+01};
+    private static final double[] C = {-7.784894002430293e-03, -3.223964580411365e-01, -2.400758277161838e+00,
+            -2.549732539343734e+00, 4.374664141464968e+00, 2.938163982698783e+00};
+    private static final double[] D = {7.784695709041462e-03, 3.224671290700398e-01, 2.445134137142996e+00,
+            3.754408661907416e+00};
+    private static final double P_LOW = 0.02425;
+
+    private DurationDistributions() {
+    }
+
+    static int toMs(double durationMs) {
+        return (int) Math.min(Integer.MAX_VALUE, Math.max(0, Math.round(durationMs)));
+    }
+
+    /**
+     * Inversa de la función de distribución normal estándar (aproximación racional de P. J. Acklam, con error<br/>
+     * relativo menor a 1,15e-9).
+     */
+    static double inverseNormal(double p) {
+
+        if (p <= 0) {
+            return Double.NEGATIVE_INFINITY;
+        }
+        if (p < P_LOW) {
+            final double q = Math.sqrt(-2 * Math.log(p));
+            return (((((C[0] * q + C[1]) * q + C[2]) * q + C[3]) * q + C[4]) * q + C[5]) /
+                    ((((D[0] * q + D[1]) * q + D[2]) * q + D[3]) * q + 1);
+        }
+        if (p <= 1 - P_LOW) {
+            final double q = p - 0.5;
+            final double r = q * q;
+            return (((((A[0] * r + A[1]) * r + A[2]) * r + A[3]) * r + A[4]) * r + A[5]) * q /
+                    (((((B[0] * r + B[1]) * r + B[2]) * r + B[3]) * r + B[4]) * r + 1);
+        }
+        return -inverseNormal(1 - p);
+    }
+
+    /**
+     * Distribución empírica: se precalculan {@link #QUANTILES} cuantiles equiespaciados del histograma y se<br/>
+     * interpola linealmente entre ellos.
+     */
+    static final class Empirical implements DurationDistribution {
+
+        private static final int QUANTILES = 1024;
+
+        private final double[] quantilesMs = new double[QUANTILES + 1];
+
+        Empirical(Histogram histogram, TimeUnit unit) {
+
+            if (histogram.getCount() == 0) {
+                throw new IllegalArgumentException("El histograma no tiene valores registrados.");
+            }
+            final double unitsPerMs = unit.convert(1, TimeUnit.MILLISECONDS);
+            final double msPerUnit = unitsPerMs > 0 ? 1 / unitsPerMs : TimeUnit.MILLISECONDS.convert(1, unit);
+
+            for (int i = 0; i <= QUANTILES; i++) {
+                quantilesMs[i] = histogram.getValueAtPercentile(100.0 * i / QUANTILES) * msPerUnit;
+            }
+        }
+
+        @Override
+        public int quantileMs(double p) {
+
+            final double position = Math.min(Math.max(p, 0), 1) * QUANTILES;
+            final int index = Math.min((int) position, QUANTILES - 1);
+            final double fraction = position - index;
+            return toMs(quantilesMs[index] + (quantilesMs[index + 1] - quantilesMs[index]) * fraction);
+        }
+    }
+}
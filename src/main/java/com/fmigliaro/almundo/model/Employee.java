@@ -1,19 +1,68 @@
 package com.fmigliaro.almundo.model;
 
+import org.apache.logging.log4j.util.StringBuilderFormattable;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
 /**
- * Clase abstracta que representa a un empleado.<p/>
+ * Clase abstracta que representa a un empleado.<br/>
+ * Cada empleado pertenece a un {@link Tier} (definido por su tipo) y puede tener un conjunto de habilidades (por<br/>
+ * ejemplo, idiomas o productos) que determinan qué llamadas puede atender.<br/>
+ * Al loguearse como parámetro, el empleado se escribe directamente en el buffer del mensaje, sin crear Strings.<p/>
  *
  * Created by Francisco Migliaro on 07/12/2017.
  */
-public abstract class Employee {
+public abstract class Employee implements StringBuilderFormattable {
 
+    private static final AtomicInteger idSeq = new AtomicInteger();
+
+    private final int id = idSeq.incrementAndGet();
     private String name;
+    private Set<String> skills;
 
     public Employee(String name) {
+        this(name, Collections.emptySet());
+    }
+
+    public Employee(String name, Set<String> skills) {
         this.name = name;
+        this.skills = Collections.unmodifiableSet(new HashSet<>(skills));
+    }
+
+    /**
+     * @return Identificador numérico del empleado, único dentro de la JVM.
+     */
+    public int getId() {
+        return id;
     }
 
-    String getName() {
+    public String getName() {
         return name;
     }
+
+    public Set<String> getSkills() {
+        return skills;
+    }
+
+    public abstract Tier getTier();
+
+    /**
+     * @return Nombre del tipo de empleado, tal como se muestra en {@link #toString()}.
+     */
+    abstract String getTypeName();
+
+    @Override
+    public void formatTo(StringBuilder buffer) {
+        buffer.append(getTypeName()).append("[nombre=").append(name).append(']');
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder();
+        formatTo(sb);
+        return sb.toString();
+    }
 }
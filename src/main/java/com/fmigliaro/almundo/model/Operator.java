@@ -1,5 +1,7 @@
 package com.fmigliaro.almundo.model;
 
+import java.util.Set;
+
 /**
  * POJO que Representa a un empleado Operador.<p/>
  *
@@ -11,8 +13,17 @@ public class Operator extends Employee {
         super(name);
     }
 
+    public Operator(String name, Set<String> skills) {
+        super(name, skills);
+    }
+
+    @Override
+    public Tier getTier() {
+        return Tier.OPERATOR;
+    }
+
     @Override
-    public String toString() {
-        return "Operador[nombre=" + getName() + "]";
+    String getTypeName() {
+        return "Operador";
     }
 }
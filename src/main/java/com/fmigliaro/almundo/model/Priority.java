@@ -0,0 +1,11 @@
+package com.fmigliaro.almundo.model;
+
+/**
+ * Prioridad de una llamada. Las constantes están definidas de menor a mayor prioridad, por lo que puede utilizarse<br/>
+ * el orden natural del enum para compararlas.
+ */
+public enum Priority {
+
+    LOW, NORMAL, HIGH, URGENT
+
+}
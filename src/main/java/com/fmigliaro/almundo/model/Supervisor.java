@@ -1,5 +1,7 @@
 package com.fmigliaro.almundo.model;
 
+import java.util.Set;
+
 /**
  * POJO que Representa a un empleado Supervisor.<p/>
  *
@@ -11,8 +13,17 @@ public class Supervisor extends Employee {
         super(name);
     }
 
+    public Supervisor(String name, Set<String> skills) {
+        super(name, skills);
+    }
+
+    @Override
+    public Tier getTier() {
+        return Tier.SUPERVISOR;
+    }
+
     @Override
-    public String toString() {
-        return "Supervisor[nombre=" + getName() + "]";
+    String getTypeName() {
+        return "Supervisor";
     }
 }
@@ -0,0 +1,11 @@
+package com.fmigliaro.almundo.model;
+
+/**
+ * Nivel jerárquico de un empleado. Las constantes están definidas en el orden en que, por defecto, se asignan las<br/>
+ * llamadas: primero a Operadores, luego a Supervisores y por último a Directores.
+ */
+public enum Tier {
+
+    OPERATOR, SUPERVISOR, DIRECTOR
+
+}
@@ -0,0 +1,105 @@
+package com.fmigliaro.almundo.simulation;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.SplittableRandom;
+
+/**
+ * Define los instantes en que ingresan las llamadas, ya sea en tiempo simulado (simulación) o en milisegundos desde<br/>
+ * el inicio de una prueba de carga.
+ */
+public interface ArrivalSchedule {
+
+    /**
+     * @param previousArrivalMs Instante de ingreso de la llamada anterior (0 para la primera llamada).
+     * @return Instante de ingreso de la próxima llamada, mayor o igual a <code>previousArrivalMs</code>.
+     */
+    long nextArrivalMs(long previousArrivalMs);
+
+    /**
+     * Llamadas que ingresan a intervalos regulares.
+     */
+    static ArrivalSchedule fixedInterval(long intervalMs) {
+
+        if (intervalMs < 0) {
+            throw new IllegalArgumentException("El intervalo entre llamadas no puede ser negativo.");
+        }
+        return previousArrivalMs -> previousArrivalMs + intervalMs;
+    }
+
+    /**
+     * Llamadas que ingresan según un proceso de Poisson: los intervalos entre llamadas siguen una distribución<br/>
+     * exponencial. Con la misma semilla se obtiene siempre la misma secuencia de ingresos.
+     *
+     * @param callsPerSecond Tasa media de ingreso de llamadas.
+     * @param seed Semilla del generador de números aleatorios.
+     */
+    static ArrivalSchedule poisson(double callsPerSecond, long seed) {
+
+        if (callsPerSecond <= 0) {
+            throw new IllegalArgumentException("La tasa de ingreso de llamadas debe ser positiva.");
+        }
+        final SplittableRandom random = new SplittableRandom(seed);
+        final double meanIntervalMs = 1000 / callsPerSecond;
+
+        return previousArrivalMs -> previousArrivalMs + Math.round(-Math.log(1 - random.nextDouble()) * meanIntervalMs);
+    }
+
+    /**
+     * Llamadas que ingresan en los instantes registrados en una traza, por ejemplo obtenida de un día real de<br/>
+     * operación (ver {@link #readTrace}). La traza se recorre una única vez.
+     *
+     * @param arrivalsMs Instantes de ingreso, en milisegundos, en orden no decreciente.
+     * @throws NoSuchElementException Al pedir un ingreso luego de agotada la traza.
+     */
+    static ArrivalSchedule trace(long... arrivalsMs) {
+
+        for (int i = 1; i < arrivalsMs.length; i++) {
+            if (arrivalsMs[i] < arrivalsMs[i - 1]) {
+                throw new IllegalArgumentException("Los instantes de la traza deben estar en orden no decreciente.");
+            }
+        }
+        final long[] arrivals = arrivalsMs.clone();
+        final int[] next = new int[1];
+
+        return previousArrivalMs -> {
+            if (next[0] == arrivals.length) {
+                throw new NoSuchElementException("La traza de " + arrivals.length + " ingresos se agotó.");
+            }
+            return Math.max(previousArrivalMs, arrivals[next[0]++]);
+        };
+    }
+
+    /**
+     * Lee una traza de ingresos: un instante en milisegundos por línea. Se ignoran las líneas vacías y las que<br/>
+     * comienzan con <code>#</code>.
+     */
+    static long[] readTrace(Path file) throws IOException {
+
+        long[] arrivals = new long[1024];
+        int count = 0;
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                if (count == arrivals.length) {
+                    arrivals = Arrays.copyOf(arrivals, count * 2);
+                }
+                try {
+                    arrivals[count++] = Long.parseLong(line);
+                } catch (NumberFormatException nfe) {
+                    throw new IOException("Instante inválido en la traza " + file + ": " + line, nfe);
+                }
+            }
+        }
+        return Arrays.copyOf(arrivals, count);
+    }
+}
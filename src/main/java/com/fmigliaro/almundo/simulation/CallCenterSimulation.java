@@ -0,0 +1,355 @@
+package com.fmigliaro.almundo.simulation;
+
+import com.fmigliaro.almundo.controller.handler.WaitingOrder;
+import com.fmigliaro.almundo.model.Call;
+import com.fmigliaro.almundo.model.CallStore;
+import com.fmigliaro.almundo.model.Priority;
+import com.fmigliaro.almundo.model.Tier;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.PrimitiveIterator;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Simulación de eventos discretos del call center, pensada para planificar la dotación de empleados.<p/>
+ *
+ * Reproduce las mismas reglas de asignación que la cadena de handlers: cada llamada se asigna a un Operador, si no<br/>
+ * hay ninguno disponible a un Supervisor, y si tampoco a un Director. Si todos están ocupados, la llamada espera<br/>
+ * y, al liberarse cualquier empleado, éste atiende a la próxima llamada en espera según el {@link WaitingOrder}<br/>
+ * configurado (por defecto, la más antigua). A diferencia de la cadena, las llamadas pueden abandonar si esperan<br/>
+ * más que la paciencia configurada. Las llamadas simuladas tienen prioridad {@link Priority#NORMAL}.<p/>
+ *
+ * El tiempo es virtual: no hay threads ni esperas, sino una cola de eventos (ingresos y finalizaciones de<br/>
+ * llamadas) que se procesa en orden cronológico. Las llamadas se consumen de un iterador o de un {@link CallStore}<br/>
+ * y no se retienen, y el estado de la simulación se guarda en arreglos de primitivos, por lo que pueden simularse<br/>
+ * millones de llamadas en pocos segundos de CPU.<br/>
+ * Esta clase no es thread-safe: cada simulación debe ejecutarse en un único thread.
+ */
+public class CallCenterSimulation {
+
+    /**
+     * Paciencia que indica que las llamadas nunca abandonan.
+     */
+    public static final long NEVER_ABANDON = Long.MAX_VALUE;
+
+    private static final Tier[] TIERS = Tier.values();
+    private static final int TIER_BITS = 2;
+    private static final long TIER_MASK = (1 << TIER_BITS) - 1;
+
+    private final int[] employeesByTier;
+    private final long patienceMs;
+    private final WaitingOrder waitingOrder;
+
+    /**
+     * @param operators Cantidad de Operadores.
+     * @param supervisors Cantidad de Supervisores.
+     * @param directors Cantidad de Directores.
+     * @param patienceMs Tiempo máximo que una llamada espera a un empleado antes de abandonar, o
+     *                   {@link #NEVER_ABANDON}.
+     */
+    public CallCenterSimulation(int operators, int supervisors, int directors, long patienceMs) {
+        this(operators, supervisors, directors, patienceMs, WaitingOrder.FIFO);
+    }
+
+    /**
+     * Permite simular un orden de atención de las llamadas en espera distinto al de llegada, de manera de comparar<br/>
+     * las esperas resultantes de cada política antes de configurarla en la cadena de handlers.
+     */
+    public CallCenterSimulation(int operators, int supervisors, int directors, long patienceMs,
+                                WaitingOrder waitingOrder) {
+
+        if (operators < 0 || supervisors < 0 || directors < 0 || operators + supervisors + directors == 0) {
+            throw new IllegalArgumentException("La dotación debe tener al menos un empleado y ninguna cantidad negativa.");
+        }
+        if (patienceMs < 0) {
+            throw new IllegalArgumentException("La paciencia de las llamadas no puede ser negativa.");
+        }
+        this.employeesByTier = new int[]{operators, supervisors, directors};
+        this.patienceMs = patienceMs;
+        this.waitingOrder = waitingOrder;
+    }
+
+    /**
+     * Ejecuta la simulación hasta que todas las llamadas fueron atendidas o abandonaron.
+     *
+     * @param calls Las llamadas a simular, con su duración.
+     * @param arrivals Instantes de ingreso de las llamadas.
+     * @return El resultado de la simulación.
+     */
+    public SimulationReport run(Iterator<Call> calls, ArrivalSchedule arrivals) {
+
+        return run(new PrimitiveIterator.OfInt() {
+            @Override
+            public boolean hasNext() {
+                return calls.hasNext();
+            }
+
+            @Override
+            public int nextInt() {
+                return calls.next().getDurationMs();
+            }
+        }, arrivals);
+    }
+
+    /**
+     * Ejecuta la simulación sobre llamadas almacenadas en forma compacta, sin crear ningún objeto por llamada.
+     *
+     * @param calls Las llamadas a simular, en el orden de sus ids.
+     * @param arrivals Instantes de ingreso de las llamadas.
+     * @return El resultado de la simulación.
+     */
+    public SimulationReport run(CallStore calls, ArrivalSchedule arrivals) {
+        return run(calls.durations(), arrivals);
+    }
+
+    private SimulationReport run(PrimitiveIterator.OfInt durationsMs, ArrivalSchedule arrivals) {
+
+        final SimulationReport report = new SimulationReport(employeesByTier);
+        final int[] idleByTier = employeesByTier.clone();
+        final CompletionHeap completions = new CompletionHeap();
+        final WaitingLine waitingLine = new WaitingLine(waitingOrder);
+
+        long now = 0;
+        long nextArrivalMs = arrivals.nextArrivalMs(0);
+        boolean pendingArrival = durationsMs.hasNext();
+        int nextDurationMs = pendingArrival ? durationsMs.nextInt() : 0;
+
+        while (pendingArrival || !completions.isEmpty()) {
+
+            //Ante un empate se procesa primero la finalización, de manera que el empleado liberado pueda atender a
+            //la llamada que ingresa en ese mismo instante.
+            if (!completions.isEmpty() && (!pendingArrival || completions.peekTime() <= nextArrivalMs)) {
+                final long completion = completions.poll();
+                final int tier = (int) (completion & TIER_MASK);
+                now = completion >>> TIER_BITS;
+
+                if (!serveWaiting(tier, now, waitingLine, completions, report)) {
+                    idleByTier[tier]++;
+                }
+            } else {
+                now = nextArrivalMs;
+                report.recordArrival();
+
+                final int tier = firstIdleTier(idleByTier);
+                if (tier >= 0) {
+                    idleByTier[tier]--;
+                    assign(tier, now, 0, nextDurationMs, completions, report);
+                } else {
+                    waitingLine.add(now, nextDurationMs);
+                }
+                pendingArrival = durationsMs.hasNext();
+                if (pendingArrival) {
+                    nextDurationMs = durationsMs.nextInt();
+                    nextArrivalMs = arrivals.nextArrivalMs(now);
+                }
+            }
+        }
+        //Sin empleados ocupados, las llamadas que quedan en espera son las que ya abandonaron.
+        while (!waitingLine.isEmpty()) {
+            report.recordAbandonment(patienceMs);
+            waitingLine.remove();
+        }
+        report.finish(now);
+        return report;
+    }
+
+    /**
+     * El empleado liberado atiende a la próxima llamada en espera que aún no haya abandonado.
+     *
+     * @return true si el empleado quedó atendiendo una llamada, false si quedó disponible.
+     */
+    private boolean serveWaiting(int tier, long now, WaitingLine waitingLine, CompletionHeap completions,
+                                 SimulationReport report) {
+
+        while (!waitingLine.isEmpty()) {
+            final long waitMs = now - waitingLine.peekArrival();
+            final long durationMs = waitingLine.peekDuration();
+            waitingLine.remove();
+
+            if (waitMs > patienceMs) {
+                report.recordAbandonment(patienceMs);
+            } else {
+                assign(tier, now, waitMs, durationMs, completions, report);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void assign(int tier, long now, long waitMs, long durationMs, CompletionHeap completions,
+                               SimulationReport report) {
+
+        report.recordAssignment(TIERS[tier], waitMs, durationMs);
+        completions.add((now + durationMs) << TIER_BITS | tier);
+    }
+
+    private static int firstIdleTier(int[] idleByTier) {
+
+        for (int tier = 0; tier < idleByTier.length; tier++) {
+            if (idleByTier[tier] > 0) {
+                return tier;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Min-heap de finalizaciones de llamadas. Cada finalización se codifica en un único <code>long</code>: el<br/>
+     * instante en los bits altos y el nivel del empleado en los {@link #TIER_BITS} bits bajos.
+     */
+    private static final class CompletionHeap {
+
+        private long[] heap = new long[64];
+        private int size;
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        long peekTime() {
+            return heap[0] >>> TIER_BITS;
+        }
+
+        void add(long value) {
+
+            if (size == heap.length) {
+                heap = Arrays.copyOf(heap, size * 2);
+            }
+            int child = size++;
+            while (child > 0) {
+                final int parent = (child - 1) >>> 1;
+                if (heap[parent] <= value) {
+                    break;
+                }
+                heap[child] = heap[parent];
+                child = parent;
+            }
+            heap[child] = value;
+        }
+
+        long poll() {
+
+            final long result = heap[0];
+            final long last = heap[--size];
+            int parent = 0;
+
+            while (true) {
+                int child = 2 * parent + 1;
+                if (child >= size) {
+                    break;
+                }
+                if (child + 1 < size && heap[child + 1] < heap[child]) {
+                    child++;
+                }
+                if (last <= heap[child]) {
+                    break;
+                }
+                heap[parent] = heap[child];
+                parent = child;
+            }
+            heap[parent] = last;
+            return result;
+        }
+    }
+
+    /**
+     * Llamadas en espera, ordenadas según el {@link WaitingOrder} de la simulación: un min-heap sobre arreglos de<br/>
+     * primitivos, cuya clave es el rango de la llamada y, ante un empate, su orden de llegada.
+     */
+    private static final class WaitingLine {
+
+        private final WaitingOrder order;
+        private long[] ranks = new long[64];
+        private long[] sequences = new long[64];
+        private long[] arrivals = new long[64];
+        private long[] durations = new long[64];
+        private int size;
+        private long nextSequence;
+
+        private WaitingLine(WaitingOrder order) {
+            this.order = order;
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        void add(long arrivalMs, long durationMs) {
+
+            if (size == arrivals.length) {
+                grow();
+            }
+            final long rank = order.rank((int) durationMs, Priority.NORMAL, TimeUnit.MILLISECONDS.toNanos(arrivalMs));
+            final long sequence = nextSequence++;
+            int child = size++;
+            while (child > 0) {
+                final int parent = (child - 1) >>> 1;
+                if (!before(rank, sequence, parent)) {
+                    break;
+                }
+                move(parent, child);
+                child = parent;
+            }
+            set(child, rank, sequence, arrivalMs, durationMs);
+        }
+
+        long peekArrival() {
+            return arrivals[0];
+        }
+
+        long peekDuration() {
+            return durations[0];
+        }
+
+        void remove() {
+
+            final int last = --size;
+            final long rank = ranks[last];
+            final long sequence = sequences[last];
+            int parent = 0;
+
+            while (true) {
+                int child = 2 * parent + 1;
+                if (child >= size) {
+                    break;
+                }
+                if (child + 1 < size && before(ranks[child + 1], sequences[child + 1], child)) {
+                    child++;
+                }
+                if (!before(ranks[child], sequences[child], rank, sequence)) {
+                    break;
+                }
+                move(child, parent);
+                parent = child;
+            }
+            set(parent, rank, sequence, arrivals[last], durations[last]);
+        }
+
+        private boolean before(long rank, long sequence, int index) {
+            return before(rank, sequence, ranks[index], sequences[index]);
+        }
+
+        private static boolean before(long rank, long sequence, long otherRank, long otherSequence) {
+            return rank < otherRank || (rank == otherRank && sequence < otherSequence);
+        }
+
+        private void move(int from, int to) {
+            set(to, ranks[from], sequences[from], arrivals[from], durations[from]);
+        }
+
+        private void set(int index, long rank, long sequence, long arrivalMs, long durationMs) {
+            ranks[index] = rank;
+            sequences[index] = sequence;
+            arrivals[index] = arrivalMs;
+            durations[index] = durationMs;
+        }
+
+        private void grow() {
+            ranks = Arrays.copyOf(ranks, ranks.length * 2);
+            sequences = Arrays.copyOf(sequences, sequences.length * 2);
+            arrivals = Arrays.copyOf(arrivals, arrivals.length * 2);
+            durations = Arrays.copyOf(durations, durations.length * 2);
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package com.fmigliaro.almundo.simulation;
+
+import com.fmigliaro.almundo.metrics.Histogram;
+import com.fmigliaro.almundo.model.Tier;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Resultado de una simulación: utilización y tiempos de espera de cada nivel de empleados, y llamadas abandonadas.<p/>
+ *
+ * Los tiempos de espera se miden desde el ingreso de la llamada hasta que se le asigna un empleado, y se<br/>
+ * contabilizan en el nivel del empleado que finalmente la atendió. Las llamadas abandonadas no llegan a ser<br/>
+ * atendidas por ningún nivel, por lo que se informan en forma global.
+ */
+public class SimulationReport {
+
+    private final Map<Tier, TierReport> tierReports = new EnumMap<>(Tier.class);
+    private final Histogram abandonedWaitTimes = new Histogram();
+    private long callCount;
+    private long simulatedTimeMs;
+
+    SimulationReport(int[] employeesByTier) {
+        for (Tier tier : Tier.values()) {
+            tierReports.put(tier, new TierReport(employeesByTier[tier.ordinal()]));
+        }
+    }
+
+    void recordArrival() {
+        callCount++;
+    }
+
+    void recordAssignment(Tier tier, long waitMs, long durationMs) {
+        final TierReport tierReport = tierReports.get(tier);
+        tierReport.waitTimes.record(waitMs);
+        tierReport.busyTimeMs += durationMs;
+    }
+
+    void recordAbandonment(long waitMs) {
+        abandonedWaitTimes.record(waitMs);
+    }
+
+    void finish(long simulatedTimeMs) {
+        this.simulatedTimeMs = simulatedTimeMs;
+    }
+
+    public TierReport getTierReport(Tier tier) {
+        return tierReports.get(tier);
+    }
+
+    public long getCallCount() {
+        return callCount;
+    }
+
+    public long getAbandonedCount() {
+        return abandonedWaitTimes.getCount();
+    }
+
+    public double getAbandonmentRate() {
+        return callCount == 0 ? 0 : (double) getAbandonedCount() / callCount;
+    }
+
+    /**
+     * @return Tiempo que esperaron las llamadas abandonadas antes de abandonar.
+     */
+    public Histogram getAbandonedWaitTimes() {
+        return abandonedWaitTimes;
+    }
+
+    /**
+     * @return Instante, en tiempo simulado, en que finalizó la última llamada.
+     */
+    public long getSimulatedTimeMs() {
+        return simulatedTimeMs;
+    }
+
+    @Override
+    public String toString() {
+
+        final StringBuilder sb = new StringBuilder("SimulationReport{calls=").append(callCount)
+                .append(", simulatedTimeMs=").append(simulatedTimeMs)
+                .append(", abandoned=").append(getAbandonedCount());
+
+        for (Map.Entry<Tier, TierReport> entry : tierReports.entrySet()) {
+            sb.append(", ").append(entry.getKey()).append('=').append(entry.getValue());
+        }
+        return sb.append('}').toString();
+    }
+
+    /**
+     * Resultado de la simulación para un nivel de empleados.
+     */
+    public final class TierReport {
+
+        private final int employees;
+        private final Histogram waitTimes = new Histogram();
+        private long busyTimeMs;
+
+        private TierReport(int employees) {
+            this.employees = employees;
+        }
+
+        public int getEmployees() {
+            return employees;
+        }
+
+        public long getServedCount() {
+            return waitTimes.getCount();
+        }
+
+        /**
+         * @return Fracción del tiempo simulado durante la cual los empleados del nivel estuvieron atendiendo llamadas.
+         */
+        public double getUtilization() {
+            return employees == 0 || simulatedTimeMs == 0 ? 0 : (double) busyTimeMs / employees / simulatedTimeMs;
+        }
+
+        /**
+         * @return Tiempo que esperaron, hasta ser asignadas, las llamadas atendidas por este nivel.
+         */
+        public Histogram getWaitTimes() {
+            return waitTimes;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("{employees=%d, served=%d, utilization=%.3f, meanWaitMs=%.1f, p95WaitMs=%d}",
+                    employees, getServedCount(), getUtilization(), waitTimes.getMean(),
+                    waitTimes.getValueAtPercentile(95));
+        }
+    }
+}
@@ -0,0 +1,253 @@
+package com.fmigliaro.almundo.utility;
+
+import com.fmigliaro.almundo.model.Call;
+import com.fmigliaro.almundo.model.Employee;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Implementación asincrónica de {@link CallRegistrationAware}, que quita la escritura de las registraciones del<br/>
+ * camino crítico de la asignación de empleados.<p/>
+ *
+ * Las registraciones se publican en un buffer circular sin locks (al estilo del Disruptor): cada productor reserva<br/>
+ * una secuencia con un único compare-and-set, escribe el evento en el slot correspondiente y lo publica. Se publican<br/>
+ * tanto las registraciones de empleados como las finalizaciones de llamadas ({@link #callCompleted}), en arrays<br/>
+ * preasignados, por lo que publicar no crea objetos. Un único thread consumidor entrega los eventos al<br/>
+ * {@link CallRegistrationSink} en el orden de las secuencias, en lotes formados por todos los eventos publicados de<br/>
+ * manera consecutiva. Sin eventos pendientes, el consumidor se bloquea hasta que un productor lo despierte.<p/>
+ *
+ * Registrar nunca bloquea: si el buffer está lleno porque el sink no logra seguir el ritmo, la registración se<br/>
+ * descarta y se contabiliza (ver {@link #getDroppedCount()}). El tamaño del buffer debe dimensionarse para absorber<br/>
+ * las ráfagas esperadas. Puede reservarse un buffer mayor y limitar su capacidad efectiva, la cual puede ajustarse<br/>
+ * mientras se registran llamadas (por ejemplo, según la cantidad de empleados; ver {@link #setCapacity}).
+ */
+public class AsyncCallRegistration implements CallRegistrationAware, AutoCloseable {
+
+    private static final Logger log = LogManager.getLogger(AsyncCallRegistration.class);
+    private static final int SPINS_BEFORE_PARK = 100;
+    /**
+     * Bit de la próxima secuencia a reservar que indica que el buffer fue cerrado. Una vez activado, ninguna<br/>
+     * reserva puede completarse, dado que su compare-and-set espera el valor sin este bit.
+     */
+    private static final long CLOSED = Long.MIN_VALUE;
+
+    private final CallRegistrationSink sink;
+    private final Employee[] employees;
+    private final Call[] calls;
+    private final long[] assignedNanos;
+    private final long[] endNanos;
+    private final AtomicLongArray published;
+    private final int mask;
+    private final AtomicLong nextToClaim = new AtomicLong();
+    private final AtomicLong nextToConsume = new AtomicLong();
+    private final LongAdder dropped = new LongAdder();
+    private final Thread consumer;
+    private volatile boolean consumerParked;
+    private volatile int capacity;
+
+    /**
+     * Crea el buffer e inicia el thread consumidor.
+     *
+     * @param sink Destino de las registraciones.
+     * @param capacity Cantidad máxima de registraciones pendientes de entrega. Debe ser una potencia de 2.
+     */
+    public AsyncCallRegistration(CallRegistrationSink sink, int capacity) {
+        this(sink, capacity, capacity);
+    }
+
+    /**
+     * Crea el buffer con su tamaño máximo, limitando su capacidad efectiva.
+     *
+     * @param sink Destino de las registraciones.
+     * @param capacity Cantidad máxima inicial de registraciones pendientes de entrega.
+     * @param maxCapacity Tamaño del buffer, hasta el cual puede ampliarse la capacidad. Debe ser una potencia de 2.
+     */
+    public AsyncCallRegistration(CallRegistrationSink sink, int capacity, int maxCapacity) {
+
+        if (maxCapacity < 1 || Integer.bitCount(maxCapacity) != 1) {
+            throw new IllegalArgumentException("La capacidad del buffer de registraciones debe ser una potencia de 2.");
+        }
+        this.sink = sink;
+        this.employees = new Employee[maxCapacity];
+        this.calls = new Call[maxCapacity];
+        this.assignedNanos = new long[maxCapacity];
+        this.endNanos = new long[maxCapacity];
+        this.published = new AtomicLongArray(maxCapacity);
+        this.mask = maxCapacity - 1;
+        setCapacity(capacity);
+
+        for (int i = 0; i < maxCapacity; i++) {
+            published.set(i, -1);
+        }
+        this.consumer = new Thread(this::consume, "call-registration");
+        this.consumer.setDaemon(true);
+        this.consumer.start();
+    }
+
+    @Override
+    public void addEmployeeInCallProcessingOrder(Employee employee) {
+
+        if (employee == null) {
+            return;
+        }
+        final long sequence = claim();
+        if (sequence < 0) {
+            return;
+        }
+        final int index = (int) sequence & mask;
+        employees[index] = employee;
+        calls[index] = null;
+        publish(index, sequence);
+    }
+
+    @Override
+    public void callCompleted(Call call, Employee employee, long assignedNanos, long endNanos) {
+
+        final long sequence = claim();
+        if (sequence < 0) {
+            return;
+        }
+        final int index = (int) sequence & mask;
+        employees[index] = employee;
+        calls[index] = call;
+        this.assignedNanos[index] = assignedNanos;
+        this.endNanos[index] = endNanos;
+        publish(index, sequence);
+    }
+
+    /**
+     * @return La secuencia reservada, o -1 si el buffer está lleno o cerrado, en cuyo caso el evento se descarta.
+     */
+    private long claim() {
+
+        long sequence;
+        do {
+            sequence = nextToClaim.get();
+            if ((sequence & CLOSED) != 0 || sequence - nextToConsume.get() >= capacity) {
+                dropped.increment();
+                return -1;
+            }
+        } while (!nextToClaim.compareAndSet(sequence, sequence + 1));
+
+        return sequence;
+    }
+
+    /**
+     * La escritura volatile garantiza que el consumidor vea el evento antes que la secuencia publicada, y que la<br/>
+     * lectura posterior de {@link #consumerParked} no se adelante a la publicación: si el consumidor se bloqueó sin<br/>
+     * ver el evento, este productor lo ve bloqueado y lo despierta.
+     */
+    private void publish(int index, long sequence) {
+
+        published.set(index, sequence);
+        if (consumerParked) {
+            LockSupport.unpark(consumer);
+        }
+    }
+
+    /**
+     * Ajusta la cantidad máxima de registraciones pendientes de entrega, entre 1 y el tamaño del buffer. Al reducirla,<br/>
+     * las registraciones ya reservadas se entregan igualmente.
+     */
+    public void setCapacity(int capacity) {
+        this.capacity = Math.max(1, Math.min(capacity, employees.length));
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * @return Cantidad de eventos descartados por encontrarse el buffer lleno o cerrado.
+     */
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    /**
+     * @return Cantidad de registraciones reservadas y aún no entregadas al sink.
+     */
+    public long getPendingCount() {
+        return (nextToClaim.get() & ~CLOSED) - nextToConsume.get();
+    }
+
+    /**
+     * Deja de aceptar registraciones y espera a que el thread consumidor entregue todas las ya reservadas. Si el<br/>
+     * thread que cierra es interrumpido, deja de esperar y preserva su estado de interrupción; el consumidor<br/>
+     * igualmente entrega las registraciones pendientes y finaliza.
+     */
+    @Override
+    public void close() {
+
+        long sequence;
+        do {
+            sequence = nextToClaim.get();
+        } while ((sequence & CLOSED) == 0 && !nextToClaim.compareAndSet(sequence, sequence | CLOSED));
+
+        LockSupport.unpark(consumer);
+        try {
+            consumer.join();
+
+        } catch (InterruptedException ie) {
+            log.warn("Se interrumpió la espera de la entrega de {} registraciones pendientes.", getPendingCount());
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void consume() {
+
+        long next = 0;
+        int idleSpins = 0;
+
+        while (true) {
+            long available = next;
+            while (published.get((int) available & mask) == available) {
+                available++;
+            }
+            if (available > next) {
+                for (long sequence = next; sequence < available; sequence++) {
+                    deliver((int) sequence & mask, sequence == available - 1);
+                }
+                next = available;
+                nextToConsume.lazySet(next);
+                idleSpins = 0;
+
+            } else if (nextToClaim.get() == (next | CLOSED)) {
+                //Cerrado y sin reservas pendientes de publicación: ninguna reserva posterior puede completarse.
+                return;
+
+            } else if (++idleSpins < SPINS_BEFORE_PARK) {
+                Thread.yield();
+            } else {
+                consumerParked = true;
+                //Se vuelve a verificar luego de indicarlo: quien publicó antes pudo no haber visto la indicación.
+                if (published.get((int) next & mask) != next && (nextToClaim.get() & CLOSED) == 0) {
+                    LockSupport.park(this);
+                }
+                consumerParked = false;
+            }
+        }
+    }
+
+    private void deliver(int index, boolean endOfBatch) {
+
+        final Employee employee = employees[index];
+        final Call call = calls[index];
+        employees[index] = null;
+        calls[index] = null;
+        try {
+            if (call == null) {
+                sink.onRegistration(employee, endOfBatch);
+            } else {
+                sink.onCallCompleted(call, employee, assignedNanos[index], endNanos[index], endOfBatch);
+            }
+        } catch (RuntimeException re) {
+            log.error("Exception mientras se registraba al empleado {}: ", employee, re);
+        }
+    }
+}
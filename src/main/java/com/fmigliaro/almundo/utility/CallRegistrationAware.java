@@ -1,5 +1,6 @@
 package com.fmigliaro.almundo.utility;
 
+import com.fmigliaro.almundo.model.Call;
 import com.fmigliaro.almundo.model.Employee;
 
 /**
@@ -15,4 +16,17 @@ public interface CallRegistrationAware {
 
     void addEmployeeInCallProcessingOrder(Employee employee);
 
+    /**
+     * Notifica que el empleado finalizó de atender la llamada, para las implementaciones que registran el historial<br/>
+     * completo de cada llamada. Los instantes se expresan según el reloj de la cadena de handlers; el ingreso de la<br/>
+     * llamada es {@link Call#getReceivedNanos()}. Por defecto no se registra nada.
+     *
+     * @param call La llamada finalizada.
+     * @param employee El empleado que la atendió.
+     * @param assignedNanos Instante en que se asignó el empleado a la llamada.
+     * @param endNanos Instante en que el empleado finalizó la llamada.
+     */
+    default void callCompleted(Call call, Employee employee, long assignedNanos, long endNanos) {
+    }
+
 }
@@ -6,7 +6,10 @@ import org.apache.logging.log4j.Logger;
 
 /**
  * Implementación para registrar una llamada.<br/>
- * Las llamadas se registran en un log, el cual asocia la llamada con el empleado que la atendió.<p/>
+ * Las llamadas se registran en un log, el cual asocia la llamada con el empleado que la atendió.<br/>
+ * El empleado se pasa como parámetro del mensaje y log4j lo escribe directamente en su buffer<br/>
+ * ({@link Employee#formatTo}), por lo que registrar una llamada no crea Strings. Para además no bloquear al thread<br/>
+ * que atendió la llamada mientras se escribe el log, ver el modo asincrónico descripto en el README.<p/>
  *
  * Created by Francisco Migliaro on 11/12/2017.
  */
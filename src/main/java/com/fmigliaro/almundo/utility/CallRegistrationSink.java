@@ -0,0 +1,49 @@
+package com.fmigliaro.almundo.utility;
+
+import com.fmigliaro.almundo.model.Call;
+import com.fmigliaro.almundo.model.Employee;
+
+/**
+ * Destino final de las registraciones procesadas por {@link AsyncCallRegistration}.<br/>
+ * Los métodos se invocan siempre desde un único thread, por lo que las implementaciones no necesitan ser<br/>
+ * thread-safe, y pueden realizar I/O o bloquearse sin afectar el procesamiento de las llamadas.
+ */
+public interface CallRegistrationSink {
+
+    /**
+     * @param employee El empleado que atendió la llamada, en el orden en que se registró.
+     * @param endOfBatch true si es la última registración del lote disponible, lo cual permite a la implementación<br/>
+     *                   acumular registraciones y escribirlas (o hacer flush) una única vez por lote.
+     */
+    void onRegistration(Employee employee, boolean endOfBatch);
+
+    /**
+     * Finalización de una llamada (ver {@link CallRegistrationAware#callCompleted}), en el mismo orden que las<br/>
+     * registraciones. Por defecto se ignora.
+     *
+     * @param endOfBatch true si es el último evento del lote disponible.
+     */
+    default void onCallCompleted(Call call, Employee employee, long assignedNanos, long endNanos,
+                                 boolean endOfBatch) {
+    }
+
+    /**
+     * Adapta cualquier {@link CallRegistrationAware} existente, entregándole las registraciones y las finalizaciones<br/>
+     * de llamadas una por una.
+     */
+    static CallRegistrationSink of(CallRegistrationAware callReg) {
+
+        return new CallRegistrationSink() {
+            @Override
+            public void onRegistration(Employee employee, boolean endOfBatch) {
+                callReg.addEmployeeInCallProcessingOrder(employee);
+            }
+
+            @Override
+            public void onCallCompleted(Call call, Employee employee, long assignedNanos, long endNanos,
+                                        boolean endOfBatch) {
+                callReg.callCompleted(call, employee, assignedNanos, endNanos);
+            }
+        };
+    }
+}
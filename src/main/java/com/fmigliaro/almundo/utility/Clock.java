@@ -0,0 +1,83 @@
+package com.fmigliaro.almundo.utility;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Abstracción del paso del tiempo utilizada por los handlers, el {@code SkillRouter} y el control de admisión.<br/>
+ * Permite reemplazar el reloj del sistema, por ejemplo por uno comprimido en los tests, o por un reloj virtual en<br/>
+ * simulaciones.
+ */
+public interface Clock {
+
+    /**
+     * Reloj del sistema.
+     */
+    Clock SYSTEM = new Clock() {
+        @Override
+        public long nanoTime() {
+            return System.nanoTime();
+        }
+
+        @Override
+        public void sleep(long millis) throws InterruptedException {
+            TimeUnit.MILLISECONDS.sleep(millis);
+        }
+    };
+
+    /**
+     * @return Tiempo monotónico en nanosegundos, con origen arbitrario.
+     */
+    long nanoTime();
+
+    /**
+     * Bloquea al thread actual durante el tiempo indicado, medido con este reloj.
+     */
+    void sleep(long millis) throws InterruptedException;
+
+    /**
+     * Convierte una duración medida con este reloj a la duración equivalente en el reloj del sistema. Toda espera<br/>
+     * que no pase por {@link #sleep} (timeouts, schedulers) debe convertirse, para que un reloj acelerado no la<br/>
+     * demore. Por defecto, ambos relojes avanzan al mismo ritmo.
+     */
+    default long toSystemNanos(long nanos) {
+        return nanos;
+    }
+
+    /**
+     * Programa la tarea en el scheduler para dentro del tiempo indicado, medido con este reloj.
+     */
+    default ScheduledFuture<?> schedule(ScheduledExecutorService scheduler, Runnable task, long delay, TimeUnit unit) {
+        return scheduler.schedule(task, toSystemNanos(unit.toNanos(delay)), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Crea un reloj en el que el tiempo transcurre <code>speedUp</code> veces más rápido que en el reloj del<br/>
+     * sistema: una llamada de 1 segundo dura 10 milisegundos reales con <code>speedUp=100</code>.
+     */
+    static Clock accelerated(double speedUp) {
+
+        if (speedUp <= 0) {
+            throw new IllegalArgumentException("El factor de aceleración debe ser positivo.");
+        }
+        final long origin = System.nanoTime();
+
+        return new Clock() {
+            @Override
+            public long nanoTime() {
+                return origin + (long) ((System.nanoTime() - origin) * speedUp);
+            }
+
+            @Override
+            public void sleep(long millis) throws InterruptedException {
+                TimeUnit.NANOSECONDS.sleep(toSystemNanos(TimeUnit.MILLISECONDS.toNanos(millis)));
+            }
+
+            @Override
+            public long toSystemNanos(long nanos) {
+                return (long) (nanos / speedUp);
+            }
+        };
+    }
+}
@@ -0,0 +1,134 @@
+package com.fmigliaro.almundo.cluster;
+
+import com.fmigliaro.almundo.controller.handler.EmployeeHandler;
+import com.fmigliaro.almundo.controller.handler.HandlerChains;
+import com.fmigliaro.almundo.model.Call;
+import com.fmigliaro.almundo.model.Operator;
+import com.fmigliaro.almundo.utility.CallRegistrationLogger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit Tests del despacho particionado en shards.
+ */
+public class DispatchShardTest {
+
+    private static final int CALL_DURATION_MS = 300;
+    private static final long STEAL_INTERVAL_MS = 20;
+
+    private ScheduledExecutorService scheduler;
+    private LoopbackTransport transport;
+
+    @Before
+    public void setUp() {
+        scheduler = Executors.newScheduledThreadPool(2);
+        transport = new LoopbackTransport();
+    }
+
+    @After
+    public void tearDown() throws InterruptedException {
+        scheduler.shutdown();
+        scheduler.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Mientras el shard local tenga empleados disponibles, las llamadas se atienden localmente y ningún otro shard<br/>
+     * las roba.
+     */
+    @Test
+    public void callsAreServedByTheLocalShardFirst() throws InterruptedException {
+
+        final DispatchShard local = newShard("local", 2);
+        final DispatchShard remote = newShard("remote", 2);
+
+        local.submit(new Call(CALL_DURATION_MS));
+        local.submit(new Call(CALL_DURATION_MS));
+
+        awaitCompleted(2, local, remote);
+        assertEquals(2, local.getCompletedCalls());
+        assertEquals(0, remote.getStolenCalls());
+        assertEquals(0, local.getGivenUpCalls());
+    }
+
+    /**
+     * Un shard con un único operador recibe 5 llamadas. El shard remoto, con 4 operadores inactivos, roba las 4<br/>
+     * llamadas en espera, por lo que todas finalizan en aproximadamente la duración de una llamada en lugar de 5.
+     */
+    @Test
+    public void idleShardStealsWaitingCalls() throws InterruptedException {
+
+        final DispatchShard overloaded = newShard("overloaded", 1);
+        final DispatchShard idle = newShard("idle", 4);
+
+        final long start = System.nanoTime();
+        for (int i = 0; i < 5; i++) {
+            overloaded.submit(new Call(CALL_DURATION_MS));
+        }
+        awaitCompleted(5, overloaded, idle);
+        final long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertEquals(4, idle.getStolenCalls());
+        assertEquals(4, overloaded.getGivenUpCalls());
+        assertTrue("Las llamadas tardaron " + elapsedMs + " ms", elapsedMs < 3 * CALL_DURATION_MS);
+    }
+
+    /**
+     * Con el transporte sincrónico, cada llamada robada se recibe en el mismo thread que la robó: el robo de la<br/>
+     * siguiente no debe anidarse en el stack de la anterior. Un shard con 5000 operadores inactivos roba las<br/>
+     * llamadas en espera de un shard con un único operador (salvo las que éste atienda al liberarse).
+     */
+    @Test
+    public void stealingManyCallsShouldNotNestOnTheStack() throws InterruptedException {
+
+        final int calls = 5000;
+        final DispatchShard overloaded = newShard("overloaded", 1);
+        for (int i = 0; i < calls; i++) {
+            overloaded.submit(new Call(CALL_DURATION_MS));
+        }
+        final DispatchShard idle = newShard("idle", calls);
+
+        awaitCompleted(calls, overloaded, idle);
+        assertEquals(overloaded.getGivenUpCalls(), idle.getStolenCalls());
+        assertTrue(idle.getStolenCalls() > calls / 2);
+    }
+
+    private DispatchShard newShard(String nodeId, int operators) {
+
+        final LinkedBlockingQueue<Operator> ops = new LinkedBlockingQueue<>();
+        for (int i = 0; i < operators; i++) {
+            ops.add(new Operator(nodeId + "-Op" + i));
+        }
+        final EmployeeHandler<Operator> opHandler = HandlerChains.link(ops, new LinkedBlockingQueue<>(),
+                new LinkedBlockingQueue<>(), 50);
+
+        final DispatchShard shard = new DispatchShard(nodeId, opHandler, new CallRegistrationLogger(), scheduler,
+                transport);
+        shard.start(STEAL_INTERVAL_MS);
+        return shard;
+    }
+
+    private static void awaitCompleted(long expected, DispatchShard... shards) throws InterruptedException {
+
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (System.nanoTime() < deadline) {
+            long completed = 0;
+            for (DispatchShard shard : shards) {
+                completed += shard.getCompletedCalls();
+            }
+            if (completed >= expected) {
+                return;
+            }
+            Thread.sleep(10);
+        }
+        throw new AssertionError("Las llamadas no finalizaron a tiempo");
+    }
+}
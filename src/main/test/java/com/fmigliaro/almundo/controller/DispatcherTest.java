@@ -1,9 +1,13 @@
 package com.fmigliaro.almundo.controller;
 
+import com.fmigliaro.almundo.controller.admission.CallIntake;
+import com.fmigliaro.almundo.controller.admission.OverflowPolicy;
+import com.fmigliaro.almundo.controller.admission.ShedReason;
 import com.fmigliaro.almundo.controller.handler.DirectorHandler;
 import com.fmigliaro.almundo.controller.handler.EmployeeHandler;
 import com.fmigliaro.almundo.controller.handler.OperatorHandler;
 import com.fmigliaro.almundo.controller.handler.SupervisorHandler;
+import com.fmigliaro.almundo.journal.CallSpillFile;
 import com.fmigliaro.almundo.model.Call;
 import com.fmigliaro.almundo.model.Director;
 import com.fmigliaro.almundo.model.Operator;
@@ -12,17 +16,32 @@ import com.fmigliaro.almundo.utility.CallRegistrationAware;
 import com.fmigliaro.almundo.utility.CallRegistrationMap;
 import org.junit.After;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
 
 /**
  * Unit Tests del ejercicio de Al Mundo.
@@ -34,6 +53,9 @@ public class DispatcherTest {
     private static final int WORK_QUEUE_SIZE = 2;
     private ThreadPoolExecutor threadPoolExecutor;
 
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
     @Before
     public void setUp() throws Exception {
         final BlockingQueue<Runnable> workQueue = new ArrayBlockingQueue<>(WORK_QUEUE_SIZE);
@@ -52,8 +74,8 @@ public class DispatcherTest {
      * <b>Este test no sólo cubre el caso base enunciado en la consigna del problema, sino que además se testea que el<br/>
      * orden de procesamiento de las llamadas atendidas por los empleados sea el correcto</b>, es decir:<br/>
      * Asignar primero a Operadores libres, de no haber, asignar a Supervisores, de no haber, asignar a Directores. Si no<br/>
-     * hubiera Directores libres, se decide esperar unos segundos y volver a intentar asignar a Directores hasta que alguno<br/>
-     * se libere.<br/>
+     * hubiera Directores libres, la llamada queda en espera hasta que se libere algún empleado, el cual le es asignado<br/>
+     * inmediatamente.<br/>
      * Para desarrollar esta solución, se eligió implementar el patrón de diseño <b>Chain of Responsibility</b>.<br/><br/>
      * El test consiste en lo siguiente:<br/>
      * Se generan 10 llamadas, cada una con una duración aleatoria de entre 5 y 10 segundos. A su vez, se generan<br/>
@@ -90,8 +112,8 @@ public class DispatcherTest {
      * llamada número 10, el executor creará el thread para atender la llamada.<br/>
      * 3) Luego, el thread intentará primero asignar la llamada a un Operador, pero verá que no hay ningún disponible,<br/>
      * por lo que intentará con un Supervisor. Al no haber Supervisores libres, intentará con un Director y, dado que<br/>
-     * no hay Directores libres, el DirectorHandler esperará unos segundos y reiniciará la búsqueda delegándosela al<br/>
-     * OperatorHandler quien, en esta oportunidad, tendrá Operadores disponibles y uno de ellos atenderá la llamada.<br/><br/>
+     * no hay Directores libres, el DirectorHandler encolará la llamada en la cola de espera de la cadena, y el primer<br/>
+     * empleado que se libere (en esta oportunidad, un Operador) le será asignado inmediatamente.<br/><br/>
      *
      * Para testear este escenario, se setean las primeras 3 llamadas (que deberán se atendidas por Operadores) con la<br/>
      * mitad de duración de las 6 llamadas subsiguientes (que deberán ser atendidas 3 por Supervisores y 3 por<br/>
@@ -123,6 +145,93 @@ public class DispatcherTest {
         assertEquals("Operator", callReg.getEmployeeTypeFromQueue());
     }
 
+    /**
+     * Este test verifica que una llamada en espera sea asignada en el momento en que se libera un empleado, sin<br/>
+     * esperar el tiempo de reintento configurado en el DirectorHandler (3 segundos).<br/>
+     * La cuarta llamada queda en espera y debe ser atendida por el primer empleado en desocuparse. Dado que las<br/>
+     * 4 llamadas se despachan concurrentemente, no es determinístico cuál de ellas queda en espera, por lo que sólo<br/>
+     * se verifica que la cuarta asignación ocurra apenas finaliza la primera llamada.
+     *
+     */
+    @Test
+    public void waitingCallShouldBeAssignedAsSoonAsAnEmployeeIsReleased() throws InterruptedException {
+
+        final List<Integer> durations = Arrays.asList(500, 500, 500, 500);
+        final long start = System.nanoTime();
+
+        final CallRegistrationMap callReg = setupTestDefinedDurations(1, 1,
+                1, durations, durations.size());
+
+        assertEquals("Operator", callReg.getEmployeeTypeFromQueue());
+        assertEquals("Supervisor", callReg.getEmployeeTypeFromQueue());
+        assertEquals("Director", callReg.getEmployeeTypeFromQueue());
+        assertFalse(callReg.getEmployeeTypeFromQueue().isEmpty());
+
+        final long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertTrue("La llamada en espera tardó " + elapsedMs + "ms en ser asignada", elapsedMs < 2000);
+    }
+
+    /**
+     * Este test verifica el modo asincrónico del Dispatcher: un scheduler de un único thread atiende 12 llamadas<br/>
+     * concurrentes con 10 empleados. Las 10 primeras llamadas se asignan inmediatamente respetando el orden<br/>
+     * Operador -> Supervisor -> Director, y las 2 restantes quedan en espera sin ocupar threads hasta que se liberen<br/>
+     * los 2 primeros Operadores.
+     *
+     */
+    @Test
+    public void asyncDispatchShouldServeMoreConcurrentCallsThanThreads() throws Exception {
+
+        final List<Integer> durations = Arrays.asList(500, 500, 1000, 1000, 1000, 1000, 1000, 1000, 1000, 1000,
+                1000, 1000);
+        final EmployeeHandler<Operator> opHandler = createHandlerChain(4, 3, 3);
+        final CallRegistrationMap callReg = new CallRegistrationMap(durations.size());
+        final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+
+        try {
+            final Dispatcher dispatcher = new Dispatcher(threadPoolExecutor, opHandler,
+                    createCallsWithGivenDurations(durations), callReg);
+
+            final long start = System.nanoTime();
+            dispatcher.dispatchCallsAsync(scheduler).get(5, TimeUnit.SECONDS);
+            final long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+            assertEquals(0, callReg.getRegSizeRemainingCapacity());
+            assertTrue("Las llamadas tardaron " + elapsedMs + "ms en procesarse", elapsedMs < 2000);
+        } finally {
+            scheduler.shutdownNow();
+        }
+        for (String type : Arrays.asList("Operator", "Operator", "Operator", "Operator", "Supervisor", "Supervisor",
+                "Supervisor", "Director", "Director", "Director", "Operator", "Operator")) {
+            assertEquals(type, callReg.getEmployeeTypeFromQueue());
+        }
+    }
+
+    /**
+     * Este test verifica el modo de ejecución con virtual threads (sólo se ejecuta con JDK 21 o superior).<br/>
+     * Se despachan 30 llamadas concurrentes con 30 empleados: a diferencia del pool fijo de 10 threads, ninguna<br/>
+     * llamada queda en la work queue del executor ni es descartada, por lo que todas se procesan en paralelo.
+     *
+     */
+    @Test
+    public void virtualThreadDispatcherShouldBeLimitedByEmployeesNotByThreads() throws InterruptedException {
+
+        assumeTrue("La JVM no soporta virtual threads", Dispatcher.isVirtualThreadSupported());
+
+        final List<Integer> durations = Collections.nCopies(30, 1000);
+        final CallRegistrationMap callReg = new CallRegistrationMap(durations.size());
+        final Dispatcher dispatcher = Dispatcher.withVirtualThreads(createHandlerChain(10, 10, 10),
+                createCallsWithGivenDurations(durations), callReg);
+
+        final long start = System.nanoTime();
+        dispatcher.dispatchCalls();
+        dispatcher.getExecutorService().shutdown();
+        assertTrue(dispatcher.getExecutorService().awaitTermination(5, TimeUnit.SECONDS));
+        final long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertEquals(0, callReg.getRegSizeRemainingCapacity());
+        assertTrue("Las llamadas tardaron " + elapsedMs + "ms en procesarse", elapsedMs < 2000);
+    }
+
     /**
      * Este test cubre la consigna extra que plantea qué pasa con una llamada cuando ingresan más de 10 llamadas<br/>
      * concurrentes. En ese caso la lógica es la siguiente:<br/><br/>
@@ -187,7 +296,325 @@ public class DispatcherTest {
         final CallRegistrationMap callReg = setupTestDefinedDurations(6, 2,
                 2, durations, durations.size());
 
+        //El Dispatcher ya no espera luego de descartar una llamada: se espera a que finalicen las 12 restantes.
+        threadPoolExecutor.shutdown();
+        assertTrue(threadPoolExecutor.awaitTermination(15, TimeUnit.SECONDS));
+
+        assertEquals(1, callReg.getRegSizeRemainingCapacity());
+    }
+
+    /**
+     * Mismo escenario que el test anterior (13 llamadas, 10 threads, 10 empleados), pero con control de admisión:<br/>
+     * las llamadas pasan por una cola de ingreso de tamaño 2 con la política {@link OverflowPolicy#BLOCK}. En lugar<br/>
+     * de descartar la llamada excedente, el Dispatcher espera a que se libere lugar en la cola de ingreso, por lo<br/>
+     * que las 13 llamadas son procesadas.
+     *
+     */
+    @Test
+    public void admissionWithBlockPolicyShouldProcessAllCallsWithoutDiscarding() throws InterruptedException {
+
+        final List<Integer> durations = Arrays.asList(500, 500, 500, 500, 500, 500, 1000, 1000, 1000, 1000, 1000, 1000, 1000);
+        final CallRegistrationMap callReg = new CallRegistrationMap(durations.size());
+        final CallIntake intake = new CallIntake(WORK_QUEUE_SIZE, OverflowPolicy.BLOCK, 5000);
+
+        final Dispatcher dispatcher = new Dispatcher(threadPoolExecutor, createHandlerChain(6, 2, 2),
+                createCallsWithGivenDurations(durations), callReg, intake, THREAD_POOL_SIZE);
+        dispatcher.dispatchCalls();
+
+        threadPoolExecutor.shutdown();
+        assertTrue(threadPoolExecutor.awaitTermination(15, TimeUnit.SECONDS));
+
+        assertEquals(0, intake.getShedCount());
+        assertEquals(0, callReg.getRegSizeRemainingCapacity());
+    }
+
+    /**
+     * Este test verifica el modo streaming con una fuente lazy de 200 llamadas: el Dispatcher pide llamadas sólo<br/>
+     * cuando hay demanda (nunca más de 2 en curso, igual al tamaño de la work queue del pool), por lo que ninguna es<br/>
+     * rechazada por el executor, y al agotarse la fuente espera a que finalicen todas.
+     *
+     */
+    @Test
+    public void streamingShouldProcessAllCallsFromLazySourceWithBoundedDemand() throws InterruptedException {
+
+        final int totalCalls = 200;
+        final CallRegistrationMap callReg = new CallRegistrationMap(totalCalls);
+        final Iterator<Call> lazyCalls = new Iterator<Call>() {
+            private int generated;
+
+            @Override
+            public boolean hasNext() {
+                return generated < totalCalls;
+            }
+
+            @Override
+            public Call next() {
+                generated++;
+                return new Call(10);
+            }
+        };
+        final Dispatcher dispatcher = new Dispatcher(threadPoolExecutor, createHandlerChain(4, 3, 3), null,
+                callReg);
+
+        assertTrue(dispatcher.dispatchStream(CallSource.fromIterator(lazyCalls), WORK_QUEUE_SIZE, 5000));
+        assertEquals(0, callReg.getRegSizeRemainingCapacity());
+    }
+
+    /**
+     * Este test verifica la finalización ordenada del modo streaming con una fuente que nunca se agota: luego de<br/>
+     * invocar a stopStreaming, el Dispatcher deja de consumir la cola y espera a que finalicen las llamadas en curso.
+     *
+     */
+    @Test
+    public void stopStreamingShouldDrainCallsInProcess() throws Exception {
+
+        final BlockingQueue<Call> incomingCalls = new LinkedBlockingQueue<>();
+        final CallRegistrationMap callReg = new CallRegistrationMap(3);
+        final Dispatcher dispatcher = new Dispatcher(threadPoolExecutor, createHandlerChain(1, 1, 1), null,
+                callReg);
+        final ExecutorService streamingThread = Executors.newSingleThreadExecutor();
+
+        try {
+            final Future<Boolean> drained = streamingThread.submit(() ->
+                    dispatcher.dispatchStream(CallSource.fromQueue(incomingCalls), WORK_QUEUE_SIZE + 1, 5000));
+
+            for (int i = 0; i < 3; i++) {
+                incomingCalls.put(new Call(500));
+            }
+            //Esperar a que las 3 llamadas sean asignadas antes de detener el streaming.
+            for (int i = 0; i < 3; i++) {
+                assertFalse(callReg.getEmployeeTypeFromQueue().isEmpty());
+            }
+            dispatcher.stopStreaming();
+
+            assertTrue(drained.get(5, TimeUnit.SECONDS));
+            assertTrue(dispatcher.awaitIdle(0));
+        } finally {
+            streamingThread.shutdownNow();
+        }
+    }
+
+    /**
+     * Este test verifica el drenado con tiempo máximo: las 2 llamadas en espera son atendidas antes de que el<br/>
+     * Dispatcher se detenga, y las llamadas que llegan una vez detenido se descartan.
+     *
+     */
+    @Test
+    public void drainShouldFinishCallsInProcessAndRejectLateCalls() throws Exception {
+
+        final List<Integer> durations = Arrays.asList(300, 300, 300, 300, 300);
+        final CallRegistrationMap callReg = new CallRegistrationMap(durations.size());
+        final Map<Call, ShedReason> shed = new ConcurrentHashMap<>();
+        final Dispatcher dispatcher = new Dispatcher(threadPoolExecutor, createHandlerChain(1, 1, 1),
+                createCallsWithGivenDurations(durations), callReg);
+        dispatcher.setShedCallListener(shed::put);
+
+        assertEquals(0, dispatcher.start());
+        dispatcher.dispatchCalls();
+
+        assertFalse(dispatcher.drain(50));
+        assertEquals(Dispatcher.State.DRAINING, dispatcher.getState());
+        assertTrue(dispatcher.drain(5000));
+        assertEquals(Dispatcher.State.TERMINATED, dispatcher.getState());
+        assertTrue(threadPoolExecutor.isShutdown());
+        assertEquals(0, callReg.getRegSizeRemainingCapacity());
+
+        dispatcher.dispatchCalls();
+        assertEquals(durations.size(), shed.size());
+        assertTrue(shed.values().stream().allMatch(ShedReason.SHUTTING_DOWN::equals));
+    }
+
+    /**
+     * Este test verifica la detención forzada y el reinicio: con 3 empleados y 5 llamadas, las 2 llamadas en<br/>
+     * espera se vuelcan en el archivo de volcado sin que la detención espere a que finalicen las llamadas en curso.<br/>
+     * Un nuevo Dispatcher, con otro executor y otra cadena, las retoma al iniciarse y las atiende.
+     *
+     */
+    @Test
+    public void forceStopShouldSpillUnservedCallsAndNextDispatcherShouldResumeThem() throws Exception {
+
+        final CallSpillFile spillFile = new CallSpillFile(folder.getRoot().toPath().resolve("pending.spill"));
+        final List<Integer> durations = Arrays.asList(1000, 1000, 1000, 1000, 1000);
+        final CallRegistrationMap callReg = new CallRegistrationMap(durations.size());
+        final Dispatcher dispatcher = new Dispatcher(threadPoolExecutor, createHandlerChain(1, 1, 1),
+                createCallsWithGivenDurations(durations), callReg);
+        dispatcher.setSpillFile(spillFile);
+        dispatcher.start();
+        dispatcher.dispatchCalls();
+
+        //Esperar a que las 3 primeras llamadas sean asignadas: las 2 restantes quedan en espera.
+        for (int i = 0; i < 3; i++) {
+            assertFalse(callReg.getEmployeeTypeFromQueue().isEmpty());
+        }
+        final long start = System.nanoTime();
+        final List<Call> pending = dispatcher.forceStop(5000);
+
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 900);
+        assertEquals(Dispatcher.State.TERMINATED, dispatcher.getState());
+        assertEquals(2, pending.size());
+        assertEquals(2, spillFile.read().size());
+
+        final ThreadPoolExecutor restartedExecutor = new ThreadPoolExecutor(THREAD_POOL_SIZE, THREAD_POOL_SIZE,
+                Long.MAX_VALUE, TimeUnit.NANOSECONDS, new ArrayBlockingQueue<>(WORK_QUEUE_SIZE));
+        final CallRegistrationMap restartedReg = new CallRegistrationMap(pending.size());
+        final Dispatcher restarted = new Dispatcher(restartedExecutor, createHandlerChain(1, 1, 1), null,
+                restartedReg);
+        restarted.setSpillFile(spillFile);
+
+        assertEquals(2, restarted.start());
+        assertTrue(restarted.drain(5000));
+        assertEquals(0, restartedReg.getRegSizeRemainingCapacity());
+        assertTrue(spillFile.read().isEmpty());
+    }
+
+    /**
+     * Este test verifica el modo por lotes: 12 llamadas con 10 empleados se asignan respetando el orden<br/>
+     * Operador -> Supervisor -> Director, aunque cada lote se asigne en un único recorrido de la cadena, y las 2<br/>
+     * llamadas que quedan en espera son atendidas por los 2 primeros Operadores en liberarse.
+     *
+     */
+    @Test
+    public void batchedDispatchShouldPreserveChainOrder() throws Exception {
+
+        final List<Integer> durations = Arrays.asList(300, 300, 600, 600, 600, 600, 600, 600, 600, 600, 600, 600);
+        final CallRegistrationMap callReg = new CallRegistrationMap(durations.size());
+        final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+
+        try {
+            final Dispatcher dispatcher = new Dispatcher(threadPoolExecutor, createHandlerChain(4, 3, 3),
+                    createCallsWithGivenDurations(durations), callReg);
+            dispatcher.setBatching(scheduler, 8, WORK_QUEUE_SIZE * 8);
+            dispatcher.dispatchCalls();
+
+            assertTrue(dispatcher.awaitIdle(5000));
+            assertEquals(0, callReg.getRegSizeRemainingCapacity());
+        } finally {
+            scheduler.shutdownNow();
+        }
+        for (String type : Arrays.asList("Operator", "Operator", "Operator", "Operator", "Supervisor", "Supervisor",
+                "Supervisor", "Director", "Director", "Director", "Operator", "Operator")) {
+            assertEquals(type, callReg.getEmployeeTypeFromQueue());
+        }
+    }
+
+    /**
+     * En modo por lotes las llamadas en espera no ocupan threads: la detención forzada las quita de la cola de<br/>
+     * espera de la cadena y las devuelve como no atendidas.
+     *
+     */
+    @Test
+    public void forceStopInBatchModeShouldReturnWaitingCalls() throws Exception {
+
+        final List<Integer> durations = Arrays.asList(500, 500, 500, 500, 500);
+        final CallRegistrationMap callReg = new CallRegistrationMap(durations.size());
+        final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+
+        try {
+            final Dispatcher dispatcher = new Dispatcher(threadPoolExecutor, createHandlerChain(1, 1, 1),
+                    createCallsWithGivenDurations(durations), callReg);
+            dispatcher.setSpillFile(new CallSpillFile(folder.getRoot().toPath().resolve("pending.spill")));
+            dispatcher.setBatching(scheduler, 4, 16);
+            dispatcher.dispatchCalls();
+
+            for (int i = 0; i < 3; i++) {
+                assertFalse(callReg.getEmployeeTypeFromQueue().isEmpty());
+            }
+            assertEquals(2, dispatcher.forceStop(1000).size());
+            //Las 3 llamadas asignadas continúan hasta finalizar.
+            assertTrue(dispatcher.awaitIdle(5000));
+        } finally {
+            scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * En modo asincrónico las llamadas también cuentan como llamadas en curso: el drenado espera a que finalicen<br/>
+     * las 2 llamadas en espera, y las llamadas que llegan una vez detenido se descartan.
+     *
+     */
+    @Test
+    public void asyncDispatchShouldBeDrainedAndRejectLateCalls() throws Exception {
+
+        final List<Integer> durations = Arrays.asList(300, 300, 300, 300, 300);
+        final CallRegistrationMap callReg = new CallRegistrationMap(durations.size());
+        final Map<Call, ShedReason> shed = new ConcurrentHashMap<>();
+        final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+
+        try {
+            final Dispatcher dispatcher = new Dispatcher(threadPoolExecutor, createHandlerChain(1, 1, 1),
+                    createCallsWithGivenDurations(durations), callReg);
+            dispatcher.setShedCallListener(shed::put);
+            final CompletableFuture<Void> processed = dispatcher.dispatchCallsAsync(scheduler);
+
+            assertFalse(dispatcher.drain(50));
+            assertTrue(dispatcher.drain(5000));
+            assertTrue(processed.isDone());
+            assertEquals(0, callReg.getRegSizeRemainingCapacity());
+
+            dispatcher.dispatchCallsAsync(scheduler).get(1, TimeUnit.SECONDS);
+            assertEquals(durations.size(), shed.size());
+            assertTrue(shed.values().stream().allMatch(ShedReason.SHUTTING_DOWN::equals));
+        } finally {
+            scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * En modo asincrónico las llamadas en espera no ocupan threads: la detención forzada las quita de la cola de<br/>
+     * espera de la cadena y las vuelca como no atendidas, sin que lleguen a atenderse luego.
+     *
+     */
+    @Test
+    public void forceStopInAsyncModeShouldSpillWaitingCalls() throws Exception {
+
+        final CallSpillFile spillFile = new CallSpillFile(folder.getRoot().toPath().resolve("pending.spill"));
+        final List<Integer> durations = Arrays.asList(300, 300, 300, 300, 300);
+        final CallRegistrationMap callReg = new CallRegistrationMap(durations.size());
+        final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+
+        try {
+            final Dispatcher dispatcher = new Dispatcher(threadPoolExecutor, createHandlerChain(1, 1, 1),
+                    createCallsWithGivenDurations(durations), callReg);
+            dispatcher.setSpillFile(spillFile);
+            dispatcher.start();
+            final CompletableFuture<Void> processed = dispatcher.dispatchCallsAsync(scheduler);
+
+            assertEquals(2, dispatcher.forceStop(1000).size());
+            assertEquals(2, spillFile.read().size());
+            //Las 3 llamadas asignadas continúan hasta finalizar.
+            processed.get(5, TimeUnit.SECONDS);
+            assertTrue(dispatcher.awaitIdle(5000));
+            assertEquals(2, callReg.getRegSizeRemainingCapacity());
+        } finally {
+            scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * Una llamada que abandona la espera ya fue descartada: la detención forzada no debe volcarla, ya que el próximo<br/>
+     * Dispatcher la atendería. Con 3 empleados y 4 llamadas de 300ms que esperan como máximo 50ms, la última en<br/>
+     * llegar abandona la espera.
+     *
+     */
+    @Test
+    public void forceStopShouldNotSpillAbandonedCalls() throws Exception {
+
+        final CallSpillFile spillFile = new CallSpillFile(folder.getRoot().toPath().resolve("pending.spill"));
+        final List<Call> calls = createCallsWithGivenDurations(Arrays.asList(300, 300, 300, 300));
+        for (Call call : calls) {
+            call.setMaxWaitMs(50);
+        }
+        final CallRegistrationMap callReg = new CallRegistrationMap(calls.size());
+        final Dispatcher dispatcher = new Dispatcher(threadPoolExecutor, createHandlerChain(1, 1, 1), calls,
+                callReg);
+        dispatcher.setSpillFile(spillFile);
+        dispatcher.start();
+        dispatcher.dispatchCalls();
+
+        assertTrue(dispatcher.awaitIdle(5000));
         assertEquals(1, callReg.getRegSizeRemainingCapacity());
+        assertTrue(dispatcher.forceStop(1000).isEmpty());
+        assertTrue(spillFile.read().isEmpty());
     }
 
     /**
@@ -209,13 +636,7 @@ public class DispatcherTest {
     private CallRegistrationMap setupTestDefinedDurations(int totalOps, int totalSups, int totalDirs,
                                                           List<Integer> callDurations, int callRegSize) throws InterruptedException {
 
-        //Crear las 3 colas de Operadores, Supervisores y Directores.
-        final BlockingQueue<Operator> operators = new ArrayBlockingQueue<>(totalOps);
-        final BlockingQueue<Supervisor> supervisors = new ArrayBlockingQueue<>(totalSups);
-        final BlockingQueue<Director> directors = new ArrayBlockingQueue<>(totalDirs);
-
-        //Generar empleados de cada tipo.
-        createEmployees(operators, supervisors, directors);
+        final EmployeeHandler<Operator> opHandler = createHandlerChain(totalOps, totalSups, totalDirs);
 
         final List<Call> calls;
         //Generar las llamadas, ya sea con duraciones aleatorias o preestablecidas.
@@ -228,16 +649,6 @@ public class DispatcherTest {
 
             calls = createCallsWithRandomDurations(totalCalls, durStartOffsetMs, durRangeSizeMs);
         }
-        final int retryTimeoutMs = 3000;
-
-        //Crear cada Employee Handler, inyectando las dependencias necesarias.
-        final EmployeeHandler<Director> dirHandler = new DirectorHandler(directors, retryTimeoutMs);
-        final EmployeeHandler<Supervisor> supHandler = new SupervisorHandler(supervisors, dirHandler);
-        final EmployeeHandler<Operator> opHandler = new OperatorHandler(operators, supHandler);
-
-        //Si no hay más empleados disponibles, el Director Handler espera unos segundos y delega la tarea al Operator
-        //Handler, reiniciando la búsqueda de empleados disponibles.
-        ((DirectorHandler) dirHandler).setSuccessorHandler(opHandler);
 
         //Instanciar el objeto que va a registrar el orden en qué cada empleado atendió las llamadas.
         final CallRegistrationAware callReg = new CallRegistrationMap(callRegSize);
@@ -269,6 +680,35 @@ public class DispatcherTest {
         return setupTestDefinedDurations(totalOps, totalSups, totalDirs, null, callRegSize);
     }
 
+    /**
+     * Crea los empleados de cada tipo y la cadena de handlers Operador -> Supervisor -> Director -> Operador.
+     *
+     * @return El handler de Operadores, primer eslabón de la cadena.
+     */
+    private EmployeeHandler<Operator> createHandlerChain(int totalOps, int totalSups, int totalDirs) {
+
+        //Crear las 3 colas de Operadores, Supervisores y Directores.
+        final BlockingQueue<Operator> operators = new ArrayBlockingQueue<>(totalOps);
+        final BlockingQueue<Supervisor> supervisors = new ArrayBlockingQueue<>(totalSups);
+        final BlockingQueue<Director> directors = new ArrayBlockingQueue<>(totalDirs);
+
+        //Generar empleados de cada tipo.
+        createEmployees(operators, supervisors, directors);
+
+        final int retryTimeoutMs = 3000;
+
+        //Crear cada Employee Handler, inyectando las dependencias necesarias.
+        final EmployeeHandler<Director> dirHandler = new DirectorHandler(directors, retryTimeoutMs);
+        final EmployeeHandler<Supervisor> supHandler = new SupervisorHandler(supervisors, dirHandler);
+        final EmployeeHandler<Operator> opHandler = new OperatorHandler(operators, supHandler);
+
+        //Si no hay más empleados disponibles, el Director Handler encola la llamada hasta que se libere algún empleado.
+        //El Operator Handler es el primero en recorrerse antes de encolar la llamada.
+        ((DirectorHandler) dirHandler).setSuccessorHandler(opHandler);
+
+        return opHandler;
+    }
+
     private void createEmployees(BlockingQueue<Operator> operators, BlockingQueue<Supervisor> supervisors,
                                  BlockingQueue<Director> directors) {
 
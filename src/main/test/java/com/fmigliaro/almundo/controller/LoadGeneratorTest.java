@@ -0,0 +1,123 @@
+package com.fmigliaro.almundo.controller;
+
+import com.fmigliaro.almundo.controller.handler.HandlerChains;
+import com.fmigliaro.almundo.controller.handler.OperatorHandler;
+import com.fmigliaro.almundo.model.CallFactory;
+import com.fmigliaro.almundo.model.DurationDistribution;
+import com.fmigliaro.almundo.model.Tier;
+import com.fmigliaro.almundo.simulation.ArrivalSchedule;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit Tests de {@link LoadGenerator}.
+ */
+public class LoadGeneratorTest {
+
+    private ExecutorService executorService;
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @Before
+    public void setUp() {
+        executorService = Executors.newCachedThreadPool();
+    }
+
+    @After
+    public void tearDown() throws InterruptedException {
+        executorService.shutdownNow();
+        executorService.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Con 20 empleados y llamadas de 20ms a 200 llamadas por segundo, la carga es de 4 empleados ocupados en<br/>
+     * promedio: todas las llamadas se atienden, a la tasa objetivo y casi sin espera.
+     */
+    @Test
+    public void poissonLoadBelowCapacityShouldBeServedAtTargetRate() throws InterruptedException {
+
+        final OperatorHandler chain = HandlerChains.create(10, 5, 5);
+        final LoadGenerator generator = LoadGenerator.poisson(200, 300,
+                new CallFactory(DurationDistribution.fixed(20)), 42, chain.getClock());
+        final Dispatcher dispatcher = new Dispatcher(executorService, chain, null, generator.getCallRegistration());
+        dispatcher.setShedCallListener(generator.getShedCallListener());
+
+        final LoadReport report = generator.run(dispatcher, 5000);
+
+        assertTrue(report.isDrained());
+        assertEquals(300, report.getServedCount());
+        assertEquals(0, report.getUnfinishedCount());
+        assertTrue(report.toString(), report.getServedCallsPerSecond() > 140 && report.getServedCallsPerSecond() < 280);
+        assertTrue(report.toString(),
+                report.getTimeToAssign(Tier.OPERATOR).getValueAtPercentile(99) < TimeUnit.MILLISECONDS.toNanos(100));
+    }
+
+    /**
+     * Llega una llamada de 100ms cada 10ms, pero el Dispatcher sólo pide una llamada cuando finalizó la anterior.<br/>
+     * Medida desde su ingreso a la cadena, ninguna llamada espera; medida desde su instante previsto, la espera<br/>
+     * crece con cada llamada, que es la latencia que efectivamente percibe quien llama.
+     */
+    @Test
+    public void latencyShouldIncludeDelayOfCallsTheDispatcherDidNotPoll() throws InterruptedException {
+
+        final OperatorHandler chain = HandlerChains.create(1, 1, 1);
+        final LoadGenerator generator = new LoadGenerator(ArrivalSchedule.fixedInterval(10),
+                new CallFactory(DurationDistribution.fixed(100)), 12, chain.getClock());
+        final Dispatcher dispatcher = new Dispatcher(executorService, chain, null, generator.getCallRegistration());
+
+        final LoadReport report = generator.run(dispatcher, 1, 5000);
+
+        assertEquals(12, report.getServedCount());
+        assertTrue(report.toString(), report.getTimeToAssignFromReceived(Tier.OPERATOR).getMax()
+                < TimeUnit.MILLISECONDS.toNanos(50));
+        //La última llamada estaba prevista a los 110ms y se asigna recién al finalizar las 11 anteriores (1100ms).
+        assertTrue(report.toString(), report.getTimeToAssign(Tier.OPERATOR).getMax()
+                > TimeUnit.MILLISECONDS.toNanos(800));
+        assertTrue(report.getEmissionLag().getMax() > TimeUnit.MILLISECONDS.toNanos(800));
+    }
+
+    @Test
+    public void traceShouldBeReplayedInOrder() throws Exception {
+
+        final Path trace = folder.newFile("arrivals.trace").toPath();
+        Files.write(trace, Arrays.asList("# instantes de ingreso en ms", "0", "0", "", "50", "120"),
+                StandardCharsets.UTF_8);
+        final long[] arrivals = ArrivalSchedule.readTrace(trace);
+        assertArrayEquals(new long[]{0, 0, 50, 120}, arrivals);
+
+        final OperatorHandler chain = HandlerChains.create(2, 1, 1);
+        final LoadGenerator generator = LoadGenerator.fromTrace(arrivals,
+                new CallFactory(DurationDistribution.fixed(10)), chain.getClock());
+        final Dispatcher dispatcher = new Dispatcher(executorService, chain, null, generator.getCallRegistration());
+
+        final LoadReport report = generator.run(dispatcher, 5000);
+
+        assertEquals(4, report.getServedCount());
+        assertTrue(report.toString(), report.getElapsedMs() >= 120);
+    }
+
+    @Test(expected = NoSuchElementException.class)
+    public void exhaustedTraceShouldFail() {
+
+        final ArrivalSchedule schedule = ArrivalSchedule.trace(5);
+        assertEquals(5, schedule.nextArrivalMs(0));
+        schedule.nextArrivalMs(5);
+    }
+}
@@ -0,0 +1,94 @@
+package com.fmigliaro.almundo.controller;
+
+import com.fmigliaro.almundo.controller.handler.OperatorHandler;
+import com.fmigliaro.almundo.model.Call;
+import com.fmigliaro.almundo.model.Director;
+import com.fmigliaro.almundo.model.Operator;
+import com.fmigliaro.almundo.model.Supervisor;
+import com.fmigliaro.almundo.utility.CallRegistrationLogger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit Tests de {@link ShardedDispatcher}.
+ */
+public class ShardedDispatcherTest {
+
+    private static final int CALL_DURATION_MS = 300;
+    private static final int SHARDS = 4;
+
+    private ScheduledExecutorService scheduler;
+
+    @Before
+    public void setUp() {
+        scheduler = Executors.newScheduledThreadPool(2);
+    }
+
+    @After
+    public void tearDown() throws InterruptedException {
+        scheduler.shutdown();
+        scheduler.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Un único thread despacha tantas llamadas como empleados hay en total, uno por shard: al agotarse su shard,<br/>
+     * las llamadas se asignan a los shards vecinos, por lo que todas se atienden en paralelo.
+     */
+    @Test
+    public void callsOverflowToNeighborShardsWhenHomeShardIsExhausted() throws InterruptedException {
+
+        final ShardedDispatcher dispatcher = newDispatcher(SHARDS);
+        final List<Call> calls = new ArrayList<>();
+        for (int i = 0; i < SHARDS; i++) {
+            calls.add(new Call(CALL_DURATION_MS));
+        }
+        final long start = System.nanoTime();
+        dispatcher.dispatchCalls(calls);
+
+        assertTrue(dispatcher.awaitIdle(5000));
+        final long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertTrue("Las llamadas tardaron " + elapsedMs + " ms", elapsedMs < 2 * CALL_DURATION_MS);
+        assertEquals(0, dispatcher.getStolenCalls());
+        dispatcher.stop();
+    }
+
+    /**
+     * Con más llamadas que empleados, las llamadas que esperan en un shard son atendidas por cualquier shard que se<br/>
+     * libere, y todas finalizan.
+     */
+    @Test
+    public void allCallsFinishWhenEmployeesAreExhausted() throws InterruptedException {
+
+        final ShardedDispatcher dispatcher = newDispatcher(SHARDS);
+        final List<Call> calls = new ArrayList<>();
+        for (int i = 0; i < 3 * SHARDS; i++) {
+            calls.add(new Call(50));
+        }
+        dispatcher.dispatchCalls(calls);
+
+        assertTrue(dispatcher.awaitIdle(5000));
+        dispatcher.stop();
+    }
+
+    private ShardedDispatcher newDispatcher(int operators) {
+
+        final List<Operator> ops = new ArrayList<>();
+        for (int i = 0; i < operators; i++) {
+            ops.add(new Operator("Op" + i));
+        }
+        final List<OperatorHandler> chains = ShardedDispatcher.partition(ops, Collections.<Supervisor>emptyList(),
+                Collections.<Director>emptyList(), SHARDS, 50);
+        return new ShardedDispatcher(chains, new CallRegistrationLogger(), scheduler, 20);
+    }
+}
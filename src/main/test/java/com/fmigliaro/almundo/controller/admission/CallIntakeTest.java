@@ -0,0 +1,110 @@
+package com.fmigliaro.almundo.controller.admission;
+
+import com.fmigliaro.almundo.model.Call;
+import com.fmigliaro.almundo.model.Priority;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit Tests de las políticas de admisión de {@link CallIntake}.
+ */
+public class CallIntakeTest {
+
+    private final List<Call> shedCalls = new ArrayList<>();
+    private final List<ShedReason> shedReasons = new ArrayList<>();
+    private final ShedCallListener recordingListener = (call, reason) -> {
+        shedCalls.add(call);
+        shedReasons.add(reason);
+    };
+
+    @Test
+    public void blockPolicyShouldShedIncomingCallAfterTimeout() throws InterruptedException {
+
+        final CallIntake intake = new CallIntake(1, OverflowPolicy.BLOCK, 50, null, recordingListener);
+        final Call first = new Call(100);
+        final Call second = new Call(100);
+
+        assertTrue(intake.offer(first));
+        final long start = System.nanoTime();
+        assertFalse(intake.offer(second));
+
+        assertTrue(System.nanoTime() - start >= 50_000_000L);
+        assertSame(second, shedCalls.get(0));
+        assertEquals(ShedReason.INTAKE_FULL, shedReasons.get(0));
+        assertSame(first, intake.poll());
+        assertEquals(1, intake.getShedCount());
+    }
+
+    @Test
+    public void shedOldestPolicyShouldEvictOldestCall() throws InterruptedException {
+
+        final CallIntake intake = new CallIntake(2, OverflowPolicy.SHED_OLDEST, 0, null, recordingListener);
+        final Call first = new Call(100);
+        final Call second = new Call(100);
+        final Call third = new Call(100);
+
+        assertTrue(intake.offer(first));
+        assertTrue(intake.offer(second));
+        assertTrue(intake.offer(third));
+
+        assertSame(first, shedCalls.get(0));
+        assertEquals(ShedReason.EVICTED_OLDEST, shedReasons.get(0));
+        assertSame(second, intake.poll());
+        assertSame(third, intake.poll());
+        assertNull(intake.poll());
+    }
+
+    @Test
+    public void shedLowestPriorityPolicyShouldOnlyEvictLowerPriorityCalls() throws InterruptedException {
+
+        final CallIntake intake = new CallIntake(2, OverflowPolicy.SHED_LOWEST_PRIORITY, 0, null,
+                recordingListener);
+        final Call low = new Call(100, Priority.LOW);
+        final Call normal = new Call(100, Priority.NORMAL);
+        final Call anotherNormal = new Call(100, Priority.NORMAL);
+        final Call urgent = new Call(100, Priority.URGENT);
+
+        assertTrue(intake.offer(low));
+        assertTrue(intake.offer(normal));
+
+        //Una llamada NORMAL desplaza a la LOW.
+        assertTrue(intake.offer(anotherNormal));
+        assertSame(low, shedCalls.get(0));
+        assertEquals(ShedReason.EVICTED_LOWER_PRIORITY, shedReasons.get(0));
+
+        //Una llamada URGENT desplaza a la NORMAL más reciente.
+        assertTrue(intake.offer(urgent));
+        assertSame(anotherNormal, shedCalls.get(1));
+
+        //Una llamada NORMAL no puede desplazar a otra de igual prioridad: se descarta la entrante.
+        final Call rejected = new Call(100, Priority.NORMAL);
+        assertFalse(intake.offer(rejected));
+        assertSame(rejected, shedCalls.get(2));
+        assertEquals(ShedReason.INTAKE_FULL, shedReasons.get(2));
+
+        assertSame(normal, intake.poll());
+        assertSame(urgent, intake.poll());
+    }
+
+    @Test
+    public void rateLimiterShouldShedCallsAboveBurst() throws InterruptedException {
+
+        final CallIntake intake = new CallIntake(10, OverflowPolicy.BLOCK, 0, new TokenBucket(1, 3),
+                recordingListener);
+
+        for (int i = 0; i < 3; i++) {
+            assertTrue(intake.offer(new Call(100)));
+        }
+        assertFalse(intake.offer(new Call(100)));
+        assertEquals(ShedReason.RATE_LIMITED, shedReasons.get(0));
+        assertEquals(3, intake.size());
+    }
+}
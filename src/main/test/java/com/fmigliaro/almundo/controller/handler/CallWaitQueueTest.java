@@ -0,0 +1,347 @@
+package com.fmigliaro.almundo.controller.handler;
+
+import com.fmigliaro.almundo.controller.admission.ShedReason;
+import com.fmigliaro.almundo.model.Call;
+import com.fmigliaro.almundo.model.Operator;
+import com.fmigliaro.almundo.utility.CallRegistrationLogger;
+import com.fmigliaro.almundo.utility.Clock;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit Tests del orden de atención, la espera estimada, el abandono y la cancelación de llamadas de<br/>
+ * {@link CallWaitQueue}.
+ */
+public class CallWaitQueueTest {
+
+    private ScheduledExecutorService scheduler;
+    private OperatorHandler chain;
+    private final Map<Call, ShedReason> shed = new ConcurrentHashMap<>();
+
+    @Before
+    public void setUp() {
+
+        scheduler = Executors.newScheduledThreadPool(1);
+        chain = HandlerChains.create(1, 0, 0, 1000);
+        chain.setShedCallListener(shed::put);
+    }
+
+    @After
+    public void tearDown() throws InterruptedException {
+        scheduler.shutdown();
+        scheduler.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Con el único Operador ocupado, se encolan llamadas de 300, 100 y 200 ms: al liberarse el Operador, las<br/>
+     * atiende de la más corta a la más larga.
+     */
+    @Test
+    public void shortestExpectedFirstShouldServeShorterCallsFirst() {
+
+        chain.setWaitingOrder(WaitingOrder.SHORTEST_EXPECTED_FIRST);
+        final List<Integer> finished = Collections.synchronizedList(new ArrayList<>());
+        final List<CompletableFuture<Void>> processed = new ArrayList<>();
+
+        for (int durationMs : new int[]{100, 300, 100, 200}) {
+            final Call call = new Call(durationMs);
+            processed.add(chain.handleCallAsync(call, new CallRegistrationLogger(), scheduler)
+                    .thenRun(() -> finished.add(call.getDurationMs())));
+        }
+        CompletableFuture.allOf(processed.toArray(new CompletableFuture<?>[0])).join();
+
+        assertEquals(Arrays.asList(100, 100, 200, 300), finished);
+    }
+
+    /**
+     * El Operador queda ocupado 200 ms: la primera llamada en espera debe esperar lo que resta de esa llamada y la<br/>
+     * segunda, además, la duración de la primera.
+     */
+    @Test
+    public void predictedWaitShouldAccountForCallsAhead() {
+
+        final List<long[]> announcements = Collections.synchronizedList(new ArrayList<>());
+        chain.setQueuePositionListener((call, position, predictedWaitMs) ->
+                announcements.add(new long[]{position, predictedWaitMs}));
+
+        final List<CompletableFuture<Void>> processed = new ArrayList<>();
+        for (int durationMs : new int[]{200, 100, 100}) {
+            processed.add(chain.handleCallAsync(new Call(durationMs), new CallRegistrationLogger(), scheduler));
+        }
+
+        assertEquals(2, announcements.size());
+        assertEquals(1, announcements.get(0)[0]);
+        assertEquals(200, announcements.get(0)[1], 50);
+        assertEquals(2, announcements.get(1)[0]);
+        assertEquals(300, announcements.get(1)[1], 50);
+        CompletableFuture.allOf(processed.toArray(new CompletableFuture<?>[0])).join();
+    }
+
+    /**
+     * Primero la más corta: la llamada de 100 ms se encola delante de la de 300 ms, por lo que ambas quedan primeras<br/>
+     * al encolarse y esperan sólo lo que resta de la llamada en curso.
+     */
+    @Test
+    public void predictedWaitShouldFollowTheWaitingOrder() {
+
+        chain.setWaitingOrder(WaitingOrder.SHORTEST_EXPECTED_FIRST);
+        final List<long[]> announcements = Collections.synchronizedList(new ArrayList<>());
+        chain.setQueuePositionListener((call, position, predictedWaitMs) ->
+                announcements.add(new long[]{position, predictedWaitMs}));
+
+        final List<CompletableFuture<Void>> processed = new ArrayList<>();
+        for (int durationMs : new int[]{200, 300, 100, 400}) {
+            processed.add(chain.handleCallAsync(new Call(durationMs), new CallRegistrationLogger(), scheduler));
+        }
+
+        assertEquals(3, announcements.size());
+        assertEquals(1, announcements.get(0)[0]);
+        assertEquals(200, announcements.get(0)[1], 50);
+        assertEquals(1, announcements.get(1)[0]);
+        assertEquals(200, announcements.get(1)[1], 50);
+        //Por delante de la de 400 ms: las de 100 y 300 ms.
+        assertEquals(3, announcements.get(2)[0]);
+        assertEquals(600, announcements.get(2)[1], 50);
+        CompletableFuture.allOf(processed.toArray(new CompletableFuture<?>[0])).join();
+    }
+
+    /**
+     * Con varios empleados, la duración de las llamadas por delante se reparte entre los que se liberan primero.
+     */
+    @Test
+    public void predictedWaitShouldSpreadCallsAheadAcrossEmployees() {
+
+        final long[] freeAt = {100, 200, 1000};
+
+        assertEquals(100, CallWaitQueue.predictWaitNanos(freeAt, 0));
+        //100 ns de trabajo: el primer empleado se libera a los 200, junto con el segundo.
+        assertEquals(200, CallWaitQueue.predictWaitNanos(freeAt, 100));
+        //500 ns: los dos primeros se reparten el trabajo hasta los (100 + 200 + 500) / 2 = 400.
+        assertEquals(400, CallWaitQueue.predictWaitNanos(freeAt, 500));
+        //2000 ns: se reparte entre los tres hasta los (100 + 200 + 1000 + 2000) / 3 = 1100.
+        assertEquals(1100, CallWaitQueue.predictWaitNanos(freeAt, 2000));
+        assertEquals(700, CallWaitQueue.predictWaitNanos(new long[]{200}, 500));
+    }
+
+    /**
+     * Con muchas llamadas en espera y el orden por duración, la posición informada de cada llamada debe coincidir<br/>
+     * con la cantidad de llamadas ya encoladas de menor duración, o de igual duración e ingresadas antes, aún<br/>
+     * cuando se cancelan llamadas intermedias.
+     */
+    @Test
+    public void positionsShouldFollowTheWaitingOrderForLargeBacklogs() {
+
+        chain.setWaitingOrder(WaitingOrder.SHORTEST_EXPECTED_FIRST);
+        final Map<Call, Integer> positions = new ConcurrentHashMap<>();
+        chain.setQueuePositionListener((call, position, predictedWaitMs) -> positions.put(call, position));
+        final CompletableFuture<Void> first = chain.handleCallAsync(new Call(200), new CallRegistrationLogger(),
+                scheduler);
+
+        final Random random = new Random(42);
+        final List<Call> waiting = new ArrayList<>();
+        for (int i = 0; i < 2_000; i++) {
+            final Call call = new Call(1 + random.nextInt(100));
+            chain.handleCallAsync(call, new CallRegistrationLogger(), scheduler);
+
+            int ahead = 0;
+            for (Call other : waiting) {
+                if (other.getDurationMs() <= call.getDurationMs()) {
+                    ahead++;
+                }
+            }
+            assertEquals(ahead + 1, (int) positions.get(call));
+            waiting.add(call);
+            if (i % 3 == 0) {
+                assertTrue(chain.cancel(waiting.remove(random.nextInt(waiting.size()))));
+            }
+        }
+        for (Call call : waiting) {
+            assertTrue(chain.cancel(call));
+        }
+        first.join();
+    }
+
+    /**
+     * El Operador está ocupado 500 ms y la llamada en espera tolera 100 ms: su future se completa al vencer la espera,<br/>
+     * sin que se le asigne el Operador.
+     */
+    @Test
+    public void asyncCallShouldAbandonWhenMaxWaitIsExceeded() {
+
+        final CompletableFuture<Void> first = chain.handleCallAsync(new Call(500), new CallRegistrationLogger(),
+                scheduler);
+        final Call impatient = new Call(100);
+        impatient.setMaxWaitMs(100);
+
+        final long start = System.nanoTime();
+        chain.handleCallAsync(impatient, new CallRegistrationLogger(), scheduler).join();
+
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 400);
+        assertEquals(ShedReason.ABANDONED, shed.get(impatient));
+        assertFalse(chain.cancel(impatient));
+        first.join();
+    }
+
+    @Test
+    public void blockingCallShouldAbandonWhenMaxWaitIsExceeded() {
+
+        final CompletableFuture<Void> first = chain.handleCallAsync(new Call(500), new CallRegistrationLogger(),
+                scheduler);
+        final Call impatient = new Call(100);
+        impatient.setMaxWaitMs(100);
+
+        final long start = System.nanoTime();
+        chain.handleCall(impatient, new CallRegistrationLogger());
+
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 400);
+        assertEquals(ShedReason.ABANDONED, shed.get(impatient));
+        first.join();
+    }
+
+    /**
+     * Con un reloj 100 veces más rápido, tres llamadas de 1 segundo atendidas por un único Operador y una llamada que<br/>
+     * abandona tras 500 ms de espera deben resolverse en decenas de milisegundos reales, no en segundos: tanto la<br/>
+     * finalización de las llamadas como el vencimiento de la espera se programan con el reloj de la cadena.
+     */
+    @Test
+    public void acceleratedClockShouldScaleAsyncDurationsAndMaxWait() {
+
+        final OperatorHandler accelerated = HandlerChains.link(
+                new LinkedBlockingQueue<>(Collections.singletonList(new Operator("Op1"))), new LinkedBlockingQueue<>(),
+                new LinkedBlockingQueue<>(), 1000, Clock.accelerated(100));
+        accelerated.setShedCallListener(shed::put);
+        accelerated.setQueuePositionListener((call, position, predictedWaitMs) -> { });
+
+        final long start = System.nanoTime();
+        final List<CompletableFuture<Void>> processed = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            processed.add(accelerated.handleCallAsync(new Call(1000), new CallRegistrationLogger(), scheduler));
+        }
+        final Call impatient = new Call(1000);
+        impatient.setMaxWaitMs(500);
+        processed.add(accelerated.handleCallAsync(impatient, new CallRegistrationLogger(), scheduler));
+        CompletableFuture.allOf(processed.toArray(new CompletableFuture<?>[0])).join();
+
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 1000);
+        assertEquals(ShedReason.ABANDONED, shed.get(impatient));
+    }
+
+    /**
+     * Una llamada en espera se cancela explícitamente y otra cancelando su future: ninguna de las dos es atendida.
+     */
+    @Test
+    public void cancelledCallsShouldLeaveTheQueueAndNotBeServed() {
+
+        final CompletableFuture<Void> first = chain.handleCallAsync(new Call(200), new CallRegistrationLogger(),
+                scheduler);
+        final Call hungUp = new Call(100);
+        final Call cancelledFuture = new Call(100);
+        final Call patient = new Call(100);
+
+        final CompletableFuture<Void> hungUpDone = chain.handleCallAsync(hungUp, new CallRegistrationLogger(),
+                scheduler);
+        final CompletableFuture<Void> cancelled = chain.handleCallAsync(cancelledFuture,
+                new CallRegistrationLogger(), scheduler);
+        final CompletableFuture<Void> patientDone = chain.handleCallAsync(patient, new CallRegistrationLogger(),
+                scheduler);
+
+        assertTrue(chain.cancel(hungUp));
+        assertFalse(chain.cancel(hungUp));
+        hungUpDone.join();
+        assertTrue(cancelled.cancel(false));
+
+        first.join();
+        final long start = System.nanoTime();
+        patientDone.join();
+
+        assertEquals(ShedReason.CANCELLED, shed.get(hungUp));
+        assertEquals(ShedReason.CANCELLED, shed.get(cancelledFuture));
+        assertFalse(shed.containsKey(patient));
+        //La llamada restante es atendida inmediatamente al liberarse el Operador, sin esperar a las canceladas.
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 180);
+    }
+
+    @Test
+    public void interruptedWaitingThreadShouldReportCancellation() throws InterruptedException {
+
+        final CompletableFuture<Void> first = chain.handleCallAsync(new Call(500), new CallRegistrationLogger(),
+                scheduler);
+        final Call waiting = new Call(100);
+        final Thread caller = new Thread(() -> chain.handleCall(waiting, new CallRegistrationLogger()));
+        caller.start();
+
+        while (!caller.getState().equals(Thread.State.TIMED_WAITING) && !shed.containsKey(waiting)) {
+            Thread.sleep(5);
+        }
+        caller.interrupt();
+        caller.join(1000);
+
+        assertFalse(caller.isAlive());
+        assertEquals(ShedReason.CANCELLED, shed.get(waiting));
+        first.join();
+    }
+
+    /**
+     * Varios threads procesan llamadas de duración 0 con un único Operador, por lo que el Operador se devuelve a su<br/>
+     * cola sin lock mientras otras llamadas se encolan: ninguna llamada debe quedar esperando con el Operador libre.
+     */
+    @Test
+    public void releasesWithoutLockShouldNeverStrandWaitingCalls() throws InterruptedException {
+
+        chain.setQueuePositionListener((call, position, predictedWaitMs) -> { });
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        for (int thread = 0; thread < 4; thread++) {
+            executor.execute(() -> {
+                for (int i = 0; i < 5_000; i++) {
+                    chain.handleCall(new Call(0), employee -> { });
+                }
+            });
+        }
+        executor.shutdown();
+
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+        assertEquals(1, chain.getIdleEmployeeCount());
+    }
+
+    /**
+     * Las registraciones de las llamadas que esperaron se publican bajo el lock de la cola de espera, pero deben<br/>
+     * entregarse luego de liberarlo, para que un {@link com.fmigliaro.almundo.utility.CallRegistrationAware} lento<br/>
+     * no demore a toda la cadena.
+     */
+    @Test
+    public void registrationsShouldBeDeliveredOutsideTheLock() {
+
+        chain.setQueuePositionListener((call, position, predictedWaitMs) -> { });
+        final ReentrantLock lock = (ReentrantLock) chain.waitQueue.lock;
+        final List<Boolean> lockHeld = Collections.synchronizedList(new ArrayList<>());
+
+        final List<CompletableFuture<Void>> processed = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            processed.add(chain.handleCallAsync(new Call(50),
+                    employee -> lockHeld.add(lock.isHeldByCurrentThread()), scheduler));
+        }
+        CompletableFuture.allOf(processed.toArray(new CompletableFuture<?>[0])).join();
+
+        assertEquals(Arrays.asList(false, false, false), lockHeld);
+    }
+}
@@ -0,0 +1,78 @@
+package com.fmigliaro.almundo.controller.handler;
+
+import com.fmigliaro.almundo.model.Director;
+import com.fmigliaro.almundo.model.Operator;
+import com.fmigliaro.almundo.model.Supervisor;
+import com.fmigliaro.almundo.utility.Clock;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Fixture que crea la cadena de handlers Operador -> Supervisor -> Director -> Operador utilizada por los tests, los<br/>
+ * benchmarks, los tests de concurrencia y la prueba de larga duración (que la obtienen del test-jar del proyecto).
+ */
+public final class HandlerChains {
+
+    private static final int RETRY_TIMEOUT_MS = 3000;
+
+    private HandlerChains() {
+    }
+
+    /**
+     * Crea una cadena con la cantidad de empleados indicada para cada nivel. Un nivel puede no tener empleados.
+     *
+     * @return El handler de Operadores, primer eslabón de la cadena.
+     */
+    public static OperatorHandler create(int totalOps, int totalSups, int totalDirs) {
+        return create(totalOps, totalSups, totalDirs, RETRY_TIMEOUT_MS);
+    }
+
+    /**
+     * @param timeBeforeRetryMs Tiempo tras el cual se loguea que una llamada continúa esperando a un empleado.
+     * @return El handler de Operadores, primer eslabón de la cadena.
+     */
+    public static OperatorHandler create(int totalOps, int totalSups, int totalDirs, int timeBeforeRetryMs) {
+
+        final BlockingQueue<Operator> operators = new LinkedBlockingQueue<>();
+        final BlockingQueue<Supervisor> supervisors = new LinkedBlockingQueue<>();
+        final BlockingQueue<Director> directors = new LinkedBlockingQueue<>();
+
+        for (int i = 1; i <= totalOps; i++) {
+            operators.add(new Operator("Op" + i));
+        }
+        for (int i = 1; i <= totalSups; i++) {
+            supervisors.add(new Supervisor("Sup" + i));
+        }
+        for (int i = 1; i <= totalDirs; i++) {
+            directors.add(new Director("Dir" + i));
+        }
+        return link(operators, supervisors, directors, timeBeforeRetryMs);
+    }
+
+    /**
+     * Enlaza los handlers de los empleados indicados, cerrando la cadena en el handler de Operadores.
+     *
+     * @param timeBeforeRetryMs Tiempo tras el cual se loguea que una llamada continúa esperando a un empleado.
+     * @return El handler de Operadores, primer eslabón de la cadena.
+     */
+    public static OperatorHandler link(BlockingQueue<Operator> operators, BlockingQueue<Supervisor> supervisors,
+                                       BlockingQueue<Director> directors, int timeBeforeRetryMs) {
+        return link(operators, supervisors, directors, timeBeforeRetryMs, Clock.SYSTEM);
+    }
+
+    /**
+     * @param clock Reloj con el que la cadena mide la duración y la espera de las llamadas.
+     * @return El handler de Operadores, primer eslabón de la cadena.
+     */
+    public static OperatorHandler link(BlockingQueue<Operator> operators, BlockingQueue<Supervisor> supervisors,
+                                       BlockingQueue<Director> directors, int timeBeforeRetryMs, Clock clock) {
+
+        final DirectorHandler dirHandler = new DirectorHandler(directors, timeBeforeRetryMs, clock);
+        final SupervisorHandler supHandler = new SupervisorHandler(supervisors, dirHandler);
+        final OperatorHandler opHandler = new OperatorHandler(operators, supHandler);
+        dirHandler.setSuccessorHandler(opHandler);
+
+        return opHandler;
+    }
+}
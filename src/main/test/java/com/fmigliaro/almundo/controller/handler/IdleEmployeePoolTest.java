@@ -0,0 +1,172 @@
+package com.fmigliaro.almundo.controller.handler;
+
+import com.fmigliaro.almundo.model.Operator;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Unit Tests de {@link IdleEmployeePool}.
+ */
+public class IdleEmployeePoolTest {
+
+    @Test
+    public void pollShouldReturnEveryEmployeeOnceAndThenNone() {
+
+        final IdleEmployeePool<Operator> pool = new IdleEmployeePool<>(
+                Arrays.asList(new Operator("Op1"), new Operator("Op2"), new Operator("Op3")));
+
+        final Set<Integer> slots = new HashSet<>();
+        for (int i = 0; i < 3; i++) {
+            slots.add(pool.poll());
+        }
+        assertEquals(new HashSet<>(Arrays.asList(0, 1, 2)), slots);
+        assertEquals(IdleEmployeePool.NONE, pool.poll());
+
+        pool.offer(1);
+        assertEquals(1, pool.poll());
+    }
+
+    /**
+     * Varios threads obtienen y devuelven empleados concurrentemente: ningún empleado debe ser obtenido por dos<br/>
+     * threads a la vez ni perderse.
+     */
+    @Test
+    public void concurrentPollAndOfferShouldNeverDuplicateOrLoseEmployees() throws InterruptedException {
+
+        final int staff = 4;
+        final List<Operator> operators = new ArrayList<>();
+        for (int i = 0; i < staff; i++) {
+            operators.add(new Operator("Op" + i));
+        }
+        final IdleEmployeePool<Operator> pool = new IdleEmployeePool<>(operators);
+        final AtomicInteger[] holders = new AtomicInteger[staff];
+        for (int i = 0; i < staff; i++) {
+            holders[i] = new AtomicInteger();
+        }
+        final AtomicInteger duplicates = new AtomicInteger();
+        final ExecutorService executor = Executors.newFixedThreadPool(8);
+
+        for (int t = 0; t < 8; t++) {
+            executor.execute(() -> {
+                for (int i = 0; i < 100_000; i++) {
+                    final int slot = pool.poll();
+                    if (slot == IdleEmployeePool.NONE) {
+                        continue;
+                    }
+                    if (holders[slot].incrementAndGet() != 1) {
+                        duplicates.incrementAndGet();
+                    }
+                    holders[slot].decrementAndGet();
+                    pool.offer(slot);
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+
+        assertEquals(0, duplicates.get());
+        final Set<Integer> slots = new HashSet<>();
+        int slot;
+        while ((slot = pool.poll()) != IdleEmployeePool.NONE) {
+            assertTrue(slots.add(slot));
+        }
+        assertEquals(staff, slots.size());
+    }
+
+    /**
+     * Liberar dos veces al mismo empleado debe detectarse aunque la cola tenga lugar, sin que su slot ingrese dos<br/>
+     * veces en ella.
+     */
+    @Test
+    public void releasingAnEmployeeTwiceShouldBeDetected() {
+
+        final IdleEmployeePool<Operator> pool = new IdleEmployeePool<>(
+                Arrays.asList(new Operator("Op1"), new Operator("Op2"), new Operator("Op3")));
+
+        final int slot = pool.poll();
+        assertTrue(pool.offerIfOnDuty(slot));
+        assertReleasedTwice(() -> pool.offerIfOnDuty(slot));
+        assertReleasedTwice(() -> pool.endCall(slot));
+        assertReleasedTwice(() -> pool.offer(slot));
+
+        //Un empleado retirado mientras atendía una llamada se libera una única vez.
+        final int leaving = pool.poll();
+        assertTrue(pool.retire(leaving));
+        assertFalse(pool.offerIfOnDuty(leaving));
+        assertFalse(pool.endCall(leaving));
+        assertReleasedTwice(() -> pool.endCall(leaving));
+
+        final Set<Integer> slots = new HashSet<>();
+        int idle;
+        while ((idle = pool.poll()) != IdleEmployeePool.NONE) {
+            assertTrue(slots.add(idle));
+        }
+        assertEquals(2, slots.size());
+    }
+
+    /**
+     * Los empleados retirados mientras estaban disponibles no se cuentan como disponibles, y el slot de un empleado<br/>
+     * retirado se reutiliza recién cuando queda fuera de servicio.
+     */
+    @Test
+    public void retiredSlotsShouldBeReusedOnceOffDuty() {
+
+        final Operator op1 = new Operator("Op1");
+        final Operator op2 = new Operator("Op2");
+        final Operator op3 = new Operator("Op3");
+        final IdleEmployeePool<Operator> pool = new IdleEmployeePool<>(Arrays.asList(op1, op2, op3));
+
+        final int busy = pool.poll();
+        assertTrue(pool.retire(busy));
+        final int idle = pool.slotOf(op2);
+        assertFalse(pool.retire(idle));
+        assertEquals(1, pool.idleCount());
+
+        //El retirado que estaba disponible se descarta de la cola y su slot se reutiliza. El que atiende una llamada
+        //conserva el suyo hasta finalizarla.
+        final Operator op4 = new Operator("Op4");
+        assertEquals(idle, pool.add(op4));
+        assertEquals(IdleEmployeePool.NONE, pool.slotOf(op2));
+        pool.offer(idle);
+        assertEquals(2, pool.idleCount());
+
+        final Operator op5 = new Operator("Op5");
+        assertEquals(3, pool.add(op5));
+        pool.offer(3);
+
+        assertFalse(pool.endCall(busy));
+        final Operator op6 = new Operator("Op6");
+        assertEquals(busy, pool.add(op6));
+        assertEquals(IdleEmployeePool.NONE, pool.slotOf(op1));
+        assertEquals(busy, pool.slotOf(op6));
+        pool.offer(busy);
+
+        //El empleado que permaneció disponible conserva su lugar en la cola.
+        assertEquals(pool.slotOf(op3), pool.poll());
+        assertEquals(4, pool.staffCount());
+        assertEquals(3, pool.idleCount());
+    }
+
+    private static void assertReleasedTwice(Runnable release) {
+        try {
+            release.run();
+            fail("Se esperaba que la liberación fallara.");
+        } catch (IllegalStateException ise) {
+            assertTrue(ise.getMessage().contains("liberado más de una vez"));
+        }
+    }
+}
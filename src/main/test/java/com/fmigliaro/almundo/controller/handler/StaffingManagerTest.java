@@ -0,0 +1,224 @@
+package com.fmigliaro.almundo.controller.handler;
+
+import com.fmigliaro.almundo.model.Call;
+import com.fmigliaro.almundo.model.Employee;
+import com.fmigliaro.almundo.model.Operator;
+import com.fmigliaro.almundo.model.Supervisor;
+import com.fmigliaro.almundo.model.Tier;
+import com.fmigliaro.almundo.utility.AsyncCallRegistration;
+import com.fmigliaro.almundo.utility.CallRegistrationAware;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit Tests de {@link StaffingManager}.
+ */
+public class StaffingManagerTest {
+
+    private ScheduledExecutorService scheduler;
+    private OperatorHandler chain;
+    private StaffingManager staffing;
+    private final Operator op1 = new Operator("Op1");
+    private final List<long[]> intervals = Collections.synchronizedList(new ArrayList<>());
+    private final List<String> names = Collections.synchronizedList(new ArrayList<>());
+    private final CallRegistrationAware callReg = new CallRegistrationAware() {
+        @Override
+        public void addEmployeeInCallProcessingOrder(Employee employee) {
+        }
+
+        @Override
+        public void callCompleted(Call call, Employee employee, long assignedNanos, long endNanos) {
+            synchronized (intervals) {
+                intervals.add(new long[]{assignedNanos, endNanos});
+                //La misma persona puede estar representada en distintos niveles: se la identifica por su nombre.
+                final String description = employee.toString();
+                names.add(description.substring(description.indexOf("nombre=") + 7, description.indexOf(']')));
+            }
+        }
+    };
+
+    @Before
+    public void setUp() {
+
+        scheduler = Executors.newScheduledThreadPool(2);
+        chain = HandlerChains.link(new LinkedBlockingQueue<>(Collections.singletonList(op1)),
+                new LinkedBlockingQueue<>(), new LinkedBlockingQueue<>(), 1000);
+        staffing = new StaffingManager(chain);
+    }
+
+    @After
+    public void tearDown() throws InterruptedException {
+        scheduler.shutdown();
+        scheduler.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    /**
+     * El único Operador está ocupado y una llamada espera: al incorporarse un nuevo Operador, la atiende de inmediato.
+     */
+    @Test
+    public void addedEmployeeShouldServeWaitingCallImmediately() {
+
+        final long start = System.nanoTime();
+        final CompletableFuture<Void> first = chain.handleCallAsync(new Call(500), callReg, scheduler);
+        final CompletableFuture<Void> second = chain.handleCallAsync(new Call(100), callReg, scheduler);
+
+        staffing.add(new Operator("Op2"));
+        second.join();
+
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 400);
+        assertEquals(2, staffing.getStaffCount(Tier.OPERATOR));
+        first.join();
+    }
+
+    @Test
+    public void removedEmployeeShouldNotBeAssignedUntilRejoining() {
+
+        final Operator op2 = new Operator("Op2");
+        staffing.add(op2);
+        assertTrue(staffing.remove(op2));
+        assertFalse(staffing.remove(op2));
+
+        for (int i = 0; i < 3; i++) {
+            chain.handleCallAsync(new Call(10), callReg, scheduler).join();
+        }
+        assertFalse(names.contains("Op2"));
+
+        staffing.add(op2);
+        staffing.remove(op1);
+        chain.handleCallAsync(new Call(10), callReg, scheduler).join();
+        assertEquals("Op2", names.get(names.size() - 1));
+    }
+
+    /**
+     * El Operador se reasigna como Supervisor mientras atiende una llamada: el Supervisor recién queda disponible al<br/>
+     * finalizar dicha llamada, por lo que la llamada siguiente debe esperarla.
+     */
+    @Test
+    public void reassignedBusyEmployeeShouldJoinNewTierAfterFinishingCall() {
+
+        final CompletableFuture<Void> first = chain.handleCallAsync(new Call(300), callReg, scheduler);
+        staffing.reassign(op1, new Supervisor("Op1"));
+        assertEquals(0, staffing.getStaffCount(Tier.OPERATOR));
+
+        chain.handleCallAsync(new Call(10), callReg, scheduler).join();
+        first.join();
+
+        assertEquals(1, staffing.getStaffCount(Tier.SUPERVISOR));
+        assertTrue(intervals.get(1)[0] >= intervals.get(0)[1]);
+    }
+
+    /**
+     * Reasignar repetidamente a los mismos empleados entre niveles reutiliza los slots de los retirados: la cantidad<br/>
+     * de slots de cada handler no crece con los cambios de dotación.
+     */
+    @Test
+    public void repeatedReassignmentsShouldReuseSlots() {
+
+        Employee operator = op1;
+        for (int i = 0; i < 100; i++) {
+            final Supervisor supervisor = new Supervisor("Op1");
+            staffing.reassign(operator, supervisor);
+            operator = new Operator("Op1");
+            staffing.reassign(supervisor, operator);
+            //El empleado retirado mientras estaba disponible se descarta de la cola al buscar empleados.
+            chain.handleCallAsync(new Call(0), callReg, scheduler).join();
+        }
+
+        assertEquals(1, staffing.getStaffCount());
+        assertTrue(chain.employees.staffCount() <= 2);
+        assertTrue(chain.successorHandler.employees.staffCount() <= 2);
+        assertEquals(1, chain.getIdleEmployeeCount());
+    }
+
+    @Test
+    public void listenersShouldResizeExecutorAndRegistrationBuffer() {
+
+        final ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>());
+        final AsyncCallRegistration registrations = new AsyncCallRegistration((employee, endOfBatch) -> { }, 8, 64);
+        staffing.addListener(StaffingListener.resizing(executor, 2));
+        staffing.addListener(StaffingListener.resizing(registrations, 4));
+        assertEquals(4, registrations.getCapacity());
+
+        staffing.add(new Operator("Op2"));
+        staffing.add(new Supervisor("Sup1"));
+        //Un thread por empleado, más dos para llamadas en espera.
+        assertEquals(5, executor.getMaximumPoolSize());
+        assertEquals(5, executor.getCorePoolSize());
+        assertEquals(12, registrations.getCapacity());
+
+        staffing.remove(op1);
+        assertEquals(4, executor.getMaximumPoolSize());
+        assertEquals(8, registrations.getCapacity());
+
+        executor.shutdown();
+        registrations.close();
+    }
+
+    /**
+     * Mientras varios threads procesan llamadas, otro thread incorpora, retira y reasigna empleados (ampliando los<br/>
+     * pools por encima de su capacidad inicial). Todas las llamadas deben finalizar y ninguna persona debe atender<br/>
+     * dos llamadas a la vez.
+     */
+    @Test
+    public void staffingChangesUnderLoadShouldNeverLoseOrDoubleAssignEmployees() throws InterruptedException {
+
+        final List<Operator> operators = new ArrayList<>();
+        for (int i = 2; i <= 20; i++) {
+            operators.add(new Operator("Op" + i));
+        }
+        final List<CompletableFuture<Void>> processed = Collections.synchronizedList(new ArrayList<>());
+        final CountDownLatch producers = new CountDownLatch(4);
+
+        for (int t = 0; t < 4; t++) {
+            new Thread(() -> {
+                for (int i = 0; i < 500; i++) {
+                    processed.add(chain.handleCallAsync(new Call(ThreadLocalRandom.current().nextInt(3)), callReg,
+                            scheduler));
+                }
+                producers.countDown();
+            }).start();
+        }
+        while (producers.getCount() > 0) {
+            final Operator operator = operators.get(ThreadLocalRandom.current().nextInt(operators.size()));
+            staffing.add(operator);
+            if (ThreadLocalRandom.current().nextBoolean()) {
+                staffing.remove(operator);
+            }
+            Thread.sleep(1);
+        }
+        staffing.reassign(op1, new Supervisor("Op1"));
+        CompletableFuture.allOf(processed.toArray(new CompletableFuture<?>[0])).join();
+
+        assertEquals(2000, intervals.size());
+        final Map<String, List<long[]>> byName = new HashMap<>();
+        for (int i = 0; i < names.size(); i++) {
+            byName.computeIfAbsent(names.get(i), name -> new ArrayList<>()).add(intervals.get(i));
+        }
+        for (List<long[]> personIntervals : byName.values()) {
+            personIntervals.sort((a, b) -> Long.compare(a[0], b[0]));
+            for (int i = 1; i < personIntervals.size(); i++) {
+                assertTrue(personIntervals.get(i)[0] >= personIntervals.get(i - 1)[1]);
+            }
+        }
+    }
+}
@@ -0,0 +1,275 @@
+package com.fmigliaro.almundo.controller.routing;
+
+import com.fmigliaro.almundo.controller.admission.ShedReason;
+import com.fmigliaro.almundo.model.Call;
+import com.fmigliaro.almundo.model.Director;
+import com.fmigliaro.almundo.model.Employee;
+import com.fmigliaro.almundo.model.Operator;
+import com.fmigliaro.almundo.model.Priority;
+import com.fmigliaro.almundo.model.Supervisor;
+import com.fmigliaro.almundo.model.Tier;
+import com.fmigliaro.almundo.utility.CallRegistrationAware;
+import com.fmigliaro.almundo.utility.Clock;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit Tests del ruteo por prioridad y habilidades de {@link SkillRouter}.
+ */
+public class SkillRouterTest {
+
+    private final List<Employee> assigned = new CopyOnWriteArrayList<>();
+    private final CallRegistrationAware callReg = assigned::add;
+    private ScheduledExecutorService scheduler;
+
+    @Before
+    public void setUp() {
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+    }
+
+    @After
+    public void tearDown() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * Sin habilidades, el ruteo por defecto debe respetar el mismo orden que la cadena de handlers.
+     */
+    @Test
+    public void defaultPolicyShouldFollowTierOrder() throws Exception {
+
+        final List<Employee> employees = new ArrayList<>();
+        employees.add(new Director("Dir1"));
+        employees.add(new Supervisor("Sup1"));
+        employees.add(new Operator("Op1"));
+        employees.add(new Operator("Op2"));
+        final SkillRouter router = new SkillRouter(employees);
+
+        final List<CompletableFuture<Void>> calls = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            calls.add(router.handleCallAsync(new Call(100), callReg, scheduler));
+        }
+        CompletableFuture.allOf(calls.toArray(new CompletableFuture<?>[0])).get(5, TimeUnit.SECONDS);
+
+        assertEquals(Arrays.asList(Tier.OPERATOR, Tier.OPERATOR, Tier.SUPERVISOR, Tier.DIRECTOR, Tier.OPERATOR),
+                tiersOf(assigned));
+    }
+
+    /**
+     * Una llamada que requiere una habilidad debe saltear a los empleados que no la tienen, aún cuando estén<br/>
+     * disponibles y pertenezcan a un nivel preferido.
+     */
+    @Test
+    public void callShouldSkipEmployeesWithoutRequiredSkills() throws Exception {
+
+        final SkillRouter router = new SkillRouter(Arrays.asList(new Operator("Op1"),
+                new Supervisor("Sup1", skills("en"))));
+
+        router.handleCallAsync(new Call(10, Priority.NORMAL, skills("en")), callReg, scheduler)
+                .get(5, TimeUnit.SECONDS);
+
+        assertEquals(Collections.singletonList(Tier.SUPERVISOR), tiersOf(assigned));
+    }
+
+    /**
+     * Entre los empleados elegibles del mismo nivel, se prefiere al que tiene menos habilidades.
+     */
+    @Test
+    public void leastQualifiedEligibleEmployeeShouldBePreferred() throws Exception {
+
+        final Operator bilingual = new Operator("Op1", skills("en", "pt"));
+        final Operator english = new Operator("Op2", skills("en"));
+        final SkillRouter router = new SkillRouter(Arrays.asList(bilingual, english));
+
+        router.handleCallAsync(new Call(10, Priority.NORMAL, skills("en")), callReg, scheduler)
+                .get(5, TimeUnit.SECONDS);
+
+        assertSame(english, assigned.get(0));
+    }
+
+    /**
+     * Cuando se libera un empleado, debe asignarse a la llamada en espera de mayor prioridad, aunque haya llegado<br/>
+     * después que otras de menor prioridad.
+     */
+    @Test
+    public void releasedEmployeeShouldServeHighestPriorityWaitingCall() throws Exception {
+
+        final SkillRouter router = new SkillRouter(Collections.singletonList(new Operator("Op1")));
+        final List<String> servedCalls = new CopyOnWriteArrayList<>();
+
+        final CompletableFuture<Void> first = router.handleCallAsync(new Call(200),
+                employee -> servedCalls.add("first"), scheduler);
+        final CompletableFuture<Void> normal = router.handleCallAsync(new Call(10, Priority.NORMAL),
+                employee -> servedCalls.add("normal"), scheduler);
+        final CompletableFuture<Void> urgent = router.handleCallAsync(new Call(10, Priority.URGENT),
+                employee -> servedCalls.add("urgent"), scheduler);
+
+        CompletableFuture.allOf(first, normal, urgent).get(5, TimeUnit.SECONDS);
+
+        assertEquals(Arrays.asList("first", "urgent", "normal"), servedCalls);
+    }
+
+    /**
+     * Una llamada que requiere una habilidad que ningún empleado tiene, o que sólo tienen empleados de niveles que<br/>
+     * la política de ruteo no considera, se descarta en lugar de quedar en espera indefinidamente.
+     */
+    @Test
+    public void callNoEmployeeCanServeShouldBeShedInsteadOfWaiting() throws Exception {
+
+        final SkillRouter router = new SkillRouter(Arrays.asList(new Operator("Op1"),
+                new Director("Dir1", skills("de"))), call -> Collections.singletonList(Tier.OPERATOR));
+        final Map<Call, ShedReason> shed = new ConcurrentHashMap<>();
+        router.setShedCallListener(shed::put);
+
+        final Call unknownSkill = new Call(10, Priority.NORMAL, skills("fr"));
+        final Call onlyDirectors = new Call(10, Priority.NORMAL, skills("de"));
+        router.handleCallAsync(unknownSkill, callReg, scheduler).get(1, TimeUnit.SECONDS);
+        router.handleCall(onlyDirectors, callReg);
+
+        assertEquals(ShedReason.NO_ELIGIBLE_EMPLOYEE, shed.get(unknownSkill));
+        assertEquals(ShedReason.NO_ELIGIBLE_EMPLOYEE, shed.get(onlyDirectors));
+        assertEquals(Collections.emptyList(), assigned);
+    }
+
+    /**
+     * El Operador está ocupado 500 ms y las llamadas en espera toleran 100 ms: tanto la asincrónica como la<br/>
+     * bloqueante dejan de esperar al vencer su espera, sin que se les asigne el Operador.
+     */
+    @Test
+    public void waitingCallsShouldAbandonWhenMaxWaitIsExceeded() throws Exception {
+
+        final SkillRouter router = new SkillRouter(Collections.singletonList(new Operator("Op1")));
+        final Map<Call, ShedReason> shed = new ConcurrentHashMap<>();
+        router.setShedCallListener(shed::put);
+        final CompletableFuture<Void> first = router.handleCallAsync(new Call(500), callReg, scheduler);
+
+        final Call asyncCall = new Call(100);
+        asyncCall.setMaxWaitMs(100);
+        final Call blockingCall = new Call(100);
+        blockingCall.setMaxWaitMs(100);
+
+        final long start = System.nanoTime();
+        router.handleCallAsync(asyncCall, callReg, scheduler).get(1, TimeUnit.SECONDS);
+        router.handleCall(blockingCall, callReg);
+
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 400);
+        assertEquals(ShedReason.ABANDONED, shed.get(asyncCall));
+        assertEquals(ShedReason.ABANDONED, shed.get(blockingCall));
+        assertFalse(router.cancel(asyncCall));
+        first.get(1, TimeUnit.SECONDS);
+        assertEquals(1, assigned.size());
+    }
+
+    /**
+     * Una llamada en espera cancelada deja de esperar de inmediato, y el Operador que se libera luego queda<br/>
+     * disponible para la próxima llamada.
+     */
+    @Test
+    public void cancelledCallShouldStopWaiting() throws Exception {
+
+        final Operator operator = new Operator("Op1");
+        final SkillRouter router = new SkillRouter(Collections.singletonList(operator));
+        final Map<Call, ShedReason> shed = new ConcurrentHashMap<>();
+        router.setShedCallListener(shed::put);
+        final CompletableFuture<Void> first = router.handleCallAsync(new Call(300), callReg, scheduler);
+
+        final Call waiting = new Call(100);
+        final CompletableFuture<Void> cancelled = router.handleCallAsync(waiting, callReg, scheduler);
+        assertFalse(cancelled.isDone());
+
+        assertTrue(router.cancel(waiting));
+        cancelled.get(100, TimeUnit.MILLISECONDS);
+        assertEquals(ShedReason.CANCELLED, shed.get(waiting));
+        assertFalse(router.cancel(waiting));
+
+        first.get(1, TimeUnit.SECONDS);
+        router.handleCallAsync(new Call(10), callReg, scheduler).get(1, TimeUnit.SECONDS);
+        assertEquals(Arrays.asList(operator, operator), assigned);
+    }
+
+    /**
+     * El router debe registrar a los empleados asignados luego de liberar su lock: un {@link CallRegistrationAware}<br/>
+     * que espera a otro thread que usa el router no debe bloquearlo, tanto al asignar un Operador disponible como al<br/>
+     * asignarlo a una llamada en espera cuando se libera.
+     */
+    @Test
+    public void registrationShouldNotHoldTheRouterLock() throws Exception {
+
+        final SkillRouter router = new SkillRouter(Collections.singletonList(new Operator("Op1")));
+        final List<Boolean> routerAvailable = new CopyOnWriteArrayList<>();
+        final CallRegistrationAware waitingSink = employee -> {
+            try {
+                routerAvailable.add(CompletableFuture.supplyAsync(() -> router.cancel(new Call(0)))
+                        .get(1, TimeUnit.SECONDS) != null);
+            } catch (InterruptedException | ExecutionException | TimeoutException te) {
+                routerAvailable.add(false);
+            }
+        };
+
+        final CompletableFuture<Void> first = router.handleCallAsync(new Call(100), waitingSink, scheduler);
+        final CompletableFuture<Void> second = router.handleCallAsync(new Call(100), waitingSink, scheduler);
+        CompletableFuture.allOf(first, second).get(5, TimeUnit.SECONDS);
+
+        assertEquals(Arrays.asList(true, true), routerAvailable);
+    }
+
+    /**
+     * Con un reloj 100 veces más rápido, la duración de las llamadas y el vencimiento de la espera deben medirse con<br/>
+     * el reloj del router: tres llamadas de 1 segundo y una que abandona tras 500 ms se resuelven en decenas de<br/>
+     * milisegundos reales.
+     */
+    @Test
+    public void acceleratedClockShouldScaleAsyncDurationsAndMaxWait() throws Exception {
+
+        final SkillRouter router = new SkillRouter(Collections.singletonList(new Operator("Op1")),
+                RoutingPolicy.TIER_ORDER, Clock.accelerated(100));
+        final Map<Call, ShedReason> shed = new ConcurrentHashMap<>();
+        router.setShedCallListener(shed::put);
+
+        final long start = System.nanoTime();
+        final List<CompletableFuture<Void>> calls = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            calls.add(router.handleCallAsync(new Call(1000), callReg, scheduler));
+        }
+        final Call impatient = new Call(1000);
+        impatient.setMaxWaitMs(500);
+        calls.add(router.handleCallAsync(impatient, callReg, scheduler));
+        CompletableFuture.allOf(calls.toArray(new CompletableFuture<?>[0])).get(5, TimeUnit.SECONDS);
+
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 1000);
+        assertEquals(ShedReason.ABANDONED, shed.get(impatient));
+    }
+
+    private static HashSet<String> skills(String... skills) {
+        return new HashSet<>(Arrays.asList(skills));
+    }
+
+    private static List<Tier> tiersOf(List<Employee> employees) {
+        final List<Tier> tiers = new ArrayList<>();
+        for (Employee employee : employees) {
+            tiers.add(employee.getTier());
+        }
+        return tiers;
+    }
+}
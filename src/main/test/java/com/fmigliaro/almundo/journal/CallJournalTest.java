@@ -0,0 +1,175 @@
+package com.fmigliaro.almundo.journal;
+
+import com.fmigliaro.almundo.controller.handler.DirectorHandler;
+import com.fmigliaro.almundo.controller.handler.OperatorHandler;
+import com.fmigliaro.almundo.controller.handler.SupervisorHandler;
+import com.fmigliaro.almundo.model.Call;
+import com.fmigliaro.almundo.model.Director;
+import com.fmigliaro.almundo.model.Employee;
+import com.fmigliaro.almundo.model.Operator;
+import com.fmigliaro.almundo.model.Supervisor;
+import com.fmigliaro.almundo.model.Tier;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit Tests del journal de llamadas ({@link CallJournal} y {@link CallJournalReader}).
+ */
+public class CallJournalTest {
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void recordsShouldBeReadBackInOrderAcrossSegmentsAndRestarts() throws IOException {
+
+        final Path directory = folder.getRoot().toPath();
+        final Employee supervisor = new Supervisor("Sup1");
+        final List<Long> callIds = new ArrayList<>();
+
+        writeCalls(directory, supervisor, 2500, callIds);
+        //Al reabrir el journal, se continúa en un segmento nuevo sin perder el historial.
+        writeCalls(directory, supervisor, 500, callIds);
+        assertEquals(4, JournalFormat.listSegments(directory).size());
+
+        final List<Long> readCallIds = new ArrayList<>();
+        final long records = new CallJournalReader(directory).forEach(record -> {
+            readCallIds.add(record.getCallId());
+            assertEquals(supervisor.getId(), record.getEmployeeId());
+            assertEquals("Sup1", record.getEmployeeName());
+            assertEquals(Tier.SUPERVISOR, record.getTier());
+            assertEquals(50, record.getDurationMs());
+            assertEquals(TimeUnit.MILLISECONDS.toNanos(10), record.getWaitNanos());
+            assertEquals(TimeUnit.MILLISECONDS.toNanos(50), record.getHandleNanos());
+        });
+
+        assertEquals(3000, records);
+        assertEquals(callIds, readCallIds);
+    }
+
+    @Test
+    public void rotationShouldKeepOnlyTheConfiguredNumberOfSegments() throws IOException {
+
+        final Path directory = folder.getRoot().toPath();
+        final List<Long> callIds = new ArrayList<>();
+
+        final Employee operator = new Operator("Op1");
+
+        try (CallJournal journal = new CallJournal(directory, 100, 2)) {
+            for (int i = 0; i < 450; i++) {
+                final Call call = new Call(50);
+                callIds.add(call.getId());
+                journal.callCompleted(call, operator, 0, 0);
+            }
+        }
+        final List<Long> readCallIds = new ArrayList<>();
+        new CallJournalReader(directory).forEach(record -> {
+            readCallIds.add(record.getCallId());
+            //El nombre se resuelve aunque el segmento donde el empleado apareció primero ya fue eliminado.
+            assertEquals("Op1", record.getEmployeeName());
+        });
+
+        //Cada segmento contiene un registro del empleado y 99 llamadas: 99 + 99 + 99 + 99 + 54.
+        assertEquals(2, JournalFormat.listSegments(directory).size());
+        assertEquals(callIds.subList(297, 450), readCallIds);
+    }
+
+    /**
+     * El segmento siguiente se crea por adelantado, por lo que mientras el journal está abierto hay un segmento más<br/>
+     * que los escritos. Al cerrarlo, el segmento sin utilizar se elimina.
+     */
+    @Test
+    public void nextSegmentShouldBeCreatedAheadAndDiscardedOnClose() throws IOException, InterruptedException {
+
+        final Path directory = folder.getRoot().toPath();
+        final Employee operator = new Operator("Op1");
+
+        try (CallJournal journal = new CallJournal(directory, 100, 0)) {
+            for (int i = 0; i < 150; i++) {
+                journal.callCompleted(new Call(50), operator, 0, 0);
+            }
+            final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (JournalFormat.listSegments(directory).size() < 3 && System.nanoTime() < deadline) {
+                TimeUnit.MILLISECONDS.sleep(10);
+            }
+            assertEquals(3, JournalFormat.listSegments(directory).size());
+        }
+        assertEquals(2, JournalFormat.listSegments(directory).size());
+        assertEquals(150, new CallJournalReader(directory).forEach(record -> { }));
+    }
+
+    @Test
+    public void handlerChainShouldJournalEachCompletedCall() throws IOException {
+
+        final Path directory = folder.getRoot().toPath();
+        final DirectorHandler dirHandler = new DirectorHandler(
+                new LinkedBlockingQueue<>(Collections.singleton(new Director("Dir1"))), 1000);
+        final SupervisorHandler supHandler = new SupervisorHandler(new LinkedBlockingQueue<>(), dirHandler);
+        final OperatorHandler opHandler = new OperatorHandler(
+                new LinkedBlockingQueue<>(Collections.singleton(new Operator("Op1"))), supHandler);
+        dirHandler.setSuccessorHandler(opHandler);
+
+        try (CallJournal journal = new CallJournal(directory, 1000, 0)) {
+            opHandler.handleCall(new Call(100), journal);
+            assertEquals(1, journal.getWrittenRecords());
+        }
+        final long records = new CallJournalReader(directory).forEach(record -> {
+            assertEquals(Tier.OPERATOR, record.getTier());
+            assertTrue(record.getHandleNanos() >= TimeUnit.MILLISECONDS.toNanos(100));
+            assertTrue(record.getReceivedEpochNanos() > 0);
+        });
+        assertEquals(1, records);
+    }
+
+    private static void writeCalls(Path directory, Employee employee, int count, List<Long> callIds)
+            throws IOException {
+
+        final long receivedNanos = 1_000_000_000L;
+        try (CallJournal journal = new CallJournal(directory, 1000, 0)) {
+            for (int i = 0; i < count; i++) {
+                final Call call = new Call(50);
+                call.setReceivedNanos(receivedNanos);
+                callIds.add(call.getId());
+                journal.callCompleted(call, employee, receivedNanos + TimeUnit.MILLISECONDS.toNanos(10),
+                        receivedNanos + TimeUnit.MILLISECONDS.toNanos(60));
+            }
+        }
+    }
+
+    /**
+     * Los nombres largos ocupan varios registros y se truncan a la longitud máxima persistida.
+     */
+    @Test
+    public void longEmployeeNamesShouldSpanSeveralRecords() throws IOException {
+
+        final Path directory = folder.getRoot().toPath();
+        final String longName = "Director de atención al cliente de la región sur número 1";
+        final Employee director = new Director(longName);
+        final Employee operator = new Operator("Op1");
+
+        try (CallJournal journal = new CallJournal(directory, 100, 0)) {
+            journal.callCompleted(new Call(50), director, 0, 0);
+            journal.callCompleted(new Call(50), operator, 0, 0);
+            journal.callCompleted(new Call(50), director, 0, 0);
+        }
+        final List<String> names = new ArrayList<>();
+        final long records = new CallJournalReader(directory).forEach(record -> names.add(record.getEmployeeName()));
+
+        final String persistedName = longName.substring(0, JournalFormat.MAX_NAME_CHARS);
+        assertEquals(3, records);
+        assertEquals(Arrays.asList(persistedName, "Op1", persistedName), names);
+    }
+}
@@ -0,0 +1,82 @@
+package com.fmigliaro.almundo.metrics;
+
+import com.fmigliaro.almundo.controller.admission.ShedCallListener;
+import com.fmigliaro.almundo.controller.admission.ShedReason;
+import com.fmigliaro.almundo.controller.handler.EmployeeHandler;
+import com.fmigliaro.almundo.controller.handler.HandlerChains;
+import com.fmigliaro.almundo.model.Call;
+import com.fmigliaro.almundo.model.Operator;
+import com.fmigliaro.almundo.model.Tier;
+import org.junit.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit Tests de las métricas de la cadena de handlers ({@link CallMetrics}).
+ */
+public class CallMetricsTest {
+
+    /**
+     * Se procesan 4 llamadas concurrentes con un empleado de cada nivel: una de ellas debe esperar a que se libere<br/>
+     * un empleado, lo cual se refleja en el histograma de tiempo hasta la asignación y en los reintentos.
+     */
+    @Test
+    public void chainShouldRecordAssignmentsWaitsAndIdleEmployees() throws InterruptedException {
+
+        final EmployeeHandler<Operator> chain = HandlerChains.create(1, 1, 1, 100);
+        final CallMetrics metrics = new CallMetrics();
+        chain.setMetricsRecorder(metrics);
+
+        for (Tier tier : Tier.values()) {
+            assertEquals(1, metrics.getIdleEmployees(tier));
+        }
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        for (int i = 0; i < 4; i++) {
+            executor.execute(() -> chain.handleCall(new Call(300), employee -> { }));
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+
+        long assigned = 0;
+        long maxTimeToAssignNanos = 0;
+        for (Tier tier : Tier.values()) {
+            assertEquals(1, metrics.getIdleEmployees(tier));
+            assigned += metrics.getTimeToAssign(tier).getCount();
+            maxTimeToAssignNanos = Math.max(maxTimeToAssignNanos, metrics.getTimeToAssign(tier).getMax());
+            assertTrue(metrics.getHandleTime(tier).getValueAtPercentile(50) >= TimeUnit.MILLISECONDS.toNanos(250));
+        }
+        assertEquals(4, assigned);
+        assertEquals(0, metrics.getWaitingCalls());
+        assertTrue(metrics.getRetryCount() >= 1);
+        assertTrue(maxTimeToAssignNanos >= TimeUnit.MILLISECONDS.toNanos(250));
+    }
+
+    @Test
+    public void metricsShouldBeExportedThroughJmxAndCountRejections() throws Exception {
+
+        final CallMetrics metrics = new CallMetrics();
+        final ShedCallListener listener = ShedCallListener.LOGGING.andThen(metrics);
+        listener.onShed(new Call(100), ShedReason.RATE_LIMITED);
+        listener.onShed(new Call(100), ShedReason.RATE_LIMITED);
+        listener.onShed(new Call(100), ShedReason.INTAKE_FULL);
+
+        final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        final ObjectName name = metrics.registerMBean("test");
+        try {
+            assertEquals(0L, server.getAttribute(name, "WaitingCalls"));
+            assertEquals(2L, metrics.getRejectedCount(ShedReason.RATE_LIMITED));
+            assertEquals(1L, (long) metrics.getRejectedCalls().get(ShedReason.INTAKE_FULL.name()));
+            assertTrue(server.getAttribute(name, "RejectedCalls") != null);
+        } finally {
+            server.unregisterMBean(name);
+        }
+    }
+}
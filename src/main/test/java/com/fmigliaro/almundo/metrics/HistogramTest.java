@@ -0,0 +1,38 @@
+package com.fmigliaro.almundo.metrics;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit Tests de {@link Histogram}.
+ */
+public class HistogramTest {
+
+    @Test
+    public void everyValueShouldMapToABucketWhoseLowerBoundIsWithinTheRelativeError() {
+
+        for (long value : new long[]{0, 1, 127, 128, 129, 255, 256, 1_000, 123_456_789, Long.MAX_VALUE}) {
+            final long lowest = Histogram.lowestValueOf(Histogram.bucketOf(value));
+            assertTrue("Valor " + value + ", límite inferior " + lowest, lowest <= value);
+            assertTrue("Valor " + value + ", límite inferior " + lowest, value - lowest <= value / 64);
+        }
+    }
+
+    @Test
+    public void percentilesShouldBeWithinTheRelativeError() {
+
+        final Histogram histogram = new Histogram();
+        for (long value = 1; value <= 100_000; value++) {
+            histogram.record(value);
+        }
+
+        assertEquals(100_000, histogram.getCount());
+        assertEquals(100_000, histogram.getMax());
+        assertEquals(50_000.5, histogram.getMean(), 0.001);
+        assertEquals(50_000, histogram.getValueAtPercentile(50), 50_000 / 64);
+        assertEquals(99_000, histogram.getValueAtPercentile(99), 99_000 / 64);
+        assertEquals(1, histogram.getValueAtPercentile(0));
+    }
+}
@@ -0,0 +1,143 @@
+package com.fmigliaro.almundo.metrics;
+
+import com.fmigliaro.almundo.metrics.SlidingWindowMetrics.Window;
+import com.fmigliaro.almundo.model.Tier;
+import com.fmigliaro.almundo.utility.Clock;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit Tests de {@link SlidingWindowMetrics}. Se utiliza un reloj manual para controlar el paso del tiempo.
+ */
+public class SlidingWindowMetricsTest {
+
+    private final AtomicLong now = new AtomicLong(1_000);
+    private SlidingWindowMetrics metrics;
+
+    @Before
+    public void setUp() {
+        metrics = new SlidingWindowMetrics(new Clock() {
+            @Override
+            public long nanoTime() {
+                return now.get();
+            }
+
+            @Override
+            public void sleep(long millis) {
+                advanceSeconds(TimeUnit.MILLISECONDS.toSeconds(millis));
+            }
+        });
+    }
+
+    @Test
+    public void oldAssignmentsShouldLeaveTheShorterWindows() {
+
+        for (int i = 1; i <= 100; i++) {
+            metrics.employeeAssigned(Tier.OPERATOR, TimeUnit.MILLISECONDS.toNanos(i));
+        }
+        advanceSeconds(120);
+        metrics.employeeAssigned(Tier.OPERATOR, TimeUnit.MILLISECONDS.toNanos(1000));
+        metrics.employeeAssigned(Tier.SUPERVISOR, 0);
+
+        final WindowStats lastMinute = metrics.getStats(Tier.OPERATOR, Window.ONE_MINUTE);
+        assertEquals(1, lastMinute.getAssignedCalls());
+        assertEquals(1000, lastMinute.getMeanWaitMillis(), 0.001);
+
+        final WindowStats lastFiveMinutes = metrics.getStats(Tier.OPERATOR, Window.FIVE_MINUTES);
+        assertEquals(101, lastFiveMinutes.getAssignedCalls());
+        assertEquals((5050 + 1000) / 101.0, lastFiveMinutes.getMeanWaitMillis(), 0.001);
+        //El percentil 95 de las esperas de 1 a 100ms y 1000ms es 96ms, con un error relativo menor al 12,5%.
+        assertEquals(96, lastFiveMinutes.getP95WaitMillis(), 96 * 0.125);
+        assertEquals(120_000, lastFiveMinutes.getCoveredMillis());
+
+        assertEquals(1, metrics.getStats(Tier.SUPERVISOR, Window.FIFTEEN_MINUTES).getAssignedCalls());
+        assertEquals(0, metrics.getStats(Tier.DIRECTOR, Window.FIFTEEN_MINUTES).getAssignedCalls());
+
+        advanceSeconds(15 * 60);
+        assertEquals(0, metrics.getStats(Tier.OPERATOR, Window.FIFTEEN_MINUTES).getAssignedCalls());
+    }
+
+    /**
+     * Dos operadores durante 60 segundos, uno de ellos ocupado entre los segundos 0 y 30: la ocupación es del 25%.<br/>
+     * La ventana de 1 minuto sólo cubre desde el segundo 10, por lo que la ocupación es de 20s sobre 100s.
+     */
+    @Test
+    public void occupancyShouldWeightBusyTimeByStaffedTime() {
+
+        metrics.staffChanged(Tier.OPERATOR, 2);
+        metrics.employeeAssigned(Tier.OPERATOR, 0);
+        advanceSeconds(30);
+        metrics.employeeReleased(Tier.OPERATOR, TimeUnit.SECONDS.toNanos(30));
+        advanceSeconds(30);
+
+        assertEquals(0.25, metrics.getStats(Tier.OPERATOR, Window.FIFTEEN_MINUTES).getOccupancy(), 0.001);
+        assertEquals(0.2, metrics.getStats(Tier.OPERATOR, Window.ONE_MINUTE).getOccupancy(), 0.001);
+    }
+
+    /**
+     * Un empleado ocupado desde hace 20 minutos en una llamada que aún no finalizó está ocupado durante toda la<br/>
+     * ventana, aunque no haya eventos en ella. Al retirarse un segundo empleado, la ocupación refleja su ausencia.
+     */
+    @Test
+    public void occupancyShouldIncludeCallsInProgressAndStaffChanges() {
+
+        metrics.staffChanged(Tier.DIRECTOR, 2);
+        metrics.employeeAssigned(Tier.DIRECTOR, 0);
+        advanceSeconds(20 * 60);
+        assertEquals(0.5, metrics.getStats(Tier.DIRECTOR, Window.FIVE_MINUTES).getOccupancy(), 0.001);
+
+        metrics.staffChanged(Tier.DIRECTOR, -1);
+        advanceSeconds(60);
+        //La ventana cubre 290s, con el empleado ocupado durante todos ellos: 60s con un empleado presente y 230s
+        //con dos.
+        assertEquals(290.0 / (60 + 2 * 230), metrics.getStats(Tier.DIRECTOR, Window.FIVE_MINUTES).getOccupancy(),
+                0.001);
+        assertEquals(1, metrics.getStats(Tier.DIRECTOR, Window.ONE_MINUTE).getOccupancy(), 0.001);
+    }
+
+    @Test
+    public void concurrentRecordingShouldNotLoseEvents() throws InterruptedException {
+
+        final ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int thread = 0; thread < 8; thread++) {
+            executor.execute(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    metrics.employeeAssigned(Tier.OPERATOR, TimeUnit.MILLISECONDS.toNanos(5));
+                    metrics.employeeReleased(Tier.OPERATOR, 0);
+                    if (i % 1_000 == 0) {
+                        now.addAndGet(TimeUnit.SECONDS.toNanos(1));
+                    }
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        final WindowStats stats = metrics.getStats(Tier.OPERATOR, Window.FIFTEEN_MINUTES);
+        assertEquals(80_000, stats.getAssignedCalls());
+        assertEquals(5, stats.getMeanWaitMillis(), 0.001);
+    }
+
+    @Test
+    public void everyWaitShouldMapToABucketWhoseLowerBoundIsWithinTheRelativeError() {
+
+        final int linearBits = SlidingWindowMetrics.WAIT_LINEAR_BITS;
+        for (long value : new long[]{0, 1, 15, 16, 17, 1_000, 123_456, (1L << 32) - 1}) {
+            final long lowest = Histogram.lowestValueOf(Histogram.bucketOf(value, linearBits), linearBits);
+            assertTrue("Valor " + value + ", límite inferior " + lowest, lowest <= value);
+            assertTrue("Valor " + value + ", límite inferior " + lowest, value - lowest <= value / 8);
+        }
+    }
+
+    private void advanceSeconds(long seconds) {
+        now.addAndGet(TimeUnit.SECONDS.toNanos(seconds));
+    }
+}
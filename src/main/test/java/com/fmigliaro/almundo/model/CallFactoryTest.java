@@ -0,0 +1,103 @@
+package com.fmigliaro.almundo.model;
+
+import com.fmigliaro.almundo.metrics.Histogram;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit Tests de {@link CallFactory} y de las {@link DurationDistribution}.
+ */
+public class CallFactoryTest {
+
+    private static final int SAMPLES = 200_000;
+
+    @Test
+    public void callsCreatedConcurrentlyShouldHaveUniqueIds() throws InterruptedException {
+
+        final CallFactory factory = new CallFactory(DurationDistribution.fixed(100));
+        final Set<Long> ids = ConcurrentHashMap.newKeySet();
+        final ExecutorService executor = Executors.newFixedThreadPool(8);
+
+        for (int t = 0; t < 8; t++) {
+            executor.execute(() -> {
+                for (int i = 0; i < 50_000; i++) {
+                    ids.add(factory.newCall().getId());
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+
+        assertEquals(8 * 50_000, ids.size());
+    }
+
+    @Test
+    public void distributionsShouldMatchTheirParameters() {
+
+        final double[] uniform = sample(DurationDistribution.uniform(100, 300));
+        assertTrue(uniform[0] >= 100 && uniform[uniform.length - 1] <= 300);
+        assertEquals(200, mean(uniform), 2);
+
+        assertEquals(1000, mean(sample(DurationDistribution.exponential(1000))), 20);
+
+        final double[] logNormal = sample(DurationDistribution.logNormal(500, 0.8));
+        assertEquals(500, logNormal[SAMPLES / 2], 10);
+        //Media de una log-normal: mediana * e^(sigma^2 / 2).
+        assertEquals(500 * Math.exp(0.32), mean(logNormal), 15);
+    }
+
+    @Test
+    public void empiricalDistributionShouldReproduceTheHistogram() {
+
+        final Histogram handleTimes = new Histogram();
+        final double[] source = sample(DurationDistribution.exponential(2000));
+        for (double durationMs : source) {
+            handleTimes.record(TimeUnit.MILLISECONDS.toNanos((long) durationMs));
+        }
+        final double[] empirical = sample(DurationDistribution.empirical(handleTimes, TimeUnit.NANOSECONDS));
+
+        assertEquals(source[SAMPLES / 2], empirical[SAMPLES / 2], source[SAMPLES / 2] * 0.03);
+        assertEquals(source[SAMPLES * 9 / 10], empirical[SAMPLES * 9 / 10], source[SAMPLES * 9 / 10] * 0.03);
+    }
+
+    @Test
+    public void callStoreShouldBeFilledWithoutCreatingCalls() {
+
+        final CallStore store = new CallStore(1000);
+        new CallFactory(DurationDistribution.uniform(10, 20), Priority.HIGH).fill(store, 1000, new SplittableRandom(1));
+
+        assertEquals(1000, store.size());
+        for (int id = 0; id < store.size(); id++) {
+            assertTrue(store.getDurationMs(id) >= 10 && store.getDurationMs(id) <= 20);
+            assertEquals(Priority.HIGH, store.getPriority(id));
+        }
+    }
+
+    /**
+     * @return Las duraciones obtenidas, ordenadas de menor a mayor.
+     */
+    private static double[] sample(DurationDistribution distribution) {
+
+        final SplittableRandom random = new SplittableRandom(42);
+        final double[] samples = new double[SAMPLES];
+        for (int i = 0; i < SAMPLES; i++) {
+            samples[i] = distribution.quantileMs(random.nextDouble());
+        }
+        Arrays.sort(samples);
+        return samples;
+    }
+
+    private static double mean(double[] samples) {
+        return Arrays.stream(samples).average().orElse(0);
+    }
+}
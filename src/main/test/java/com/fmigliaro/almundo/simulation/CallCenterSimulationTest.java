@@ -0,0 +1,156 @@
+package com.fmigliaro.almundo.simulation;
+
+import com.fmigliaro.almundo.controller.handler.WaitingOrder;
+import com.fmigliaro.almundo.metrics.Histogram;
+import com.fmigliaro.almundo.model.Call;
+import com.fmigliaro.almundo.model.CallFactory;
+import com.fmigliaro.almundo.model.CallStore;
+import com.fmigliaro.almundo.model.DurationDistribution;
+import com.fmigliaro.almundo.model.Tier;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.SplittableRandom;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit Tests de la simulación de eventos discretos {@link CallCenterSimulation}.
+ */
+public class CallCenterSimulationTest {
+
+    @Test
+    public void operatorShouldServeAllCallsWithoutWaitingWhenCallsDoNotOverlap() {
+
+        final SimulationReport report = new CallCenterSimulation(1, 1, 1, CallCenterSimulation.NEVER_ABANDON)
+                .run(calls(100, 50), ArrivalSchedule.fixedInterval(100));
+
+        final SimulationReport.TierReport operators = report.getTierReport(Tier.OPERATOR);
+        assertEquals(100, operators.getServedCount());
+        assertEquals(0, operators.getWaitTimes().getMax());
+        assertEquals(0, report.getTierReport(Tier.SUPERVISOR).getServedCount());
+        assertEquals(100 * 100 + 50, report.getSimulatedTimeMs());
+        assertEquals(0.5, operators.getUtilization(), 0.01);
+    }
+
+    @Test
+    public void simultaneousCallsShouldEscalateThroughTiersAndThenWait() {
+
+        final SimulationReport report = new CallCenterSimulation(1, 1, 1, CallCenterSimulation.NEVER_ABANDON)
+                .run(calls(4, 1000), ArrivalSchedule.fixedInterval(0));
+
+        assertEquals(1, report.getTierReport(Tier.SUPERVISOR).getServedCount());
+        assertEquals(1, report.getTierReport(Tier.DIRECTOR).getServedCount());
+
+        //La cuarta llamada espera a que finalicen las tres primeras y la atiende el Operador.
+        final SimulationReport.TierReport operators = report.getTierReport(Tier.OPERATOR);
+        assertEquals(2, operators.getServedCount());
+        assertEquals(1000, operators.getWaitTimes().getMax());
+        assertEquals(2000, report.getSimulatedTimeMs());
+    }
+
+    @Test
+    public void callsShouldAbandonWhenWaitingLongerThanTheirPatience() {
+
+        final SimulationReport report = new CallCenterSimulation(1, 0, 0, 500)
+                .run(calls(10, 1000), ArrivalSchedule.fixedInterval(0));
+
+        assertEquals(1, report.getTierReport(Tier.OPERATOR).getServedCount());
+        assertEquals(9, report.getAbandonedCount());
+        assertEquals(0.9, report.getAbandonmentRate(), 0.0001);
+    }
+
+    @Test
+    public void millionsOfCallsShouldBeSimulatedAndAccountedFor() {
+
+        final int callCount = 2_000_000;
+
+        //30 llamadas por segundo de 400 ms en promedio, con 14 empleados: alrededor de un 85% de ocupación.
+        final SimulationReport report = new CallCenterSimulation(10, 3, 1, 2000)
+                .run(calls(callCount, 400), ArrivalSchedule.poisson(30, 42));
+
+        long served = 0;
+        for (Tier tier : Tier.values()) {
+            final SimulationReport.TierReport tierReport = report.getTierReport(tier);
+            served += tierReport.getServedCount();
+            assertTrue(tierReport.getUtilization() > 0 && tierReport.getUtilization() <= 1);
+        }
+        assertEquals(callCount, report.getCallCount());
+        assertEquals(callCount, served + report.getAbandonedCount());
+        assertTrue(report.getTierReport(Tier.OPERATOR).getUtilization()
+                > report.getTierReport(Tier.DIRECTOR).getUtilization());
+    }
+
+    @Test
+    public void callStoreShouldProduceTheSameResultAsCallObjects() {
+
+        final CallCenterSimulation simulation = new CallCenterSimulation(3, 1, 1, 1500);
+        final CallStore store = new CallStore(100_000);
+        final List<Call> calls = new ArrayList<>();
+
+        for (int i = 0; i < 100_000; i++) {
+            final int durationMs = 100 + (i * 7919) % 900;
+            store.add(durationMs);
+            calls.add(new Call(durationMs));
+        }
+        final SimulationReport fromStore = simulation.run(store, ArrivalSchedule.poisson(10, 7));
+        final SimulationReport fromObjects = simulation.run(calls.iterator(), ArrivalSchedule.poisson(10, 7));
+
+        assertEquals(fromObjects.toString(), fromStore.toString());
+        assertEquals(fromObjects.getAbandonedCount(), fromStore.getAbandonedCount());
+    }
+
+    /**
+     * Con duraciones exponenciales y alta ocupación, atender primero a las llamadas más cortas reduce la espera<br/>
+     * promedio respecto del orden de llegada.
+     */
+    @Test
+    public void shortestExpectedFirstShouldLowerMeanWait() {
+
+        final CallStore store = new CallStore(200_000);
+        new CallFactory(DurationDistribution.exponential(400)).fill(store, 200_000, new SplittableRandom(3));
+
+        final Histogram fifo = waitTimes(new CallCenterSimulation(10, 3, 1, CallCenterSimulation.NEVER_ABANDON,
+                WaitingOrder.FIFO).run(store, ArrivalSchedule.poisson(30, 11)));
+        final Histogram shortestFirst = waitTimes(new CallCenterSimulation(10, 3, 1,
+                CallCenterSimulation.NEVER_ABANDON, WaitingOrder.SHORTEST_EXPECTED_FIRST)
+                .run(store, ArrivalSchedule.poisson(30, 11)));
+
+        assertEquals(fifo.getCount(), shortestFirst.getCount());
+        assertTrue("FIFO: " + fifo.getMean() + " ms, SEF: " + shortestFirst.getMean() + " ms",
+                shortestFirst.getMean() < fifo.getMean());
+    }
+
+    private static Histogram waitTimes(SimulationReport report) {
+
+        final Histogram waitTimes = new Histogram();
+        for (Tier tier : Tier.values()) {
+            waitTimes.add(report.getTierReport(tier).getWaitTimes());
+        }
+        return waitTimes;
+    }
+
+    private static Iterator<Call> calls(int count, int durationMs) {
+
+        return new Iterator<Call>() {
+            private int remaining = count;
+
+            @Override
+            public boolean hasNext() {
+                return remaining > 0;
+            }
+
+            @Override
+            public Call next() {
+                if (remaining-- <= 0) {
+                    throw new NoSuchElementException();
+                }
+                return new Call(durationMs);
+            }
+        };
+    }
+}
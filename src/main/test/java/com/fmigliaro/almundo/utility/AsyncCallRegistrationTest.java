@@ -0,0 +1,142 @@
+package com.fmigliaro.almundo.utility;
+
+import com.fmigliaro.almundo.model.Call;
+import com.fmigliaro.almundo.model.Director;
+import com.fmigliaro.almundo.model.Employee;
+import com.fmigliaro.almundo.model.Operator;
+import com.fmigliaro.almundo.model.Supervisor;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit Tests de {@link AsyncCallRegistration}.
+ */
+public class AsyncCallRegistrationTest {
+
+    @Test
+    public void registrationsShouldBeDeliveredInOrderAndInBatches() {
+
+        final Employee[] employees = {new Operator("Op1"), new Supervisor("Sup1"), new Director("Dir1")};
+        final List<Employee> delivered = new ArrayList<>();
+        final int[] batches = new int[1];
+        final int total = 100_000;
+
+        final AsyncCallRegistration callReg = new AsyncCallRegistration((employee, endOfBatch) -> {
+            delivered.add(employee);
+            if (endOfBatch) {
+                batches[0]++;
+            }
+        }, 1024);
+
+        for (int i = 0; i < total; i++) {
+            while (callReg.getPendingCount() == 1024) {
+                Thread.yield();
+            }
+            callReg.addEmployeeInCallProcessingOrder(employees[i % employees.length]);
+        }
+        callReg.close();
+
+        assertEquals(0, callReg.getDroppedCount());
+        assertEquals(total, delivered.size());
+        for (int i = 0; i < total; i++) {
+            assertSame(employees[i % employees.length], delivered.get(i));
+        }
+        assertTrue(batches[0] >= 1 && batches[0] <= total);
+    }
+
+    /**
+     * Con un sink bloqueado, registrar no debe bloquearse: las registraciones que no entran en el buffer se descartan.
+     */
+    @Test
+    public void registrationShouldNeverBlockWhenTheSinkIsSlow() {
+
+        final CountDownLatch sinkReleased = new CountDownLatch(1);
+        final List<Employee> delivered = new ArrayList<>();
+
+        final AsyncCallRegistration callReg = new AsyncCallRegistration((employee, endOfBatch) -> {
+            try {
+                sinkReleased.await();
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+            }
+            delivered.add(employee);
+        }, 8);
+
+        final long start = System.nanoTime();
+        for (int i = 0; i < 100; i++) {
+            callReg.addEmployeeInCallProcessingOrder(new Operator("Op" + i));
+        }
+        final long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        sinkReleased.countDown();
+        callReg.close();
+
+        assertTrue("Registrar tardó " + elapsedMs + "ms", elapsedMs < 1000);
+        assertTrue(callReg.getDroppedCount() >= 100 - 8 - 1);
+        assertEquals(100, delivered.size() + callReg.getDroppedCount());
+    }
+
+    /**
+     * Las finalizaciones de llamadas deben llegar al {@link CallRegistrationAware} adaptado, intercaladas con las<br/>
+     * registraciones en el orden en que se publicaron.
+     */
+    @Test
+    public void callCompletionsShouldBeForwardedInOrderWithRegistrations() {
+
+        final Employee operator = new Operator("Op1");
+        final Call call = new Call(10);
+        final List<String> events = new ArrayList<>();
+
+        final AsyncCallRegistration callReg = new AsyncCallRegistration(CallRegistrationSink.of(
+                new CallRegistrationAware() {
+                    @Override
+                    public void addEmployeeInCallProcessingOrder(Employee employee) {
+                        events.add("registration " + employee.getId());
+                    }
+
+                    @Override
+                    public void callCompleted(Call completed, Employee employee, long assignedNanos, long endNanos) {
+                        assertSame(call, completed);
+                        events.add("completion " + employee.getId() + " " + assignedNanos + " " + endNanos);
+                    }
+                }), 8);
+
+        callReg.addEmployeeInCallProcessingOrder(operator);
+        callReg.callCompleted(call, operator, 5, 15);
+        callReg.close();
+
+        assertEquals(0, callReg.getDroppedCount());
+        assertEquals(2, events.size());
+        assertEquals("registration " + operator.getId(), events.get(0));
+        assertEquals("completion " + operator.getId() + " 5 15", events.get(1));
+    }
+
+    /**
+     * Luego de cerrar, toda registración debe descartarse y contabilizarse, y nunca entregarse al sink.
+     */
+    @Test
+    public void registrationsAfterCloseShouldBeCountedAsDropped() {
+
+        final List<Employee> delivered = new ArrayList<>();
+        final AsyncCallRegistration callReg = new AsyncCallRegistration((employee, endOfBatch) ->
+                delivered.add(employee), 8);
+
+        callReg.close();
+        callReg.addEmployeeInCallProcessingOrder(new Operator("Op1"));
+        callReg.callCompleted(new Call(10), new Operator("Op2"), 0, 1);
+
+        assertEquals(2, callReg.getDroppedCount());
+        assertEquals(0, callReg.getPendingCount());
+        assertTrue(delivered.isEmpty());
+        assertFalse(Thread.currentThread().isInterrupted());
+    }
+}
@@ -0,0 +1,58 @@
+package com.fmigliaro.almundo.controller.handler;
+
+import com.fmigliaro.almundo.model.Call;
+import com.fmigliaro.almundo.model.Operator;
+import com.fmigliaro.almundo.utility.CallRegistrationAware;
+import org.openjdk.jcstress.annotations.Actor;
+import org.openjdk.jcstress.annotations.Arbiter;
+import org.openjdk.jcstress.annotations.Description;
+import org.openjdk.jcstress.annotations.Expect;
+import org.openjdk.jcstress.annotations.JCStressTest;
+import org.openjdk.jcstress.annotations.Outcome;
+import org.openjdk.jcstress.annotations.State;
+import org.openjdk.jcstress.infra.results.II_Result;
+
+/**
+ * Un thread finaliza la llamada del único Operador (liberándolo) mientras otro intenta obtenerlo. Al finalizar<br/>
+ * ambos, el Operador debe estar asignado al segundo thread o libre en su cola, pero nunca en ambos lugares ni en<br/>
+ * ninguno.<p/>
+ *
+ * Resultado: (obtuvo el segundo thread al Operador, Operadores libres al finalizar).
+ */
+@JCStressTest
+@Description("Liberacion de un empleado concurrente con su obtencion.")
+@Outcome(id = "1, 0", expect = Expect.ACCEPTABLE, desc = "El empleado se obtuvo luego de ser liberado.")
+@Outcome(id = "0, 1", expect = Expect.ACCEPTABLE, desc = "El empleado se busco antes de ser liberado.")
+@Outcome(id = "1, 1", expect = Expect.FORBIDDEN, desc = "El empleado quedo asignado y libre a la vez.")
+@Outcome(id = "0, 0", expect = Expect.FORBIDDEN, desc = "El empleado se perdio.")
+@State
+public class AcquireReleaseStress {
+
+    private static final CallRegistrationAware NO_REGISTRATION = employee -> { };
+
+    private final EmployeeHandler<Operator> handler = HandlerChains.create(1, 0, 0);
+    private final EmployeeHandler.Assignment<Operator> busy;
+    private final Call call = new Call(0);
+
+    /**
+     * jcstress crea un estado nuevo antes de ejecutar los actores: el Operador ya está ocupado cuando comienzan.
+     */
+    public AcquireReleaseStress() {
+        busy = handler.tryAcquire(NO_REGISTRATION);
+    }
+
+    @Actor
+    public void release() {
+        busy.process(call);
+    }
+
+    @Actor
+    public void acquire(II_Result r) {
+        r.r1 = handler.tryAcquire(NO_REGISTRATION) != null ? 1 : 0;
+    }
+
+    @Arbiter
+    public void arbiter(II_Result r) {
+        r.r2 = handler.employees.idleCount();
+    }
+}
@@ -0,0 +1,39 @@
+package com.fmigliaro.almundo.controller.handler;
+
+import com.fmigliaro.almundo.model.Operator;
+import com.fmigliaro.almundo.utility.CallRegistrationAware;
+import org.openjdk.jcstress.annotations.Actor;
+import org.openjdk.jcstress.annotations.Description;
+import org.openjdk.jcstress.annotations.Expect;
+import org.openjdk.jcstress.annotations.JCStressTest;
+import org.openjdk.jcstress.annotations.Outcome;
+import org.openjdk.jcstress.annotations.State;
+import org.openjdk.jcstress.infra.results.II_Result;
+
+/**
+ * Dos threads intentan obtener al único Operador de la cadena al mismo tiempo: exactamente uno de ellos debe<br/>
+ * obtenerlo. Que ambos lo obtengan significa que el empleado se asignó dos veces; que ninguno lo obtenga, que el<br/>
+ * empleado se perdió.
+ */
+@JCStressTest
+@Description("Obtencion concurrente del unico empleado disponible.")
+@Outcome(id = {"1, 0", "0, 1"}, expect = Expect.ACCEPTABLE, desc = "Un unico thread obtiene al empleado.")
+@Outcome(id = "1, 1", expect = Expect.FORBIDDEN, desc = "El empleado se asigno dos veces.")
+@Outcome(id = "0, 0", expect = Expect.FORBIDDEN, desc = "El empleado se perdio.")
+@State
+public class AcquireStress {
+
+    private static final CallRegistrationAware NO_REGISTRATION = employee -> { };
+
+    private final EmployeeHandler<Operator> handler = HandlerChains.create(1, 0, 0);
+
+    @Actor
+    public void actor1(II_Result r) {
+        r.r1 = handler.tryAcquire(NO_REGISTRATION) != null ? 1 : 0;
+    }
+
+    @Actor
+    public void actor2(II_Result r) {
+        r.r2 = handler.tryAcquire(NO_REGISTRATION) != null ? 1 : 0;
+    }
+}
@@ -0,0 +1,206 @@
+package com.fmigliaro.almundo.controller.handler;
+
+import com.fmigliaro.almundo.model.Call;
+import com.fmigliaro.almundo.model.Employee;
+import com.fmigliaro.almundo.model.Operator;
+import com.fmigliaro.almundo.utility.CallRegistrationAware;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Prueba de larga duración (soak) de la obtención y liberación de empleados.<p/>
+ *
+ * Varios threads procesan llamadas de duración 0 contra una cadena con menos empleados que threads, por lo que las<br/>
+ * llamadas recorren la cadena y esperan en la cola de espera continuamente. Cada cierta cantidad de llamadas, un<br/>
+ * thread se interrumpe antes de procesar su llamada, para ejercitar la liberación del empleado (o el abandono de<br/>
+ * la espera) ante una interrupción.<p/>
+ *
+ * En cada intervalo se imprime el throughput, su variación respecto del primer intervalo y el heap retenido fuera<br/>
+ * de las áreas de objetos nuevos (sin forzar GCs), de manera que una degradación o una pérdida de memoria se hagan<br/>
+ * visibles luego de horas. Durante la prueba se verifica que ningún empleado atienda dos llamadas superpuestas, y<br/>
+ * al finalizar, que todos los empleados vuelvan a estar libres y que cada llamada atendida haya sido registrada<br/>
+ * una única vez.<br/>
+ * Si algún invariante no se cumple, el proceso finaliza con código de salida 1.<p/>
+ *
+ * Uso:<br/>
+ * <pre>
+ * java -Dlog4j.configurationFile=log4j2-stress.xml -cp target/jcstress.jar \
+ *      com.fmigliaro.almundo.controller.handler.HandlerSoak \
+ *      duracionMinutos [intervaloSegundos] [threads] [empleadosPorNivel]
+ * </pre>
+ * Con <code>log4j2-stress.xml</code>, el log se escribe en <code>target/soak.log</code>.
+ */
+public class HandlerSoak {
+
+    private static final int INTERRUPT_EVERY_CALLS = 100_000;
+    private static final long MB = 1024 * 1024;
+
+    private final EmployeeHandler<Operator> chain;
+    private final int threads;
+    private final SoakRegistration registration = new SoakRegistration();
+    private final LongAdder interrupted = new LongAdder();
+    private final LongAdder cancelled = new LongAdder();
+    private volatile boolean running = true;
+
+    private HandlerSoak(int threads, int employeesPerTier) {
+        this.threads = threads;
+        this.chain = HandlerChains.create(employeesPerTier, employeesPerTier, employeesPerTier);
+        chain.setShedCallListener((call, reason) -> cancelled.increment());
+        chain.setQueuePositionListener((call, position, predictedWaitMs) -> { });
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+
+        if (args.length < 1) {
+            System.err.println("Uso: HandlerSoak duracionMinutos [intervaloSegundos] [threads] [empleadosPorNivel]");
+            System.exit(1);
+        }
+        final long durationMinutes = Long.parseLong(args[0]);
+        final int intervalSeconds = args.length > 1 ? Integer.parseInt(args[1]) : 60;
+        final int threads = args.length > 2 ? Integer.parseInt(args[2]) : 16;
+        final int employeesPerTier = args.length > 3 ? Integer.parseInt(args[3]) : 2;
+
+        final boolean ok = new HandlerSoak(threads, employeesPerTier).run(durationMinutes, intervalSeconds);
+        System.exit(ok ? 0 : 1);
+    }
+
+    private boolean run(long durationMinutes, int intervalSeconds) throws InterruptedException {
+
+        final List<Thread> workers = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            final Thread worker = new Thread(this::work, "soak-" + i);
+            workers.add(worker);
+            worker.start();
+        }
+        final long startNanos = System.nanoTime();
+        final long endNanos = startNanos + TimeUnit.MINUTES.toNanos(durationMinutes);
+        double firstThroughput = 0;
+        long firstHeapMb = -1;
+        long lastCompleted = 0;
+        long lastNanos = startNanos;
+
+        System.out.println("minuto,llamadas/s,variacion%,heapRetenidoMB,heapMB,interrupciones,cancelaciones");
+        while (System.nanoTime() < endNanos) {
+            TimeUnit.SECONDS.sleep(intervalSeconds);
+
+            final long now = System.nanoTime();
+            final long completed = registration.completed.sum();
+            final double throughput = (completed - lastCompleted) * 1e9 / (now - lastNanos);
+            if (firstThroughput == 0) {
+                firstThroughput = throughput;
+            }
+            final long retainedHeapMb = retainedHeap() / MB;
+            if (firstHeapMb < 0) {
+                firstHeapMb = retainedHeapMb;
+            }
+            System.out.println(String.format("%.1f,%.0f,%+.1f,%d,%d,%d,%d",
+                    (now - startNanos) / 6e10, throughput, (throughput / firstThroughput - 1) * 100, retainedHeapMb,
+                    ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed() / MB, interrupted.sum(),
+                    cancelled.sum()));
+            lastCompleted = completed;
+            lastNanos = now;
+        }
+        running = false;
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        return verify(firstHeapMb);
+    }
+
+    private void work() {
+
+        final Call call = new Call(0);
+        long calls = 0;
+        while (running) {
+            if (++calls % INTERRUPT_EVERY_CALLS == 0) {
+                interrupted.increment();
+                Thread.currentThread().interrupt();
+            }
+            chain.handleCall(call, registration);
+            //La interrupción puede no haber sido consumida (por ejemplo, si la llamada no esperó): se descarta.
+            Thread.interrupted();
+        }
+    }
+
+    private boolean verify(long firstHeapMb) {
+
+        boolean ok = true;
+        EmployeeHandler<?> handler = chain;
+        do {
+            final int idle = handler.employees.idleCount();
+            final int staff = handler.employees.staffCount();
+            if (idle != staff) {
+                System.out.println("ERROR: " + handler.getTier() + " tiene " + idle + " empleados libres de " + staff +
+                        ". Se perdieron o duplicaron empleados.");
+                ok = false;
+            }
+            handler = handler.successorHandler;
+        } while (handler != chain);
+
+        final long completed = registration.completed.sum();
+        final long registered = registration.registered.sum();
+        if (completed != registered) {
+            System.out.println("ERROR: " + completed + " llamadas finalizadas pero " + registered + " registradas.");
+            ok = false;
+        }
+        if (registration.overlaps.sum() != 0) {
+            System.out.println("ERROR: " + registration.overlaps.sum() + " llamadas asignadas a un empleado que " +
+                    "atendía otra llamada.");
+            ok = false;
+        }
+        System.out.println("Llamadas atendidas: " + completed + ". Heap retenido: inicial " + firstHeapMb +
+                "MB, final " + retainedHeap() / MB + "MB. " + (ok ? "Invariantes OK." : "Invariantes NO cumplidos."));
+        return ok;
+    }
+
+    /**
+     * @return Memoria ocupada, en bytes, en los pools del heap que sobreviven a los GCs de objetos nuevos<br/>
+     * (survivor y old). A diferencia del uso total, no depende de cuán lleno esté el eden al momento de la medición.
+     */
+    private static long retainedHeap() {
+
+        long used = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP && !pool.getName().contains("Eden")) {
+                used += pool.getUsage().getUsed();
+            }
+        }
+        return used;
+    }
+
+    /**
+     * Registra las llamadas atendidas y verifica que cada empleado atienda sus llamadas de a una: la asignación de<br/>
+     * cada llamada debe ser posterior a la finalización de la llamada anterior del mismo empleado.
+     */
+    private static final class SoakRegistration implements CallRegistrationAware {
+
+        private final Map<Employee, AtomicLong> lastEndNanos = new ConcurrentHashMap<>();
+        private final LongAdder registered = new LongAdder();
+        private final LongAdder completed = new LongAdder();
+        private final LongAdder overlaps = new LongAdder();
+
+        @Override
+        public void addEmployeeInCallProcessingOrder(Employee employee) {
+            registered.increment();
+        }
+
+        @Override
+        public void callCompleted(Call call, Employee employee, long assignedNanos, long endNanos) {
+
+            final AtomicLong lastEnd = lastEndNanos.computeIfAbsent(employee, e -> new AtomicLong(Long.MIN_VALUE));
+            if (assignedNanos < lastEnd.getAndSet(endNanos)) {
+                overlaps.increment();
+            }
+            completed.increment();
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.fmigliaro.almundo.controller.handler;
+
+import com.fmigliaro.almundo.model.Employee;
+import com.fmigliaro.almundo.model.Operator;
+import com.fmigliaro.almundo.utility.CallRegistrationAware;
+import org.openjdk.jcstress.annotations.Actor;
+import org.openjdk.jcstress.annotations.Arbiter;
+import org.openjdk.jcstress.annotations.Description;
+import org.openjdk.jcstress.annotations.Expect;
+import org.openjdk.jcstress.annotations.JCStressTest;
+import org.openjdk.jcstress.annotations.Outcome;
+import org.openjdk.jcstress.annotations.State;
+import org.openjdk.jcstress.infra.results.II_Result;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Dos threads recorren una cadena con un Operador y un Supervisor. El que no obtiene al Operador lo buscó luego de<br/>
+ * que el otro lo obtuviera, por lo que el Operador siempre debe registrarse antes que el Supervisor, sin importar<br/>
+ * qué thread entregue las registraciones (ver {@link RegistrationSequencer}).<p/>
+ *
+ * Resultado: niveles, en orden de registración, de los dos empleados registrados (-1 si falta una registración).
+ */
+@JCStressTest
+@Description("Orden de las registraciones de empleados obtenidos concurrentemente.")
+@Outcome(id = "0, 1", expect = Expect.ACCEPTABLE, desc = "El Operador se registra antes que el Supervisor.")
+@Outcome(id = "1, 0", expect = Expect.FORBIDDEN, desc = "El Supervisor se registro antes que el Operador.")
+@Outcome(expect = Expect.FORBIDDEN, desc = "Una registracion se perdio o se entrego dos veces.")
+@State
+public class RegistrationOrderStress {
+
+    private final Queue<Employee> registered = new ConcurrentLinkedQueue<>();
+    private final CallRegistrationAware registration = registered::add;
+    private final EmployeeHandler<Operator> chain = HandlerChains.create(1, 1, 0);
+
+    @Actor
+    public void actor1() {
+        acquire();
+    }
+
+    @Actor
+    public void actor2() {
+        acquire();
+    }
+
+    @Arbiter
+    public void arbiter(II_Result r) {
+        r.r1 = registered.size() == 2 ? registered.poll().getTier().ordinal() : -1;
+        r.r2 = registered.size() == 1 ? registered.poll().getTier().ordinal() : -1;
+    }
+
+    private void acquire() {
+        if (chain.tryAcquire(registration) == null) {
+            chain.successorHandler.tryAcquire(registration);
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.fmigliaro.almundo.model;
+
+import org.openjdk.jcstress.annotations.Actor;
+import org.openjdk.jcstress.annotations.Arbiter;
+import org.openjdk.jcstress.annotations.Description;
+import org.openjdk.jcstress.annotations.Expect;
+import org.openjdk.jcstress.annotations.JCStressTest;
+import org.openjdk.jcstress.annotations.Outcome;
+import org.openjdk.jcstress.annotations.State;
+import org.openjdk.jcstress.infra.results.Z_Result;
+
+/**
+ * Dos threads crean una llamada cada uno al mismo tiempo: los ids de ambas llamadas deben ser distintos.
+ */
+@JCStressTest
+@Description("Unicidad de los ids de llamadas creadas concurrentemente.")
+@Outcome(id = "true", expect = Expect.ACCEPTABLE, desc = "Ids distintos.")
+@Outcome(id = "false", expect = Expect.FORBIDDEN, desc = "Dos llamadas con el mismo id.")
+@State
+public class CallIdStress {
+
+    private long id1;
+    private long id2;
+
+    @Actor
+    public void actor1() {
+        id1 = new Call(0).getId();
+    }
+
+    @Actor
+    public void actor2() {
+        id2 = new Call(0).getId();
+    }
+
+    @Arbiter
+    public void arbiter(Z_Result r) {
+        r.r1 = id1 != id2;
+    }
+}